@@ -0,0 +1,165 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import red.Conexion;
+import red.EscuchaRed;
+import red.HilosRed;
+import red.MensajeJuego;
+import red.P2PNetworkManager;
+
+/**
+ * Compara hilos de plataforma y virtuales en el servidor de P2PNetworkManager
+ * Abre N conexiones contra un servidor con un hilo lector por peer y mide:
+ * conexiones logradas, tiempo, hilos vivos, memoria por conexion y un eco por conexion
+ * Los clientes usan el transporte NIO para no sumar hilos al proceso
+ *
+ * Uso: java benchmark.BenchmarkHilos [conexiones] [plataforma|virtuales]
+ * Sin modo mide los dos, uno detras de otro
+ */
+public class BenchmarkHilos {
+    private static final int PUERTO_BASE = 47100;
+    private static final long ESPERA_MS = 30000;
+    
+    public static void main(String[] args) throws Exception {
+        int conexiones = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        String modo = args.length > 1 ? args[1] : "ambos";
+        
+        System.out.println("=== BENCHMARK DE HILOS DE RED ===");
+        System.out.println("Conexiones objetivo: " + conexiones);
+        System.out.printf("%-11s %8s %9s %7s %12s %12s %8s%n",
+            "modo", "logradas", "ms", "hilos", "heap B/con", "RSS B/con", "ecos");
+        
+        int puerto = PUERTO_BASE;
+        if (!modo.equals("virtuales")) {
+            medir(false, conexiones, puerto);
+            puerto += 2;
+        }
+        if (!modo.equals("plataforma")) {
+            medir(true, conexiones, puerto);
+        }
+    }
+    
+    private static void medir(boolean virtuales, int conexiones, int puerto) throws Exception {
+        HilosRed.setVirtuales(virtuales);
+        AtomicLong saludos = new AtomicLong();
+        AtomicLong ecos = new AtomicLong();
+        
+        P2PNetworkManager servidor = new P2PNetworkManager("servidor", puerto);
+        servidor.setEscuchaRed(new EscuchaRed() {
+            @Override
+            public void alRecibirMensaje(MensajeJuego mensaje, Conexion desde) {
+                if (mensaje.getTipo() == MensajeJuego.TipoMensaje.CHAT) {
+                    desde.enviarMensaje(mensaje);
+                }
+            }
+            
+            @Override
+            public void alDesconectarPeer(Conexion peer) {
+            }
+        });
+        
+        P2PNetworkManager clientes = new P2PNetworkManager("cliente", puerto + 1);
+        clientes.usarNIO(1);
+        clientes.setEscuchaRed(new EscuchaRed() {
+            @Override
+            public void alRecibirMensaje(MensajeJuego mensaje, Conexion desde) {
+                if (mensaje.getTipo() == MensajeJuego.TipoMensaje.SALUDO) {
+                    saludos.incrementAndGet();
+                } else if (mensaje.getTipo() == MensajeJuego.TipoMensaje.CHAT) {
+                    ecos.incrementAndGet();
+                }
+            }
+            
+            @Override
+            public void alDesconectarPeer(Conexion peer) {
+            }
+        });
+        
+        // Los mensajes de [RED] por conexion falsearian el tiempo
+        PrintStream consola = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        int logradas = 0;
+        long inicio;
+        long heapAntes;
+        long rssAntes;
+        try {
+            servidor.iniciarServidor();
+            limpiarMemoria();
+            heapAntes = heapUsado();
+            rssAntes = rss();
+            
+            inicio = System.nanoTime();
+            for (int i = 0; i < conexiones; i++) {
+                if (!clientes.conectarAPeer("127.0.0.1", puerto)) {
+                    break;
+                }
+                logradas++;
+            }
+            esperar(saludos, logradas);
+            clientes.enviarMensajeChat("eco");
+            esperar(ecos, logradas);
+        } finally {
+            System.setOut(consola);
+        }
+        long milis = (System.nanoTime() - inicio) / 1_000_000;
+        
+        int hilos = Thread.activeCount();
+        limpiarMemoria();
+        long heap = (heapUsado() - heapAntes) / Math.max(1, logradas);
+        long rssPorConexion = rssAntes < 0 ? -1 : (rss() - rssAntes) / Math.max(1, logradas);
+        
+        System.out.printf("%-11s %8d %9d %7d %12d %12s %8d%n",
+            virtuales ? "virtuales" : "plataforma", logradas, milis, hilos, heap,
+            rssPorConexion < 0 ? "n/d" : String.valueOf(rssPorConexion), ecos.get());
+        
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            clientes.cerrar();
+            servidor.cerrar();
+        } finally {
+            System.setOut(consola);
+        }
+    }
+    
+    private static void esperar(AtomicLong contador, long objetivo) throws InterruptedException {
+        long limite = System.currentTimeMillis() + ESPERA_MS;
+        while (contador.get() < objetivo && System.currentTimeMillis() < limite) {
+            Thread.sleep(5);
+        }
+    }
+    
+    private static void limpiarMemoria() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+    }
+    
+    private static long heapUsado() {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        return memoria.getHeapMemoryUsage().getUsed();
+    }
+    
+    /**
+     * Memoria residente del proceso (incluye pilas de hilos); -1 fuera de Linux
+     */
+    private static long rss() {
+        try {
+            for (String linea : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (linea.startsWith("VmRSS:")) {
+                    return Long.parseLong(linea.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Sin /proc no hay dato de memoria nativa
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,123 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import red.Conexion;
+import red.EscuchaRed;
+import red.MensajeJuego;
+import red.P2PNetworkManager;
+import red.RedMemoria;
+
+/**
+ * Muchos peers intercambiando movimientos sobre la red en memoria (RedMemoria)
+ * Los peers se emparejan; en cada pareja un movimiento responde al anterior
+ * hasta completar los movimientos pedidos. Mide el coste del gestor de red
+ * (difusion, colas de salida, escuchas) sin sockets ni esperas
+ * Con 1 hilo de entrega el orden de los mensajes es el mismo en cada ejecucion
+ *
+ * Uso: java benchmark.BenchmarkMemoria [peers] [movimientos por pareja] [hilos]
+ */
+public class BenchmarkMemoria {
+    private static final int PUERTO_BASE = 1;
+    private static final long ESPERA_MS = 60000;
+    
+    public static void main(String[] args) throws Exception {
+        int peers = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int movimientos = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int parejas = peers / 2;
+        
+        System.out.println("=== BENCHMARK DE RED EN MEMORIA ===");
+        System.out.println("Peers: " + parejas * 2 + ", movimientos por pareja: " + movimientos
+                         + ", hilos de entrega: " + hilos);
+        
+        RedMemoria red = new RedMemoria(hilos);
+        CountDownLatch terminadas = new CountDownLatch(parejas);
+        List<P2PNetworkManager> gestores = new ArrayList<>();
+        
+        // Los mensajes de [RED] por conexion falsearian el tiempo
+        PrintStream consola = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long inicio;
+        long conectados;
+        boolean completo;
+        try {
+            inicio = System.nanoTime();
+            for (int i = 0; i < parejas; i++) {
+                int puerto = PUERTO_BASE + 2 * i;
+                P2PNetworkManager anfitrion = crear("anfitrion-" + i, puerto, red, movimientos, null);
+                P2PNetworkManager invitado = crear("invitado-" + i, puerto + 1, red, movimientos, terminadas);
+                anfitrion.iniciarServidor();
+                if (!invitado.conectarAPeer("memoria", puerto)) {
+                    throw new IllegalStateException("No se pudo conectar la pareja " + i);
+                }
+                gestores.add(anfitrion);
+                gestores.add(invitado);
+            }
+            conectados = System.nanoTime();
+            // Cada invitado abre su partida con el primer movimiento
+            for (int i = 1; i < gestores.size(); i += 2) {
+                gestores.get(i).enviarMovimiento(2, 1, 1);
+            }
+            completo = terminadas.await(ESPERA_MS, TimeUnit.MILLISECONDS);
+        } finally {
+            System.setOut(consola);
+        }
+        long fin = System.nanoTime();
+        
+        long mensajes = 2L * parejas * movimientos;
+        double segundos = (fin - conectados) / 1e9;
+        System.out.printf("Conexion de %d peers: %d ms%n", parejas * 2, TimeUnit.NANOSECONDS.toMillis(conectados - inicio));
+        System.out.printf("Movimientos: %d en %.0f ms (%.0f mensajes/s, %.2f us por mensaje)%n",
+            mensajes, segundos * 1000, mensajes / segundos, segundos * 1e6 / mensajes);
+        if (!completo) {
+            System.out.println("Parejas sin terminar: " + terminadas.getCount());
+        }
+        
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (P2PNetworkManager gestor : gestores) {
+                gestor.cerrar();
+            }
+            red.cerrar();
+        } finally {
+            System.setOut(consola);
+        }
+    }
+    
+    /**
+     * Peer que responde a cada movimiento con otro hasta recibir los pedidos
+     * @param terminadas Latch del invitado, que descuenta al recibir el ultimo; null en el anfitrion
+     */
+    private static P2PNetworkManager crear(String nombre, int puerto, RedMemoria red,
+                                           int movimientos, CountDownLatch terminadas) {
+        P2PNetworkManager gestor = new P2PNetworkManager(nombre, puerto);
+        gestor.usarMemoria(red);
+        gestor.setEscuchaRed(new EscuchaRed() {
+            // Cada buzon se vacia en una sola tarea a la vez
+            private int recibidos;
+            
+            @Override
+            public void alRecibirMensaje(MensajeJuego mensaje, Conexion desde) {
+                if (mensaje.getTipo() != MensajeJuego.TipoMensaje.MOVIMIENTO) {
+                    return;
+                }
+                recibidos++;
+                if (terminadas != null && recibidos == movimientos) {
+                    terminadas.countDown();
+                } else if (recibidos <= movimientos) {
+                    gestor.enviarMovimiento(terminadas == null ? 1 : 2, recibidos % 4 + 1, recibidos % 6 + 1);
+                }
+            }
+            
+            @Override
+            public void alDesconectarPeer(Conexion peer) {
+            }
+        });
+        return gestor;
+    }
+}
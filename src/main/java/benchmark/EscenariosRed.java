@@ -0,0 +1,305 @@
+package benchmark;
+
+import controlador.ControladorPartida;
+import controlador.ControladorRed;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import modelo.ColorFicha;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.Tablero;
+import red.PerfilEnlace;
+import red.PerfilEnlace.Distribucion;
+import red.RedMemoria;
+
+/**
+ * Escenarios de red mala para partidas entre ControladorRed
+ * Cada escenario juega varias partidas a la vez sobre una RedMemoria con perfiles
+ * de enlace (latencia, jitter, reordenacion, congelaciones, cortes y ancho de banda)
+ * y mide la latencia de turno de extremo a extremo: desde que un jugador empieza
+ * su turno (tirada, movimiento y cambio de turno) hasta que el otro aplica el cambio
+ * Los ControladorRed llevan sesiones reanudables y latidos como en el juego real;
+ * todo ocurre dentro del proceso y con la misma semilla se repiten los incidentes
+ *
+ * Uso: java benchmark.EscenariosRed [escenario|todos] [partidas] [turnos] [semilla]
+ */
+public class EscenariosRed {
+    private static final int PUERTO_BASE = 6000;
+    private static final long ESPERA_MS = 120000;
+    
+    private static final PerfilEnlace WIFI = PerfilEnlace.IDEAL.conRetardo(Distribucion.NORMAL, 4, 2);
+    private static final PerfilEnlace MOVIL = PerfilEnlace.IDEAL
+        .conRetardo(Distribucion.PARETO, 45, 25)
+        .conAnchoBanda(16 * 1024)
+        .conEstancamientos(0.02, 400);
+    private static final PerfilEnlace LEJANO = PerfilEnlace.IDEAL.conRetardo(Distribucion.UNIFORME, 120, 15);
+    
+    /**
+     * Cambio de perfiles al empezar un turno de cada partida (0 = antes de conectar)
+     */
+    private record Paso(int turno, PerfilEnlace anfitrion, PerfilEnlace invitado) { }
+    
+    private record Escenario(String nombre, String descripcion, List<Paso> guion) { }
+    
+    private static final List<Escenario> ESCENARIOS = List.of(
+        new Escenario("lan", "sin degradacion (referencia)", List.of()),
+        new Escenario("wifi", "wifi domestico en los dos lados",
+            List.of(new Paso(0, WIFI, WIFI))),
+        new Escenario("movil", "invitado con datos moviles: cola larga, 16 KB/s y congelaciones de 400 ms",
+            List.of(new Paso(0, WIFI, MOVIL))),
+        new Escenario("lejano", "jugadores en continentes distintos",
+            List.of(new Paso(0, LEJANO, LEJANO))),
+        new Escenario("reordenacion", "5% de segmentos fuera de orden en los dos lados",
+            List.of(new Paso(0, WIFI.conReordenacion(0.05), WIFI.conReordenacion(0.05)))),
+        new Escenario("cortes", "la conexion del invitado se corta de vez en cuando (sesion reanudable)",
+            List.of(new Paso(0, WIFI, WIFI.conReinicios(0.01)))),
+        new Escenario("degradacion", "el invitado pasa a datos moviles en el turno 20 y se recupera en el 40",
+            List.of(new Paso(20, PerfilEnlace.IDEAL, MOVIL), new Paso(40, PerfilEnlace.IDEAL, PerfilEnlace.IDEAL)))
+    );
+    
+    public static void main(String[] args) throws Exception {
+        String nombre = args.length > 0 ? args[0] : "todos";
+        int partidas = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int turnos = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        long semilla = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        
+        System.out.println("=== ESCENARIOS DE RED ===");
+        System.out.println("Partidas simultaneas: " + partidas + " (" + partidas * 2
+                         + " ControladorRed), turnos por partida: " + turnos + ", semilla: " + semilla);
+        System.out.printf("%-13s %6s %8s %8s %8s %8s %8s %6s %6s %6s%n",
+            "escenario", "turnos", "p50 ms", "p90 ms", "p99 ms", "max ms", "total ms", "reord", "estanc", "cortes");
+        
+        // Los mensajes de [RED] y del dispatcher por cada turno falsearian el tiempo;
+        // tampoco deben colarse en la tabla los que llegan tarde al cerrar un escenario
+        PrintStream consola = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        boolean alguno = false;
+        try {
+            for (Escenario escenario : ESCENARIOS) {
+                if (nombre.equals("todos") || nombre.equals(escenario.nombre())) {
+                    alguno = true;
+                    ejecutar(escenario, partidas, turnos, semilla, consola);
+                }
+            }
+        } finally {
+            System.setOut(consola);
+        }
+        if (!alguno) {
+            System.out.println("Escenario desconocido: " + nombre);
+            for (Escenario escenario : ESCENARIOS) {
+                System.out.println("  " + escenario.nombre() + ": " + escenario.descripcion());
+            }
+        }
+    }
+    
+    private static void ejecutar(Escenario escenario, int partidas, int turnos, long semilla,
+                                 PrintStream consola) throws Exception {
+        RedMemoria red = new RedMemoria(2, semilla);
+        Medicion medicion = new Medicion(partidas * turnos);
+        CountDownLatch terminadas = new CountDownLatch(partidas);
+        List<ControladorRed> controladores = new ArrayList<>();
+        List<JugadorSimulado> anfitriones = new ArrayList<>();
+        
+        for (int i = 0; i < partidas; i++) {
+            int puerto = PUERTO_BASE + 2 * i;
+            PartidaSimulada juego = new PartidaSimulada(escenario, red, puerto, puerto + 1, turnos,
+                                                        new SplittableRandom(semilla + i), medicion, terminadas);
+            juego.aplicarGuion(0);
+            
+            ControladorRed anfitrion = new ControladorRed("anfitrion-" + i, puerto, new Tablero(), 1);
+            ControladorRed invitado = new ControladorRed("invitado-" + i, puerto, new Tablero(), 2);
+            anfitrion.getGestorRed().usarMemoria(red);
+            invitado.getGestorRed().usarMemoria(red);
+            controladores.add(anfitrion);
+            controladores.add(invitado);
+            anfitriones.add(new JugadorSimulado(anfitrion, 1, juego));
+            new JugadorSimulado(invitado, 2, juego);
+            
+            anfitrion.iniciarComoAnfitrion();
+            if (!invitado.unirseAPartida("memoria", puerto)
+                || invitado.esperarNombreOponente() == null
+                || anfitrion.esperarNombreOponente() == null) {
+                throw new IllegalStateException("No se pudo conectar la partida " + i);
+            }
+        }
+        
+        long inicio = System.nanoTime();
+        for (JugadorSimulado anfitrion : anfitriones) {
+            anfitrion.jugar();
+        }
+        boolean completo = terminadas.await(ESPERA_MS, TimeUnit.MILLISECONDS);
+        long total = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        
+        long[] latencias = medicion.ordenadas();
+        consola.printf("%-13s %6d %8.1f %8.1f %8.1f %8.1f %8d %6d %6d %6d%n",
+            escenario.nombre(), latencias.length,
+            percentil(latencias, 50), percentil(latencias, 90), percentil(latencias, 99), percentil(latencias, 100),
+            total, red.getReordenados(), red.getEstancamientos(), red.getReinicios());
+        if (!completo) {
+            consola.println("  " + terminadas.getCount() + " partidas sin terminar tras " + ESPERA_MS + " ms");
+        }
+        
+        for (ControladorRed controlador : controladores) {
+            controlador.cerrar();
+        }
+        red.cerrar();
+    }
+    
+    /**
+     * Percentil por rango mas cercano, en milisegundos
+     */
+    private static double percentil(long[] ordenadas, int p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int rango = (int) Math.ceil(p / 100.0 * ordenadas.length);
+        return ordenadas[Math.max(0, rango - 1)] / 1e6;
+    }
+    
+    /**
+     * Latencias de turno de todas las partidas de un escenario (nanos)
+     */
+    private static final class Medicion {
+        private final long[] latencias;
+        private int cantidad;
+        
+        Medicion(int capacidad) {
+            this.latencias = new long[capacidad];
+        }
+        
+        synchronized void registrar(long nanos) {
+            if (cantidad < latencias.length) {
+                latencias[cantidad++] = nanos;
+            }
+        }
+        
+        synchronized long[] ordenadas() {
+            long[] copia = Arrays.copyOf(latencias, cantidad);
+            Arrays.sort(copia);
+            return copia;
+        }
+    }
+    
+    /**
+     * Estado comun a los dos jugadores de una partida
+     * Los turnos se alternan, asi que solo un hilo lo usa a la vez; synchronized
+     * da la visibilidad entre los hilos de la red que entregan a cada jugador
+     */
+    private static final class PartidaSimulada {
+        private final Escenario escenario;
+        private final RedMemoria red;
+        private final int puertoAnfitrion;
+        private final int puertoInvitado;
+        private final int turnos;
+        private final SplittableRandom dado;
+        private final Medicion medicion;
+        private final CountDownLatch terminadas;
+        private int turno;
+        private long inicioTurno;
+        
+        PartidaSimulada(Escenario escenario, RedMemoria red, int puertoAnfitrion, int puertoInvitado, int turnos,
+                        SplittableRandom dado, Medicion medicion, CountDownLatch terminadas) {
+            this.escenario = escenario;
+            this.red = red;
+            this.puertoAnfitrion = puertoAnfitrion;
+            this.puertoInvitado = puertoInvitado;
+            this.turnos = turnos;
+            this.dado = dado;
+            this.medicion = medicion;
+            this.terminadas = terminadas;
+        }
+        
+        void aplicarGuion(int numeroTurno) {
+            for (Paso paso : escenario.guion()) {
+                if (paso.turno() == numeroTurno) {
+                    red.setPerfil(puertoAnfitrion, paso.anfitrion());
+                    red.setPerfil(puertoInvitado, paso.invitado());
+                }
+            }
+        }
+        
+        /**
+         * Empieza el siguiente turno
+         * @return Valor del dado, o 0 si la partida ya jugo todos sus turnos
+         */
+        synchronized int empezarTurno() {
+            if (turno == turnos) {
+                terminadas.countDown();
+                return 0;
+            }
+            turno++;
+            aplicarGuion(turno);
+            inicioTurno = System.nanoTime();
+            return dado.nextInt(1, 7);
+        }
+        
+        /**
+         * El cambio de turno llego al otro jugador
+         */
+        synchronized void terminarTurno() {
+            medicion.registrar(System.nanoTime() - inicioTurno);
+        }
+        
+        synchronized int getTurno() {
+            return turno;
+        }
+    }
+    
+    /**
+     * Jugador automatico conectado a un ControladorRed
+     * Recibe los eventos de red como ControladorPartida y responde a cada cambio
+     * de turno con el suyo; los movimientos no se validan ni se aplican al tablero,
+     * aqui solo cuenta lo que tarda la red en llevarlos
+     */
+    private static final class JugadorSimulado extends ControladorPartida {
+        private final ControladorRed red;
+        private final PartidaSimulada juego;
+        private final Jugador propio;
+        private final Jugador rival;
+        
+        JugadorSimulado(ControladorRed red, int jugadorId, PartidaSimulada juego) {
+            super(crearPartida(), null, null, jugadorId);
+            this.red = red;
+            this.juego = juego;
+            this.propio = getPartida().buscarJugador(jugadorId);
+            this.rival = getPartida().buscarJugador(jugadorId == 1 ? 2 : 1);
+            setControladorRed(red);
+        }
+        
+        private static Partida crearPartida() {
+            Partida partida = new Partida(1);
+            partida.agregarJugador(new Jugador(1, "anfitrion", ColorFicha.AMARILLO));
+            partida.agregarJugador(new Jugador(2, "invitado", ColorFicha.AZUL));
+            return partida;
+        }
+        
+        void jugar() {
+            int valor = juego.empezarTurno();
+            if (valor == 0) {
+                return;
+            }
+            red.enviarTiradaDado(valor);
+            red.enviarMovimiento(propio, propio.getFichas().get(juego.getTurno() % 4), valor);
+            red.notificarCambioTurno(rival);
+        }
+        
+        @Override
+        public void aplicarMovimientoRemoto(int jugadorId, int fichaId, int pasos) {
+            // El movimiento solo viaja; no hay tablero que mantener
+        }
+        
+        @Override
+        public void aplicarCambioTurnoRemoto(int jugadorId) {
+            if (jugadorId == propio.getIdJugador()) {
+                juego.terminarTurno();
+                jugar();
+            }
+        }
+    }
+}
@@ -4,15 +4,23 @@ import modelo.*;
 import vista.PantallaPartida;
 import controlador.ControladorPartida;
 import controlador.ControladorRed;
+import ia.BotMCTS;
 import red.DescubrimientoRed;
+import servidor.ServidorSalas;
+import simulacion.SimuladorPartidas;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Clase principal del juego Parchis Star 
  * Escanea automaticamente todas las interfaces de red
  */
 public class Parchis {
+    private static final long TIEMPO_BOT_MS = 1000;
+    /** Reintentos de conexion al anfitrion: 250 ms, 500 ms, 1 s y luego cada 2 s (unos 14 s en total) */
+    private static final long ESPERA_INICIAL_CONEXION_MS = 250;
+    private static final long ESPERA_MAXIMA_CONEXION_MS = 2000;
     
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
@@ -29,17 +37,84 @@ public class Parchis {
         System.out.println("\n=== SELECCION DE MODO ===");
         System.out.println("1. Juego Local (sin red)");
         System.out.println("2. Juego Online (conexion automatica )");
+        System.out.println("3. Simulacion por lotes (sin interfaz)");
+        System.out.println("4. Juego Online en servidor de salas");
+        System.out.println("5. Servidor de salas (dedicado)");
         System.out.print("Selecciona una opcion: ");
         
         int modoJuego = scanner.nextInt();
         scanner.nextLine();
         
+        if (modoJuego == 3) {
+            ejecutarSimulacion(scanner);
+            scanner.close();
+            return;
+        }
+        
+        if (modoJuego == 5) {
+            ejecutarServidorSalas(scanner);
+            scanner.close();
+            return;
+        }
+        
         ControladorRed controladorRed = null;
+        BotMCTS bot = null;
         int jugadorLocalId = 1;
         
         Partida partida = new Partida(1);
         
-        if (modoJuego == 2) {
+        if (modoJuego == 4) {
+            System.out.println("\n=== MODO SERVIDOR DE SALAS ===");
+            System.out.print("Ingresa tu nombre: ");
+            String nombreLocal = scanner.nextLine();
+            System.out.print("Servidor (host:puerto): ");
+            String direccion = scanner.nextLine().trim();
+            System.out.print("Nombre de la sala: ");
+            String sala = scanner.nextLine().trim();
+            
+            String host = direccion;
+            int puerto = ServidorSalas.PUERTO_POR_DEFECTO;
+            int separador = direccion.lastIndexOf(':');
+            if (separador > 0) {
+                host = direccion.substring(0, separador);
+                puerto = Integer.parseInt(direccion.substring(separador + 1));
+            }
+            
+            // Sin servidor local: el puerto solo identifica al gestor
+            controladorRed = new ControladorRed(nombreLocal, 0, partida.getTablero(), 1);
+            jugadorLocalId = controladorRed.unirseASala(host, puerto, sala);
+            if (jugadorLocalId < 0) {
+                System.out.println("\n[ERROR] No se pudo entrar a la sala " + sala);
+                controladorRed.cerrar();
+                scanner.close();
+                return;
+            }
+            
+            System.out.println("[SALA] Eres el Jugador " + jugadorLocalId + ". Esperando a los demas jugadores...");
+            String[] nombres = controladorRed.esperarJugadoresSala();
+            if (nombres == null) {
+                System.out.println("\n[ERROR] La sala " + sala + " no se completo");
+                controladorRed.cerrar();
+                scanner.close();
+                return;
+            }
+            
+            // Ids y colores los asigna el servidor: la partida local es la misma que la de la sala
+            ColorFicha[] colores = controladorRed.getColoresSala();
+            System.out.println("\n================================================");
+            System.out.println("  SALA " + sala + ":");
+            for (int i = 0; i < nombres.length; i++) {
+                int id = i + 1;
+                partida.agregarJugador(new Jugador(id, nombres[i], colores[i]));
+                System.out.println("  " + id + ". " + nombres[i] + " (" + colores[i].getNombre() + ")"
+                                 + (id == jugadorLocalId ? " - TU" : ""));
+            }
+            System.out.println("================================================");
+            
+            controladorRed.esperarInicioPartida();
+            System.out.println("[SALA] Partida iniciada!");
+            
+        } else if (modoJuego == 2) {
             System.out.println("\n=== MODO ONLINE AUTOMATICO MULTI-SUBNET ===");
             System.out.print("Ingresa tu nombre: ");
             String nombreLocal = scanner.nextLine();
@@ -49,7 +124,8 @@ public class Parchis {
             DescubrimientoRed descubrimiento = new DescubrimientoRed(nombreLocal, puertoBase);
             
             System.out.println("\n[INFORMACION IMPORTANTE]");
-            System.out.println("  - Este sistema escanea TODAS las interfaces de red activas");
+            System.out.println("  - Primero se busca con una consulta UDP (difusion/multicast)");
+            System.out.println("  - Si nadie responde, se escanean TODAS las interfaces de red activas");
             System.out.println("  - Funciona aunque las PCs esten en diferentes subredes");
             System.out.println("  - Asegurate que ambas PCs esten conectadas al mismo router");
             System.out.println("  - Puede ser WiFi, Ethernet, o una combinacion de ambas");
@@ -61,19 +137,20 @@ public class Parchis {
             
             System.out.println("\n================================================");
             System.out.println("  INICIANDO ESCANEO MULTI-SUBNET");
-            System.out.println("  Tiempo de busqueda: 25 segundos");
-            System.out.println("  Escaneando TODAS las interfaces de red...");
+            System.out.println("  Jugadores recientes (cache): se prueban primero");
+            System.out.println("  Consulta UDP: menos de 1 segundo");
+            System.out.println("  Escaneo TCP de respaldo: hasta 25 segundos");
             System.out.println("================================================\n");
             
-            //  Buscar durante 25 segundos 
+            //  Consulta UDP; el escaneo TCP (hasta 25 segundos) solo si nadie responde
             List<DescubrimientoRed.JugadorEncontrado> jugadoresEncontrados = 
                 descubrimiento.buscarJugadores(25);
             
-            // Espera adicional de 3 segundos 
-            try { Thread.sleep(3000); } catch (InterruptedException e) {}
-            
-            // Detener modo respuesta
-            descubrimiento.detenerModoRespuesta();
+            // Sin oponente se sigue respondiendo mientras se espera su conexion,
+            // para que quien busque despues encuentre a este anfitrion
+            if (!jugadoresEncontrados.isEmpty()) {
+                descubrimiento.detenerModoRespuesta();
+            }
             
             // DECISION DE ROL BASADA EN TIMESTAMP
             boolean soyAnfitrion = true;
@@ -88,12 +165,12 @@ public class Parchis {
                 System.out.println("\n[POSIBLES CAUSAS]");
                 System.out.println("  - La otra PC no ha iniciado el juego todavia");
                 System.out.println("  - No estan conectadas al mismo router fisico");
-                System.out.println("  - Firewall bloqueando puerto TCP 9999");
+                System.out.println("  - Firewall bloqueando puerto TCP/UDP 9999");
                 System.out.println("  - Router con aislamiento entre clientes (AP Isolation)");
                 System.out.println("\n[SOLUCION]");
                 System.out.println("  1. Verifica que ambas PCs esten conectadas al MISMO router");
                 System.out.println("  2. Inicia el juego en la otra PC AHORA");
-                System.out.println("  3. Si el firewall esta activo, permite puerto TCP 9999");
+                System.out.println("  3. Si el firewall esta activo, permite puerto TCP/UDP 9999");
                 System.out.println("  4. Espera a que el otro jugador se conecte...\n");
                 
             } else {
@@ -138,7 +215,7 @@ public class Parchis {
                     System.out.println("\n[ANFITRION] Iniciando servidor P2P en puerto " + puertoBase + "...");
                     controladorRed.iniciarComoAnfitrion();
                     
-                    Jugador jugador1 = new Jugador(1, nombreLocal, "Amarillo");
+                    Jugador jugador1 = new Jugador(1, nombreLocal, ColorFicha.AMARILLO);
                     partida.agregarJugador(jugador1);
                     
                     if (oponente == null) {
@@ -146,6 +223,8 @@ public class Parchis {
                         System.out.println("[ANFITRION] Esperando conexion de otro jugador...");
                         System.out.println("[ANFITRION] Timeout: 90 segundos");
                         String nombreJugador2 = controladorRed.esperarNombreOponente();
+                        descubrimiento.setPlazasLibres(0);
+                        descubrimiento.detenerModoRespuesta();
                         
                         if (nombreJugador2 == null || nombreJugador2.isEmpty()) {
                             System.out.println("\n[ERROR] Timeout - no se recibio conexion");
@@ -155,7 +234,7 @@ public class Parchis {
                             return;
                         }
                         
-                        Jugador jugador2 = new Jugador(2, nombreJugador2, "Azul");
+                        Jugador jugador2 = new Jugador(2, nombreJugador2, ColorFicha.AZUL);
                         partida.agregarJugador(jugador2);
                         
                     } else {
@@ -172,7 +251,7 @@ public class Parchis {
                             return;
                         }
                         
-                        Jugador jugador2 = new Jugador(2, nombreJugador2, "Azul");
+                        Jugador jugador2 = new Jugador(2, nombreJugador2, ColorFicha.AZUL);
                         partida.agregarJugador(jugador2);
                     }
                     
@@ -191,6 +270,7 @@ public class Parchis {
                 } catch (Exception e) {
                     System.err.println("\n[ERROR] " + e.getMessage());
                     e.printStackTrace();
+                    descubrimiento.detenerModoRespuesta();
                     if (controladorRed != null) {
                         controladorRed.cerrar();
                     }
@@ -215,17 +295,14 @@ public class Parchis {
                 try {
                     System.out.println("\n[CLIENTE] Iniciando servidor local en puerto " + (puertoBase + 1) + "...");
                     
-                    // Espera para garantizar que anfitrion este listo
-                    System.out.println("[CLIENTE] Esperando 8 segundos para sincronizacion...");
-                    Thread.sleep(8000);
-                    
                     System.out.println("[CLIENTE] Conectando a " + oponente.ip + ":" + oponente.puerto + "...");
                     System.out.println("[CLIENTE] Intentando establecer conexion P2P...");
                     
-                    // Reintentos automaticos
+                    // Sin espera fija: si el anfitrion aun no escucha, se reintenta con espera creciente
                     boolean conectado = false;
                     int intentos = 0;
-                    int maxIntentos = 5;
+                    int maxIntentos = 10;
+                    long esperaMs = ESPERA_INICIAL_CONEXION_MS;
                     
                     while (!conectado && intentos < maxIntentos) {
                         intentos++;
@@ -234,8 +311,9 @@ public class Parchis {
                         conectado = controladorRed.unirseAPartida(oponente.ip, oponente.puerto);
                         
                         if (!conectado && intentos < maxIntentos) {
-                            System.out.println("[CLIENTE] Reintentando en 3 segundos...");
-                            Thread.sleep(3000);
+                            System.out.println("[CLIENTE] Reintentando en " + esperaMs + " ms...");
+                            Thread.sleep(esperaMs);
+                            esperaMs = Math.min(esperaMs * 2, ESPERA_MAXIMA_CONEXION_MS);
                         }
                     }
                     
@@ -261,10 +339,10 @@ public class Parchis {
                         return;
                     }
                     
-                    Jugador jugador1 = new Jugador(1, nombreJugador1, "Amarillo");
+                    Jugador jugador1 = new Jugador(1, nombreJugador1, ColorFicha.AMARILLO);
                     partida.agregarJugador(jugador1);
                     
-                    Jugador jugador2 = new Jugador(2, nombreLocal, "Azul");
+                    Jugador jugador2 = new Jugador(2, nombreLocal, ColorFicha.AZUL);
                     partida.agregarJugador(jugador2);
                     
                     System.out.println("\n================================================");
@@ -295,12 +373,23 @@ public class Parchis {
             
             System.out.print("Ingresa el nombre del Jugador 1 (Amarillo): ");
             String nombre1 = scanner.nextLine();
-            Jugador jugador1 = new Jugador(1, nombre1, "Amarillo");
+            Jugador jugador1 = new Jugador(1, nombre1, ColorFicha.AMARILLO);
             partida.agregarJugador(jugador1);
             
-            System.out.print("Ingresa el nombre del Jugador 2 (Azul): ");
-            String nombre2 = scanner.nextLine();
-            Jugador jugador2 = new Jugador(2, nombre2, "Azul");
+            System.out.print("Jugar contra la computadora? (s/n): ");
+            String respuesta = scanner.nextLine().trim();
+            
+            String nombre2;
+            if (respuesta.equalsIgnoreCase("s")) {
+                bot = new BotMCTS(TIEMPO_BOT_MS);
+                nombre2 = "Computadora";
+                System.out.println("El Jugador 2 (Azul) sera la computadora (" + bot.getHilos() + " hilos, " 
+                                   + TIEMPO_BOT_MS + " ms por jugada)");
+            } else {
+                System.out.print("Ingresa el nombre del Jugador 2 (Azul): ");
+                nombre2 = scanner.nextLine();
+            }
+            Jugador jugador2 = new Jugador(2, nombre2, ColorFicha.AZUL);
             partida.agregarJugador(jugador2);
         }
         
@@ -313,6 +402,10 @@ public class Parchis {
             System.out.println("\nRed P2P activada - Eres el Jugador " + jugadorLocalId);
         }
         
+        if (bot != null) {
+            controlador.setSelector(2, bot);
+        }
+        
         System.out.println("\n================================================");
         System.out.println("            PARTIDA INICIADA");
         System.out.println("================================================");
@@ -325,7 +418,7 @@ public class Parchis {
         boolean mostrarTableroEspera = true;
         
         while (juegoActivo && turnosJugados < MAX_TURNOS) {
-            if (controladorRed != null && controladorRed.getPeersConectados().isEmpty()) {
+            if (controladorRed != null && !controladorRed.hayOponente()) {
                 System.out.println("\n================================================");
                 System.out.println("  OPONENTE DESCONECTADO");
                 System.out.println("  La partida terminara...");
@@ -372,9 +465,87 @@ public class Parchis {
             System.out.println("\nConexiones de red cerradas");
         }
         
+        if (bot != null) {
+            bot.cerrar();
+        }
+        
         scanner.close();
         System.out.println("\n================================================");
         System.out.println("   Gracias por jugar Parchis Star");
         System.out.println("================================================\n");
     }
-}
\ No newline at end of file
+    
+    /**
+     * Modo servidor dedicado: atiende salas hasta que se presione ENTER
+     */
+    private static void ejecutarServidorSalas(Scanner scanner) {
+        System.out.println("\n=== SERVIDOR DE SALAS ===");
+        System.out.print("Puerto (ENTER = " + ServidorSalas.PUERTO_POR_DEFECTO + "): ");
+        String linea = scanner.nextLine().trim();
+        int puerto = linea.isEmpty() ? ServidorSalas.PUERTO_POR_DEFECTO : Integer.parseInt(linea);
+        
+        ServidorSalas servidor = new ServidorSalas(puerto);
+        try {
+            servidor.iniciar();
+        } catch (Exception e) {
+            System.err.println("\n[ERROR] No se pudo iniciar el servidor: " + e.getMessage());
+            return;
+        }
+        System.out.println("Presiona ENTER para detener el servidor...");
+        scanner.nextLine();
+        servidor.cerrar();
+    }
+    
+    /**
+     * Modo simulacion: juega partidas completas en paralelo y muestra estadisticas
+     */
+    private static void ejecutarSimulacion(Scanner scanner) {
+        System.out.println("\n=== SIMULACION POR LOTES ===");
+        System.out.print("Numero de partidas: ");
+        long cantidad = scanner.nextLong();
+        scanner.nextLine();
+        if (cantidad <= 0) {
+            System.out.println("[ERROR] El numero de partidas debe ser mayor que cero");
+            return;
+        }
+        
+        SimuladorPartidas simulador = new SimuladorPartidas(System.nanoTime());
+        LongAdder[] victorias = new LongAdder[4];
+        for (int c = 0; c < victorias.length; c++) {
+            victorias[c] = new LongAdder();
+        }
+        LongAdder sinGanador = new LongAdder();
+        LongAdder turnos = new LongAdder();
+        LongAdder capturas = new LongAdder();
+        LongAdder premios = new LongAdder();
+        long inicio = System.nanoTime();
+        
+        // Se agrega al consumir el stream paralelo: ningun resultado queda en memoria
+        simulador.simular(cantidad).forEach(r -> {
+            if (r.hayGanador()) {
+                victorias[r.getGanador()].increment();
+            } else {
+                sinGanador.increment();
+            }
+            turnos.add(r.getTurnos());
+            capturas.add(r.getCapturas());
+            premios.add(r.getPremiosUsados());
+        });
+        
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        
+        System.out.println("\n================================================");
+        System.out.println("  Partidas: " + cantidad + " en " + String.format("%.2f", segundos) + " s" +
+                         " (" + String.format("%.0f", cantidad / segundos) + " partidas/s)");
+        for (int c = 0; c < victorias.length; c++) {
+            if (victorias[c].sum() > 0) {
+                System.out.println("  Victorias " + ColorFicha.deIndice(c) + ": " + victorias[c].sum());
+            }
+        }
+        System.out.println("  Sin ganador (limite de turnos): " + sinGanador.sum());
+        System.out.println("  Turnos promedio: " + String.format("%.1f", (double) turnos.sum() / cantidad));
+        System.out.println("  Capturas promedio: " + String.format("%.2f", (double) capturas.sum() / cantidad));
+        System.out.println("  Premios usados promedio: " + String.format("%.2f", (double) premios.sum() / cantidad));
+        System.out.println("================================================\n");
+    }
+}
@@ -8,7 +8,8 @@ package controlador;
 import modelo.*;
 import vista.PantallaPartida;
 import utilidades.RegistroPartidaJSON;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -19,8 +20,8 @@ public class ControladorPartida {
     private Ficha ultimaFichaMovida;
     private ControladorRed controladorRed;
     private int jugadorLocalId;
-    private int casillasPremio;
     private AtomicBoolean procesandoPremio;
+    private Map<Integer, SelectorFicha> selectores;
     
     public ControladorPartida(Partida partida, PantallaPartida vista, Scanner scanner, int jugadorLocalId) {
         this.partida = partida;
@@ -29,8 +30,25 @@ public class ControladorPartida {
         this.ultimaFichaMovida = null;
         this.controladorRed = null;
         this.jugadorLocalId = jugadorLocalId;
-        this.casillasPremio = 0;
         this.procesandoPremio = new AtomicBoolean(false);
+        this.selectores = new HashMap<>();
+    }
+    
+    /**
+     * Hace que un jugador elija sus fichas automaticamente (por ejemplo, un bot)
+     * @param jugadorId Id del jugador
+     * @param selector Selector a usar, o null para volver al teclado
+     */
+    public void setSelector(int jugadorId, SelectorFicha selector) {
+        if (selector == null) {
+            selectores.remove(jugadorId);
+        } else {
+            selectores.put(jugadorId, selector);
+        }
+    }
+    
+    public boolean esTurnoAutomatico() {
+        return selectores.containsKey(partida.getTurnoActual().getIdJugador());
     }
     
     public void setControladorRed(ControladorRed controladorRed) {
@@ -60,12 +78,14 @@ public class ControladorPartida {
             System.out.println("\n*** ES TU TURNO ***");
         }
         
-        if (casillasPremio > 0) {
-            vista.mostrarMensaje("Tienes " + casillasPremio + " casillas de premio para usar!");
+        if (partida.getCasillasPremio() > 0) {
+            vista.mostrarMensaje("Tienes " + partida.getCasillasPremio() + " casillas de premio para usar!");
             aplicarPremio(jugadorActual);
         } else {
-            vista.mostrarMensaje("Presiona ENTER para lanzar el dado");
-            scanner.nextLine();
+            if (!esTurnoAutomatico()) {
+                vista.mostrarMensaje("Presiona ENTER para lanzar el dado");
+                scanner.nextLine();
+            }
             lanzarDado();
         }
     }
@@ -75,27 +95,34 @@ public class ControladorPartida {
      */
     private void aplicarPremio(Jugador jugador) {
         procesandoPremio.set(true);
-        List<Ficha> fichasDisponibles = jugador.getFichasEnJuego();
+        int casillasPremio = partida.getCasillasPremio();
+        int enJuego = jugador.mascaraEnJuego();
+        int fichasDisponibles = partida.getTablero().quitarBloqueadas(jugador, enJuego, casillasPremio);
         
-        if (fichasDisponibles.isEmpty()) {
-            vista.mostrarMensaje("No tienes fichas en juego para usar el premio. Se pierde.");
-            casillasPremio = 0;
+        if (fichasDisponibles == 0) {
+            if (enJuego != 0) {
+                vista.mostrarMensaje("Las barreras bloquean todas tus fichas. El premio se pierde.");
+            } else {
+                vista.mostrarMensaje("No tienes fichas en juego para usar el premio. Se pierde.");
+            }
+            partida.setCasillasPremio(0);
             procesandoPremio.set(false);
             return;
         }
         
         vista.mostrarMensaje("Selecciona una ficha para avanzar " + casillasPremio + " casillas:");
-        for (int i = 0; i < fichasDisponibles.size(); i++) {
-            Ficha f = fichasDisponibles.get(i);
-            System.out.println((i + 1) + ". Ficha " + f.getIdFicha() + 
+        int opcion = 0;
+        for (int m = fichasDisponibles; m != 0; m &= m - 1) {
+            Ficha f = jugador.seleccionarFicha(Integer.numberOfTrailingZeros(m));
+            System.out.println((++opcion) + ". Ficha " + f.getIdFicha() + 
                              " - Posicion actual: " + f.getPosicion());
         }
         
-        int seleccion = solicitarSeleccionFicha(fichasDisponibles.size());
-        Ficha fichaSeleccionada = fichasDisponibles.get(seleccion - 1);
+        int seleccion = elegirOpcion(jugador, fichasDisponibles, casillasPremio, true, opcion);
+        Ficha fichaSeleccionada = jugador.fichaDeMascara(fichasDisponibles, seleccion - 1);
         
         moverFicha(fichaSeleccionada, casillasPremio, true);
-        casillasPremio = 0;
+        partida.setCasillasPremio(0);
         procesandoPremio.set(false);
     }
     
@@ -113,29 +140,52 @@ public class ControladorPartida {
             controladorRed.enviarTiradaDado(valorDado);
         }
         
-        List<Ficha> fichasDisponibles = jugadorActual.getFichasDisponibles(valorDado);
+        int movibles = jugadorActual.mascaraDisponibles(valorDado);
+        int fichasDisponibles = partida.getTablero().quitarBloqueadas(jugadorActual, movibles, valorDado);
         
-        if (fichasDisponibles.isEmpty()) {
+        if (fichasDisponibles != movibles) {
+            vista.mostrarMensaje("Hay fichas bloqueadas por una barrera en su recorrido.");
+        }
+        
+        if (fichasDisponibles == 0) {
             vista.mostrarMensaje("No tienes fichas disponibles para mover. Pierdes el turno.");
             aplicarReglasDelTurno(valorDado);
             return;
         }
         
         vista.mostrarMensaje("Fichas disponibles para mover:");
-        for (int i = 0; i < fichasDisponibles.size(); i++) {
-            Ficha f = fichasDisponibles.get(i);
+        int opcion = 0;
+        for (int m = fichasDisponibles; m != 0; m &= m - 1) {
+            Ficha f = jugadorActual.seleccionarFicha(Integer.numberOfTrailingZeros(m));
             String estado = f.isEnCasa() ? "En casa (saldra a casilla de salida)" : 
                            "Posicion actual: " + f.getPosicion();
-            System.out.println((i + 1) + ". Ficha " + f.getIdFicha() + " - " + estado);
+            System.out.println((++opcion) + ". Ficha " + f.getIdFicha() + " - " + estado);
         }
         
-        int seleccion = solicitarSeleccionFicha(fichasDisponibles.size());
-        Ficha fichaSeleccionada = fichasDisponibles.get(seleccion - 1);
+        int seleccion = elegirOpcion(jugadorActual, fichasDisponibles, valorDado, false, opcion);
+        Ficha fichaSeleccionada = jugadorActual.fichaDeMascara(fichasDisponibles, seleccion - 1);
         
         moverFicha(fichaSeleccionada, valorDado, true);
         aplicarReglasDelTurno(valorDado);
     }
     
+    /**
+     * Pide la opcion al selector del jugador o, si no tiene, por teclado
+     */
+    private int elegirOpcion(Jugador jugador, int disponibles, int pasos, boolean esPremio, int maxOpciones) {
+        SelectorFicha selector = selectores.get(jugador.getIdJugador());
+        if (selector == null) {
+            return solicitarSeleccionFicha(maxOpciones);
+        }
+        
+        int seleccion = selector.seleccionar(partida, jugador, disponibles, pasos, esPremio);
+        if (seleccion < 1 || seleccion > maxOpciones) {
+            seleccion = 1;
+        }
+        System.out.println("\n" + jugador.getNombre() + " elige la opcion " + seleccion);
+        return seleccion;
+    }
+    
     private int solicitarSeleccionFicha(int maxOpciones) {
         int seleccion = -1;
         while (seleccion < 1 || seleccion > maxOpciones) {
@@ -179,12 +229,7 @@ public class ControladorPartida {
         RegistroPartidaJSON registro = partida.getRegistroJSON();
         
         if (ficha.isEnCasa() && reglas.verificarSacarFichaConCinco(pasos)) {
-            ficha.setEnCasa(false);
-            int posicionSalida = obtenerPosicionSalida(jugadorActual.getColor());
-            ficha.setPosicion(posicionSalida);
-            
-            Casilla casillaSalida = tablero.getCasilla(posicionSalida);
-            casillaSalida.agregarFicha(ficha);
+            int posicionSalida = tablero.sacarFicha(ficha);
             
             vista.mostrarMensaje("Ficha sacada de casa a la posicion " + posicionSalida);
             ultimaFichaMovida = ficha;
@@ -212,7 +257,7 @@ public class ControladorPartida {
         
         int premio = aplicarReglasDelJuego(ficha);
         if (premio > 0) {
-            casillasPremio += premio;
+            partida.setCasillasPremio(partida.getCasillasPremio() + premio);
         }
     }
     
@@ -220,47 +265,42 @@ public class ControladorPartida {
      * Aplica movimiento recibido desde la red con validacion
      */
     public void aplicarMovimientoRemoto(int jugadorId, int fichaId, int pasos) {
-        Jugador jugador = null;
-        for (Jugador j : partida.getJugadores()) {
-            if (j.getIdJugador() == jugadorId) {
-                jugador = j;
-                break;
-            }
-        }
+        Jugador jugador = partida.buscarJugador(jugadorId);
         
         if (jugador == null) {
             System.err.println("[ERROR] Jugador no encontrado: " + jugadorId);
             return;
         }
         
-        Ficha ficha = null;
-        for (Ficha f : jugador.getFichas()) {
-            if (f.getIdFicha() == fichaId) {
-                ficha = f;
-                break;
-            }
-        }
+        Ficha ficha = partida.buscarFicha(fichaId);
         
-        if (ficha == null) {
+        if (ficha == null || ficha.getJugadorId() != jugadorId) {
             System.err.println("[ERROR] Ficha no encontrada: " + fichaId);
+            controladorRed.solicitarEstado();
             return;
         }
         
         // Validar que el movimiento remoto sea legal
         if (!validarMovimientoRemoto(ficha, pasos, jugador)) {
             System.err.println("[ERROR] Movimiento remoto invalido rechazado");
+            // Lo mas probable es que el estado local se haya desviado: se pide el del peer
+            controladorRed.solicitarEstado();
             return;
         }
         
         moverFicha(ficha, pasos, false);
+        if (pasos > 6) {
+            // Como en aplicarPremio: el premio se gasta con este movimiento
+            partida.setCasillasPremio(0);
+        }
     }
     
     /**
      * Valida que un movimiento recibido por red sea legal
      */
     private boolean validarMovimientoRemoto(Ficha ficha, int pasos, Jugador jugador) {
-        // Validar rango del dado
-        if (pasos < 1 || pasos > 6) {
+        // Un dado de 1 a 6 o, como en Sala.aplicarMovimiento, el premio acumulado
+        if (pasos > 6 ? pasos != partida.getCasillasPremio() : pasos < 1) {
             return false;
         }
         
@@ -274,25 +314,15 @@ public class ControladorPartida {
             return false;
         }
         
-        // Validar que la nueva posicion sea valida
+        // Validar que la ficha este en el recorrido de su color
         if (!ficha.isEnCasa()) {
-            int nuevaPosicion = ficha.getPosicion() + pasos;
-            if (nuevaPosicion < 0) {
+            if (ficha.getProgreso() < 0 || ficha.getProgreso() >= Tablero.PROGRESO_META) {
                 return false;
             }
         }
         
-        return true;
-    }
-    
-    private int obtenerPosicionSalida(String color) {
-        switch (color.toLowerCase()) {
-            case "amarillo": return 5;
-            case "azul": return 22;
-            case "rojo": return 39;
-            case "verde": return 56;
-            default: return 0;
-        }
+        // Las barreras no se pueden atravesar, ni ocupar la salida al sacar una ficha
+        return !partida.getTablero().recorridoBloqueado(ficha, pasos);
     }
     
     /**
@@ -325,15 +355,11 @@ public class ControladorPartida {
                         ultimaFichaMovida.getIdFicha()
                     );
                     
+                    partida.getTablero().removerFicha(ultimaFichaMovida);
                     ultimaFichaMovida.regresarACasa();
-                    Tablero tablero = partida.getTablero();
-                    Casilla casilla = tablero.getCasilla(ultimaFichaMovida.getPosicion());
-                    if (casilla != null) {
-                        casilla.removerFicha(ultimaFichaMovida);
-                    }
                 }
                 partida.reiniciarContadorSeis();
-                casillasPremio = 0;
+                partida.setCasillasPremio(0);
                 
                 Jugador jugadorAnterior = partida.getTurnoActual();
                 partida.cambiarTurno();
@@ -350,8 +376,10 @@ public class ControladorPartida {
                 vista.mostrarMensaje("Sacaste 6! Tienes un turno extra.");
                 
                 if (controladorRed == null || esTurnoLocal()) {
-                    vista.mostrarMensaje("Presiona ENTER para continuar");
-                    scanner.nextLine();
+                    if (!esTurnoAutomatico()) {
+                        vista.mostrarMensaje("Presiona ENTER para continuar");
+                        scanner.nextLine();
+                    }
                     iniciarTurno();
                 }
             }
@@ -384,20 +412,13 @@ public class ControladorPartida {
     }
     
     public boolean verificarFinPartida() {
-        for (Jugador j : partida.getJugadores()) {
-            int fichasEnMeta = 0;
-            for (Ficha f : j.getFichas()) {
-                if (f.isEnMeta()) {
-                    fichasEnMeta++;
-                }
-            }
-            if (fichasEnMeta == 4) {
-                vista.mostrarMensaje(j.getNombre().toUpperCase() + " HA GANADO!");
-                partida.finalizarPartida();
-                return true;
-            }
+        Jugador ganador = partida.getGanador();
+        if (ganador == null) {
+            return false;
         }
-        return false;
+        vista.mostrarMensaje(ganador.getNombre().toUpperCase() + " HA GANADO!");
+        partida.finalizarPartida();
+        return true;
     }
     
     public Partida getPartida() {
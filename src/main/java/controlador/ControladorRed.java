@@ -4,6 +4,11 @@ import modelo.*;
 import red.*;
 import dispatcher.Dispatcher;
 import dispatcher.manejadores.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Controlador de red refactorizado con Dispatcher
@@ -14,13 +19,35 @@ public class ControladorRed implements EscuchaRed {
     private Tablero tablero;
     private int jugadorLocalId;
     private boolean esAnfitrion;
-    private ControladorPartida controladorPartida;
+    private volatile ControladorPartida controladorPartida;
     private Dispatcher dispatcher;
+    // Un solo hilo para todos los tipos: un MOVIMIENTO se aplica antes que el CAMBIO_TURNO que lo sigue
+    private ExecutorService ejecutorJuego;
     
     private String nombreOponenteRecibido = null;
     private boolean inicioPartidaRecibido = false;
-    private final Object lockNombre = new Object();
-    private final Object lockInicio = new Object();
+    // ReentrantLock en lugar de synchronized/wait: con hilos virtuales no fija el portador
+    private final ReentrantLock lockNombre = new ReentrantLock();
+    private final Condition nombreRecibido = lockNombre.newCondition();
+    private final ReentrantLock lockInicio = new ReentrantLock();
+    private final Condition inicioRecibido = lockInicio.newCondition();
+    private int jugadorAsignado = 0;
+    private String errorSala = null;
+    // Sala: nombre y color de cada asiento (indice = id - 1); bajo lockNombre
+    private String[] nombresSala;
+    private ColorFicha[] coloresSala;
+    private final ReentrantLock lockSala = new ReentrantLock();
+    private final Condition salaAsignada = lockSala.newCondition();
+    private final SincronizacionEstado sincronizacion = new SincronizacionEstado();
+    // Al unirse se pide el estado una vez; la respuesta solo se puede aplicar con la partida creada
+    private final AtomicBoolean estadoInicialPedido = new AtomicBoolean();
+    private final AtomicBoolean estadoPendiente = new AtomicBoolean();
+    private volatile boolean enSala;
+    /** Plazo para que un oponente que perdio la red (p. ej. un corte de Wi-Fi) vuelva */
+    private static final long GRACIA_RECONEXION_MS = 30000;
+    /** Un oponente callado durante 5 latidos (unos 5 s) se da por caido y se intenta reconectar */
+    private static final long INTERVALO_LATIDO_MS = 1000;
+    private static final int LATIDOS_PERDIDOS = 5;
     
     public ControladorRed(String nombreJugador, int puerto, Tablero tablero, int jugadorLocalId) {
         int puertoLocal = puerto;
@@ -32,23 +59,30 @@ public class ControladorRed implements EscuchaRed {
         this.tablero = tablero;
         this.jugadorLocalId = jugadorLocalId;
         this.gestorRed.setEscuchaRed(this);
+        this.gestorRed.setReanudacion(GRACIA_RECONEXION_MS);
+        this.gestorRed.setLatidos(INTERVALO_LATIDO_MS, LATIDOS_PERDIDOS);
         
         inicializarDispatcher();
     }
     
     /**
      * Inicializa el Dispatcher y registra todos los manejadores
+     * Los manejadores corren en ejecutorJuego, no en el hilo que lee la conexion:
+     * aplicar un movimiento o escribir en consola no retrasa la lectura de latidos
      */
     private void inicializarDispatcher() {
         this.dispatcher = new Dispatcher();
+        this.ejecutorJuego = Dispatcher.nuevoEjecutor("red-juego-" + gestorRed.getNombreJugador());
         
-        dispatcher.registrar(MensajeJuego.TipoMensaje.SALUDO, new ManejadorSaludo(this));
-        dispatcher.registrar(MensajeJuego.TipoMensaje.MOVIMIENTO, new ManejadorMovimiento(this));
-        dispatcher.registrar(MensajeJuego.TipoMensaje.CAMBIO_TURNO, new ManejadorCambioTurno(this));
-        dispatcher.registrar(MensajeJuego.TipoMensaje.TIRADA_DADO, new ManejadorTiradaDado(this));
-        dispatcher.registrar(MensajeJuego.TipoMensaje.CHAT, new ManejadorChat(this));
-        dispatcher.registrar(MensajeJuego.TipoMensaje.INICIO_JUEGO, new ManejadorInicioJuego(this));
-        dispatcher.registrar(MensajeJuego.TipoMensaje.JUGADOR_SALE, new ManejadorJugadorSale());
+        dispatcher.registrar(MensajeJuego.TipoMensaje.SALUDO, new ManejadorSaludo(this), ejecutorJuego);
+        dispatcher.registrar(MensajeJuego.TipoMensaje.MOVIMIENTO, new ManejadorMovimiento(this), ejecutorJuego);
+        dispatcher.registrar(MensajeJuego.TipoMensaje.CAMBIO_TURNO, new ManejadorCambioTurno(this), ejecutorJuego);
+        dispatcher.registrar(MensajeJuego.TipoMensaje.TIRADA_DADO, new ManejadorTiradaDado(this), ejecutorJuego);
+        dispatcher.registrar(MensajeJuego.TipoMensaje.CHAT, new ManejadorChat(this), ejecutorJuego);
+        dispatcher.registrar(MensajeJuego.TipoMensaje.INICIO_JUEGO, new ManejadorInicioJuego(this), ejecutorJuego);
+        dispatcher.registrar(MensajeJuego.TipoMensaje.JUGADOR_SALE, new ManejadorJugadorSale(), ejecutorJuego);
+        dispatcher.registrar(MensajeJuego.TipoMensaje.JUGADOR_ENTRA, new ManejadorJugadorEntra(this), ejecutorJuego);
+        dispatcher.registrar(MensajeJuego.TipoMensaje.ESTADO_JUEGO, new ManejadorEstadoJuego(this), ejecutorJuego);
         
         System.out.println("[RED] Dispatcher inicializado con " + 
                          dispatcher.cantidadManejadores() + " manejadores");
@@ -59,7 +93,8 @@ public class ControladorRed implements EscuchaRed {
      * Timeout de 30 segundos con progreso mejorado
      */
     public String esperarNombreOponente() {
-        synchronized (lockNombre) {
+        lockNombre.lock();
+        try {
             try {
                 long tiempoInicio = System.currentTimeMillis();
                 long timeout = 30000;
@@ -79,7 +114,7 @@ public class ControladorRed implements EscuchaRed {
                         ultimoMensaje = transcurrido;
                     }
                     
-                    lockNombre.wait(1000);
+                    nombreRecibido.await(1, TimeUnit.SECONDS);
                 }
                 
                 return nombreOponenteRecibido;
@@ -89,6 +124,56 @@ public class ControladorRed implements EscuchaRed {
                 Thread.currentThread().interrupt();
                 return null;
             }
+        } finally {
+            lockNombre.unlock();
+        }
+    }
+    
+    /**
+     * Espera a que la sala este completa: un SALUDO "jugador:<id>" por cada otro asiento
+     * @return Nombre de cada asiento (indice = id - 1) o null si no se completo a tiempo
+     */
+    public String[] esperarJugadoresSala() {
+        lockNombre.lock();
+        try {
+            long restante = TimeUnit.SECONDS.toNanos(120);
+            int conocidos = -1;
+            while (nombresSala != null) {
+                int nombrados = 0;
+                for (String nombre : nombresSala) {
+                    if (nombre != null) nombrados++;
+                }
+                if (nombrados == nombresSala.length) {
+                    return nombresSala.clone();
+                }
+                if (restante <= 0) {
+                    System.err.println("[RED] Timeout: la sala no se completo");
+                    return null;
+                }
+                if (nombrados != conocidos) {
+                    System.out.println("[RED] Esperando jugadores (" + nombrados + "/" + nombresSala.length + ")");
+                    conocidos = nombrados;
+                }
+                restante = nombreRecibido.awaitNanos(restante);
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            lockNombre.unlock();
+        }
+    }
+    
+    /**
+     * Color de cada asiento de la sala (indice = id - 1), segun el servidor
+     */
+    public ColorFicha[] getColoresSala() {
+        lockNombre.lock();
+        try {
+            return coloresSala == null ? null : coloresSala.clone();
+        } finally {
+            lockNombre.unlock();
         }
     }
     
@@ -107,7 +192,8 @@ public class ControladorRed implements EscuchaRed {
      * Timeout de 60 segundos con progreso mejorado
      */
     public void esperarInicioPartida() {
-        synchronized (lockInicio) {
+        lockInicio.lock();
+        try {
             try {
                 long tiempoInicio = System.currentTimeMillis(); 
                 long timeout = 60000;
@@ -127,13 +213,15 @@ public class ControladorRed implements EscuchaRed {
                         ultimoMensaje = transcurrido;
                     }
                     
-                    lockInicio.wait(1000);
+                    inicioRecibido.await(1, TimeUnit.SECONDS);
                 }
                 
             } catch (InterruptedException e) {
                 System.err.println("[RED] Error esperando inicio: " + e.getMessage());
                 Thread.currentThread().interrupt();
             }
+        } finally {
+            lockInicio.unlock();
         }
     }
     
@@ -150,16 +238,17 @@ public class ControladorRed implements EscuchaRed {
      */
     public boolean unirseAPartida(String ipAnfitrion, int puertoAnfitrion) {
         try {
+            // iniciarServidor vuelve con el puerto ya escuchando
             gestorRed.iniciarServidor();
-            Thread.sleep(1000);
+            estadoInicialPedido.set(false);
             
             System.out.println("[RED] Conectando a " + ipAnfitrion + ":" + puertoAnfitrion);
             
             boolean conectado = gestorRed.conectarAPeer(ipAnfitrion, puertoAnfitrion);
             
             if (conectado) {
+                // El saludo ya esta en cola; esperarNombreOponente espera la respuesta
                 esAnfitrion = false;
-                Thread.sleep(500);
                 return true;
             }
             
@@ -172,6 +261,49 @@ public class ControladorRed implements EscuchaRed {
         }
     }
     
+    /**
+     * Entra a una sala de un servidor de salas (servidor.ServidorSalas)
+     * No abre servidor local: todo el trafico pasa por el servidor
+     * El id de jugador lo asigna el servidor segun el orden de llegada a la sala
+     * @return Id de jugador asignado o -1 si no se pudo entrar
+     */
+    public int unirseASala(String host, int puerto, String sala) {
+        System.out.println("[RED] Conectando al servidor de salas " + host + ":" + puerto);
+        if (!gestorRed.conectarAPeer(host, puerto)) {
+            return -1;
+        }
+        esAnfitrion = false;
+        enSala = true;
+        estadoInicialPedido.set(false);
+        gestorRed.difundir(new MensajeJuego(
+            MensajeJuego.TipoMensaje.JUGADOR_ENTRA,
+            gestorRed.getNombreJugador(),
+            "sala:" + sala
+        ));
+        
+        lockSala.lock();
+        try {
+            long restante = TimeUnit.SECONDS.toNanos(30);
+            while (jugadorAsignado == 0 && errorSala == null) {
+                if (restante <= 0) {
+                    System.err.println("[RED] Timeout: el servidor no asigno sala");
+                    return -1;
+                }
+                restante = salaAsignada.awaitNanos(restante);
+            }
+            if (errorSala != null) {
+                System.err.println("[RED] El servidor rechazo la entrada: " + errorSala);
+                return -1;
+            }
+            return jugadorAsignado;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            lockSala.unlock();
+        }
+    }
+    
     /**
      * Envia un movimiento de ficha
      */
@@ -196,36 +328,185 @@ public class ControladorRed implements EscuchaRed {
         gestorRed.enviarTiradaDado(valor);
     }
     
+    /**
+     * Pide el estado completo a los peers (al unirse o tras perder mensajes)
+     * Si ya se aplico un estado antes, la respuesta sera solo un delta
+     */
+    public void solicitarEstado() {
+        System.out.println("[RED] Solicitando estado de la partida (base " + sincronizacion.getNumeroLocal() + ")");
+        gestorRed.difundir(sincronizacion.crearPeticion(gestorRed.getNombreJugador()));
+    }
+    
+    /**
+     * Quien se une (no el anfitrion) pide el estado una sola vez por union,
+     * por si la partida ya estaba empezada; si aun no hay partida local se pide al crearla
+     */
+    private void solicitarEstadoAlUnirse() {
+        if (esAnfitrion || !estadoInicialPedido.compareAndSet(false, true)) {
+            return;
+        }
+        estadoPendiente.set(true);
+        enviarEstadoPendiente();
+    }
+    
+    private void enviarEstadoPendiente() {
+        if (controladorPartida != null && estadoPendiente.getAndSet(false)) {
+            solicitarEstado();
+        }
+    }
+    
     /**
      * Envia mensaje de chat
      */
     public void enviarMensajeChat(String texto) {
-        gestorRed.enviarMensajeChat(texto);
+        if (!gestorRed.enviarMensajeChat(texto)) {
+            System.out.println("[RED] Mensaje de chat recortado a " + P2PNetworkManager.MAX_TEXTO_CHAT + " caracteres");
+        }
     }
     
     @Override
-    public void alRecibirMensaje(MensajeJuego mensaje, ConexionPeer desde) {
-        System.out.println("[RED] <- " + mensaje.getTipo() + " de " + mensaje.getEmisor());
-        
+    public void alRecibirMensaje(MensajeJuego mensaje, Conexion desde) {
         // DELEGACION AL DISPATCHER - UNA SOLA LINEA
         dispatcher.despachar(mensaje, desde);
     }
     
     @Override
-    public void alDesconectarPeer(ConexionPeer peer) {
+    public void alDesconectarPeer(Conexion peer) {
         System.out.println("[RED] Peer desconectado: " + peer.getNombrePeer());
     }
     
+    /**
+     * Se perdieron mensajes que el peer ya no podia reenviar: se pide el estado completo
+     */
+    @Override
+    public void alDetectarHueco(Conexion desde, long esperada, long recibida) {
+        solicitarEstado();
+    }
+    
+    /**
+     * El peer ya habia cerrado la sesion: lo que envio durante el corte no llegara
+     */
+    @Override
+    public void alReconectarSinSesion(Conexion peer) {
+        estadoPendiente.set(true);
+        enviarEstadoPendiente();
+    }
+    
     // METODOS PUBLICOS PARA QUE LOS MANEJADORES LOS USEN
     
     /**
      * Procesa mensaje de saludo
      */
     public void procesarSaludo(MensajeJuego mensaje) {
-        synchronized (lockNombre) {
+        int asiento = enSala ? asientoDeSaludo(mensaje.getContenido()) : 0;
+        lockNombre.lock();
+        try {
             nombreOponenteRecibido = mensaje.getEmisor();
-            System.out.println("[RED] Oponente identificado: " + nombreOponenteRecibido);
-            lockNombre.notifyAll();
+            if (nombresSala != null && asiento >= 1 && asiento <= nombresSala.length) {
+                nombresSala[asiento - 1] = mensaje.getEmisor();
+            }
+            nombreRecibido.signalAll();
+        } finally {
+            lockNombre.unlock();
+        }
+        System.out.println("[RED] Oponente identificado: " + mensaje.getEmisor());
+        // En una sala el primer SALUDO es del servidor: alli se pide al asignar el puesto
+        if (!enSala) {
+            solicitarEstadoAlUnirse();
+        }
+    }
+    
+    /**
+     * Procesa la respuesta del servidor de salas:
+     * "sala:S,jugador:J,jugadores:N,colores:C1;C2..." o "error:motivo"
+     * Sin jugadores ni colores (servidores anteriores) la sala es de 2: Amarillo y Azul
+     */
+    public void procesarAsignacionSala(MensajeJuego mensaje) {
+        String contenido = mensaje.getContenido();
+        int asignado = 0;
+        int jugadores = 2;
+        ColorFicha[] colores = null;
+        String error = null;
+        try {
+            if (contenido.startsWith("error:")) {
+                error = contenido.substring(6);
+            } else {
+                // El nombre de la sala puede tener comas: los campos van tras el ultimo ",jugador:"
+                String campos = contenido.substring(contenido.lastIndexOf(",jugador:") + 1);
+                for (String campo : campos.split(",")) {
+                    String valor = campo.substring(campo.indexOf(':') + 1);
+                    if (campo.startsWith("jugador:")) {
+                        asignado = Integer.parseInt(valor);
+                    } else if (campo.startsWith("jugadores:")) {
+                        jugadores = Integer.parseInt(valor);
+                    } else if (campo.startsWith("colores:")) {
+                        String[] nombres = valor.split(";");
+                        colores = new ColorFicha[nombres.length];
+                        for (int i = 0; i < nombres.length; i++) {
+                            colores[i] = ColorFicha.deNombre(nombres[i]);
+                        }
+                    }
+                }
+                if (colores == null) {
+                    colores = new ColorFicha[jugadores];
+                    for (int i = 0; i < jugadores; i++) {
+                        colores[i] = ColorFicha.deIndice(i);
+                    }
+                }
+                if (jugadores < 2 || jugadores > Partida.MAX_JUGADORES || colores.length != jugadores
+                        || asignado < 1 || asignado > jugadores) {
+                    asignado = 0;
+                    error = "respuesta ilegible: " + contenido;
+                }
+            }
+        } catch (RuntimeException e) {
+            asignado = 0;
+            error = "respuesta ilegible: " + contenido;
+        }
+        
+        if (asignado > 0) {
+            // El SALUDO de bienvenida es del servidor, no de un oponente
+            lockNombre.lock();
+            try {
+                nombreOponenteRecibido = null;
+                nombresSala = new String[jugadores];
+                nombresSala[asignado - 1] = gestorRed.getNombreJugador();
+                coloresSala = colores;
+                nombreRecibido.signalAll();
+            } finally {
+                lockNombre.unlock();
+            }
+        }
+        
+        lockSala.lock();
+        try {
+            if (asignado > 0) {
+                jugadorAsignado = asignado;
+                jugadorLocalId = asignado;
+            } else {
+                errorSala = error;
+            }
+            salaAsignada.signalAll();
+        } finally {
+            lockSala.unlock();
+        }
+        System.out.println("[RED] Sala asignada: " + contenido);
+        if (asignado > 0) {
+            solicitarEstadoAlUnirse();
+        }
+    }
+    
+    /**
+     * Asiento de un SALUDO del servidor de salas ("jugador:<id>") o 0 si no lo trae
+     */
+    private static int asientoDeSaludo(String contenido) {
+        if (contenido == null || !contenido.startsWith("jugador:")) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(contenido.substring(8));
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
     
@@ -233,27 +514,30 @@ public class ControladorRed implements EscuchaRed {
      * Procesa senal de inicio de juego
      */
     public void procesarInicioJuego(MensajeJuego mensaje) {
-        synchronized (lockInicio) {
+        lockInicio.lock();
+        try {
             inicioPartidaRecibido = true;
-            System.out.println("[RED] Senal de inicio recibida");
-            lockInicio.notifyAll();
+            inicioRecibido.signalAll();
+        } finally {
+            lockInicio.unlock();
         }
+        System.out.println("[RED] Senal de inicio recibida");
     }
     
     /**
      * Procesa un movimiento recibido
      */
     public void procesarMovimiento(MensajeJuego mensaje) {
+        if (!(mensaje.getCarga() instanceof CargaMensaje.Movimiento movimiento)) {
+            System.err.println("[RED] Movimiento ilegible: " + mensaje.getContenido());
+            return;
+        }
+        
         try {
-            String[] partes = mensaje.getContenido().split(",");
-            int jugadorId = Integer.parseInt(partes[0].split(":")[1]);
-            int fichaId = Integer.parseInt(partes[1].split(":")[1]);
-            int dado = Integer.parseInt(partes[2].split(":")[1]);
-            
-            if (jugadorId != jugadorLocalId) {
+            if (movimiento.jugador() != jugadorLocalId) {
                 System.out.println("\n[RED] Procesando movimiento del oponente...");
                 if (controladorPartida != null) {
-                    controladorPartida.aplicarMovimientoRemoto(jugadorId, fichaId, dado);
+                    controladorPartida.aplicarMovimientoRemoto(movimiento.jugador(), movimiento.ficha(), movimiento.dado());
                     System.out.println("[RED] Movimiento sincronizado");
                 }
             }
@@ -267,8 +551,13 @@ public class ControladorRed implements EscuchaRed {
      * Procesa cambio de turno
      */
     public void procesarCambioTurno(MensajeJuego mensaje) {
+        if (!(mensaje.getCarga() instanceof CargaMensaje.CambioTurno cambio)) {
+            System.err.println("[RED] Cambio de turno ilegible: " + mensaje.getContenido());
+            return;
+        }
+        
         try {
-            int jugadorId = Integer.parseInt(mensaje.getContenido());
+            int jugadorId = cambio.jugador();
             
             if (controladorPartida != null) {
                 controladorPartida.aplicarCambioTurnoRemoto(jugadorId);
@@ -290,11 +579,30 @@ public class ControladorRed implements EscuchaRed {
      * Procesa tirada de dado
      */
     public void procesarTiradaDado(MensajeJuego mensaje) {
-        try {
-            int valor = Integer.parseInt(mensaje.getContenido());
-            System.out.println("[RED] " + mensaje.getEmisor() + " lanzo el dado: " + valor);
-        } catch (Exception e) {
-            System.err.println("[RED] Error procesando tirada de dado: " + e.getMessage());
+        if (mensaje.getCarga() instanceof CargaMensaje.TiradaDado tirada) {
+            System.out.println("[RED] " + mensaje.getEmisor() + " lanzo el dado: " + tirada.valor());
+        } else {
+            System.err.println("[RED] Tirada de dado ilegible: " + mensaje.getContenido());
+        }
+    }
+    
+    /**
+     * Procesa un ESTADO_JUEGO: responde las peticiones y aplica las respuestas
+     * Si una respuesta no encaja con la base local se pide una instantanea completa
+     */
+    public void procesarEstadoJuego(MensajeJuego mensaje, Conexion desde) {
+        if (controladorPartida == null) {
+            return;
+        }
+        Partida partida = controladorPartida.getPartida();
+        
+        if (SincronizacionEstado.esPeticion(mensaje)) {
+            desde.enviarMensaje(sincronizacion.responder(mensaje, partida, gestorRed.getNombreJugador()));
+            return;
+        }
+        if (!sincronizacion.aplicar(mensaje, partida)) {
+            sincronizacion.reiniciar();
+            desde.enviarMensaje(sincronizacion.crearPeticion(gestorRed.getNombreJugador()));
         }
     }
     
@@ -307,6 +615,7 @@ public class ControladorRed implements EscuchaRed {
     
     public void setControladorPartida(ControladorPartida controlador) {
         this.controladorPartida = controlador;
+        enviarEstadoPendiente();
     }
     
     public void cerrar() {
@@ -314,6 +623,10 @@ public class ControladorRed implements EscuchaRed {
         if (dispatcher != null) {
             dispatcher.limpiar();
         }
+        if (ejecutorJuego != null) {
+            // Los mensajes ya encolados se terminan de aplicar
+            ejecutorJuego.shutdown();
+        }
     }
     
     public boolean esAnfitrion() {
@@ -328,7 +641,29 @@ public class ControladorRed implements EscuchaRed {
      * Obtiene peers conectados
      * Util para verificar estado de conexion
      */
-    public java.util.List<ConexionPeer> getPeersConectados() {
+    public java.util.List<Conexion> getPeersConectados() {
         return gestorRed.getPeersConectados();
     }
+    
+    /**
+     * Gestor de red de este jugador
+     * Permite elegir el transporte (usarNIO, usarMemoria) antes de conectar
+     */
+    public P2PNetworkManager getGestorRed() {
+        return gestorRed;
+    }
+    
+    /**
+     * RTT y jitter de cada peer, medidos con los latidos
+     */
+    public java.util.List<LatenciaPeer> getLatencias() {
+        return gestorRed.getLatencias();
+    }
+    
+    /**
+     * true mientras el oponente siga conectado o se espere su reconexion
+     */
+    public boolean hayOponente() {
+        return gestorRed.hayPeersActivos();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package controlador;
+
+import modelo.Jugador;
+import modelo.Partida;
+
+/**
+ * Decide que ficha mueve un jugador controlado por la computadora
+ * ControladorPartida lo usa en lugar de pedir la opcion por teclado
+ */
+public interface SelectorFicha {
+    
+    /**
+     * Elige una de las fichas disponibles
+     * @param partida Partida en curso (no debe modificarse)
+     * @param jugador Jugador en turno
+     * @param disponibles Mascara de fichas que pueden moverse (ver Jugador.mascaraDisponibles)
+     * @param pasos Valor del dado o casillas de premio
+     * @param esPremio true si se esta usando un premio de casillas
+     * @return Opcion elegida, de 1 a Integer.bitCount(disponibles), en el orden de la mascara
+     */
+    int seleccionar(Partida partida, Jugador jugador, int disponibles, int pasos, boolean esPremio);
+}
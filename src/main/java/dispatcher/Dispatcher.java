@@ -1,50 +1,122 @@
 package dispatcher;
 
 import red.MensajeJuego;
-import red.ConexionPeer;
-import java.util.HashMap;
-import java.util.Map;
+import red.Conexion;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Dispatcher central que distribuye mensajes a sus manejadores correspondientes
  * Implementa el patron Dispatcher para desacoplar la logica de procesamiento
+ *
+ * La tabla es un array indexado por el ordinal del tipo: despachar solo lee una
+ * referencia volatil y una posicion, sin cerrojos ni consola. Registrar copia la
+ * tabla y la publica entera (copia al escribir), asi que se puede registrar
+ * mientras otros hilos despachan
+ * Cada tipo se ejecuta en el hilo que despacha (el lector de la conexion) o en un
+ * ejecutor propio para que la logica de juego lenta no frene la lectura del socket
  */
 public class Dispatcher {
     
-    private Map<MensajeJuego.TipoMensaje, ManejadorMensaje> manejadores;
+    private static final MensajeJuego.TipoMensaje[] TIPOS = MensajeJuego.TipoMensaje.values();
+    
+    /**
+     * Manejador de un tipo y donde se ejecuta (null = en el hilo que despacha)
+     */
+    private record Entrada(ManejadorMensaje manejador, Executor ejecutor) { }
+    
+    private volatile Entrada[] tabla;
+    private final Object cerrojoRegistro;
+    private final LongAdder sinManejador;
+    private final LongAdder rechazados;
     
     /**
      * Constructor del Dispatcher
-     * Inicializa el mapa de manejadores
+     * Inicializa la tabla de manejadores vacia
      */
     public Dispatcher() {
-        this.manejadores = new HashMap<>();
+        this.tabla = new Entrada[TIPOS.length];
+        this.cerrojoRegistro = new Object();
+        this.sinManejador = new LongAdder();
+        this.rechazados = new LongAdder();
     }
     
     /**
-     * Registra un manejador para un tipo especifico de mensaje
+     * Ejecutor de un solo hilo (demonio) con nombre, para usar en registrar
+     * Los mensajes de todos los tipos que comparten el ejecutor se procesan en el
+     * orden de llegada; quien lo crea debe cerrarlo
+     */
+    public static ExecutorService nuevoEjecutor(String nombre) {
+        return Executors.newSingleThreadExecutor(Thread.ofPlatform().name(nombre).daemon().factory());
+    }
+    
+    /**
+     * Registra un manejador que se ejecuta en el hilo que despacha
+     * Debe ser rapido y no bloquear: retiene la lectura de la conexion
      * @param tipo Tipo de mensaje a manejar
      * @param manejador Manejador que procesara este tipo de mensaje
      */
     public void registrar(MensajeJuego.TipoMensaje tipo, ManejadorMensaje manejador) {
-        manejadores.put(tipo, manejador);
-        System.out.println("[DISPATCHER] Manejador registrado para: " + tipo);
+        registrar(tipo, manejador, null);
+    }
+    
+    /**
+     * Registra un manejador para un tipo especifico de mensaje
+     * @param tipo Tipo de mensaje a manejar
+     * @param manejador Manejador que procesara este tipo de mensaje
+     * @param ejecutor Donde se ejecuta el manejador; null = en el hilo que despacha
+     */
+    public void registrar(MensajeJuego.TipoMensaje tipo, ManejadorMensaje manejador, Executor ejecutor) {
+        actualizar(tipo, new Entrada(manejador, ejecutor));
+        System.out.println("[DISPATCHER] Manejador registrado para: " + tipo
+                         + (ejecutor == null ? "" : " (fuera del hilo de lectura)"));
+    }
+    
+    private void actualizar(MensajeJuego.TipoMensaje tipo, Entrada entrada) {
+        synchronized (cerrojoRegistro) {
+            Entrada[] nueva = tabla.clone();
+            nueva[tipo.ordinal()] = entrada;
+            tabla = nueva;
+        }
     }
     
     /**
      * Despacha un mensaje al manejador apropiado
+     * Sin manejador el mensaje se cuenta y se ignora (ver getSinManejador)
      * @param mensaje Mensaje a procesar
      * @param desde Peer que envio el mensaje
      */
-    public void despachar(MensajeJuego mensaje, ConexionPeer desde) {
-        MensajeJuego.TipoMensaje tipo = mensaje.getTipo();
-        ManejadorMensaje manejador = manejadores.get(tipo);
+    public void despachar(MensajeJuego mensaje, Conexion desde) {
+        Entrada entrada = tabla[mensaje.getTipo().ordinal()];
+        if (entrada == null) {
+            sinManejador.increment();
+            return;
+        }
         
-        if (manejador != null) {
-            System.out.println("[DISPATCHER] Despachando mensaje: " + tipo);
+        Executor ejecutor = entrada.ejecutor();
+        if (ejecutor == null) {
+            entrada.manejador().manejar(mensaje, desde);
+            return;
+        }
+        try {
+            ejecutor.execute(() -> ejecutar(entrada.manejador(), mensaje, desde));
+        } catch (RejectedExecutionException e) {
+            // Ejecutor ya cerrado (la partida esta terminando)
+            rechazados.increment();
+        }
+    }
+    
+    /**
+     * Un manejador que falla no debe tumbar el hilo del ejecutor
+     */
+    private static void ejecutar(ManejadorMensaje manejador, MensajeJuego mensaje, Conexion desde) {
+        try {
             manejador.manejar(mensaje, desde);
-        } else {
-            System.out.println("[DISPATCHER] No hay manejador registrado para: " + tipo);
+        } catch (RuntimeException e) {
+            System.err.println("[DISPATCHER] Error manejando " + mensaje.getTipo() + ": " + e.getMessage());
         }
     }
     
@@ -54,7 +126,7 @@ public class Dispatcher {
      * @return true si existe manejador, false si no
      */
     public boolean tieneManejador(MensajeJuego.TipoMensaje tipo) {
-        return manejadores.containsKey(tipo);
+        return tabla[tipo.ordinal()] != null;
     }
     
     /**
@@ -62,15 +134,18 @@ public class Dispatcher {
      * @param tipo Tipo de mensaje
      */
     public void desregistrar(MensajeJuego.TipoMensaje tipo) {
-        manejadores.remove(tipo);
+        actualizar(tipo, null);
         System.out.println("[DISPATCHER] Manejador eliminado para: " + tipo);
     }
     
     /**
      * Limpia todos los manejadores registrados
+     * Los ejecutores no se cierran: son de quien los registro
      */
     public void limpiar() {
-        manejadores.clear();
+        synchronized (cerrojoRegistro) {
+            tabla = new Entrada[TIPOS.length];
+        }
         System.out.println("[DISPATCHER] Todos los manejadores eliminados");
     }
     
@@ -79,6 +154,26 @@ public class Dispatcher {
      * @return Cantidad de manejadores
      */
     public int cantidadManejadores() {
-        return manejadores.size();
+        int cantidad = 0;
+        for (Entrada entrada : tabla) {
+            if (entrada != null) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+    
+    /**
+     * Mensajes ignorados por no tener manejador
+     */
+    public long getSinManejador() {
+        return sinManejador.sum();
+    }
+    
+    /**
+     * Mensajes descartados porque su ejecutor ya estaba cerrado
+     */
+    public long getRechazados() {
+        return rechazados.sum();
     }
-}
\ No newline at end of file
+}
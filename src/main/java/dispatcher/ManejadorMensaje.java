@@ -1,7 +1,7 @@
 package dispatcher;
 
 import red.MensajeJuego;
-import red.ConexionPeer;
+import red.Conexion;
 
 /**
  * Interfaz base para todos los manejadores de mensajes
@@ -14,5 +14,5 @@ public interface ManejadorMensaje {
      * @param mensaje Mensaje recibido
      * @param desde Peer que envio el mensaje
      */
-    void manejar(MensajeJuego mensaje, ConexionPeer desde);
+    void manejar(MensajeJuego mensaje, Conexion desde);
 }
\ No newline at end of file
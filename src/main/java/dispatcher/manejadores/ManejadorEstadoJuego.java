@@ -0,0 +1,24 @@
+package dispatcher.manejadores;
+
+import dispatcher.ManejadorMensaje;
+import red.MensajeJuego;
+import red.Conexion;
+import controlador.ControladorRed;
+
+/**
+ * Manejador para mensajes de tipo ESTADO_JUEGO
+ * Peticiones y respuestas de sincronizacion de estado
+ */
+public class ManejadorEstadoJuego implements ManejadorMensaje {
+    
+    private ControladorRed controladorRed;
+    
+    public ManejadorEstadoJuego(ControladorRed controladorRed) {
+        this.controladorRed = controladorRed;
+    }
+    
+    @Override
+    public void manejar(MensajeJuego mensaje, Conexion desde) {
+        controladorRed.procesarEstadoJuego(mensaje, desde);
+    }
+}
\ No newline at end of file
@@ -2,7 +2,7 @@ package dispatcher.manejadores;
 
 import dispatcher.ManejadorMensaje;
 import red.MensajeJuego;
-import red.ConexionPeer;
+import red.Conexion;
 import controlador.ControladorRed;
 
 /**
@@ -18,7 +18,7 @@ public class ManejadorInicioJuego implements ManejadorMensaje {
     }
     
     @Override
-    public void manejar(MensajeJuego mensaje, ConexionPeer desde) {
+    public void manejar(MensajeJuego mensaje, Conexion desde) {
         controladorRed.procesarInicioJuego(mensaje);
     }
 }
\ No newline at end of file
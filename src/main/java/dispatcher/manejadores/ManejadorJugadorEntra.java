@@ -0,0 +1,24 @@
+package dispatcher.manejadores;
+
+import dispatcher.ManejadorMensaje;
+import red.MensajeJuego;
+import red.Conexion;
+import controlador.ControladorRed;
+
+/**
+ * Manejador para mensajes de tipo JUGADOR_ENTRA
+ * Procesa la asignacion de sala del servidor de salas
+ */
+public class ManejadorJugadorEntra implements ManejadorMensaje {
+    
+    private ControladorRed controladorRed;
+    
+    public ManejadorJugadorEntra(ControladorRed controladorRed) {
+        this.controladorRed = controladorRed;
+    }
+    
+    @Override
+    public void manejar(MensajeJuego mensaje, Conexion desde) {
+        controladorRed.procesarAsignacionSala(mensaje);
+    }
+}
\ No newline at end of file
@@ -2,7 +2,7 @@ package dispatcher.manejadores;
 
 import dispatcher.ManejadorMensaje;
 import red.MensajeJuego;
-import red.ConexionPeer;
+import red.Conexion;
 
 /**
  * Manejador para mensajes de tipo JUGADOR_SALE
@@ -11,7 +11,7 @@ import red.ConexionPeer;
 public class ManejadorJugadorSale implements ManejadorMensaje {
     
     @Override
-    public void manejar(MensajeJuego mensaje, ConexionPeer desde) {
+    public void manejar(MensajeJuego mensaje, Conexion desde) {
         System.out.println("[RED] Jugador desconectado: " + mensaje.getEmisor());
     }
 }
\ No newline at end of file
@@ -0,0 +1,373 @@
+package ia;
+
+import controlador.SelectorFicha;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import modelo.EstadoPartida;
+import modelo.GeneradorMovimientos;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.Tablero;
+import simulacion.PoliticaJugador;
+import simulacion.SimuladorPartidas;
+
+/**
+ * Jugador automatico basado en Monte Carlo Tree Search
+ * Cada hilo construye su propio arbol desde la posicion actual hasta agotar
+ * el tiempo por jugada; al final se suman las visitas de la raiz y se juega
+ * el movimiento mas visitado (paralelismo de raiz, sin bloqueos entre hilos)
+ * El dado se modela con nodos de azar; las simulaciones usan EstadoPartida
+ * y SimuladorPartidas.jugarTurno, asi que siguen las mismas reglas del juego
+ */
+public class BotMCTS implements PoliticaJugador, SelectorFicha {
+    private static final double EXPLORACION = 1.4;
+    private static final int MAX_TURNOS_SIMULACION = 400;
+    private static final int MAX_PROFUNDIDAD = 200;
+
+    private final long presupuestoMs;
+    private final int hilos;
+    private final ExecutorService ejecutor;
+    private final AtomicLong semillas;
+    private final PoliticaJugador politicaSimulacion;
+
+    /**
+     * Bot que usa todos los nucleos disponibles
+     * @param presupuestoMs Tiempo de busqueda por jugada en milisegundos
+     */
+    public BotMCTS(long presupuestoMs) {
+        this(presupuestoMs, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * @param presupuestoMs Tiempo de busqueda por jugada en milisegundos
+     * @param hilos Arboles que se construyen en paralelo
+     * @param semilla Semilla de los dados simulados
+     */
+    public BotMCTS(long presupuestoMs, int hilos, long semilla) {
+        this.presupuestoMs = presupuestoMs;
+        this.hilos = Math.max(1, hilos);
+        this.semillas = new AtomicLong(semilla);
+        this.politicaSimulacion = PoliticaJugador.CODICIOSA;
+        this.ejecutor = Executors.newFixedThreadPool(this.hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "bot-mcts");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Elige la ficha para ControladorPartida a partir de la partida real
+     */
+    @Override
+    public int seleccionar(Partida partida, Jugador jugador, int disponibles, int pasos, boolean esPremio) {
+        int color = jugador.getIndiceColor();
+        EstadoPartida estado = EstadoPartida.desde(partida);
+        estado.setTurno(color);
+
+        int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        int cantidad = esPremio
+            ? GeneradorMovimientos.generarPremio(estado, color, pasos, movimientos)
+            : GeneradorMovimientos.generar(estado, color, pasos, movimientos);
+        if (cantidad == 0) {
+            return 1;
+        }
+
+        int movimiento = movimientos[buscar(estado, movimientos, cantidad, pasos)];
+        int ficha = GeneradorMovimientos.ficha(movimiento) % EstadoPartida.FICHAS_POR_COLOR;
+        if ((disponibles & (1 << ficha)) == 0) {
+            return 1;
+        }
+        return Integer.bitCount(disponibles & ((1 << ficha) - 1)) + 1;
+    }
+
+    /**
+     * Permite enfrentar el bot a otras politicas en SimuladorPartidas
+     */
+    @Override
+    public int elegir(EstadoPartida estado, int[] movimientos, int cantidad, int pasos, SplittableRandom aleatorio) {
+        return buscar(estado, movimientos, cantidad, pasos);
+    }
+
+    /**
+     * Busca el mejor movimiento durante el presupuesto de tiempo
+     * @param estado Estado actual (no se modifica)
+     * @param movimientos Movimientos generados para el color en turno
+     * @param cantidad Movimientos validos en el buffer
+     * @param pasos Valor del dado, o casillas del premio si estado.getCasillasPremio() > 0
+     * @return Indice del movimiento elegido
+     */
+    public int buscar(EstadoPartida estado, int[] movimientos, int cantidad, int pasos) {
+        if (cantidad <= 1) {
+            return 0;
+        }
+
+        long limite = System.nanoTime() + presupuestoMs * 1_000_000L;
+        List<Future<int[]>> arboles = new ArrayList<>(hilos);
+        for (int h = 0; h < hilos; h++) {
+            long semilla = semillas.getAndAdd(0x9E3779B97F4A7C15L);
+            arboles.add(ejecutor.submit(() ->
+                construirArbol(estado, movimientos, cantidad, pasos, limite, new SplittableRandom(semilla))));
+        }
+
+        long[] visitas = new long[cantidad];
+        for (Future<int[]> arbol : arboles) {
+            try {
+                int[] parcial = arbol.get();
+                for (int i = 0; i < cantidad; i++) {
+                    visitas[i] += parcial[i];
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                System.out.println("[BOT] Error en la busqueda: " + e.getCause());
+            }
+        }
+
+        int mejor = 0;
+        for (int i = 1; i < cantidad; i++) {
+            if (visitas[i] > visitas[mejor]) {
+                mejor = i;
+            }
+        }
+        return mejor;
+    }
+
+    /**
+     * Detiene los hilos del bot
+     */
+    public void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    public long getPresupuestoMs() { return presupuestoMs; }
+    public int getHilos() { return hilos; }
+
+    private int[] construirArbol(EstadoPartida estado, int[] movimientos, int cantidad, int pasos,
+                                 long limite, SplittableRandom aleatorio) {
+        NodoDecision raiz = new NodoDecision(estado.copiar(), pasos, movimientos, cantidad);
+        int[] buffer = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        NodoDecision[] camino = new NodoDecision[MAX_PROFUNDIDAD];
+        int[] elegidos = new int[MAX_PROFUNDIDAD];
+
+        // Al menos una iteracion por movimiento aunque el presupuesto sea minimo
+        int iteraciones = 0;
+        while (iteraciones < cantidad || System.nanoTime() < limite) {
+            iterar(raiz, aleatorio, buffer, camino, elegidos);
+            iteraciones++;
+        }
+        return raiz.visitas;
+    }
+
+    /**
+     * Seleccion, expansion, simulacion y retropropagacion
+     */
+    private void iterar(NodoDecision raiz, SplittableRandom aleatorio, int[] buffer,
+                        NodoDecision[] camino, int[] elegidos) {
+        NodoDecision nodo = raiz;
+        int profundidad = 0;
+        double[] recompensa;
+
+        while (true) {
+            int i = nodo.seleccionar();
+            camino[profundidad] = nodo;
+            elegidos[profundidad] = i;
+            profundidad++;
+
+            NodoAzar azar = nodo.hijos[i];
+            if (azar == null) {
+                azar = new NodoAzar(nodo.jugar(i));
+                nodo.hijos[i] = azar;
+                recompensa = azar.ganador >= 0
+                    ? victoria(azar.ganador)
+                    : simular(azar.estado.copiar(), aleatorio, buffer);
+                break;
+            }
+            if (azar.ganador >= 0) {
+                recompensa = victoria(azar.ganador);
+                break;
+            }
+            if (profundidad == MAX_PROFUNDIDAD) {
+                recompensa = evaluar(azar.estado);
+                break;
+            }
+            nodo = azar.siguiente(aleatorio);
+        }
+
+        // Cada nodo acumula la recompensa del color que decidio en el
+        for (int d = 0; d < profundidad; d++) {
+            NodoDecision n = camino[d];
+            int i = elegidos[d];
+            n.visitas[i]++;
+            n.recompensas[i] += recompensa[n.color];
+            n.total++;
+            camino[d] = null;
+        }
+    }
+
+    /**
+     * Juega la partida con la politica de simulacion hasta un ganador
+     * o hasta el limite de turnos, donde se evalua por progreso
+     */
+    private double[] simular(EstadoPartida estado, SplittableRandom aleatorio, int[] buffer) {
+        for (int turno = 0; turno < MAX_TURNOS_SIMULACION; turno++) {
+            SimuladorPartidas.jugarTurno(estado, politicaSimulacion, buffer, aleatorio);
+            int ganador = estado.ganador();
+            if (ganador >= 0) {
+                return victoria(ganador);
+            }
+        }
+        return evaluar(estado);
+    }
+
+    private static double[] victoria(int color) {
+        double[] recompensa = new double[EstadoPartida.COLORES];
+        recompensa[color] = 1.0;
+        return recompensa;
+    }
+
+    /**
+     * Reparte la recompensa segun el progreso de cada color hacia la meta
+     */
+    private static double[] evaluar(EstadoPartida estado) {
+        double[] recompensa = new double[EstadoPartida.COLORES];
+        double total = 0;
+        for (int color = 0; color < EstadoPartida.COLORES; color++) {
+            int fichas = estado.getMascaraActivas() & EstadoPartida.mascaraColor(color);
+            while (fichas != 0) {
+                int ficha = Integer.numberOfTrailingZeros(fichas);
+                fichas &= fichas - 1;
+                if (estado.estaEnMeta(ficha)) {
+                    recompensa[color] += Tablero.PROGRESO_META + 1;
+                } else if (!estado.estaEnCasa(ficha)) {
+                    recompensa[color] += Tablero.progreso(color, estado.getPosicion(ficha)) + 1;
+                }
+            }
+            total += recompensa[color];
+        }
+        if (total > 0) {
+            for (int color = 0; color < EstadoPartida.COLORES; color++) {
+                recompensa[color] /= total;
+            }
+        }
+        return recompensa;
+    }
+
+    /**
+     * Nodo en el que el color en turno elige un movimiento para una tirada o un premio
+     * Sin movimientos posibles tiene una unica opcion: pasar
+     */
+    private static final class NodoDecision {
+        final EstadoPartida estado;
+        final int color;
+        final int pasos;
+        final boolean premio;
+        final int[] movimientos;
+        final int cantidad;
+        final NodoAzar[] hijos;
+        final int[] visitas;
+        final double[] recompensas;
+        int total;
+
+        NodoDecision(EstadoPartida estado, int pasos) {
+            this(estado, pasos, null, 0);
+        }
+
+        NodoDecision(EstadoPartida estado, int pasos, int[] generados, int cantidadGenerada) {
+            this.estado = estado;
+            this.color = estado.getTurno();
+            this.pasos = pasos;
+            this.premio = estado.getCasillasPremio() > 0;
+            this.movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+            if (generados != null) {
+                System.arraycopy(generados, 0, movimientos, 0, cantidadGenerada);
+                this.cantidad = cantidadGenerada;
+            } else if (premio) {
+                this.cantidad = GeneradorMovimientos.generarPremio(estado, color, pasos, movimientos);
+            } else {
+                this.cantidad = GeneradorMovimientos.generar(estado, color, pasos, movimientos);
+            }
+
+            int opciones = Math.max(1, cantidad);
+            this.hijos = new NodoAzar[opciones];
+            this.visitas = new int[opciones];
+            this.recompensas = new double[opciones];
+        }
+
+        /**
+         * Primero las opciones sin visitar; despues UCT
+         */
+        int seleccionar() {
+            if (hijos.length == 1) {
+                return 0;
+            }
+            double logTotal = Math.log(total);
+            int mejor = 0;
+            double mejorValor = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < hijos.length; i++) {
+                if (visitas[i] == 0) {
+                    return i;
+                }
+                double valor = recompensas[i] / visitas[i]
+                    + EXPLORACION * Math.sqrt(logTotal / visitas[i]);
+                if (valor > mejorValor) {
+                    mejor = i;
+                    mejorValor = valor;
+                }
+            }
+            return mejor;
+        }
+
+        /**
+         * Estado resultante de jugar la opcion i, con las reglas del turno aplicadas
+         */
+        EstadoPartida jugar(int i) {
+            EstadoPartida siguiente = estado.copiar();
+            if (premio) {
+                if (cantidad > 0) {
+                    siguiente.usarPremio(movimientos[i]);
+                } else {
+                    siguiente.setCasillasPremio(0);
+                }
+            } else {
+                if (cantidad > 0) {
+                    siguiente.jugarTirada(movimientos[i]);
+                }
+                siguiente.terminarTirada(pasos);
+            }
+            return siguiente;
+        }
+    }
+
+    /**
+     * Nodo de azar: la tirada del siguiente dado
+     * Si hay un premio pendiente no se tira y solo existe el hijo 0
+     */
+    private static final class NodoAzar {
+        final EstadoPartida estado;
+        final int ganador;
+        final NodoDecision[] porDado = new NodoDecision[7];
+
+        NodoAzar(EstadoPartida estado) {
+            this.estado = estado;
+            this.ganador = estado.ganador();
+        }
+
+        NodoDecision siguiente(SplittableRandom aleatorio) {
+            int premio = estado.getCasillasPremio();
+            int indice = premio > 0 ? 0 : aleatorio.nextInt(6) + 1;
+            NodoDecision hijo = porDado[indice];
+            if (hijo == null) {
+                hijo = new NodoDecision(estado, premio > 0 ? premio : indice);
+                porDado[indice] = hijo;
+            }
+            return hijo;
+        }
+    }
+}
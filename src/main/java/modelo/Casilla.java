@@ -1,6 +1,7 @@
 /**
  * Representa una casilla del tablero
- * Puede ser normal, segura, de salida o meta
+ * Puede ser normal, segura, de salida, de pasillo o meta
+ * Todas salvo las normales son seguras
  */
 package modelo;
 
@@ -15,13 +16,13 @@ public class Casilla {
     
     /**
      * Constructor de casilla
-     * @param numero Numero de casilla (0-67)
-     * @param tipo Tipo de casilla (normal, segura, salida, meta)
+     * @param numero Numero de casilla (0-99)
+     * @param tipo Tipo de casilla (normal, segura, salida, pasillo, meta)
      */
     public Casilla(int numero, String tipo) {
         this.numeroCasilla = numero;
         this.tipo = tipo;
-        this.esSegura = tipo.equals("segura");
+        this.esSegura = !tipo.equals("normal");
         this.fichas = new ArrayList<>();
     }
     
@@ -35,24 +36,31 @@ public class Casilla {
     
     /**
      * Remueve una ficha de esta casilla
+     * El orden de las fichas no importa: la ultima ocupa el hueco
      * @param ficha Ficha a remover
+     * @return true si la ficha estaba en la casilla
      */
-    public void removerFicha(Ficha ficha) {
-        fichas.remove(ficha);
+    public boolean removerFicha(Ficha ficha) {
+        int ultima = fichas.size() - 1;
+        for (int i = ultima; i >= 0; i--) {
+            if (fichas.get(i) == ficha) {
+                fichas.set(i, fichas.get(ultima));
+                fichas.remove(ultima);
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
      * Verifica si hay una barrera en esta casilla
      * Una barrera se forma con 2 fichas del mismo color
+     * Tablero.tieneBarrera da la misma respuesta desde el indice de ocupacion
      * @return true si hay barrera, false si no
      */
     public boolean verificarBarrera() {
-        if (fichas.size() == 2) {
-            String colorPrimera = fichas.get(0).getColor();
-            String colorSegunda = fichas.get(1).getColor();
-            return colorPrimera.equals(colorSegunda);
-        }
-        return false;
+        return fichas.size() == 2
+            && fichas.get(0).getIndiceColor() == fichas.get(1).getIndiceColor();
     }
     
     // Getters
@@ -0,0 +1,64 @@
+/**
+ * Colores del parchis
+ * El ordinal es el indice del color en Tablero, EstadoPartida y Zobrist
+ */
+package modelo;
+
+public enum ColorFicha {
+    AMARILLO("Amarillo"),
+    AZUL("Azul"),
+    ROJO("Rojo"),
+    VERDE("Verde");
+    
+    private static final ColorFicha[] VALORES = values();
+    
+    private final String nombre;
+    
+    ColorFicha(String nombre) {
+        this.nombre = nombre;
+    }
+    
+    /**
+     * Obtiene un color por su indice
+     * @param indice Indice del color (0-3)
+     */
+    public static ColorFicha deIndice(int indice) {
+        return VALORES[indice];
+    }
+    
+    /**
+     * Obtiene un color por su nombre, sin distinguir mayusculas
+     * @param nombre Nombre del color (Amarillo, Azul, Rojo, Verde)
+     * @return El color
+     * @throws IllegalArgumentException si el nombre no es un color
+     */
+    public static ColorFicha deNombre(String nombre) {
+        ColorFicha color = desdeNombre(nombre);
+        if (color == null) {
+            throw new IllegalArgumentException("Color desconocido: " + nombre);
+        }
+        return color;
+    }
+    
+    /**
+     * Obtiene un color por su nombre, sin distinguir mayusculas
+     * @param nombre Nombre del color (Amarillo, Azul, Rojo, Verde)
+     * @return El color o null si no se reconoce
+     */
+    public static ColorFicha desdeNombre(String nombre) {
+        for (ColorFicha color : VALORES) {
+            if (color.nombre.equalsIgnoreCase(nombre)) {
+                return color;
+            }
+        }
+        return null;
+    }
+    
+    public int getIndice() { return ordinal(); }
+    public String getNombre() { return nombre; }
+    
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
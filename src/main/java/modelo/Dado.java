@@ -1,32 +1,27 @@
 /**
  * Representa el dado del juego
- * Genera valores aleatorios entre 1 y 6
+ * Genera valores entre 1 y 6; cada implementacion decide de donde salen
  */
 package modelo;
 
-import java.util.Random;
+import java.util.OptionalLong;
 
-public class Dado {
-    private int valor;
-    private Random random;
+public interface Dado {
     
     /**
-     * Constructor del dado
-     * Inicializa el generador de numeros aleatorios
+     * Lanza el dado
+     * @return Valor del dado (1-6)
      */
-    public Dado() {
-        this.random = new Random();
-        this.valor = 0;
-    }
+    int lanzar();
     
     /**
-     * Lanza el dado y genera un valor aleatorio
-     * @return Valor del dado (1-6)
+     * @return Ultimo valor lanzado o 0 si aun no se ha lanzado
      */
-    public int lanzar() {
-        this.valor = random.nextInt(6) + 1;
-        return this.valor;
-    }
+    int getValor();
     
-    public int getValor() { return valor; }
-}
\ No newline at end of file
+    /**
+     * Semilla con la que se puede reproducir la secuencia de tiradas
+     * @return Semilla o vacio si el dado no depende de una semilla
+     */
+    default OptionalLong getSemilla() { return OptionalLong.empty(); }
+}
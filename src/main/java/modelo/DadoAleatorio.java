@@ -0,0 +1,50 @@
+/**
+ * Dado con generador SplittableRandom propio de la partida
+ * Con la misma semilla produce siempre la misma secuencia de tiradas
+ * y no comparte estado con otros dados (sin contencion entre hilos)
+ */
+package modelo;
+
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+
+public class DadoAleatorio implements Dado {
+    private final long semilla;
+    private final SplittableRandom random;
+    private int valor;
+    
+    /**
+     * Dado con semilla aleatoria
+     */
+    public DadoAleatorio() {
+        this(new SplittableRandom().nextLong());
+    }
+    
+    /**
+     * @param semilla Semilla de la secuencia de tiradas
+     */
+    public DadoAleatorio(long semilla) {
+        this.semilla = semilla;
+        this.random = new SplittableRandom(semilla);
+        this.valor = 0;
+    }
+    
+    @Override
+    public int lanzar() {
+        this.valor = random.nextInt(6) + 1;
+        return this.valor;
+    }
+    
+    /**
+     * Crea un dado independiente derivado de este (por ejemplo, una partida simulada por hilo)
+     * @return Nuevo dado con semilla derivada
+     */
+    public DadoAleatorio dividir() {
+        return new DadoAleatorio(random.nextLong());
+    }
+    
+    @Override
+    public int getValor() { return valor; }
+    @Override
+    public OptionalLong getSemilla() { return OptionalLong.of(semilla); }
+}
@@ -0,0 +1,82 @@
+/**
+ * Dado que genera las tiradas por bloques
+ * Cada numero de 64 bits se lee como 23 digitos en base 6 (23 tiradas),
+ * asi se llama al generador una vez cada muchas tiradas; pensado para simulaciones masivas
+ */
+package modelo;
+
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+
+public class DadoBloque implements Dado {
+    private static final int TIRADAS_POR_NUMERO = 23;
+    private static final long POTENCIA = 789730223053602816L;            // 6^23
+    private static final long LIMITE = TIRADAS_POR_NUMERO * POTENCIA;    // 23 * 6^23, sin signo
+    private static final int NUMEROS_POR_BLOQUE = 8;
+    
+    private final long semilla;
+    private final SplittableRandom random;
+    private final byte[] tiradas;
+    private int siguiente;
+    private int valor;
+    
+    /**
+     * Dado con semilla aleatoria
+     */
+    public DadoBloque() {
+        this(new SplittableRandom().nextLong());
+    }
+    
+    /**
+     * @param semilla Semilla de la secuencia de tiradas
+     */
+    public DadoBloque(long semilla) {
+        this.semilla = semilla;
+        this.random = new SplittableRandom(semilla);
+        this.tiradas = new byte[TIRADAS_POR_NUMERO * NUMEROS_POR_BLOQUE];
+        this.siguiente = tiradas.length;
+        this.valor = 0;
+    }
+    
+    @Override
+    public int lanzar() {
+        if (siguiente == tiradas.length) {
+            rellenar();
+        }
+        this.valor = tiradas[siguiente++];
+        return this.valor;
+    }
+    
+    /**
+     * Rellena el bloque completo
+     * Los numeros por encima de 23 * 6^23 se descartan para que las tiradas sean uniformes
+     */
+    private void rellenar() {
+        int i = 0;
+        while (i < tiradas.length) {
+            long numero = random.nextLong();
+            if (Long.compareUnsigned(numero, LIMITE) >= 0) {
+                continue;
+            }
+            long digitos = Long.remainderUnsigned(numero, POTENCIA);
+            for (int k = 0; k < TIRADAS_POR_NUMERO; k++) {
+                tiradas[i++] = (byte) (digitos % 6 + 1);
+                digitos /= 6;
+            }
+        }
+        siguiente = 0;
+    }
+    
+    /**
+     * Crea un dado independiente derivado de este
+     * @return Nuevo dado con semilla derivada
+     */
+    public DadoBloque dividir() {
+        return new DadoBloque(random.nextLong());
+    }
+    
+    @Override
+    public int getValor() { return valor; }
+    @Override
+    public OptionalLong getSemilla() { return OptionalLong.of(semilla); }
+}
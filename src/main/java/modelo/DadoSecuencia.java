@@ -0,0 +1,48 @@
+/**
+ * Dado que repite una secuencia fija de tiradas
+ * Sirve para reproducir una partida registrada (ver RegistroPartidaJSON.leerTiradas)
+ */
+package modelo;
+
+import java.util.List;
+
+public class DadoSecuencia implements Dado {
+    private final int[] tiradas;
+    private int siguiente;
+    private int valor;
+    
+    /**
+     * @param tiradas Valores (1-6) en el orden en que se lanzaran
+     */
+    public DadoSecuencia(int... tiradas) {
+        for (int t : tiradas) {
+            if (t < 1 || t > 6) {
+                throw new IllegalArgumentException("Tirada invalida: " + t);
+            }
+        }
+        this.tiradas = tiradas.clone();
+        this.siguiente = 0;
+        this.valor = 0;
+    }
+    
+    public DadoSecuencia(List<Integer> tiradas) {
+        this(tiradas.stream().mapToInt(Integer::intValue).toArray());
+    }
+    
+    /**
+     * @throws IllegalStateException si ya no quedan tiradas
+     */
+    @Override
+    public int lanzar() {
+        if (siguiente >= tiradas.length) {
+            throw new IllegalStateException("No quedan tiradas en la secuencia (" + tiradas.length + ")");
+        }
+        this.valor = tiradas[siguiente++];
+        return this.valor;
+    }
+    
+    public boolean quedanTiradas() { return siguiente < tiradas.length; }
+    public int getRestantes() { return tiradas.length - siguiente; }
+    @Override
+    public int getValor() { return valor; }
+}
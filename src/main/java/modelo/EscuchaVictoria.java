@@ -0,0 +1,14 @@
+/**
+ * Recibe el aviso de que un jugador llevo su cuarta ficha a la meta
+ * Jugador lo dispara en el mismo cambio de estado de la ficha
+ */
+package modelo;
+
+@FunctionalInterface
+public interface EscuchaVictoria {
+    
+    /**
+     * @param jugador Jugador que acaba de ganar
+     */
+    void jugadorGano(Jugador jugador);
+}
@@ -0,0 +1,517 @@
+/**
+ * Representacion compacta del estado de una partida
+ * Las 16 fichas (4 colores x 4 fichas) se guardan en palabras primitivas
+ * Sustituye al grafo Tablero/Casilla/Ficha en simulaciones y analisis
+ */
+package modelo;
+
+public final class EstadoPartida {
+    public static final int COLORES = 4;
+    public static final int FICHAS_POR_COLOR = 4;
+    public static final int TOTAL_FICHAS = COLORES * FICHAS_POR_COLOR;
+    // Codigos de ficha fuera del tablero para codigoFicha/restaurarFicha
+    public static final int CODIGO_CASA = -1;
+    public static final int CODIGO_META = -2;
+
+    // Valores especiales de posicion, nunca coinciden con una casilla (0-99)
+    private static final int POS_CASA = 0x7F;
+    private static final int POS_META = 0x7E;
+
+    private static final long BYTES_BAJOS = 0x0101010101010101L;
+    private static final long SIETE_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long RECOGER_BITS = 0x0102040810204080L;
+
+    // Un byte por ficha: fichas 0-7 en posBajas, fichas 8-15 en posAltas
+    private long posBajas;
+    private long posAltas;
+    // Bits 0-15: fichas en casa, bits 16-31: fichas en meta
+    private int banderas;
+    // Mascara de fichas que participan (colores con jugador)
+    private int activas;
+    // Bits 0-1: color en turno, 2-3: contador de seis,
+    // 4-8: ultima ficha movida + 1 (0 = ninguna), 9-31: casillas de premio
+    private int control;
+    // Hash Zobrist, mismas claves que HashPartida
+    private long hash;
+
+    private EstadoPartida() {
+    }
+
+    /**
+     * Crea el estado inicial con todas las fichas en casa
+     * @param colores Mascara de colores con jugador (bit 0 = Amarillo ... bit 3 = Verde)
+     * @return Estado inicial
+     */
+    public static EstadoPartida inicial(int colores) {
+        EstadoPartida estado = new EstadoPartida();
+        for (int c = 0; c < COLORES; c++) {
+            if ((colores & (1 << c)) != 0) {
+                estado.activas |= mascaraColor(c);
+            }
+        }
+        for (int f = 0; f < TOTAL_FICHAS; f++) {
+            estado.setPosicionInterna(f, POS_CASA);
+        }
+        estado.banderas = estado.activas;
+        estado.hash = estado.calcularHash();
+        return estado;
+    }
+
+    /**
+     * Construye el estado compacto a partir del modelo de objetos
+     * Las fichas se indexan como color * 4 + indice dentro del jugador
+     * @param partida Partida a convertir
+     * @return Estado equivalente
+     */
+    public static EstadoPartida desde(Partida partida) {
+        int colores = 0;
+        for (Jugador j : partida.getJugadores()) {
+            colores |= 1 << j.getIndiceColor();
+        }
+
+        EstadoPartida estado = inicial(colores);
+        for (Jugador j : partida.getJugadores()) {
+            int base = j.getIndiceColor() * FICHAS_POR_COLOR;
+            for (int k = 0; k < j.getFichas().size() && k < FICHAS_POR_COLOR; k++) {
+                Ficha ficha = j.getFichas().get(k);
+                int f = base + k;
+                if (ficha.isEnMeta()) {
+                    estado.marcarMeta(f);
+                } else if (!ficha.isEnCasa()) {
+                    estado.colocar(f, ficha.getPosicion());
+                }
+            }
+        }
+
+        if (partida.getTurnoActual() != null) {
+            estado.setTurno(partida.getTurnoActual().getIndiceColor());
+        }
+        estado.setContadorSeis(partida.getContadorSeis());
+        estado.setCasillasPremio(partida.getCasillasPremio());
+        return estado;
+    }
+
+    /**
+     * Mascara con las 4 fichas de un color
+     */
+    public static int mascaraColor(int color) {
+        return 0xF << (color * FICHAS_POR_COLOR);
+    }
+
+    public static int colorDeFicha(int ficha) {
+        return ficha / FICHAS_POR_COLOR;
+    }
+
+    /**
+     * Copia independiente del estado
+     */
+    public EstadoPartida copiar() {
+        EstadoPartida copia = new EstadoPartida();
+        copia.copiarDe(this);
+        return copia;
+    }
+
+    /**
+     * Sobrescribe este estado con otro sin crear objetos
+     * @param otro Estado origen
+     */
+    public void copiarDe(EstadoPartida otro) {
+        this.posBajas = otro.posBajas;
+        this.posAltas = otro.posAltas;
+        this.banderas = otro.banderas;
+        this.activas = otro.activas;
+        this.control = otro.control;
+        this.hash = otro.hash;
+    }
+
+    /**
+     * Saca una ficha de casa a la casilla de salida de su color
+     * @param ficha Indice de la ficha (0-15)
+     * @return Casilla de salida o -1 si la ficha no estaba en casa o hay barrera en la salida
+     */
+    public int sacarDeCasa(int ficha) {
+        if (!estaEnCasa(ficha)) {
+            return -1;
+        }
+        int salida = Tablero.casillaSalida(colorDeFicha(ficha));
+        if (verificarBarrera(salida)) {
+            return -1;
+        }
+        colocar(ficha, salida);
+        return salida;
+    }
+
+    /**
+     * Mueve una ficha en juego, equivalente a Tablero.moverFicha
+     * Si llega o supera la meta queda en la casilla meta; aplicar() la marca como llegada
+     * @param ficha Indice de la ficha (0-15)
+     * @param pasos Numero de casillas a avanzar
+     * @return Nueva casilla o -1 si la ficha no estaba en juego
+     */
+    public int moverFicha(int ficha, int pasos) {
+        if (!estaEnJuego(ficha)) {
+            return -1;
+        }
+        int nuevaPosicion = Tablero.destino(resolver(ficha, pasos));
+        setPosicionInterna(ficha, nuevaPosicion);
+        return nuevaPosicion;
+    }
+
+    /**
+     * Resuelve en las tablas de Tablero el movimiento de una ficha en juego
+     * @return Entrada codificada de Tablero.resolver
+     * @throws IllegalStateException si la casilla de la ficha no esta en el recorrido de su color
+     */
+    public int resolver(int ficha, int pasos) {
+        int color = colorDeFicha(ficha);
+        int casilla = getPosicionInterna(ficha);
+        int progreso = Tablero.progreso(color, casilla);
+        if (progreso < 0) {
+            throw new IllegalStateException("La casilla " + casilla + " no esta en el recorrido de "
+                                            + ColorFicha.deIndice(color));
+        }
+        return Tablero.resolver(color, progreso, pasos);
+    }
+
+    /**
+     * Regresa una ficha a casa (comida o penalizada)
+     * @param ficha Indice de la ficha (0-15)
+     */
+    public void regresarACasa(int ficha) {
+        setPosicionInterna(ficha, POS_CASA);
+        banderas = (banderas | (1 << ficha)) & ~(1 << (ficha + 16));
+    }
+
+    /**
+     * Aplica las reglas tras mover una ficha, equivalente a ReglasJuego.aplicar
+     * Come fichas rivales en casillas no seguras y marca la llegada a meta
+     * @param ficha Ficha que se movio
+     * @return Casillas de premio (0, 10 o 20)
+     */
+    public int aplicar(int ficha) {
+        if (!estaEnJuego(ficha)) {
+            return 0;
+        }
+
+        int premio = 0;
+        int posicion = getPosicionInterna(ficha);
+
+        if (!Tablero.esSegura(posicion)) {
+            int victimas = fichasEn(posicion) & ~mascaraColor(colorDeFicha(ficha));
+            if (victimas != 0) {
+                while (victimas != 0) {
+                    int victima = Integer.numberOfTrailingZeros(victimas);
+                    regresarACasa(victima);
+                    victimas &= victimas - 1;
+                }
+                premio = ReglasJuego.PREMIO_COMER;
+            }
+        }
+
+        if (Tablero.esMeta(posicion)) {
+            marcarMeta(ficha);
+            premio = ReglasJuego.PREMIO_META;
+        }
+
+        return premio;
+    }
+
+    /**
+     * Fichas que ocupan una casilla
+     * Compara los 16 bytes de posicion a la vez (SWAR) sin recorrer listas
+     * @param casilla Numero de casilla (0-99)
+     * @return Mascara de 16 bits con las fichas presentes
+     */
+    public int fichasEn(int casilla) {
+        long patron = BYTES_BAJOS * (casilla & 0xFF);
+        return bytesCero(posBajas ^ patron) | (bytesCero(posAltas ^ patron) << 8);
+    }
+
+    /**
+     * Verifica si hay barrera en una casilla, equivalente a Casilla.verificarBarrera
+     * Una barrera se forma con exactamente 2 fichas del mismo color
+     * @param casilla Numero de casilla (0-99)
+     * @return true si hay barrera
+     */
+    public boolean verificarBarrera(int casilla) {
+        int ocupantes = fichasEn(casilla);
+        if (Integer.bitCount(ocupantes) != 2) {
+            return false;
+        }
+        int color = colorDeFicha(Integer.numberOfTrailingZeros(ocupantes));
+        return (ocupantes & ~mascaraColor(color)) == 0;
+    }
+
+    /**
+     * Casillas 0-63 con barrera, para Tablero.recorridoBloqueado
+     */
+    public long getBarrerasBajas() { return barreras(0); }
+
+    /**
+     * Casillas 64-99 con barrera (bit 0 = casilla 64), para Tablero.recorridoBloqueado
+     */
+    public long getBarrerasAltas() { return barreras(64); }
+
+    private long barreras(int primera) {
+        long mapa = 0;
+        for (int m = getMascaraEnJuego(); m != 0; m &= m - 1) {
+            int casilla = getPosicionInterna(Integer.numberOfTrailingZeros(m)) - primera;
+            if (casilla >= 0 && casilla < 64 && verificarBarrera(casilla + primera)) {
+                mapa |= 1L << casilla;
+            }
+        }
+        return mapa;
+    }
+
+    // Consultas por ficha
+    public int getPosicion(int ficha) {
+        int p = getPosicionInterna(ficha);
+        return p < Tablero.TOTAL_CASILLAS ? p : -1;
+    }
+    public boolean estaEnCasa(int ficha) { return (banderas & (1 << ficha)) != 0; }
+    public boolean estaEnMeta(int ficha) { return (banderas & (1 << (ficha + 16))) != 0; }
+    public boolean estaActiva(int ficha) { return (activas & (1 << ficha)) != 0; }
+    public boolean estaEnJuego(int ficha) {
+        return estaActiva(ficha) && !estaEnCasa(ficha) && !estaEnMeta(ficha);
+    }
+
+    // Consultas por mascara
+    public int getMascaraCasa() { return banderas & 0xFFFF; }
+    public int getMascaraMeta() { return banderas >>> 16; }
+    public int getMascaraActivas() { return activas; }
+    public int getMascaraEnJuego() { return activas & ~(getMascaraCasa() | getMascaraMeta()); }
+    public int fichasEnMeta(int color) { return Integer.bitCount(getMascaraMeta() & mascaraColor(color)); }
+
+    // Control de turno
+    public int getTurno() { return control & 0x3; }
+    public int getContadorSeis() { return (control >>> 2) & 0x3; }
+    public int getCasillasPremio() { return control >>> 9; }
+    public int getUltimaFichaMovida() { return ((control >>> 4) & 0x1F) - 1; }
+
+    public void setTurno(int color) {
+        hash ^= Zobrist.turno(getTurno()) ^ Zobrist.turno(color & 0x3);
+        control = (control & ~0x3) | (color & 0x3);
+    }
+
+    public void setContadorSeis(int contador) {
+        contador = Math.min(contador, 3);
+        hash ^= Zobrist.seises(getContadorSeis()) ^ Zobrist.seises(contador);
+        control = (control & ~0xC) | (contador << 2);
+    }
+
+    public void setCasillasPremio(int casillas) {
+        hash ^= Zobrist.premio(getCasillasPremio()) ^ Zobrist.premio(casillas);
+        control = (control & 0x1FF) | (casillas << 9);
+    }
+
+    private void setUltimaFichaMovida(int ficha) {
+        control = (control & ~0x1F0) | ((ficha + 1) << 4);
+    }
+
+    /**
+     * Juega un movimiento de una tirada de dado (de GeneradorMovimientos.generar)
+     * Lleva la ficha a su destino, aplica las reglas y acumula el premio obtenido
+     * @param movimiento Movimiento codificado
+     * @return Fichas comidas
+     */
+    public int jugarTirada(int movimiento) {
+        int ficha = GeneradorMovimientos.ficha(movimiento);
+        colocar(ficha, GeneradorMovimientos.destino(movimiento));
+        int enCasa = Integer.bitCount(getMascaraCasa());
+        int premio = aplicar(ficha);
+        setCasillasPremio(getCasillasPremio() + premio);
+        setUltimaFichaMovida(ficha);
+        return Integer.bitCount(getMascaraCasa()) - enCasa;
+    }
+
+    /**
+     * Usa el premio pendiente con un movimiento de GeneradorMovimientos.generarPremio
+     * Igual que en ControladorPartida, el premio obtenido al usar un premio se pierde
+     * @param movimiento Movimiento codificado
+     * @return Fichas comidas
+     */
+    public int usarPremio(int movimiento) {
+        int ficha = GeneradorMovimientos.ficha(movimiento);
+        colocar(ficha, GeneradorMovimientos.destino(movimiento));
+        int enCasa = Integer.bitCount(getMascaraCasa());
+        aplicar(ficha);
+        setCasillasPremio(0);
+        setUltimaFichaMovida(ficha);
+        return Integer.bitCount(getMascaraCasa()) - enCasa;
+    }
+
+    /**
+     * Reglas al terminar una tirada: turno extra con 6,
+     * penalizacion por tres 6 seguidos o cambio de turno
+     * @param valorDado Valor del dado de la tirada
+     */
+    public void terminarTirada(int valorDado) {
+        if (valorDado != 6) {
+            cambiarTurno();
+            return;
+        }
+
+        int contador = getContadorSeis() + 1;
+        if (contador >= ReglasJuego.MAX_SEIS_SEGUIDOS) {
+            int ultima = getUltimaFichaMovida();
+            if (ultima >= 0 && colorDeFicha(ultima) == getTurno() && !estaEnMeta(ultima)) {
+                regresarACasa(ultima);
+            }
+            setCasillasPremio(0);
+            cambiarTurno();
+        } else {
+            setContadorSeis(contador);
+        }
+    }
+
+    /**
+     * Color con sus 4 fichas en meta
+     * @return Indice del color ganador o -1 si nadie ha ganado
+     */
+    public int ganador() {
+        // Un color gana si los 4 bits de su grupo en la mascara de meta estan encendidos
+        int meta = getMascaraMeta();
+        int completos = meta & (meta >>> 1) & (meta >>> 2) & (meta >>> 3) & 0x1111;
+        return completos == 0 ? -1 : Integer.numberOfTrailingZeros(completos) / FICHAS_POR_COLOR;
+    }
+
+    /**
+     * Hash Zobrist del estado, mantenido en cada operacion
+     * Coincide con Partida.getHash() para el mismo estado, tambien antes del primer turno
+     * (sin turno cuenta como el color 0)
+     */
+    public long getHash() { return hash; }
+
+    /**
+     * Recalcula el hash desde cero (para verificar el incremental)
+     */
+    public long calcularHash() {
+        long h = Zobrist.turno(getTurno()) ^ Zobrist.seises(getContadorSeis())
+               ^ Zobrist.premio(getCasillasPremio());
+        for (int m = activas; m != 0; m &= m - 1) {
+            int f = Integer.numberOfTrailingZeros(m);
+            h ^= Zobrist.ficha(f, codigoHash(getPosicionInterna(f)));
+        }
+        return h;
+    }
+
+    /**
+     * Pasa el turno al siguiente color con jugador y reinicia el contador de seis
+     */
+    public void cambiarTurno() {
+        int color = getTurno();
+        for (int i = 1; i <= COLORES; i++) {
+            int siguiente = (color + i) % COLORES;
+            if ((activas & mascaraColor(siguiente)) != 0) {
+                color = siguiente;
+                break;
+            }
+        }
+        setTurno(color);
+        setContadorSeis(0);
+    }
+
+    /**
+     * Estado de una ficha en un solo entero, para enviarlo por red
+     * @param ficha Indice de la ficha (0-15)
+     * @return Casilla, CODIGO_CASA o CODIGO_META
+     */
+    public int codigoFicha(int ficha) {
+        if (estaEnMeta(ficha)) return CODIGO_META;
+        if (estaEnCasa(ficha)) return CODIGO_CASA;
+        return getPosicionInterna(ficha);
+    }
+
+    /**
+     * Pone una ficha en el estado dado por codigoFicha
+     * @param ficha Indice de la ficha (0-15)
+     * @param codigo Casilla, CODIGO_CASA o CODIGO_META
+     */
+    public void restaurarFicha(int ficha, int codigo) {
+        if (codigo == CODIGO_META) {
+            marcarMeta(ficha);
+        } else if (codigo == CODIGO_CASA) {
+            regresarACasa(ficha);
+        } else if (codigo >= 0 && codigo < Tablero.TOTAL_CASILLAS) {
+            colocar(ficha, codigo);
+        } else {
+            throw new IllegalArgumentException("Codigo de ficha invalido: " + codigo);
+        }
+    }
+
+    private void colocar(int ficha, int casilla) {
+        setPosicionInterna(ficha, casilla);
+        banderas &= ~((1 << ficha) | (1 << (ficha + 16)));
+    }
+
+    private void marcarMeta(int ficha) {
+        setPosicionInterna(ficha, POS_META);
+        banderas = (banderas & ~(1 << ficha)) | (1 << (ficha + 16));
+    }
+
+    private int getPosicionInterna(int ficha) {
+        long palabra = ficha < 8 ? posBajas : posAltas;
+        return (int) (palabra >>> ((ficha & 7) * 8)) & 0xFF;
+    }
+
+    private void setPosicionInterna(int ficha, int valor) {
+        hash ^= Zobrist.ficha(ficha, codigoHash(getPosicionInterna(ficha)))
+              ^ Zobrist.ficha(ficha, codigoHash(valor));
+        int desplazamiento = (ficha & 7) * 8;
+        long limpio = ~(0xFFL << desplazamiento);
+        long nuevo = ((long) valor & 0xFF) << desplazamiento;
+        if (ficha < 8) {
+            posBajas = (posBajas & limpio) | nuevo;
+        } else {
+            posAltas = (posAltas & limpio) | nuevo;
+        }
+    }
+
+    private static int codigoHash(int valor) {
+        if (valor == POS_CASA) return Zobrist.CODIGO_CASA;
+        if (valor == POS_META) return Zobrist.CODIGO_META;
+        return valor;
+    }
+
+    /**
+     * Devuelve una mascara de 8 bits con los bytes que valen cero
+     */
+    private static int bytesCero(long x) {
+        long t = (x & SIETE_BITS) + SIETE_BITS;
+        t = ~(t | x | SIETE_BITS);
+        return (int) ((((t >>> 7) & BYTES_BAJOS) * RECOGER_BITS) >>> 56);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EstadoPartida)) return false;
+        EstadoPartida otro = (EstadoPartida) o;
+        return posBajas == otro.posBajas && posAltas == otro.posAltas &&
+               banderas == otro.banderas && activas == otro.activas && control == otro.control;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = posBajas * 31 + posAltas;
+        h = h * 31 + banderas;
+        h = h * 31 + activas;
+        h = h * 31 + control;
+        return Long.hashCode(h);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("EstadoPartida{");
+        for (int f = 0; f < TOTAL_FICHAS; f++) {
+            if (!estaActiva(f)) continue;
+            sb.append(f).append('=');
+            if (estaEnCasa(f)) sb.append("casa");
+            else if (estaEnMeta(f)) sb.append("meta");
+            else sb.append(getPosicion(f));
+            sb.append(' ');
+        }
+        sb.append("turno=").append(getTurno()).append('}');
+        return sb.toString();
+    }
+}
@@ -10,20 +10,31 @@ public class Ficha {
     private static AtomicInteger contadorId = new AtomicInteger(0);
     private int idFicha;
     private String color;
+    private ColorFicha colorFicha;
+    private int indiceColor;
     private int posicion;
+    private int progreso;
     private boolean enCasa;
     private boolean enMeta;
     private int jugadorId;
+    private HashPartida hash;
+    private int indiceHash;
+    private Jugador jugador;
+    private int indiceJugador;
     
     /**
      * Constructor basico de ficha
      * Inicializa la ficha en casa
      * @param color Color de la ficha segun el jugador
+     * @throws IllegalArgumentException si el color no se reconoce
      */
     public Ficha(String color) {
         this.idFicha = contadorId.incrementAndGet();
         this.color = color;
+        this.colorFicha = ColorFicha.deNombre(color);
+        this.indiceColor = colorFicha.getIndice();
         this.posicion = -1;
+        this.progreso = -1;
         this.enCasa = true;
         this.enMeta = false;
     }
@@ -43,14 +54,16 @@ public class Ficha {
     public Ficha(String color, int jugadorId, int idFicha) {
         this.idFicha = idFicha;
         this.color = color;
+        this.colorFicha = ColorFicha.deNombre(color);
+        this.indiceColor = colorFicha.getIndice();
         this.jugadorId = jugadorId;
         this.posicion = -1;
+        this.progreso = -1;
         this.enCasa = true;
         this.enMeta = false;
         
-        if (idFicha > contadorId.get()) {
-            contadorId.set(idFicha);
-        }
+        // Atomico: varias partidas pueden crear fichas a la vez (servidor de salas)
+        contadorId.accumulateAndGet(idFicha, Math::max);
     }
     
     /**
@@ -70,14 +83,33 @@ public class Ficha {
     }
     
     /**
-     * Mueve la ficha un numero determinado de pasos
+     * Mueve la ficha un numero determinado de pasos por el recorrido de su color
      * Solo funciona si la ficha esta en juego
+     * No actualiza las casillas; para eso usar Tablero.moverFicha
      * @param pasos Numero de casillas a avanzar
+     * @throws IllegalStateException si la casilla de la ficha no esta en el recorrido de su color
      */
     public void mover(int pasos) {
         if (!enCasa && !enMeta) {
-            posicion += pasos;
+            int anterior = codigoHash();
+            int aporte = aporteProgreso();
+            int entrada = Tablero.resolver(indiceColor, progresoEnRecorrido(), pasos);
+            posicion = Tablero.destino(entrada);
+            progreso = Tablero.progresoDestino(entrada);
+            actualizarHash(anterior);
+            notificarJugador(aporte);
+        }
+    }
+    
+    /**
+     * Progreso de la ficha para leer las tablas de recorridos de Tablero
+     * @throws IllegalStateException si la casilla no pertenece al recorrido de su color
+     */
+    int progresoEnRecorrido() {
+        if (progreso < 0) {
+            throw new IllegalStateException("La casilla " + posicion + " no esta en el recorrido de " + color);
         }
+        return progreso;
     }
     
     /**
@@ -85,9 +117,14 @@ public class Ficha {
      * Se usa cuando la ficha es comida
      */
     public void regresarACasa() {
+        int anterior = codigoHash();
+        int aporte = aporteProgreso();
         this.posicion = -1;
+        this.progreso = -1;
         this.enCasa = true;
         this.enMeta = false;
+        actualizarHash(anterior);
+        notificarJugador(aporte);
     }
     
     /**
@@ -95,18 +132,99 @@ public class Ficha {
      * La ficha ya no puede moverse
      */
     public void llegarMeta() {
+        int anterior = codigoHash();
+        int aporte = aporteProgreso();
         this.enMeta = true;
         this.enCasa = false;
+        actualizarHash(anterior);
+        notificarJugador(aporte);
+    }
+    
+    /**
+     * Vincula la ficha al hash Zobrist de su partida
+     * A partir de aqui cada cambio de estado actualiza el hash en O(1)
+     * @param hash Hash de la partida
+     * @param indice Indice Zobrist de la ficha (color * 4 + indice en el jugador)
+     */
+    public void vincularHash(HashPartida hash, int indice) {
+        this.hash = hash;
+        this.indiceHash = indice;
+        hash.agregarFicha(indice, codigoHash());
+    }
+    
+    /**
+     * Codigo de posicion para el hash: casilla, casa o meta
+     */
+    private int codigoHash() {
+        if (enMeta) return Zobrist.CODIGO_META;
+        if (enCasa || posicion < 0) return Zobrist.CODIGO_CASA;
+        return posicion;
+    }
+    
+    private void actualizarHash(int codigoAnterior) {
+        if (hash != null) {
+            hash.moverFicha(indiceHash, codigoAnterior, codigoHash());
+        }
+    }
+    
+    /**
+     * Vincula la ficha a su jugador para mantener sus contadores
+     * @param jugador Duenio de la ficha
+     * @param indice Indice de la ficha en el jugador (0-3)
+     */
+    void vincularJugador(Jugador jugador, int indice) {
+        this.jugador = jugador;
+        this.indiceJugador = indice;
+        jugador.actualizarFicha(indice, this, 0);
+    }
+    
+    /**
+     * Aporte de la ficha a la suma de progreso de su jugador
+     */
+    int aporteProgreso() {
+        if (enCasa) return 0;
+        if (enMeta) return Tablero.PROGRESO_META;
+        return Math.max(progreso, 0);
+    }
+    
+    private void notificarJugador(int aporteAnterior) {
+        if (jugador != null) {
+            jugador.actualizarFicha(indiceJugador, this, aporteAnterior);
+        }
     }
     
     public int getIdFicha() { return idFicha; }
     public String getColor() { return color; }
+    public ColorFicha getColorFicha() { return colorFicha; }
+    public int getIndiceColor() { return indiceColor; }
     public int getPosicion() { return posicion; }
-    public void setPosicion(int posicion) { this.posicion = posicion; }
+    public void setPosicion(int posicion) {
+        int anterior = codigoHash();
+        this.posicion = posicion;
+        actualizarHash(anterior);
+    }
+    public int getProgreso() { return progreso; }
+    public void setProgreso(int progreso) {
+        int aporte = aporteProgreso();
+        this.progreso = progreso;
+        notificarJugador(aporte);
+    }
     public boolean isEnCasa() { return enCasa; }
-    public void setEnCasa(boolean enCasa) { this.enCasa = enCasa; }
+    public void setEnCasa(boolean enCasa) {
+        int anterior = codigoHash();
+        int aporte = aporteProgreso();
+        this.enCasa = enCasa;
+        actualizarHash(anterior);
+        notificarJugador(aporte);
+    }
     public boolean isEnMeta() { return enMeta; }
-    public void setEnMeta(boolean enMeta) { this.enMeta = enMeta; }
+    public void setEnMeta(boolean enMeta) {
+        int anterior = codigoHash();
+        int aporte = aporteProgreso();
+        this.enMeta = enMeta;
+        actualizarHash(anterior);
+        notificarJugador(aporte);
+    }
     public int getJugadorId() { return jugadorId; }
     public void setJugadorId(int jugadorId) { this.jugadorId = jugadorId; }
     
@@ -116,6 +234,7 @@ public class Ficha {
                 "id=" + idFicha +
                 ", color='" + color + '\'' +
                 ", pos=" + posicion +
+                ", progreso=" + progreso +
                 ", enCasa=" + enCasa +
                 ", enMeta=" + enMeta +
                 '}';
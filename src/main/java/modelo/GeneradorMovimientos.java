@@ -0,0 +1,109 @@
+/**
+ * Generador de movimientos legales sin crear objetos
+ * Escribe los movimientos candidatos en un buffer int[] del llamador
+ * Cada movimiento se codifica en un int con ficha, destino y banderas
+ * Las fichas que una barrera no deja avanzar no generan movimiento
+ */
+package modelo;
+
+public final class GeneradorMovimientos {
+    /** Tamano minimo del buffer: como mucho una jugada por ficha del color */
+    public static final int MAX_MOVIMIENTOS = EstadoPartida.FICHAS_POR_COLOR;
+
+    private static final int BITS_FICHA = 0xF;
+    private static final int DESPLAZAMIENTO_DESTINO = 4;
+    private static final int BITS_DESTINO = 0xFF;
+    private static final int CAPTURA = 1 << 12;
+    private static final int META = 1 << 14;
+    private static final int SALIDA = 1 << 15;
+
+    private GeneradorMovimientos() {
+    }
+
+    /**
+     * Genera los movimientos de un color para una tirada de dado
+     * Con 5 puede salir una ficha de casa si no hay barrera en su salida;
+     * las fichas en juego se mueven si ninguna barrera corta su recorrido
+     * @param estado Estado de la partida
+     * @param color Color que mueve (0-3)
+     * @param valorDado Valor del dado (1-6)
+     * @param buffer Buffer de salida con al menos MAX_MOVIMIENTOS posiciones
+     * @return Cantidad de movimientos escritos
+     */
+    public static int generar(EstadoPartida estado, int color, int valorDado, int[] buffer) {
+        int cantidad = 0;
+        int fichasColor = EstadoPartida.mascaraColor(color);
+
+        int enCasa = estado.getMascaraCasa() & fichasColor;
+        if (valorDado == 5 && enCasa != 0) {
+            int ficha = Integer.numberOfTrailingZeros(enCasa);
+            int salida = Tablero.casillaSalida(color);
+            if (!estado.verificarBarrera(salida)) {
+                buffer[cantidad++] = ficha | (salida << DESPLAZAMIENTO_DESTINO) | SALIDA;
+            }
+        }
+
+        return cantidad + generarEnJuego(estado, color, valorDado, buffer, cantidad);
+    }
+
+    /**
+     * Genera los movimientos para usar un premio de casillas
+     * Solo las fichas en juego pueden avanzar el premio
+     * @param estado Estado de la partida
+     * @param color Color que mueve (0-3)
+     * @param casillas Casillas de premio
+     * @param buffer Buffer de salida con al menos MAX_MOVIMIENTOS posiciones
+     * @return Cantidad de movimientos escritos
+     */
+    public static int generarPremio(EstadoPartida estado, int color, int casillas, int[] buffer) {
+        return generarEnJuego(estado, color, casillas, buffer, 0);
+    }
+
+    private static int generarEnJuego(EstadoPartida estado, int color, int pasos, int[] buffer, int inicio) {
+        int cantidad = inicio;
+        int fichasColor = EstadoPartida.mascaraColor(color);
+        int enJuego = estado.getMascaraEnJuego() & fichasColor;
+        if (enJuego == 0) {
+            return 0;
+        }
+        long barrerasBajas = estado.getBarrerasBajas();
+        long barrerasAltas = estado.getBarrerasAltas();
+
+        while (enJuego != 0) {
+            int ficha = Integer.numberOfTrailingZeros(enJuego);
+            enJuego &= enJuego - 1;
+
+            int casilla = estado.getPosicion(ficha);
+            int progreso = Tablero.progreso(color, casilla);
+            if (progreso < 0) {
+                throw new IllegalStateException("La casilla " + casilla + " no esta en el recorrido de "
+                                                + ColorFicha.deIndice(color));
+            }
+            if (Tablero.recorridoBloqueado(barrerasBajas, barrerasAltas, color, progreso, pasos)) {
+                continue;
+            }
+
+            int entrada = Tablero.resolver(color, progreso, pasos);
+            int destino = Tablero.destino(entrada);
+            int movimiento = ficha | (destino << DESPLAZAMIENTO_DESTINO);
+
+            if (Tablero.llegaMeta(entrada)) {
+                movimiento |= META;
+            } else if (!Tablero.esSeguro(entrada)
+                    && (estado.fichasEn(destino) & ~fichasColor) != 0) {
+                movimiento |= CAPTURA;
+            }
+
+            buffer[cantidad++] = movimiento;
+        }
+
+        return cantidad - inicio;
+    }
+
+    // Decodificacion de un movimiento
+    public static int ficha(int movimiento) { return movimiento & BITS_FICHA; }
+    public static int destino(int movimiento) { return (movimiento >>> DESPLAZAMIENTO_DESTINO) & BITS_DESTINO; }
+    public static boolean esCaptura(int movimiento) { return (movimiento & CAPTURA) != 0; }
+    public static boolean llegaMeta(int movimiento) { return (movimiento & META) != 0; }
+    public static boolean saleDeCasa(int movimiento) { return (movimiento & SALIDA) != 0; }
+}
@@ -0,0 +1,53 @@
+/**
+ * Hash Zobrist de una Partida mantenido de forma incremental
+ * Ficha, Partida y ControladorPartida lo actualizan en cada cambio de estado
+ */
+package modelo;
+
+public class HashPartida {
+    private long valor;
+    
+    /**
+     * Hash de una partida sin fichas y sin turno asignado
+     * Sin turno cuenta como el color 0, igual que en EstadoPartida
+     */
+    public HashPartida() {
+        this.valor = Zobrist.turno(0);
+    }
+    
+    /**
+     * Una ficha cambia de posicion
+     * @param ficha Indice Zobrist de la ficha
+     * @param codigoAnterior Codigo de posicion anterior (ver Zobrist)
+     * @param codigoNuevo Codigo de posicion nuevo
+     */
+    public void moverFicha(int ficha, int codigoAnterior, int codigoNuevo) {
+        valor ^= Zobrist.ficha(ficha, codigoAnterior) ^ Zobrist.ficha(ficha, codigoNuevo);
+    }
+    
+    /**
+     * Agrega una ficha al hash (al unirse su jugador a la partida)
+     */
+    public void agregarFicha(int ficha, int codigo) {
+        valor ^= Zobrist.ficha(ficha, codigo);
+    }
+    
+    /**
+     * Cambia el color en turno
+     * @param colorAnterior Color que tenia el turno o -1 si no habia turno (cuenta como el color 0)
+     * @param colorNuevo Color que recibe el turno
+     */
+    public void cambiarTurno(int colorAnterior, int colorNuevo) {
+        valor ^= Zobrist.turno(Math.max(colorAnterior, 0)) ^ Zobrist.turno(Math.max(colorNuevo, 0));
+    }
+    
+    public void cambiarSeises(int anterior, int nuevo) {
+        valor ^= Zobrist.seises(anterior) ^ Zobrist.seises(nuevo);
+    }
+    
+    public void cambiarPremio(int anterior, int nuevo) {
+        valor ^= Zobrist.premio(anterior) ^ Zobrist.premio(nuevo);
+    }
+    
+    public long getValor() { return valor; }
+}
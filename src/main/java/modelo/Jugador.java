@@ -1,37 +1,89 @@
 /**
  * Representa un jugador del parchis
  * Cada jugador tiene 4 fichas y un color asignado
+ * Lleva contadores exactos de sus fichas que actualizan las propias fichas al cambiar de estado
  */
 package modelo;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class Jugador {
+public final class Jugador {
     private int idJugador;
     private String nombre;
     private String avatar;
     private String color;
+    private ColorFicha colorFicha;
     private List<Ficha> fichas;
     private boolean turno;
+    private int mascaraCasa;
+    private int mascaraMeta;
+    private int sumaProgreso;
+    private EscuchaVictoria escuchaVictoria;
     
     /**
      * Constructor del jugador
      * Crea automaticamente 4 fichas del color asignado
-     * @param id Identificador unico del jugador
+     * @param id Identificador unico del jugador (1-4)
      * @param nombre Nombre del jugador
      * @param color Color asignado (Amarillo, Azul, Rojo, Verde)
+     * @throws IllegalArgumentException si el color no se reconoce
      */
     public Jugador(int id, String nombre, String color) {
+        this(id, nombre, ColorFicha.deNombre(color));
+    }
+    
+    /**
+     * Constructor del jugador con color tipado
+     * Los ids de las fichas dependen solo del id del jugador (ver idFicha),
+     * asi coinciden en todos los peers sin sincronizar contadores
+     * @param id Identificador unico del jugador (1-4)
+     * @param nombre Nombre del jugador
+     * @param color Color asignado
+     */
+    public Jugador(int id, String nombre, ColorFicha color) {
         this.idJugador = id;
         this.nombre = nombre;
-        this.color = color;
+        this.color = color.getNombre();
+        this.colorFicha = color;
         this.fichas = new ArrayList<>();
         this.turno = false;
         
         // Crear 4 fichas
         for (int i = 0; i < 4; i++) {
-            fichas.add(new Ficha(color));
+            Ficha ficha = new Ficha(this.color, id, idFicha(id, i));
+            fichas.add(ficha);
+            ficha.vincularJugador(this, i);
+        }
+    }
+    
+    /**
+     * Id de la ficha numero indice de un jugador
+     * @param idJugador Id del jugador (1-4)
+     * @param indice Indice de la ficha (0-3)
+     * @return Id de la ficha (1-16)
+     */
+    public static int idFicha(int idJugador, int indice) {
+        return (idJugador - 1) * 4 + indice + 1;
+    }
+    
+    /**
+     * Actualiza los contadores tras un cambio de estado de una ficha (lo llama Ficha)
+     * Si con este cambio la cuarta ficha llega a meta avisa a la escucha de victoria
+     * @param indice Indice de la ficha en el jugador (0-3)
+     * @param ficha Ficha ya actualizada
+     * @param aporteAnterior Aporte de la ficha a la suma de progreso antes del cambio
+     */
+    void actualizarFicha(int indice, Ficha ficha, int aporteAnterior) {
+        boolean ganadoAntes = haGanado();
+        int bit = 1 << indice;
+        
+        mascaraCasa = ficha.isEnCasa() ? mascaraCasa | bit : mascaraCasa & ~bit;
+        mascaraMeta = ficha.isEnMeta() ? mascaraMeta | bit : mascaraMeta & ~bit;
+        sumaProgreso += ficha.aporteProgreso() - aporteAnterior;
+        
+        if (!ganadoAntes && haGanado() && escuchaVictoria != null) {
+            escuchaVictoria.jugadorGano(this);
         }
     }
     
@@ -48,47 +100,88 @@ public class Jugador {
     }
     
     /**
-     * Obtiene las fichas que pueden moverse segun el valor del dado
-     * Con 5 puede sacar fichas de casa
+     * Fichas que pueden moverse segun el valor del dado, sin crear listas
+     * Con 5 puede sacar una ficha de casa
      * Con otros valores solo mueve fichas en juego
      * @param valorDado Valor obtenido en el dado (1-6)
-     * @return Lista de fichas que pueden moverse
+     * @return Mascara de bits con los indices (0-3) de las fichas disponibles
      */
-    public List<Ficha> getFichasDisponibles(int valorDado) {
-        List<Ficha> disponibles = new ArrayList<>();
-        
-        // Si saca 5, puede sacar una ficha de casa
-        if (valorDado == 5) {
-            for (Ficha ficha : fichas) {
-                if (ficha.isEnCasa()) {
-                    disponibles.add(ficha);
-                    break; // Solo una ficha puede salir por turno
-                }
-            }
-        }
+    public int mascaraDisponibles(int valorDado) {
+        int disponibles = mascaraEnJuego();
         
-        // Fichas en juego siempre pueden moverse
-        for (Ficha ficha : fichas) {
-            if (!ficha.isEnCasa() && !ficha.isEnMeta()) {
-                disponibles.add(ficha);
-            }
+        // Si saca 5, puede sacar una ficha de casa (solo una por turno)
+        int enCasa = mascaraEnCasa();
+        if (valorDado == 5 && enCasa != 0) {
+            disponibles |= Integer.lowestOneBit(enCasa);
         }
         
         return disponibles;
     }
     
+    /**
+     * Fichas que estan en casa
+     * @return Mascara de bits con los indices de las fichas en casa
+     */
+    public int mascaraEnCasa() {
+        return mascaraCasa;
+    }
+    
+    /**
+     * Fichas que estan en el tablero
+     * @return Mascara de bits con los indices de las fichas en juego
+     */
+    public int mascaraEnJuego() {
+        return mascaraTodas() & ~(mascaraCasa | mascaraMeta);
+    }
+    
+    /**
+     * Fichas que llegaron a la meta
+     * @return Mascara de bits con los indices de las fichas en meta
+     */
+    public int mascaraEnMeta() {
+        return mascaraMeta;
+    }
+    
+    /**
+     * Todas las fichas en meta
+     */
+    public boolean haGanado() {
+        return mascaraMeta == mascaraTodas();
+    }
+    
+    private int mascaraTodas() {
+        return (1 << fichas.size()) - 1;
+    }
+    
+    /**
+     * Obtiene la n-esima ficha (empezando en 0) de una mascara de fichas
+     * @param mascara Mascara devuelta por mascaraDisponibles, mascaraEnCasa o mascaraEnJuego
+     * @param n Posicion dentro de la mascara
+     * @return La ficha o null si la mascara tiene menos de n+1 fichas
+     */
+    public Ficha fichaDeMascara(int mascara, int n) {
+        for (int i = 0; i < n && mascara != 0; i++) {
+            mascara &= mascara - 1;
+        }
+        return mascara != 0 ? fichas.get(Integer.numberOfTrailingZeros(mascara)) : null;
+    }
+    
+    /**
+     * Obtiene las fichas que pueden moverse segun el valor del dado
+     * Crea una lista nueva; en bucles de juego usar mascaraDisponibles
+     * @param valorDado Valor obtenido en el dado (1-6)
+     * @return Lista de fichas que pueden moverse
+     */
+    public List<Ficha> getFichasDisponibles(int valorDado) {
+        return fichasDeMascara(mascaraDisponibles(valorDado));
+    }
+    
     /**
      * Obtiene todas las fichas que estan en casa
      * @return Lista de fichas en casa
      */
     public List<Ficha> getFichasEnCasa() {
-        List<Ficha> enCasa = new ArrayList<>();
-        for (Ficha ficha : fichas) {
-            if (ficha.isEnCasa()) {
-                enCasa.add(ficha);
-            }
-        }
-        return enCasa;
+        return fichasDeMascara(mascaraEnCasa());
     }
     
     /**
@@ -96,20 +189,30 @@ public class Jugador {
      * @return Lista de fichas en juego
      */
     public List<Ficha> getFichasEnJuego() {
-        List<Ficha> enJuego = new ArrayList<>();
-        for (Ficha ficha : fichas) {
-            if (!ficha.isEnCasa() && !ficha.isEnMeta()) {
-                enJuego.add(ficha);
-            }
+        return fichasDeMascara(mascaraEnJuego());
+    }
+    
+    private List<Ficha> fichasDeMascara(int mascara) {
+        List<Ficha> resultado = new ArrayList<>(Integer.bitCount(mascara));
+        for (; mascara != 0; mascara &= mascara - 1) {
+            resultado.add(fichas.get(Integer.numberOfTrailingZeros(mascara)));
         }
-        return enJuego;
+        return resultado;
     }
     
     // Getters y Setters
     public int getIdJugador() { return idJugador; }
     public String getNombre() { return nombre; }
     public String getColor() { return color; }
+    public ColorFicha getColorFicha() { return colorFicha; }
+    public int getIndiceColor() { return colorFicha.getIndice(); }
     public List<Ficha> getFichas() { return fichas; }
+    public int contarEnCasa() { return Integer.bitCount(mascaraCasa); }
+    public int contarEnJuego() { return Integer.bitCount(mascaraEnJuego()); }
+    public int contarEnMeta() { return Integer.bitCount(mascaraMeta); }
+    /** Suma del progreso de todas las fichas (0 en casa, Tablero.PROGRESO_META en meta) */
+    public int getSumaProgreso() { return sumaProgreso; }
+    public void setEscuchaVictoria(EscuchaVictoria escucha) { this.escuchaVictoria = escucha; }
     public boolean isTurno() { return turno; }
     public void setTurno(boolean turno) { this.turno = turno; }
     public String getAvatar() { return avatar; }
@@ -6,9 +6,13 @@ package modelo;
 
 import utilidades.RegistroPartidaJSON;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
 
-public class Partida {
+public final class Partida {
+    public static final int MAX_JUGADORES = 4;
+    
     private int idPartida;
     private List<Jugador> jugadores;
     private Tablero tablero;
@@ -16,20 +20,53 @@ public class Partida {
     private ReglasJuego reglas;
     private Jugador turnoActual;
     private int contadorSeis;
+    private int casillasPremio;
     private RegistroPartidaJSON registroJSON;
+    private HashPartida hash;
+    private Jugador ganador;
+    // Indices para resolver ids y colores (por ejemplo, mensajes de red) sin recorrer listas
+    private Jugador[] jugadoresPorId;
+    private EnumMap<ColorFicha, Jugador> jugadoresPorColor;
+    private Ficha[] fichasPorId;
     
     /**
      * Constructor de partida
      * @param id Identificador de la partida
      */
     public Partida(int id) {
+        this(id, new DadoAleatorio());
+    }
+    
+    /**
+     * Constructor de partida con un dado concreto
+     * @param id Identificador de la partida
+     * @param dado Dado de la partida (con semilla fija o secuencia para reproducirla)
+     */
+    public Partida(int id, Dado dado) {
+        this(id, dado, new RegistroPartidaJSON());
+    }
+    
+    /**
+     * Constructor de partida con su propio registro
+     * @param id Identificador de la partida
+     * @param dado Dado de la partida
+     * @param registro Registro JSON donde se guardan los eventos
+     */
+    public Partida(int id, Dado dado, RegistroPartidaJSON registro) {
         this.idPartida = id;
         this.jugadores = new ArrayList<>();
+        this.jugadoresPorId = new Jugador[MAX_JUGADORES + 1];
+        this.jugadoresPorColor = new EnumMap<>(ColorFicha.class);
+        this.fichasPorId = new Ficha[MAX_JUGADORES * EstadoPartida.FICHAS_POR_COLOR + 1];
         this.tablero = new Tablero();
-        this.dado = new Dado();
+        this.dado = dado;
         this.reglas = new ReglasJuego();
         this.contadorSeis = 0;
-        this.registroJSON = new RegistroPartidaJSON();
+        this.casillasPremio = 0;
+        this.registroJSON = registro;
+        this.hash = new HashPartida();
+        // Una partida vacia y sin turno tiene el mismo hash en las dos representaciones
+        assert EstadoPartida.desde(this).getHash() == getHash();
     }
     
     /**
@@ -43,13 +80,16 @@ public class Partida {
             for (Jugador j : jugadores) {
                 System.out.println("- " + j.getNombre() + " (Color: " + j.getColor() + ")");
             }
-            turnoActual = jugadores.get(0);
-            turnoActual.setTurno(true);
+            asignarTurno(jugadores.get(0));
             
             registroJSON.registrarInicio(
                 jugadores.get(0).getNombre(), 
                 jugadores.get(1).getNombre()
             );
+            registroJSON.registrarDado(
+                dado.getClass().getSimpleName(),
+                dado.getSemilla().isPresent() ? dado.getSemilla().getAsLong() : null
+            );
         }
     }
     
@@ -64,9 +104,8 @@ public class Partida {
         
         int indiceActual = jugadores.indexOf(turnoActual);
         int siguienteIndice = (indiceActual + 1) % jugadores.size();
-        turnoActual = jugadores.get(siguienteIndice);
-        turnoActual.setTurno(true);
-        contadorSeis = 0;
+        asignarTurno(jugadores.get(siguienteIndice));
+        reiniciarContadorSeis();
         
         System.out.println("[JUEGO] Turno cambiado al Jugador " + turnoActual.getIdJugador() + 
                          " (" + turnoActual.getNombre() + ")");
@@ -76,19 +115,27 @@ public class Partida {
      * Establece manualmente el turno a un jugador especifico (para sincronizacion de red)
      */
     public void setTurnoActual(int jugadorId) {
-        for (Jugador j : jugadores) {
-            j.setTurno(false);
+        Jugador j = buscarJugador(jugadorId);
+        if (j == null) {
+            return;
         }
         
-        for (Jugador j : jugadores) {
-            if (j.getIdJugador() == jugadorId) {
-                this.turnoActual = j;
-                j.setTurno(true);
-                System.out.println("[JUEGO] Turno establecido al Jugador " + jugadorId + 
-                                 " (" + j.getNombre() + ")");
-                break;
-            }
+        if (turnoActual != null) {
+            turnoActual.setTurno(false);
         }
+        asignarTurno(j);
+        System.out.println("[JUEGO] Turno establecido al Jugador " + jugadorId + 
+                         " (" + j.getNombre() + ")");
+    }
+    
+    /**
+     * Asigna el turno a un jugador y actualiza el hash
+     */
+    private void asignarTurno(Jugador jugador) {
+        int colorAnterior = turnoActual != null ? turnoActual.getIndiceColor() : -1;
+        turnoActual = jugador;
+        jugador.setTurno(true);
+        hash.cambiarTurno(colorAnterior, jugador.getIndiceColor());
     }
     
     /**
@@ -100,23 +147,12 @@ public class Partida {
         System.out.println("|        PARTIDA FINALIZADA                |");
         System.out.println("============================================");
         
-        String ganador = null;
         for (Jugador j : jugadores) {
-            int fichasEnMeta = 0;
-            for (Ficha f : j.getFichas()) {
-                if (f.isEnMeta()) {
-                    fichasEnMeta++;
-                }
-            }
-            System.out.println(j.getNombre() + ": " + fichasEnMeta + " fichas en meta");
-            
-            if (fichasEnMeta == 4 && ganador == null) {
-                ganador = j.getNombre();
-            }
+            System.out.println(j.getNombre() + ": " + j.contarEnMeta() + " fichas en meta");
         }
         
         if (ganador != null) {
-            registroJSON.registrarFinPartida(ganador);
+            registroJSON.registrarFinPartida(ganador.getNombre());
         }
         
         registroJSON.guardarRegistro();
@@ -128,23 +164,129 @@ public class Partida {
      * @param jugador Jugador a agregar
      */
     public void agregarJugador(Jugador jugador) {
-        if (jugadores.size() < 4) {
+        if (jugadores.size() < MAX_JUGADORES) {
             jugadores.add(jugador);
+            jugador.setEscuchaVictoria(this::registrarVictoria);
+            
+            int id = jugador.getIdJugador();
+            if (id >= jugadoresPorId.length) {
+                jugadoresPorId = Arrays.copyOf(jugadoresPorId, id + 1);
+            }
+            if (id >= 0) {
+                jugadoresPorId[id] = jugador;
+            }
+            jugadoresPorColor.put(jugador.getColorFicha(), jugador);
+            
+            int base = jugador.getIndiceColor() * EstadoPartida.FICHAS_POR_COLOR;
+            List<Ficha> fichas = jugador.getFichas();
+            for (int k = 0; k < fichas.size() && k < EstadoPartida.FICHAS_POR_COLOR; k++) {
+                Ficha ficha = fichas.get(k);
+                ficha.vincularHash(hash, base + k);
+                
+                int idFicha = ficha.getIdFicha();
+                if (idFicha >= fichasPorId.length) {
+                    fichasPorId = Arrays.copyOf(fichasPorId, idFicha + 1);
+                }
+                if (idFicha >= 0) {
+                    fichasPorId[idFicha] = ficha;
+                }
+            }
+            
             System.out.println("Jugador " + jugador.getNombre() + " agregado (ID: " + 
                              jugador.getIdJugador() + ")");
         }
     }
     
     /**
-     * Busca un jugador por el color de su ficha
+     * Se llama en cuanto un jugador lleva su cuarta ficha a la meta
+     * Solo cuenta el primero
      */
-    public Jugador buscarJugadorPorColor(String color) {
-        for (Jugador j : jugadores) {
-            if (j.getColor().equalsIgnoreCase(color)) {
-                return j;
+    private void registrarVictoria(Jugador jugador) {
+        if (ganador == null) {
+            ganador = jugador;
+            System.out.println("[JUEGO] " + jugador.getNombre() + " llevo sus 4 fichas a la meta");
+        }
+    }
+    
+    /**
+     * Lleva la partida al estado compacto dado (sincronizacion por red)
+     * Coloca cada ficha, el turno, el contador de seis y el premio pendiente
+     * Las fichas se indexan como en EstadoPartida.desde (color * 4 + indice)
+     * @param estado Estado recibido
+     */
+    public void restaurar(EstadoPartida estado) {
+        for (Jugador jugador : jugadores) {
+            int base = jugador.getIndiceColor() * EstadoPartida.FICHAS_POR_COLOR;
+            List<Ficha> fichas = jugador.getFichas();
+            for (int k = 0; k < fichas.size() && k < EstadoPartida.FICHAS_POR_COLOR; k++) {
+                restaurarFicha(fichas.get(k), estado.codigoFicha(base + k));
             }
         }
-        return null;
+        
+        Jugador enTurno = buscarJugadorPorColor(ColorFicha.deIndice(estado.getTurno()));
+        if (enTurno != null && enTurno != turnoActual) {
+            if (turnoActual != null) {
+                turnoActual.setTurno(false);
+            }
+            asignarTurno(enTurno);
+        }
+        setContadorSeis(estado.getContadorSeis());
+        setCasillasPremio(estado.getCasillasPremio());
+    }
+    
+    private void restaurarFicha(Ficha ficha, int codigo) {
+        boolean igual = codigo == EstadoPartida.CODIGO_META ? ficha.isEnMeta()
+                      : codigo == EstadoPartida.CODIGO_CASA ? ficha.isEnCasa()
+                      : !ficha.isEnCasa() && !ficha.isEnMeta() && ficha.getPosicion() == codigo;
+        if (igual) {
+            return;
+        }
+        
+        if (!ficha.isEnCasa() && !ficha.isEnMeta()) {
+            tablero.removerFicha(ficha);
+        }
+        if (codigo == EstadoPartida.CODIGO_META) {
+            ficha.setEnCasa(false);
+            ficha.setProgreso(Tablero.PROGRESO_META);
+            ficha.setPosicion(tablero.getCasillaMeta(ficha.getIndiceColor()));
+            ficha.llegarMeta();
+        } else if (codigo == EstadoPartida.CODIGO_CASA) {
+            ficha.regresarACasa();
+        } else {
+            tablero.ponerFicha(ficha, codigo);
+        }
+    }
+    
+    /**
+     * Busca un jugador por su id
+     * @return El jugador o null si no existe
+     */
+    public Jugador buscarJugador(int jugadorId) {
+        return jugadorId >= 0 && jugadorId < jugadoresPorId.length ? jugadoresPorId[jugadorId] : null;
+    }
+    
+    /**
+     * Busca un jugador por su color
+     * @return El jugador o null si nadie juega con ese color
+     */
+    public Jugador buscarJugadorPorColor(ColorFicha color) {
+        return jugadoresPorColor.get(color);
+    }
+    
+    /**
+     * Busca un jugador por el nombre del color de su ficha
+     */
+    public Jugador buscarJugadorPorColor(String color) {
+        ColorFicha tipo = ColorFicha.desdeNombre(color);
+        return tipo != null ? jugadoresPorColor.get(tipo) : null;
+    }
+    
+    /**
+     * Busca una ficha de cualquier jugador por su id
+     * @return La ficha o null si no existe
+     */
+    public Ficha buscarFicha(int fichaId) {
+        return fichaId >= 0 && fichaId < fichasPorId.length ? fichasPorId[fichaId] : null;
     }
     
     // Getters y Setters
@@ -154,8 +296,26 @@ public class Partida {
     public Dado getDado() { return dado; }
     public ReglasJuego getReglas() { return reglas; }
     public Jugador getTurnoActual() { return turnoActual; }
+    /** Primer jugador con sus 4 fichas en meta o null si nadie ha ganado */
+    public Jugador getGanador() { return ganador; }
     public int getContadorSeis() { return contadorSeis; }
-    public void incrementarContadorSeis() { this.contadorSeis++; }
-    public void reiniciarContadorSeis() { this.contadorSeis = 0; }
+    public void incrementarContadorSeis() { setContadorSeis(contadorSeis + 1); }
+    public void reiniciarContadorSeis() { setContadorSeis(0); }
+    public int getCasillasPremio() { return casillasPremio; }
+    public long getHash() { return hash.getValor(); }
+    
+    private void setContadorSeis(int contador) {
+        hash.cambiarSeises(this.contadorSeis, contador);
+        this.contadorSeis = contador;
+    }
+    
+    /**
+     * Cambia las casillas de premio pendientes del jugador en turno
+     * @param casillas Nuevo total de casillas de premio
+     */
+    public void setCasillasPremio(int casillas) {
+        hash.cambiarPremio(this.casillasPremio, casillas);
+        this.casillasPremio = casillas;
+    }
     public RegistroPartidaJSON getRegistroJSON() { return registroJSON; }
 }
\ No newline at end of file
@@ -6,10 +6,13 @@
 package modelo;
 
 import utilidades.RegistroPartidaJSON;
-import java.util.ArrayList;
 import java.util.List;
 
 public class ReglasJuego {
+    public static final int PREMIO_COMER = 20;
+    public static final int PREMIO_META = 10;
+    public static final int MAX_SEIS_SEGUIDOS = 3;
+    
     private String nombre;
     private String descripcion;
     
@@ -48,16 +51,16 @@ public class ReglasJuego {
      * @return true si llego a 3, false si no
      */
     public boolean verificarTresSeisSeguidos(int contadorSeis) {
-        return contadorSeis >= 3;
+        return contadorSeis >= MAX_SEIS_SEGUIDOS;
     }
     
     /**
-     * Verifica si la ficha llego a la meta - CORREGIDO
+     * Verifica si la ficha llego a la meta de su color
      * @param ficha Ficha a verificar
      * @return true si llego a meta, false si no
      */
     public boolean verificarMeta(Ficha ficha) {
-        return ficha.getPosicion() >= 67 || ficha.isEnMeta();
+        return ficha.getProgreso() >= Tablero.PROGRESO_META || ficha.isEnMeta();
     }
     
     /**
@@ -77,14 +80,16 @@ public class ReglasJuego {
         
         if (casilla == null || ficha.isEnMeta()) return 0;
         
-        if (!casilla.esSegura()) {
-            List<Ficha> fichasEnCasilla = new ArrayList<>(casilla.getFichas());
-            for (Ficha otraFicha : fichasEnCasilla) {
-                if (!otraFicha.equals(ficha) && !otraFicha.getColor().equals(ficha.getColor())) {
+        if (!casilla.esSegura() && tablero.hayRivales(posicion, ficha.getIndiceColor())) {
+            // De atras hacia delante: al quitar una ficha su hueco lo ocupa una ya revisada
+            List<Ficha> fichasEnCasilla = casilla.getFichas();
+            for (int i = fichasEnCasilla.size() - 1; i >= 0; i--) {
+                Ficha otraFicha = fichasEnCasilla.get(i);
+                if (otraFicha.getIndiceColor() != ficha.getIndiceColor()) {
                     System.out.println("\nFICHA COMIDA! " + jugador.getNombre() + 
                                      " come ficha " + otraFicha.getColor());
                     
-                    Jugador jugadorVictima = partida.buscarJugadorPorColor(otraFicha.getColor());
+                    Jugador jugadorVictima = partida.buscarJugadorPorColor(otraFicha.getColorFicha());
                     String nombreVictima = (jugadorVictima != null) ? jugadorVictima.getNombre() : "Oponente";
                     
                     registro.registrarFichaComida(
@@ -93,26 +98,26 @@ public class ReglasJuego {
                         otraFicha.getIdFicha()
                     );
                     
+                    tablero.removerFicha(otraFicha);
                     otraFicha.regresarACasa();
-                    casilla.removerFicha(otraFicha);
                     
-                    premioCasillas = 20;
+                    premioCasillas = PREMIO_COMER;
                     System.out.println("PREMIO: +20 casillas para avanzar con otra ficha");
                 }
             }
         }
         
-        if (casilla.verificarBarrera()) {
+        if (tablero.tieneBarrera(posicion)) {
             System.out.println("BARRERA FORMADA en casilla " + posicion);
         }
         
         if (verificarMeta(ficha) && !ficha.isEnMeta()) {
+            tablero.removerFicha(ficha);
             ficha.llegarMeta();
-            casilla.removerFicha(ficha);
             
             registro.registrarLlegadaMeta(jugador.getNombre(), ficha.getIdFicha());
             
-            premioCasillas = 10;
+            premioCasillas = PREMIO_META;
             System.out.println("FICHA EN META! +10 casillas de premio");
         }
         
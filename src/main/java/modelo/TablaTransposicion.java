@@ -0,0 +1,66 @@
+/**
+ * Tabla de transposicion de tamano fijo y sin bloqueos
+ * Asocia un hash Zobrist con un dato de 64 bits (p. ej. visitas y victorias)
+ * Usa el esquema de XOR de clave y dato: una entrada escrita a medias
+ * por dos hilos a la vez no supera la verificacion y se ignora
+ */
+package modelo;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class TablaTransposicion {
+    /** Valor devuelto por buscar cuando la clave no esta en la tabla */
+    public static final long NO_ENCONTRADO = Long.MIN_VALUE;
+
+    private final AtomicLongArray entradas;
+    private final int mascara;
+
+    /**
+     * @param capacidad Numero de entradas, se redondea a potencia de 2
+     */
+    public TablaTransposicion(int capacidad) {
+        int tamano = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+        this.entradas = new AtomicLongArray(tamano * 2);
+        this.mascara = tamano - 1;
+    }
+
+    /**
+     * Guarda un dato, reemplazando lo que hubiera en la ranura
+     * @param clave Hash Zobrist del estado
+     * @param dato Dato asociado
+     */
+    public void guardar(long clave, long dato) {
+        int i = indice(clave);
+        entradas.setOpaque(i, clave ^ dato);
+        entradas.setRelease(i + 1, dato);
+    }
+
+    /**
+     * Busca el dato asociado a una clave
+     * @param clave Hash Zobrist del estado
+     * @return Dato o NO_ENCONTRADO
+     */
+    public long buscar(long clave) {
+        int i = indice(clave);
+        long dato = entradas.getAcquire(i + 1);
+        long verificacion = entradas.getOpaque(i);
+        return (verificacion ^ dato) == clave ? dato : NO_ENCONTRADO;
+    }
+
+    /**
+     * Vacia la tabla
+     */
+    public void limpiar() {
+        for (int i = 0; i < entradas.length(); i++) {
+            entradas.setOpaque(i, 0);
+        }
+    }
+
+    public int getCapacidad() {
+        return mascara + 1;
+    }
+
+    private int indice(long clave) {
+        return (int) ((clave ^ (clave >>> 32)) & mascara) << 1;
+    }
+}
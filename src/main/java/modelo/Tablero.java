@@ -1,72 +1,277 @@
 /**
  * Representa el tablero completo del juego
- * Contiene 68 casillas en total 
+ * Contiene 68 casillas en el anillo, un pasillo de 7 casillas por color
+ * y una meta por color (100 casillas en total)
+ * Los recorridos de cada color se precalculan en tablas de solo lectura
+ * Un indice de ocupacion por casilla y color resuelve capturas y barreras con operaciones de bits
  */
 package modelo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Tablero {
+    public static final int COLORES = 4;
+    public static final int CASILLAS_ANILLO = 68;
+    public static final int LARGO_PASILLO = 7;
+    public static final int TOTAL_CASILLAS = CASILLAS_ANILLO + COLORES * LARGO_PASILLO + COLORES;
+
+    /** Pasos desde la salida hasta la ultima casilla del anillo antes del pasillo */
+    public static final int PROGRESO_ENTRADA = 63;
+    /** Progreso de una ficha en su meta */
+    public static final int PROGRESO_META = PROGRESO_ENTRADA + LARGO_PASILLO + 1;
+
+    private static final int PRIMERA_CASILLA_PASILLO = CASILLAS_ANILLO;
+    private static final int PRIMERA_CASILLA_META = CASILLAS_ANILLO + COLORES * LARGO_PASILLO;
+    private static final int[] SALIDAS = {5, 22, 39, 56};
+
+    // Codificacion de una entrada de la tabla de recorridos
+    private static final int BITS_CASILLA = 0x7F;
+    private static final int DESPLAZAMIENTO_PROGRESO = 7;
+    private static final int SEGURA = 1 << 14;
+    private static final int DESPLAZAMIENTO_PASILLO = 15;
+    private static final int META = 1 << 18;
+
+    private static final int PASOS_TABLA = PROGRESO_META + 1;
+    // Indice: (color * PASOS_TABLA + progreso) * PASOS_TABLA + pasos
+    private static final int[] RECORRIDOS = new int[COLORES * PASOS_TABLA * PASOS_TABLA];
+    // Indice: color * TOTAL_CASILLAS + casilla -> progreso o -1
+    private static final byte[] PROGRESOS = new byte[COLORES * TOTAL_CASILLAS];
+    private static final boolean[] SEGURAS = new boolean[TOTAL_CASILLAS];
+
+    static {
+        for (int i = 0; i < TOTAL_CASILLAS; i++) {
+            SEGURAS[i] = i >= CASILLAS_ANILLO || i % 17 == 0 || esSalida(i);
+        }
+
+        Arrays.fill(PROGRESOS, (byte) -1);
+        for (int color = 0; color < COLORES; color++) {
+            for (int progreso = 0; progreso <= PROGRESO_META; progreso++) {
+                PROGRESOS[color * TOTAL_CASILLAS + casillaDeProgreso(color, progreso)] = (byte) progreso;
+            }
+            for (int progreso = 0; progreso <= PROGRESO_META; progreso++) {
+                for (int pasos = 0; pasos < PASOS_TABLA; pasos++) {
+                    int destino = Math.min(progreso + pasos, PROGRESO_META);
+                    RECORRIDOS[(color * PASOS_TABLA + progreso) * PASOS_TABLA + pasos] =
+                        codificarEntrada(color, destino);
+                }
+            }
+        }
+    }
+
     private List<Casilla> casillas;
-    private static final int TOTAL_CASILLAS = 68;
-    private static final int CASILLA_META = 67;
-    
+    // Fichas de cada color por casilla: 4 bits por color (bits 4*color .. 4*color+3)
+    private final int[] ocupacion;
+    // Casillas con barrera: bit i de bajas = casilla i, bit i de altas = casilla 64 + i
+    private long barrerasBajas;
+    private long barrerasAltas;
+
     /**
      * Constructor del tablero
      * Inicializa todas las casillas
      */
     public Tablero() {
-        this.casillas = new ArrayList<>();
+        this.casillas = new ArrayList<>(TOTAL_CASILLAS);
+        this.ocupacion = new int[TOTAL_CASILLAS];
         inicializarTablero();
     }
-    
+
     /**
-     * Inicializa el tablero con casillas normales y seguras
-     * Casillas seguras: 5, 22, 39, 56 (salidas) y cada 17 posiciones
+     * Inicializa el tablero con casillas normales, seguras, de salida, pasillo y meta
+     * Casillas seguras del anillo: 0, 17, 34, 51 (entradas a pasillo) y 5, 22, 39, 56 (salidas)
      */
     private void inicializarTablero() {
         for (int i = 0; i < TOTAL_CASILLAS; i++) {
-            String tipo = "normal";
-            
-            if (i == 5 || i == 22 || i == 39 || i == 56 || i % 17 == 0) {
+            String tipo;
+            if (i >= PRIMERA_CASILLA_META) {
+                tipo = "meta";
+            } else if (i >= PRIMERA_CASILLA_PASILLO) {
+                tipo = "pasillo";
+            } else if (esSalida(i)) {
+                tipo = "salida";
+            } else if (SEGURAS[i]) {
                 tipo = "segura";
+            } else {
+                tipo = "normal";
             }
-            
+
             casillas.add(new Casilla(i, tipo));
         }
     }
-    
+
+    /**
+     * Saca una ficha de casa a la casilla de salida de su color
+     * Como en cualquier movimiento, no se puede entrar en una casilla con barrera
+     * (la salida es segura, asi que tampoco se come): comprobar antes con recorridoBloqueado
+     * @param ficha Ficha a sacar
+     * @return Casilla de salida
+     * @throws IllegalStateException si hay una barrera en la casilla de salida
+     */
+    public int sacarFicha(Ficha ficha) {
+        int salida = casillaSalida(ficha.getIndiceColor());
+        if (tieneBarrera(salida)) {
+            throw new IllegalStateException("Barrera en la casilla de salida " + salida + " de " + ficha.getColor());
+        }
+        ficha.setEnCasa(false);
+        ficha.setProgreso(0);
+        ficha.setPosicion(salida);
+        colocarFicha(ficha, salida);
+        return salida;
+    }
+
     /**
-     * Mueve una ficha en el tablero - CORREGIDO
-     * Actualiza la posicion y maneja llegada a meta
+     * Mueve una ficha en el tablero siguiendo el recorrido de su color
+     * Si alcanza o supera la meta queda en la casilla meta de su color;
+     * ReglasJuego.aplicar la marca como llegada y otorga el premio
      * @param ficha Ficha a mover
      * @param pasos Numero de casillas a avanzar
+     * @throws IllegalStateException si la casilla de la ficha no esta en el recorrido de su color
      */
     public void moverFicha(Ficha ficha, int pasos) {
         int posicionActual = ficha.getPosicion();
-        int nuevaPosicion = posicionActual + pasos;
-        
+        int entrada = resolver(ficha.getIndiceColor(), ficha.progresoEnRecorrido(), pasos);
+        int nuevaPosicion = destino(entrada);
+
         if (posicionActual >= 0 && posicionActual < casillas.size()) {
-            casillas.get(posicionActual).removerFicha(ficha);
+            quitarFicha(ficha, posicionActual);
         }
-        
-        if (nuevaPosicion >= CASILLA_META) {
-            ficha.setPosicion(CASILLA_META);
-            ficha.llegarMeta();
-            return;
-        }
-        
+
+        ficha.setProgreso(progresoDestino(entrada));
         ficha.setPosicion(nuevaPosicion);
-        
-        if (nuevaPosicion >= 0 && nuevaPosicion < casillas.size()) {
-            casillas.get(nuevaPosicion).agregarFicha(ficha);
+        colocarFicha(ficha, nuevaPosicion);
+    }
+
+    /**
+     * Pone una ficha en juego directamente en una casilla de su recorrido
+     * Se usa al restaurar un estado recibido por red; la ficha no debe estar en el tablero
+     * @param ficha Ficha a colocar
+     * @param casilla Casilla destino
+     * @throws IllegalArgumentException si la casilla no esta en el recorrido de la ficha
+     */
+    public void ponerFicha(Ficha ficha, int casilla) {
+        int progreso = progreso(ficha.getIndiceColor(), casilla);
+        if (progreso < 0) {
+            throw new IllegalArgumentException("La casilla " + casilla + " no esta en el recorrido de "
+                                               + ficha.getColorFicha().getNombre());
+        }
+        ficha.setEnMeta(false);
+        ficha.setEnCasa(false);
+        ficha.setProgreso(progreso);
+        ficha.setPosicion(casilla);
+        colocarFicha(ficha, casilla);
+    }
+
+    /**
+     * Quita una ficha de la casilla que ocupa (al ser comida, llegar a meta o por penalizacion)
+     * Debe llamarse antes de cambiar la posicion de la ficha
+     * @param ficha Ficha a quitar
+     */
+    public void removerFicha(Ficha ficha) {
+        int posicion = ficha.getPosicion();
+        if (posicion >= 0 && posicion < casillas.size()) {
+            quitarFicha(ficha, posicion);
+        }
+    }
+
+    private void colocarFicha(Ficha ficha, int posicion) {
+        casillas.get(posicion).agregarFicha(ficha);
+        ocupacion[posicion] += 1 << (ficha.getIndiceColor() * 4);
+        actualizarBarrera(posicion);
+    }
+
+    private void quitarFicha(Ficha ficha, int posicion) {
+        if (casillas.get(posicion).removerFicha(ficha)) {
+            ocupacion[posicion] -= 1 << (ficha.getIndiceColor() * 4);
+            actualizarBarrera(posicion);
+        }
+    }
+
+    private void actualizarBarrera(int posicion) {
+        long bit = 1L << (posicion & 63);
+        if (posicion < 64) {
+            barrerasBajas = esBarrera(ocupacion[posicion]) ? barrerasBajas | bit : barrerasBajas & ~bit;
+        } else {
+            barrerasAltas = esBarrera(ocupacion[posicion]) ? barrerasAltas | bit : barrerasAltas & ~bit;
+        }
+    }
+
+    /**
+     * Barrera: exactamente 2 fichas en la casilla y del mismo color
+     * Con los conteos por color, solo un contador vale 2 (un unico bit encendido, en la posicion 1 de su grupo)
+     */
+    private static boolean esBarrera(int ocupacion) {
+        return ocupacion != 0 && (ocupacion & (ocupacion - 1)) == 0 && (ocupacion & 0x2222) != 0;
+    }
+
+    /**
+     * Colores con fichas en una casilla
+     * @return Mascara de 4 bits (bit 0 = Amarillo ... bit 3 = Verde)
+     */
+    public int coloresEn(int casilla) {
+        int x = ocupacion[casilla];
+        int m = (x | (x >>> 1) | (x >>> 2)) & 0x1111;
+        return (m & 1) | ((m >>> 3) & 2) | ((m >>> 6) & 4) | ((m >>> 9) & 8);
+    }
+
+    /**
+     * Numero de fichas de un color en una casilla
+     */
+    public int fichasDeColor(int casilla, int color) {
+        return (ocupacion[casilla] >>> (color * 4)) & 0xF;
+    }
+
+    /**
+     * Hay fichas de otro color en la casilla (posible captura)
+     */
+    public boolean hayRivales(int casilla, int color) {
+        return (ocupacion[casilla] & ~(0xF << (color * 4))) != 0;
+    }
+
+    public boolean tieneBarrera(int casilla) {
+        long bit = 1L << (casilla & 63);
+        return ((casilla < 64 ? barrerasBajas : barrerasAltas) & bit) != 0;
+    }
+
+    /**
+     * Verifica si una barrera impide el movimiento de una ficha
+     * Una ficha en casa va a su casilla de salida y no puede salir si alli hay barrera
+     * @param ficha Ficha a mover
+     * @param pasos Casillas a avanzar
+     * @return true si alguna casilla del recorrido, incluido el destino, tiene barrera
+     * @throws IllegalStateException si la casilla de la ficha no esta en el recorrido de su color
+     */
+    public boolean recorridoBloqueado(Ficha ficha, int pasos) {
+        if (ficha.isEnMeta()) {
+            return false;
+        }
+        if (ficha.isEnCasa()) {
+            return tieneBarrera(casillaSalida(ficha.getIndiceColor()));
         }
+        return recorridoBloqueado(barrerasBajas, barrerasAltas, ficha.getIndiceColor(), ficha.progresoEnRecorrido(), pasos);
     }
-    
+
+    /**
+     * Quita de una mascara de fichas de un jugador las que una barrera no deja avanzar
+     * @param jugador Jugador duenio de las fichas
+     * @param disponibles Mascara de fichas (bit i = ficha i del jugador)
+     * @param pasos Casillas a avanzar
+     * @return Mascara sin las fichas bloqueadas
+     */
+    public int quitarBloqueadas(Jugador jugador, int disponibles, int pasos) {
+        int resultado = disponibles;
+        for (int m = disponibles; m != 0; m &= m - 1) {
+            int i = Integer.numberOfTrailingZeros(m);
+            if (recorridoBloqueado(jugador.seleccionarFicha(i), pasos)) {
+                resultado &= ~(1 << i);
+            }
+        }
+        return resultado;
+    }
+
     /**
      * Obtiene una casilla especifica del tablero
-     * @param posicion Numero de casilla (0-67)
+     * @param posicion Numero de casilla (0-99)
      * @return La casilla o null si la posicion es invalida
      */
     public Casilla getCasilla(int posicion) {
@@ -75,8 +280,137 @@ public class Tablero {
         }
         return null;
     }
-    
+
     public List<Casilla> getCasillas() { return casillas; }
     public int getTotalCasillas() { return TOTAL_CASILLAS; }
-    public int getCasillaMeta() { return CASILLA_META; }
-}
\ No newline at end of file
+    public int getCasillaMeta(int color) { return PRIMERA_CASILLA_META + color; }
+
+    /**
+     * Resuelve un movimiento con una lectura de tabla
+     * Los pasos que superan la meta se recortan a la meta
+     * @param color Indice del color (0-3)
+     * @param progreso Progreso actual de la ficha (0 = salida)
+     * @param pasos Casillas a avanzar
+     * @return Entrada codificada; usar destino, progresoDestino, esSeguro, pasillo y llegaMeta
+     */
+    public static int resolver(int color, int progreso, int pasos) {
+        if (pasos >= PASOS_TABLA) {
+            pasos = PROGRESO_META;
+        }
+        return RECORRIDOS[(color * PASOS_TABLA + progreso) * PASOS_TABLA + pasos];
+    }
+
+    // Decodificacion de una entrada de resolver()
+    public static int destino(int entrada) { return entrada & BITS_CASILLA; }
+    public static int progresoDestino(int entrada) { return (entrada >>> DESPLAZAMIENTO_PROGRESO) & BITS_CASILLA; }
+    public static boolean esSeguro(int entrada) { return (entrada & SEGURA) != 0; }
+    public static boolean llegaMeta(int entrada) { return (entrada & META) != 0; }
+    /** Color del pasillo de destino o -1 si el destino no esta en un pasillo */
+    public static int pasillo(int entrada) { return ((entrada >>> DESPLAZAMIENTO_PASILLO) & 0x7) - 1; }
+
+    /**
+     * Progreso que corresponde a una casilla en el recorrido de un color
+     * @return Progreso (0-71) o -1 si la casilla no pertenece al recorrido
+     */
+    public static int progreso(int color, int casilla) {
+        return PROGRESOS[color * TOTAL_CASILLAS + casilla];
+    }
+
+    /**
+     * Obtiene el indice (0-3) de un color por su nombre
+     * @param color Nombre del color (Amarillo, Azul, Rojo, Verde)
+     * @return Indice del color o 0 si no se reconoce
+     */
+    public static int indiceColor(String color) {
+        ColorFicha tipo = ColorFicha.desdeNombre(color);
+        return tipo != null ? tipo.getIndice() : 0;
+    }
+
+    /**
+     * Consulta de rango sobre un mapa de barreras de 100 bits
+     * El recorrido de un color son a lo sumo dos tramos contiguos del anillo
+     * y uno del pasillo, asi que bastan unas pocas mascaras
+     * @param barrerasBajas Casillas 0-63 con barrera
+     * @param barrerasAltas Casillas 64-99 con barrera (bit 0 = casilla 64)
+     * @param color Indice del color (0-3)
+     * @param progreso Progreso actual de la ficha
+     * @param pasos Casillas a avanzar
+     * @return true si alguna casilla tras la actual, hasta el destino incluido, tiene barrera
+     */
+    public static boolean recorridoBloqueado(long barrerasBajas, long barrerasAltas,
+                                             int color, int progreso, int pasos) {
+        int desde = progreso + 1;
+        int hasta = Math.min(progreso + pasos, PROGRESO_META - 1);
+        if (hasta < desde) {
+            return false;
+        }
+
+        if (desde <= PROGRESO_ENTRADA) {
+            int inicio = casillaDeProgreso(color, desde);
+            int fin = casillaDeProgreso(color, Math.min(hasta, PROGRESO_ENTRADA));
+            if (inicio <= fin) {
+                if (hayBits(barrerasBajas, barrerasAltas, inicio, fin)) return true;
+            } else if (hayBits(barrerasBajas, barrerasAltas, inicio, CASILLAS_ANILLO - 1)
+                    || hayBits(barrerasBajas, barrerasAltas, 0, fin)) {
+                return true;
+            }
+        }
+
+        if (hasta > PROGRESO_ENTRADA) {
+            int inicio = casillaDeProgreso(color, Math.max(desde, PROGRESO_ENTRADA + 1));
+            int fin = casillaDeProgreso(color, hasta);
+            return hayBits(barrerasBajas, barrerasAltas, inicio, fin);
+        }
+        return false;
+    }
+
+    private static boolean hayBits(long bajas, long altas, int desde, int hasta) {
+        if (desde < 64 && (bajas & rango(desde, Math.min(hasta, 63))) != 0) {
+            return true;
+        }
+        return hasta >= 64 && (altas & rango(Math.max(desde, 64) - 64, hasta - 64)) != 0;
+    }
+
+    private static long rango(int desde, int hasta) {
+        return (-1L >>> (63 - hasta)) & (-1L << desde);
+    }
+
+    public static int casillaSalida(int color) { return SALIDAS[color]; }
+    public static boolean esSegura(int casilla) { return SEGURAS[casilla]; }
+    public static boolean esMeta(int casilla) { return casilla >= PRIMERA_CASILLA_META; }
+
+    /**
+     * Casilla que ocupa una ficha de un color con cierto progreso
+     */
+    public static int casillaDeProgreso(int color, int progreso) {
+        if (progreso <= PROGRESO_ENTRADA) {
+            return (SALIDAS[color] + progreso) % CASILLAS_ANILLO;
+        }
+        if (progreso < PROGRESO_META) {
+            return PRIMERA_CASILLA_PASILLO + color * LARGO_PASILLO + (progreso - PROGRESO_ENTRADA - 1);
+        }
+        return PRIMERA_CASILLA_META + color;
+    }
+
+    private static boolean esSalida(int casilla) {
+        for (int salida : SALIDAS) {
+            if (salida == casilla) return true;
+        }
+        return false;
+    }
+
+    private static int codificarEntrada(int color, int progreso) {
+        int casilla = casillaDeProgreso(color, progreso);
+        int entrada = casilla | (progreso << DESPLAZAMIENTO_PROGRESO);
+        if (SEGURAS[casilla]) {
+            entrada |= SEGURA;
+        }
+        if (progreso > PROGRESO_ENTRADA) {
+            entrada |= (color + 1) << DESPLAZAMIENTO_PASILLO;
+        }
+        if (progreso == PROGRESO_META) {
+            entrada |= META;
+        }
+        return entrada;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Claves aleatorias para el hash Zobrist del estado de la partida
+ * El hash es el XOR de una clave por ficha y casilla, mas turno, seises y premio
+ * Cada cambio de estado se refleja en O(1) con un par de XOR
+ */
+package modelo;
+
+import java.util.SplittableRandom;
+
+public final class Zobrist {
+    /** Codigo de posicion de una ficha en casa */
+    public static final int CODIGO_CASA = Tablero.TOTAL_CASILLAS;
+    /** Codigo de posicion de una ficha en meta */
+    public static final int CODIGO_META = Tablero.TOTAL_CASILLAS + 1;
+
+    private static final int CODIGOS = Tablero.TOTAL_CASILLAS + 2;
+    private static final int VALORES_PREMIO = 256;
+
+    // Semilla fija: todos los peers deben calcular el mismo hash
+    private static final long SEMILLA = 0x5041524348495321L;
+
+    private static final long[] FICHAS = new long[EstadoPartida.TOTAL_FICHAS * CODIGOS];
+    private static final long[] TURNOS = new long[EstadoPartida.COLORES];
+    private static final long[] SEISES = new long[ReglasJuego.MAX_SEIS_SEGUIDOS + 1];
+    private static final long[] PREMIOS = new long[VALORES_PREMIO];
+
+    static {
+        SplittableRandom aleatorio = new SplittableRandom(SEMILLA);
+        llenar(FICHAS, aleatorio);
+        llenar(TURNOS, aleatorio);
+        llenar(SEISES, aleatorio);
+        llenar(PREMIOS, aleatorio);
+        // Sin premio pendiente y sin seises no alteran el hash
+        SEISES[0] = 0;
+        PREMIOS[0] = 0;
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Clave de una ficha en una posicion
+     * @param ficha Indice de la ficha (color * 4 + indice en el jugador)
+     * @param codigo Casilla (0-99), CODIGO_CASA o CODIGO_META
+     */
+    public static long ficha(int ficha, int codigo) {
+        return FICHAS[ficha * CODIGOS + codigo];
+    }
+
+    public static long turno(int color) {
+        return TURNOS[color];
+    }
+
+    public static long seises(int contador) {
+        return SEISES[Math.min(contador, ReglasJuego.MAX_SEIS_SEGUIDOS)];
+    }
+
+    public static long premio(int casillas) {
+        return PREMIOS[casillas & (VALORES_PREMIO - 1)];
+    }
+
+    private static void llenar(long[] claves, SplittableRandom aleatorio) {
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = aleatorio.nextLong();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package red;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bucle de eventos de un Selector
+ * Atiende lecturas, escrituras y aceptaciones de muchas conexiones en un solo hilo
+ * El buffer de lectura y el lote de escritura se comparten entre todas sus conexiones,
+ * asi cada conexion solo guarda lo que queda de una trama incompleta
+ */
+final class BucleEventos implements Runnable {
+    /** Cabe una trama maxima pendiente mas una lectura completa */
+    private static final int TAMANO_LECTURA = 2 * (CodecBinario.MAX_TRAMA + 8);
+    private static final int MAX_LOTE = 64;
+    
+    private final Selector selector;
+    private final Queue<Runnable> tareas;
+    private final Thread hilo;
+    private final ByteBuffer lectura;
+    private final ByteBuffer[] lote;
+    private volatile boolean activo;
+    
+    BucleEventos(String nombre) throws IOException {
+        this.selector = Selector.open();
+        this.tareas = new ConcurrentLinkedQueue<>();
+        this.lectura = ByteBuffer.allocate(TAMANO_LECTURA);
+        this.lote = new ByteBuffer[MAX_LOTE];
+        this.activo = true;
+        this.hilo = new Thread(this, nombre);
+        this.hilo.setDaemon(true);
+    }
+    
+    void iniciar() {
+        hilo.start();
+    }
+    
+    /**
+     * Ejecuta una tarea en el hilo del bucle
+     * Es la unica forma de tocar claves y conexiones desde otros hilos
+     */
+    void ejecutar(Runnable tarea) {
+        tareas.add(tarea);
+        // Tambien desde el propio hilo: la tarea debe correr antes del siguiente select bloqueante
+        selector.wakeup();
+    }
+    
+    /**
+     * Registra un canal en este selector desde cualquier hilo
+     * @param adjunto ConexionNIO o TransporteNIO (para OP_ACCEPT)
+     */
+    void registrar(SelectableChannel canal, int operaciones, Object adjunto) {
+        ejecutar(() -> {
+            try {
+                SelectionKey clave = canal.register(selector, operaciones, adjunto);
+                if (adjunto instanceof ConexionNIO conexion) {
+                    conexion.alRegistrar(clave);
+                }
+            } catch (ClosedChannelException e) {
+                if (adjunto instanceof ConexionNIO conexion) {
+                    conexion.finalizar();
+                }
+            }
+        });
+    }
+    
+    boolean enBucle() {
+        return Thread.currentThread() == hilo;
+    }
+    
+    ByteBuffer getLectura() { return lectura; }
+    ByteBuffer[] getLote() { return lote; }
+    
+    /**
+     * Cantidad de conexiones registradas (incluido el servidor si lo hay)
+     */
+    int getRegistradas() {
+        return selector.keys().size();
+    }
+    
+    @Override
+    public void run() {
+        while (activo) {
+            try {
+                selector.select();
+                ejecutarTareas();
+                
+                Iterator<SelectionKey> listas = selector.selectedKeys().iterator();
+                while (listas.hasNext()) {
+                    SelectionKey clave = listas.next();
+                    listas.remove();
+                    atender(clave);
+                }
+            } catch (IOException e) {
+                if (activo) {
+                    System.err.println("[RED] Error en bucle de eventos: " + e.getMessage());
+                }
+            }
+        }
+        
+        // Cierre ordenado: tareas pendientes y luego todas las conexiones
+        ejecutarTareas();
+        for (SelectionKey clave : selector.keys()) {
+            if (clave.attachment() instanceof ConexionNIO conexion) {
+                conexion.finalizar();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("[RED] Error cerrando selector: " + e.getMessage());
+        }
+    }
+    
+    private void atender(SelectionKey clave) {
+        if (!clave.isValid()) {
+            return;
+        }
+        Object adjunto = clave.attachment();
+        if (adjunto instanceof ConexionNIO conexion) {
+            conexion.procesar(clave);
+        } else if (adjunto instanceof TransporteNIO transporte && clave.isAcceptable()) {
+            transporte.aceptar();
+        }
+    }
+    
+    private void ejecutarTareas() {
+        Runnable tarea;
+        while ((tarea = tareas.poll()) != null) {
+            try {
+                tarea.run();
+            } catch (RuntimeException e) {
+                System.err.println("[RED] Error en tarea del bucle: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Detiene el bucle y cierra sus conexiones
+     */
+    void detener() {
+        activo = false;
+        selector.wakeup();
+    }
+    
+    void esperarFin(long milis) throws InterruptedException {
+        hilo.join(milis);
+    }
+}
@@ -0,0 +1,166 @@
+package red;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jugadores encontrados en busquedas anteriores, guardados en JSON
+ * DescubrimientoRed sondea primero estas IPs; si alguna responde no hace falta
+ * la consulta UDP ni el escaneo de subredes
+ * Las entradas caducan tras el TTL y, pasada la capacidad, se descarta la usada hace mas tiempo
+ */
+final class CacheDescubrimiento {
+    static final long TTL_POR_DEFECTO_MS = TimeUnit.HOURS.toMillis(12);
+    static final int CAPACIDAD_POR_DEFECTO = 16;
+    private static final int VERSION = 1;
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    
+    private final Path archivo;
+    private final long ttlMs;
+    private final int capacidad;
+    // Por IP, en orden de uso (la primera es la usada hace mas tiempo)
+    private final LinkedHashMap<String, Entrada> entradas;
+    private boolean modificada;
+    
+    CacheDescubrimiento(Path archivo, long ttlMs, int capacidad) {
+        this.archivo = archivo;
+        this.ttlMs = ttlMs;
+        this.capacidad = capacidad;
+        this.entradas = new LinkedHashMap<>(capacidad * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+                return size() > CacheDescubrimiento.this.capacidad;
+            }
+        };
+    }
+    
+    /**
+     * ~/.parchis/descubrimiento.json
+     */
+    static Path rutaPorDefecto() {
+        return Path.of(System.getProperty("user.home"), ".parchis", "descubrimiento.json");
+    }
+    
+    /**
+     * Lee el archivo si existe; uno ilegible se ignora y se sobrescribe al guardar
+     */
+    synchronized void cargar() {
+        entradas.clear();
+        if (!Files.isRegularFile(archivo)) {
+            return;
+        }
+        try {
+            Contenido contenido = gson.fromJson(Files.readString(archivo), Contenido.class);
+            if (contenido == null || contenido.version != VERSION || contenido.jugadores == null) {
+                return;
+            }
+            long ahora = System.currentTimeMillis();
+            for (Entrada entrada : contenido.jugadores) {
+                if (entrada != null && entrada.ip != null && entrada.nombre != null && !caducada(entrada, ahora)) {
+                    entradas.put(entrada.ip, entrada);
+                } else {
+                    // Se limpia del archivo en el proximo guardado
+                    modificada = true;
+                }
+            }
+        } catch (IOException | JsonParseException e) {
+            System.err.println("[DESCUBRIMIENTO] Cache ilegible, se ignora: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Entradas sin caducar, de la usada mas recientemente a la mas antigua
+     */
+    synchronized List<Entrada> vigentes() {
+        long ahora = System.currentTimeMillis();
+        Iterator<Entrada> it = entradas.values().iterator();
+        List<Entrada> lista = new ArrayList<>();
+        while (it.hasNext()) {
+            Entrada entrada = it.next();
+            if (caducada(entrada, ahora)) {
+                it.remove();
+                modificada = true;
+            } else {
+                lista.add(entrada);
+            }
+        }
+        Collections.reverse(lista);
+        return lista;
+    }
+    
+    /**
+     * Anota (o refresca) un jugador que acaba de responder
+     */
+    synchronized void recordar(DescubrimientoRed.JugadorEncontrado jugador) {
+        Entrada entrada = new Entrada();
+        entrada.nombre = jugador.nombre;
+        entrada.ip = jugador.ip;
+        entrada.puerto = jugador.puerto;
+        entrada.ultimaVez = System.currentTimeMillis();
+        entradas.remove(jugador.ip);
+        entradas.put(jugador.ip, entrada);
+        modificada = true;
+    }
+    
+    /**
+     * Escribe el archivo si hubo cambios (a un temporal y luego se renombra)
+     */
+    synchronized void guardar() {
+        if (!modificada) {
+            return;
+        }
+        Contenido contenido = new Contenido();
+        contenido.version = VERSION;
+        contenido.jugadores = new ArrayList<>(entradas.values());
+        try {
+            Path carpeta = archivo.toAbsolutePath().getParent();
+            Files.createDirectories(carpeta);
+            Path temporal = Files.createTempFile(carpeta, "descubrimiento", ".tmp");
+            Files.writeString(temporal, gson.toJson(contenido));
+            try {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+            }
+            modificada = false;
+        } catch (IOException e) {
+            System.err.println("[DESCUBRIMIENTO] Error guardando cache: " + e.getMessage());
+        }
+    }
+    
+    private boolean caducada(Entrada entrada, long ahora) {
+        return ahora - entrada.ultimaVez > ttlMs;
+    }
+    
+    /**
+     * Jugador guardado
+     */
+    static final class Entrada {
+        String nombre;
+        String ip;
+        int puerto;
+        // Ultima vez que respondio (ms desde la epoca)
+        long ultimaVez;
+    }
+    
+    /**
+     * Estructura del archivo JSON
+     */
+    private static final class Contenido {
+        int version;
+        List<Entrada> jugadores;
+    }
+}
@@ -0,0 +1,106 @@
+package red;
+
+import modelo.Partida;
+
+/**
+ * Contenido tipado de los mensajes de juego
+ * Los campos se validan al construir el registro, tambien al decodificar una trama,
+ * asi que quien recibe un MensajeJuego con carga no necesita volver a comprobarlos
+ * Los mensajes sin carga (saludo, chat, entrada a sala...) siguen usando texto
+ */
+public sealed interface CargaMensaje {
+    /** Caras del dado */
+    int CARAS_DADO = 6;
+    /** Pasos de un movimiento: una tirada o un premio acumulado */
+    int MAX_PASOS = 255;
+
+    /**
+     * Tipo de mensaje que lleva esta carga
+     */
+    MensajeJuego.TipoMensaje tipo();
+
+    /**
+     * MOVIMIENTO: el jugador mueve una ficha tantas casillas como indica el dado
+     */
+    record Movimiento(int jugador, int ficha, int dado) implements CargaMensaje {
+        public Movimiento {
+            validarJugador(jugador);
+            if (ficha <= 0) {
+                throw new IllegalArgumentException("Ficha invalida: " + ficha);
+            }
+            if (dado < 1 || dado > MAX_PASOS) {
+                throw new IllegalArgumentException("Pasos fuera de rango: " + dado);
+            }
+        }
+
+        @Override
+        public MensajeJuego.TipoMensaje tipo() { return MensajeJuego.TipoMensaje.MOVIMIENTO; }
+    }
+
+    /**
+     * CAMBIO_TURNO: id del jugador al que le toca
+     */
+    record CambioTurno(int jugador) implements CargaMensaje {
+        public CambioTurno {
+            validarJugador(jugador);
+        }
+
+        @Override
+        public MensajeJuego.TipoMensaje tipo() { return MensajeJuego.TipoMensaje.CAMBIO_TURNO; }
+    }
+
+    /**
+     * TIRADA_DADO: valor que salio
+     */
+    record TiradaDado(int valor) implements CargaMensaje {
+        public TiradaDado {
+            if (valor < 1 || valor > CARAS_DADO) {
+                throw new IllegalArgumentException("Tirada fuera de rango: " + valor);
+            }
+        }
+
+        @Override
+        public MensajeJuego.TipoMensaje tipo() { return MensajeJuego.TipoMensaje.TIRADA_DADO; }
+    }
+
+    /**
+     * ESTADO_JUEGO: lista de enteros de SincronizacionEstado (peticion, instantanea o delta)
+     * El arreglo no se copia; quien lo crea no debe modificarlo despues
+     */
+    record EstadoJuego(int[] valores) implements CargaMensaje {
+        public EstadoJuego {
+            if (valores == null || valores.length == 0) {
+                throw new IllegalArgumentException("Estado sin valores");
+            }
+        }
+
+        /**
+         * Primer valor: PETICION, INSTANTANEA o DELTA
+         */
+        public int clase() { return valores[0]; }
+
+        @Override
+        public MensajeJuego.TipoMensaje tipo() { return MensajeJuego.TipoMensaje.ESTADO_JUEGO; }
+    }
+
+    /**
+     * LATIDO: numero del latido y si es el eco de uno recibido
+     * El numero lo elige quien late; el eco lo devuelve tal cual para medir el RTT
+     */
+    record Latido(int numero, boolean eco) implements CargaMensaje {
+        public Latido {
+            if (numero < 0) {
+                throw new IllegalArgumentException("Latido negativo: " + numero);
+            }
+        }
+        
+        @Override
+        public MensajeJuego.TipoMensaje tipo() { return MensajeJuego.TipoMensaje.LATIDO; }
+    }
+    
+    private static void validarJugador(int jugador) {
+        if (jugador < 1 || jugador > Partida.MAX_JUGADORES) {
+            throw new IllegalArgumentException("Jugador fuera de rango: " + jugador);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package red;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec binario de mensajes
+ *
+ * Al abrir la conexion cada lado envia un preambulo: 'P' 'R' 'S' VERSION
+ * Despues cada mensaje es una trama:
+ *   longitud (varint) | tipo (1 byte) | marca nanoTime (varlong)
+ *   | secuencia (varlong, si hay) | emisor (si cambia) | contenido
+ * En el byte de tipo, el bit 7 indica contenido compacto (la CargaMensaje como
+ * cantidad de enteros y los enteros en varint zigzag),
+ * el bit 6 que el emisor es el mismo del mensaje anterior
+ * y el bit 5 que el mensaje lleva numero de secuencia de sesion
+ * Un movimiento ocupa unos 12 bytes frente a unos 350 con serializacion
+ * Ninguna trama supera MAX_TRAMA: al leer es un error del flujo y al
+ * escribir el mensaje se rechaza antes de tocar el flujo
+ */
+public class CodecBinario implements CodecMensajes {
+    public static final int VERSION = 1;
+    static final byte[] PREAMBULO = {'P', 'R', 'S', VERSION};
+    
+    static final int MAX_TRAMA = 64 * 1024;
+    private static final int CONTENIDO_COMPACTO = 0x80;
+    private static final int MISMO_EMISOR = 0x40;
+    private static final int CON_SECUENCIA = 0x20;
+    private static final int BITS_TIPO = 0x1F;
+    private static final MensajeJuego.TipoMensaje[] TIPOS = MensajeJuego.TipoMensaje.values();
+    
+    private final InputStream entrada;
+    private final OutputStream salida;
+    private final byte[] prefijo = new byte[5];
+    private boolean preambuloLeido;
+    private String ultimoEmisorEnviado;
+    private String ultimoEmisorRecibido;
+    
+    // Buffers reutilizados entre mensajes
+    private byte[] bufferSalida = new byte[256];
+    private int posSalida;
+    private byte[] bufferEntrada = new byte[256];
+    private byte[] trama;
+    private int posEntrada;
+    private int finEntrada;
+    
+    /**
+     * Escribe el preambulo de inmediato
+     * El del peer se valida en la primera llamada a leer()
+     */
+    public CodecBinario(InputStream entrada, OutputStream salida) throws IOException {
+        this.entrada = entrada;
+        this.salida = salida;
+        salida.write(PREAMBULO);
+        salida.flush();
+    }
+    
+    /**
+     * Codec sin flujos para transportes que manejan sus propios buffers
+     * (ver codificarTrama y decodificarTrama); el preambulo lo envia el transporte
+     */
+    CodecBinario() {
+        this.entrada = null;
+        this.salida = null;
+    }
+    
+    /**
+     * @throws IllegalArgumentException si la trama supera MAX_TRAMA; no se escribe nada
+     */
+    @Override
+    public void agregar(MensajeJuego mensaje) throws IOException {
+        int largo = codificarCuerpo(mensaje);
+        int n = escribirPrefijo(largo);
+        salida.write(prefijo, 0, n);
+        salida.write(bufferSalida, 0, largo);
+    }
+    
+    @Override
+    public void vaciar() throws IOException {
+        salida.flush();
+    }
+    
+    @Override
+    public MensajeJuego leer() throws IOException {
+        if (!preambuloLeido) {
+            byte[] recibido = new byte[PREAMBULO.length];
+            leerCompleto(recibido, recibido.length);
+            validarPreambulo(recibido, 0);
+        }
+        
+        int largo = leerVarIntFlujo();
+        validarLargo(largo);
+        if (bufferEntrada.length < largo) {
+            bufferEntrada = new byte[Math.max(largo, bufferEntrada.length * 2)];
+        }
+        leerCompleto(bufferEntrada, largo);
+        return decodificarTrama(bufferEntrada, 0, largo);
+    }
+    
+    /**
+     * Trama completa (prefijo de longitud incluido) lista para escribir en un canal
+     * Para transportes sin flujos; el estado del emisor se comparte con agregar()
+     * @throws IllegalArgumentException si la trama supera MAX_TRAMA
+     */
+    ByteBuffer codificarTrama(MensajeJuego mensaje) {
+        int largo = codificarCuerpo(mensaje);
+        int n = escribirPrefijo(largo);
+        ByteBuffer trama = ByteBuffer.allocate(n + largo);
+        trama.put(prefijo, 0, n).put(bufferSalida, 0, largo).flip();
+        return trama;
+    }
+    
+    /**
+     * Decodifica el cuerpo de una trama ya recibida (sin el prefijo de longitud)
+     */
+    MensajeJuego decodificarTrama(byte[] datos, int desde, int largo) throws IOException {
+        trama = datos;
+        posEntrada = desde;
+        finEntrada = desde + largo;
+        
+        int tipo = leerByte();
+        int indiceTipo = tipo & BITS_TIPO;
+        if (indiceTipo >= TIPOS.length) {
+            throw new StreamCorruptedException("Tipo de mensaje desconocido: " + indiceTipo);
+        }
+        MensajeJuego.TipoMensaje tipoMensaje = TIPOS[indiceTipo];
+        long marca = leerVarLong();
+        long secuencia = (tipo & CON_SECUENCIA) != 0 ? leerVarLong() : 0;
+        
+        String emisor;
+        if ((tipo & MISMO_EMISOR) != 0) {
+            emisor = ultimoEmisorRecibido;
+        } else {
+            emisor = leerTexto();
+            ultimoEmisorRecibido = emisor;
+        }
+        
+        String contenido = null;
+        CargaMensaje carga = null;
+        if ((tipo & CONTENIDO_COMPACTO) != 0) {
+            carga = leerCarga(tipoMensaje);
+        } else {
+            contenido = leerTexto();
+        }
+        
+        if (posEntrada != finEntrada) {
+            throw new StreamCorruptedException("Trama con bytes sobrantes");
+        }
+        return new MensajeJuego(tipoMensaje, emisor, contenido, carga, marca, secuencia);
+    }
+    
+    /**
+     * Lee la carga compacta directamente al registro de su tipo, sin pasar por texto
+     * Un campo fuera de rango invalida la trama igual que un byte corrupto
+     */
+    private CargaMensaje leerCarga(MensajeJuego.TipoMensaje tipoMensaje) throws IOException {
+        int cantidad = leerVarInt();
+        // Cada valor ocupa al menos un byte
+        if (cantidad < 0 || cantidad > finEntrada - posEntrada) {
+            throw new StreamCorruptedException("Cantidad de valores invalida: " + cantidad);
+        }
+        try {
+            switch (tipoMensaje) {
+                case MOVIMIENTO:
+                    exigirCantidad(tipoMensaje, cantidad, 3);
+                    return new CargaMensaje.Movimiento(leerZigZag(), leerZigZag(), leerZigZag());
+                case CAMBIO_TURNO:
+                    exigirCantidad(tipoMensaje, cantidad, 1);
+                    return new CargaMensaje.CambioTurno(leerZigZag());
+                case TIRADA_DADO:
+                    exigirCantidad(tipoMensaje, cantidad, 1);
+                    return new CargaMensaje.TiradaDado(leerZigZag());
+                case LATIDO:
+                    exigirCantidad(tipoMensaje, cantidad, 2);
+                    int numero = leerZigZag();
+                    int eco = leerZigZag();
+                    if (eco != 0 && eco != 1) {
+                        throw new IllegalArgumentException("Marca de eco invalida: " + eco);
+                    }
+                    return new CargaMensaje.Latido(numero, eco == 1);
+                case ESTADO_JUEGO:
+                    int[] valores = new int[cantidad];
+                    for (int i = 0; i < cantidad; i++) {
+                        valores[i] = leerZigZag();
+                    }
+                    return new CargaMensaje.EstadoJuego(valores);
+                default:
+                    throw new StreamCorruptedException("Contenido compacto en " + tipoMensaje);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new StreamCorruptedException(tipoMensaje + " invalido: " + e.getMessage());
+        }
+    }
+    
+    private static void exigirCantidad(MensajeJuego.TipoMensaje tipo, int cantidad, int esperada) throws IOException {
+        if (cantidad != esperada) {
+            throw new StreamCorruptedException(tipo + " con " + cantidad + " valores");
+        }
+    }
+    
+    /**
+     * Comprueba el preambulo del peer en datos[desde..desde+PREAMBULO.length)
+     */
+    void validarPreambulo(byte[] datos, int desde) throws IOException {
+        for (int i = 0; i < PREAMBULO.length - 1; i++) {
+            if (datos[desde + i] != PREAMBULO[i]) {
+                throw new StreamCorruptedException("Preambulo binario invalido");
+            }
+        }
+        int version = datos[desde + PREAMBULO.length - 1];
+        if (version > VERSION) {
+            throw new StreamCorruptedException("Version de protocolo no soportada: " + version);
+        }
+        preambuloLeido = true;
+    }
+    
+    static void validarLargo(int largo) throws IOException {
+        if (largo <= 0 || largo > MAX_TRAMA) {
+            throw new StreamCorruptedException("Longitud de trama invalida: " + largo);
+        }
+    }
+    
+    /**
+     * Codifica tipo, marca, emisor y contenido en bufferSalida
+     * Si no cabe en una trama el emisor anterior se conserva: el peer no lo vera
+     * @return Bytes del cuerpo
+     * @throws IllegalArgumentException si el cuerpo supera MAX_TRAMA
+     */
+    private int codificarCuerpo(MensajeJuego mensaje) {
+        posSalida = 0;
+        String emisorAnterior = ultimoEmisorEnviado;
+        String emisor = mensaje.getEmisor();
+        CargaMensaje carga = mensaje.getCarga();
+        boolean mismoEmisor = emisor != null && emisor.equals(ultimoEmisorEnviado);
+        
+        int tipo = mensaje.getTipo().ordinal();
+        if (carga != null) tipo |= CONTENIDO_COMPACTO;
+        if (mismoEmisor) tipo |= MISMO_EMISOR;
+        if (mensaje.getSecuencia() != 0) tipo |= CON_SECUENCIA;
+        
+        escribirByte(tipo);
+        escribirVarLong(mensaje.getMarcaNanos());
+        if (mensaje.getSecuencia() != 0) {
+            escribirVarLong(mensaje.getSecuencia());
+        }
+        if (!mismoEmisor) {
+            escribirTexto(emisor);
+            ultimoEmisorEnviado = emisor;
+        }
+        if (carga != null) {
+            escribirCarga(carga);
+        } else {
+            escribirTexto(mensaje.getContenido());
+        }
+        if (posSalida > MAX_TRAMA) {
+            ultimoEmisorEnviado = emisorAnterior;
+            throw new IllegalArgumentException(mensaje.getTipo() + " de " + posSalida
+                                               + " bytes: el maximo por trama es " + MAX_TRAMA);
+        }
+        return posSalida;
+    }
+    
+    /**
+     * Cantidad de valores y cada valor en zigzag, leidos de los campos del registro
+     */
+    private void escribirCarga(CargaMensaje carga) {
+        switch (carga) {
+            case CargaMensaje.Movimiento m -> {
+                escribirVarInt(3);
+                escribirZigZag(m.jugador());
+                escribirZigZag(m.ficha());
+                escribirZigZag(m.dado());
+            }
+            case CargaMensaje.CambioTurno c -> {
+                escribirVarInt(1);
+                escribirZigZag(c.jugador());
+            }
+            case CargaMensaje.TiradaDado t -> {
+                escribirVarInt(1);
+                escribirZigZag(t.valor());
+            }
+            case CargaMensaje.Latido l -> {
+                escribirVarInt(2);
+                escribirZigZag(l.numero());
+                escribirZigZag(l.eco() ? 1 : 0);
+            }
+            case CargaMensaje.EstadoJuego e -> {
+                int[] valores = e.valores();
+                escribirVarInt(valores.length);
+                for (int v : valores) {
+                    escribirZigZag(v);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Escribe la longitud como varint en prefijo
+     * @return Bytes del prefijo
+     */
+    private int escribirPrefijo(int largo) {
+        int n = 0;
+        int resto = largo;
+        while ((resto & ~0x7F) != 0) {
+            prefijo[n++] = (byte) ((resto & 0x7F) | 0x80);
+            resto >>>= 7;
+        }
+        prefijo[n++] = (byte) resto;
+        return n;
+    }
+    
+    @Override
+    public TipoCodec getTipo() { return TipoCodec.BINARIO; }
+    
+    private void leerCompleto(byte[] destino, int largo) throws IOException {
+        int leidos = 0;
+        while (leidos < largo) {
+            int n = entrada.read(destino, leidos, largo - leidos);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            leidos += n;
+        }
+    }
+    
+    private int leerVarIntFlujo() throws IOException {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+            int b = entrada.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            valor |= (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new StreamCorruptedException("Varint demasiado largo");
+    }
+    
+    // Escritura en el buffer de salida
+    
+    private void asegurar(int bytes) {
+        if (posSalida + bytes > bufferSalida.length) {
+            byte[] nuevo = new byte[Math.max(bufferSalida.length * 2, posSalida + bytes)];
+            System.arraycopy(bufferSalida, 0, nuevo, 0, posSalida);
+            bufferSalida = nuevo;
+        }
+    }
+    
+    private void escribirByte(int b) {
+        asegurar(1);
+        bufferSalida[posSalida++] = (byte) b;
+    }
+    
+    private void escribirVarInt(int valor) {
+        asegurar(5);
+        while ((valor & ~0x7F) != 0) {
+            bufferSalida[posSalida++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        bufferSalida[posSalida++] = (byte) valor;
+    }
+    
+    private void escribirZigZag(int valor) {
+        escribirVarInt((valor << 1) ^ (valor >> 31));
+    }
+    
+    private void escribirVarLong(long valor) {
+        asegurar(10);
+        while ((valor & ~0x7FL) != 0) {
+            bufferSalida[posSalida++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        bufferSalida[posSalida++] = (byte) valor;
+    }
+    
+    /**
+     * Texto UTF-8 con su longitud + 1 (0 = null)
+     */
+    private void escribirTexto(String texto) {
+        if (texto == null) {
+            escribirVarInt(0);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        escribirVarInt(bytes.length + 1);
+        asegurar(bytes.length);
+        System.arraycopy(bytes, 0, bufferSalida, posSalida, bytes.length);
+        posSalida += bytes.length;
+    }
+    
+    // Lectura de la trama ya recibida
+    
+    private int leerByte() throws IOException {
+        if (posEntrada >= finEntrada) {
+            throw new StreamCorruptedException("Trama truncada");
+        }
+        return trama[posEntrada++] & 0xFF;
+    }
+    
+    private int leerVarInt() throws IOException {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+            int b = leerByte();
+            valor |= (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new StreamCorruptedException("Varint demasiado largo");
+    }
+    
+    private int leerZigZag() throws IOException {
+        int z = leerVarInt();
+        return (z >>> 1) ^ -(z & 1);
+    }
+    
+    private long leerVarLong() throws IOException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 70; desplazamiento += 7) {
+            int b = leerByte();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new StreamCorruptedException("Varlong demasiado largo");
+    }
+    
+    private String leerTexto() throws IOException {
+        int largo = leerVarInt() - 1;
+        if (largo < 0) {
+            return null;
+        }
+        if (largo > finEntrada - posEntrada) {
+            throw new StreamCorruptedException("Texto truncado");
+        }
+        String texto = new String(trama, posEntrada, largo, StandardCharsets.UTF_8);
+        posEntrada += largo;
+        return texto;
+    }
+}
@@ -0,0 +1,36 @@
+package red;
+
+import java.io.IOException;
+
+/**
+ * Convierte mensajes a bytes y viceversa sobre los flujos de una conexion
+ * Cada conexion tiene su propio codec; no se comparte entre hilos de lectura
+ */
+public interface CodecMensajes {
+    
+    /**
+     * Escribe un mensaje completo y vacia el flujo
+     */
+    default void escribir(MensajeJuego mensaje) throws IOException {
+        agregar(mensaje);
+        vaciar();
+    }
+    
+    /**
+     * Escribe un mensaje sin vaciar el flujo, para enviar varios con un solo vaciado
+     */
+    void agregar(MensajeJuego mensaje) throws IOException;
+    
+    /**
+     * Envia al socket lo escrito con agregar
+     */
+    void vaciar() throws IOException;
+    
+    /**
+     * Lee el siguiente mensaje; bloquea hasta que llega
+     * @throws java.io.EOFException si el peer cerro la conexion
+     */
+    MensajeJuego leer() throws IOException;
+    
+    TipoCodec getTipo();
+}
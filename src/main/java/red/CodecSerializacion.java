@@ -0,0 +1,62 @@
+package red;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Codec heredado: serializacion Java de MensajeJuego
+ * Se mantiene para hablar con peers de versiones anteriores
+ * Su TipoMensaje termina en FIN_JUEGO: los tipos posteriores (sesion, latidos)
+ * no se envian, porque el peer fallaria al leer una constante que no conoce
+ */
+public class CodecSerializacion implements CodecMensajes {
+    private static final MensajeJuego.TipoMensaje ULTIMO_TIPO_ANTERIOR = MensajeJuego.TipoMensaje.FIN_JUEGO;
+    
+    private final InputStream flujoEntrada;
+    private final ObjectOutputStream salida;
+    private ObjectInputStream entrada;
+    
+    /**
+     * Escribe la cabecera de serializacion de inmediato
+     * La del peer se lee en la primera llamada a leer() para no bloquear aqui
+     */
+    public CodecSerializacion(InputStream entrada, OutputStream salida) throws IOException {
+        this.flujoEntrada = entrada;
+        this.salida = new ObjectOutputStream(salida);
+        this.salida.flush();
+    }
+    
+    @Override
+    public void agregar(MensajeJuego mensaje) throws IOException {
+        if (mensaje.getTipo().compareTo(ULTIMO_TIPO_ANTERIOR) > 0) {
+            return;
+        }
+        salida.writeObject(mensaje);
+        // Sin reset el stream recuerda cada objeto enviado
+        salida.reset();
+    }
+    
+    @Override
+    public void vaciar() throws IOException {
+        salida.flush();
+    }
+    
+    @Override
+    public MensajeJuego leer() throws IOException {
+        if (entrada == null) {
+            entrada = new ObjectInputStream(flujoEntrada);
+        }
+        try {
+            return (MensajeJuego) entrada.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new InvalidClassException("Mensaje no reconocido: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public TipoCodec getTipo() { return TipoCodec.SERIALIZACION; }
+}
@@ -0,0 +1,43 @@
+package red;
+
+/**
+ * Conexion con otro jugador (peer), independiente del transporte
+ * La implementan ConexionPeer (un hilo por peer), ConexionNIO (bucles de eventos)
+ * y ConexionMemoria (red simulada dentro de la JVM)
+ */
+public interface Conexion {
+    
+    /**
+     * Envia un mensaje a este peer
+     * @return false si la conexion ya esta cerrada o fallo el envio
+     */
+    boolean enviarMensaje(MensajeJuego mensaje);
+    
+    /**
+     * Cierra la conexion con este peer
+     */
+    void cerrar();
+    
+    /**
+     * Cierra sin esperar a que salga la cola (peer que ya no responde)
+     */
+    void cerrarAhora();
+    
+    boolean estaConectado();
+    
+    String getNombrePeer();
+    
+    String getDireccion();
+    
+    /**
+     * Codec negociado o null si aun no se conoce
+     */
+    TipoCodec getTipoCodec();
+    
+    /**
+     * Mensajes que esperan en la cola de salida
+     */
+    int getMensajesEnCola();
+    
+    EstadisticasRed getEstadisticas();
+}
@@ -0,0 +1,329 @@
+package red;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Un extremo de una conexion de TransporteMemoria
+ * Enviar deja el mensaje (sin copiar ni codificar) en el buzon del otro extremo;
+ * una sola tarea a la vez vacia cada buzon en los hilos de la RedMemoria, asi los
+ * mensajes de un peer llegan en orden y nunca en paralelo, como con un socket
+ * Lo que espera en el buzon del otro extremo cuenta como cola de salida de este
+ * y se limita con la misma PoliticaDesborde que las conexiones TCP
+ * Si alguno de los dos peers tiene un EnlaceSimulado, cada mensaje se entrega
+ * desde el reloj de la red cuando el enlace lo deja llegar; una conexion que ya
+ * paso por el reloj sigue usandolo para no adelantar a los mensajes en vuelo
+ */
+final class ConexionMemoria implements Conexion {
+    /** Mensajes entregados por tarea antes de ceder el hilo a otros buzones */
+    private static final int LOTE = 64;
+    
+    private final TransporteMemoria transporte;
+    private final String direccion;
+    private final int limiteCola;
+    private final PoliticaDesborde politica;
+    private final EstadisticasRed estadisticas;
+    private final ConcurrentLinkedQueue<MensajeJuego> buzon;
+    private final AtomicInteger pendientes;
+    private final AtomicBoolean programada;
+    private final AtomicBoolean finalizada;
+    private ConexionMemoria otra;
+    // Protegidos por this: mensajes en vuelo por el enlace simulado, en orden de envio
+    private final ArrayDeque<MensajeJuego> enVuelo;
+    private long ultimaLlegada;
+    private long programados;
+    private long llegados;
+    private CodecBinario codec;
+    
+    private volatile boolean iniciada;
+    private volatile boolean conectado;
+    // El otro extremo cerro: se entrega lo que queda y se finaliza
+    private volatile boolean otraCerrada;
+    private volatile String nombrePeer;
+    
+    ConexionMemoria(TransporteMemoria transporte, String direccion) {
+        this.transporte = transporte;
+        this.direccion = direccion;
+        this.limiteCola = transporte.getLimiteCola();
+        this.politica = transporte.getPoliticaDesborde();
+        this.estadisticas = new EstadisticasRed();
+        this.buzon = new ConcurrentLinkedQueue<>();
+        this.pendientes = new AtomicInteger();
+        this.programada = new AtomicBoolean();
+        this.finalizada = new AtomicBoolean();
+        this.enVuelo = new ArrayDeque<>();
+        this.conectado = true;
+        this.nombrePeer = "Desconocido";
+    }
+    
+    void enlazar(ConexionMemoria otra) {
+        this.otra = otra;
+    }
+    
+    /**
+     * Empieza a entregar al gestor; lo recibido antes espera en el buzon
+     */
+    void iniciar() {
+        iniciada = true;
+        programar();
+    }
+    
+    @Override
+    public boolean enviarMensaje(MensajeJuego mensaje) {
+        if (!conectado || otra.finalizada.get()) {
+            return false;
+        }
+        
+        int enCola = otra.pendientes.get();
+        PoliticaDesborde.Admision admision = politica.admitir(mensaje.getTipo(), enCola, limiteCola);
+        if (admision == PoliticaDesborde.Admision.DESCARTAR) {
+            estadisticas.registrarDescarte();
+            return false;
+        }
+        if (admision == PoliticaDesborde.Admision.DESCONECTAR) {
+            System.err.println("[RED] " + nombrePeer + " no vacia su cola (" + enCola + " mensajes): se desconecta");
+            estadisticas.registrarDesborde();
+            cerrarAhora();
+            return false;
+        }
+        
+        EnlaceSimulado salida = transporte.getEnlace();
+        EnlaceSimulado llegada = otra.transporte.getEnlace();
+        if (salida == null && llegada == null && !usaReloj()) {
+            estadisticas.registrarEnvio(0, 0);
+            estadisticas.registrarProfundidad(enCola + 1);
+            otra.pendientes.incrementAndGet();
+            otra.entregar(mensaje);
+            return true;
+        }
+        if ((salida != null && salida.reiniciar()) || (llegada != null && llegada.reiniciar())) {
+            System.out.println("[RED] Enlace simulado: se corta la conexion con " + nombrePeer);
+            transporte.contarReinicio();
+            cerrarAhora();
+            return false;
+        }
+        estadisticas.registrarProfundidad(enCola + 1);
+        otra.pendientes.incrementAndGet();
+        try {
+            programarLlegada(mensaje, salida, llegada);
+        } catch (IllegalArgumentException e) {
+            // No cabe en una trama: como en los transportes reales, no sale
+            otra.pendientes.decrementAndGet();
+            System.err.println("[RED] Mensaje descartado: " + e.getMessage());
+            estadisticas.registrarDescarte();
+            return false;
+        } catch (RejectedExecutionException e) {
+            // La red se cerro con la conexion abierta
+            finalizar();
+            return false;
+        }
+        return true;
+    }
+    
+    private synchronized boolean usaReloj() {
+        return ultimaLlegada != 0;
+    }
+    
+    /**
+     * Calcula cuando sale el mensaje por los dos enlaces y programa su entrega
+     * Nunca llega antes que el anterior: un segmento reordenado tarda el doble y,
+     * como en TCP, los que vienen detras esperan a que llegue (bloqueo de cabeza de linea)
+     */
+    private synchronized void programarLlegada(MensajeJuego mensaje, EnlaceSimulado salida, EnlaceSimulado llegada) {
+        int bytes = 0;
+        if ((salida != null && salida.limitaAnchoBanda()) || (llegada != null && llegada.limitaAnchoBanda())) {
+            if (codec == null) {
+                codec = new CodecBinario();
+            }
+            bytes = codec.codificarTrama(mensaje).remaining();
+        }
+        estadisticas.registrarEnvio(bytes, 0);
+        
+        long ahora = System.nanoTime();
+        long instante = ahora;
+        if (salida != null) {
+            instante = salida.atravesar(bytes, true, instante);
+        }
+        if (llegada != null) {
+            instante = llegada.atravesar(bytes, false, instante);
+        }
+        if (salida != null && salida.reordenar()) {
+            instante += Math.max(instante - ahora, 1_000_000);
+            transporte.contarReordenado();
+        }
+        instante = Math.max(instante, ultimaLlegada);
+        ultimaLlegada = instante;
+        enVuelo.add(mensaje);
+        long numero = ++programados;
+        transporte.ejecutarEn(instante, () -> llegar(numero));
+    }
+    
+    /**
+     * Entrega los mensajes en vuelo hasta el numero dado
+     * El reloj puede adelantar por nanosegundos una tarea a otra programada para
+     * el mismo instante; como cada una entrega tambien las anteriores, el orden se mantiene
+     */
+    private synchronized void llegar(long numero) {
+        while (llegados < numero) {
+            llegados++;
+            otra.entregar(enVuelo.poll());
+        }
+    }
+    
+    private void entregar(MensajeJuego mensaje) {
+        if (finalizada.get()) {
+            // Llego por el enlace simulado despues del cierre
+            return;
+        }
+        buzon.add(mensaje);
+        programar();
+    }
+    
+    /**
+     * Programa una tarea de vaciado si no hay otra en marcha
+     */
+    private void programar() {
+        if (!iniciada || finalizada.get() || !programada.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            transporte.ejecutar(this::vaciar);
+        } catch (RejectedExecutionException e) {
+            // La red se cerro con la conexion abierta
+            finalizar();
+        }
+    }
+    
+    private void vaciar() {
+        for (int i = 0; i < LOTE && !finalizada.get(); i++) {
+            MensajeJuego mensaje = buzon.poll();
+            if (mensaje == null) {
+                break;
+            }
+            pendientes.decrementAndGet();
+            estadisticas.registrarRecepcion(0, 0);
+            if (mensaje.getTipo() == MensajeJuego.TipoMensaje.SALUDO) {
+                nombrePeer = mensaje.getEmisor();
+                System.out.println("[RED] Peer identificado como: " + nombrePeer);
+            }
+            try {
+                transporte.alRecibirMensaje(mensaje, this);
+            } catch (RuntimeException e) {
+                // Un escucha que falla no debe dejar el buzon bloqueado
+                System.err.println("[RED] Error procesando mensaje de " + nombrePeer + ": " + e.getMessage());
+            }
+        }
+        
+        if (otraCerrada && buzon.isEmpty()) {
+            System.out.println("[RED] Conexion cerrada por el peer");
+            finalizar();
+            return;
+        }
+        programada.set(false);
+        // Lo que llego (o el cierre) mientras se vaciaba no pudo programar otra tarea
+        if (!buzon.isEmpty() || otraCerrada) {
+            programar();
+        }
+    }
+    
+    /**
+     * El otro extremo se cerro: se entregan los mensajes que ya envio y luego se avisa
+     */
+    private void alCerrarOtra() {
+        otraCerrada = true;
+        if (iniciada) {
+            programar();
+        } else {
+            finalizar();
+        }
+    }
+    
+    /**
+     * Marca la conexion como cerrada y avisa al gestor una sola vez
+     */
+    private void finalizar() {
+        if (!finalizada.compareAndSet(false, true)) {
+            return;
+        }
+        conectado = false;
+        buzon.clear();
+        pendientes.set(0);
+        transporte.alDesconectar(this);
+    }
+    
+    /**
+     * El otro extremo entrega lo que ya se le envio antes de enterarse del cierre
+     * (con enlace simulado, el aviso viaja detras del ultimo mensaje en vuelo)
+     */
+    @Override
+    public void cerrar() {
+        conectado = false;
+        long instante;
+        long numero;
+        synchronized (this) {
+            instante = ultimaLlegada;
+            numero = programados;
+        }
+        if (instante - System.nanoTime() > 0) {
+            try {
+                transporte.ejecutarEn(instante, () -> {
+                    llegar(numero);
+                    otra.alCerrarOtra();
+                });
+            } catch (RejectedExecutionException e) {
+                otra.alCerrarOtra();
+            }
+        } else {
+            llegar(numero);
+            otra.alCerrarOtra();
+        }
+        finalizar();
+    }
+    
+    /**
+     * Corta sin esperar a los mensajes en vuelo por el enlace simulado
+     * (los que ya estan en el buzon del otro extremo se entregan igualmente)
+     */
+    @Override
+    public void cerrarAhora() {
+        conectado = false;
+        otra.alCerrarOtra();
+        finalizar();
+    }
+    
+    @Override
+    public boolean estaConectado() {
+        return conectado;
+    }
+    
+    @Override
+    public String getNombrePeer() {
+        return nombrePeer;
+    }
+    
+    @Override
+    public String getDireccion() {
+        return direccion;
+    }
+    
+    /**
+     * Sin codec: los mensajes pasan como objetos
+     */
+    @Override
+    public TipoCodec getTipoCodec() {
+        return null;
+    }
+    
+    @Override
+    public int getMensajesEnCola() {
+        return otra.pendientes.get();
+    }
+    
+    @Override
+    public EstadisticasRed getEstadisticas() {
+        return estadisticas;
+    }
+}
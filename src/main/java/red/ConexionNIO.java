@@ -0,0 +1,350 @@
+package red;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Conexion no bloqueante atendida por un BucleEventos
+ * Solo habla el codec binario: un peer que abre con serializacion Java se rechaza
+ * Los mensajes se codifican en el hilo que envia y se escriben en el hilo del bucle
+ * La cola de salida esta acotada como la de ConexionPeer (ver PoliticaDesborde)
+ */
+final class ConexionNIO implements Conexion {
+    private static final int PRIMER_BYTE_SERIALIZACION = 0xAC;
+    
+    private final SocketChannel canal;
+    private final BucleEventos bucle;
+    private final TransporteNIO transporte;
+    private final CodecBinario codec;
+    private final EstadisticasRed estadisticas;
+    private final String direccion;
+    private final int limiteCola;
+    private final PoliticaDesborde politica;
+    
+    // Protegidos por this: los usa el hilo que envia y el del bucle
+    private final ArrayDeque<ByteBuffer> colaSalida;
+    private boolean escrituraSolicitada;
+    
+    // Solo desde el hilo del bucle
+    private SelectionKey clave;
+    private boolean preambuloLeido;
+    private byte[] resto;
+    private int largoResto;
+    private boolean finalizada;
+    
+    private volatile boolean conectado;
+    private volatile String nombrePeer;
+    
+    ConexionNIO(SocketChannel canal, BucleEventos bucle, TransporteNIO transporte,
+                int limiteCola, PoliticaDesborde politica) throws IOException {
+        this.canal = canal;
+        this.bucle = bucle;
+        this.transporte = transporte;
+        this.codec = new CodecBinario();
+        this.estadisticas = new EstadisticasRed();
+        this.direccion = canal.getRemoteAddress().toString();
+        this.limiteCola = limiteCola;
+        this.politica = politica;
+        this.colaSalida = new ArrayDeque<>();
+        this.conectado = true;
+        this.nombrePeer = "Desconocido";
+        
+        // El preambulo sale con la primera escritura
+        colaSalida.add(ByteBuffer.wrap(CodecBinario.PREAMBULO.clone()));
+        escrituraSolicitada = true;
+    }
+    
+    /**
+     * Registra el canal en su bucle; a partir de aqui se leen y escriben mensajes
+     * Los mensajes enviados antes quedan en cola
+     */
+    void iniciar() {
+        bucle.registrar(canal, SelectionKey.OP_READ, this);
+    }
+    
+    /**
+     * Llamado por el bucle al registrar el canal
+     */
+    void alRegistrar(SelectionKey clave) {
+        this.clave = clave;
+        if (!conectado) {
+            finalizar();
+            return;
+        }
+        escribirPendientes();
+    }
+    
+    @Override
+    public boolean enviarMensaje(MensajeJuego mensaje) {
+        if (!conectado) {
+            return false;
+        }
+        
+        boolean avisar = false;
+        PoliticaDesborde.Admision admision;
+        int enCola;
+        synchronized (this) {
+            enCola = colaSalida.size();
+            admision = politica.admitir(mensaje.getTipo(), enCola, limiteCola);
+            if (admision == PoliticaDesborde.Admision.ENCOLAR) {
+                long inicio = System.nanoTime();
+                ByteBuffer trama;
+                try {
+                    trama = codec.codificarTrama(mensaje);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("[RED] Mensaje descartado: " + e.getMessage());
+                    estadisticas.registrarDescarte();
+                    return false;
+                }
+                estadisticas.registrarEnvio(trama.remaining(), System.nanoTime() - inicio);
+                colaSalida.add(trama);
+                estadisticas.registrarProfundidad(enCola + 1);
+                avisar = !escrituraSolicitada;
+                escrituraSolicitada = true;
+            }
+        }
+        
+        if (admision == PoliticaDesborde.Admision.DESCARTAR) {
+            estadisticas.registrarDescarte();
+            return false;
+        }
+        if (admision == PoliticaDesborde.Admision.DESCONECTAR) {
+            System.err.println("[RED] " + nombrePeer + " no vacia su cola (" + enCola + " mensajes): se desconecta");
+            estadisticas.registrarDesborde();
+            cerrar();
+            return false;
+        }
+        
+        // Una sola tarea por rafaga: los mensajes siguientes se escriben juntos
+        if (avisar) {
+            bucle.ejecutar(this::escribirPendientes);
+        }
+        return true;
+    }
+    
+    /**
+     * Atiende una clave lista (hilo del bucle)
+     */
+    void procesar(SelectionKey clave) {
+        try {
+            if (clave.isReadable() && !leer()) {
+                System.out.println("[RED] Conexion cerrada por el peer");
+                finalizar();
+                return;
+            }
+            if (clave.isValid() && clave.isWritable()) {
+                escribirPendientes();
+            }
+        } catch (IOException e) {
+            if (conectado) {
+                System.err.println("[RED] Error en conexion " + direccion + ": " + e.getMessage());
+            }
+            finalizar();
+        }
+    }
+    
+    /**
+     * Lee lo disponible y entrega las tramas completas
+     * @return false si el peer cerro la conexion
+     */
+    private boolean leer() throws IOException {
+        ByteBuffer lectura = bucle.getLectura();
+        lectura.clear();
+        if (largoResto > 0) {
+            lectura.put(resto, 0, largoResto);
+        }
+        int leidos = canal.read(lectura);
+        if (leidos < 0) {
+            return false;
+        }
+        
+        byte[] datos = lectura.array();
+        int fin = lectura.position();
+        int pos = 0;
+        
+        if (!preambuloLeido) {
+            if (fin > 0 && (datos[0] & 0xFF) == PRIMER_BYTE_SERIALIZACION) {
+                throw new StreamCorruptedException("El peer usa serializacion Java (version anterior)");
+            }
+            if (fin < CodecBinario.PREAMBULO.length) {
+                guardarResto(datos, 0, fin);
+                return true;
+            }
+            codec.validarPreambulo(datos, 0);
+            preambuloLeido = true;
+            pos = CodecBinario.PREAMBULO.length;
+        }
+        
+        while (pos < fin && conectado) {
+            // Prefijo de longitud (varint), quizas incompleto
+            int largo = 0;
+            int cuerpo = pos;
+            boolean completo = false;
+            for (int desplazamiento = 0; cuerpo < fin; desplazamiento += 7) {
+                if (desplazamiento >= 35) {
+                    throw new StreamCorruptedException("Varint demasiado largo");
+                }
+                int b = datos[cuerpo++] & 0xFF;
+                largo |= (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) {
+                    completo = true;
+                    break;
+                }
+            }
+            if (!completo) {
+                break;
+            }
+            CodecBinario.validarLargo(largo);
+            if (fin - cuerpo < largo) {
+                break;
+            }
+            
+            long inicio = System.nanoTime();
+            MensajeJuego mensaje = codec.decodificarTrama(datos, cuerpo, largo);
+            estadisticas.registrarRecepcion(cuerpo - pos + largo, System.nanoTime() - inicio);
+            pos = cuerpo + largo;
+            
+            if (mensaje.getTipo() == MensajeJuego.TipoMensaje.SALUDO) {
+                nombrePeer = mensaje.getEmisor();
+                System.out.println("[RED] Peer identificado como: " + nombrePeer);
+            }
+            transporte.alRecibirMensaje(mensaje, this);
+        }
+        
+        guardarResto(datos, pos, fin);
+        return true;
+    }
+    
+    /**
+     * Copia la trama incompleta; sin restos la conexion no retiene buffer
+     */
+    private void guardarResto(byte[] datos, int desde, int hasta) {
+        largoResto = hasta - desde;
+        if (largoResto == 0) {
+            resto = null;
+            return;
+        }
+        if (resto == null || resto.length < largoResto) {
+            resto = new byte[Math.max(largoResto, 64)];
+        }
+        System.arraycopy(datos, desde, resto, 0, largoResto);
+    }
+    
+    /**
+     * Escribe la cola en lotes (hilo del bucle)
+     * Si el socket se llena se espera a OP_WRITE; al vaciarse se deja de pedir
+     */
+    private void escribirPendientes() {
+        if (clave == null || !clave.isValid()) {
+            return;
+        }
+        ByteBuffer[] lote = bucle.getLote();
+        try {
+            synchronized (this) {
+                while (!colaSalida.isEmpty()) {
+                    int n = 0;
+                    for (ByteBuffer trama : colaSalida) {
+                        if (n == lote.length) break;
+                        lote[n++] = trama;
+                    }
+                    canal.write(lote, 0, n);
+                    estadisticas.registrarVaciado();
+                    boolean lleno = lote[n - 1].hasRemaining();
+                    Arrays.fill(lote, 0, n, null);
+                    while (!colaSalida.isEmpty() && !colaSalida.peekFirst().hasRemaining()) {
+                        colaSalida.pollFirst();
+                    }
+                    if (lleno) {
+                        // El socket no admite mas por ahora
+                        clave.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+                escrituraSolicitada = false;
+                clave.interestOps(SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            if (conectado) {
+                System.err.println("[RED] Error enviando a " + direccion + ": " + e.getMessage());
+            }
+            finalizar();
+        }
+    }
+    
+    /**
+     * Cierra el canal y avisa una sola vez (hilo del bucle)
+     */
+    void finalizar() {
+        if (finalizada) {
+            return;
+        }
+        finalizada = true;
+        conectado = false;
+        if (clave != null) {
+            clave.cancel();
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("[RED] Error cerrando conexion: " + e.getMessage());
+        }
+        synchronized (this) {
+            colaSalida.clear();
+        }
+        resto = null;
+        transporte.alDesconectar(this);
+    }
+    
+    @Override
+    public void cerrar() {
+        conectado = false;
+        if (bucle.enBucle()) {
+            finalizar();
+        } else {
+            bucle.ejecutar(this::finalizar);
+        }
+    }
+    
+    /**
+     * El cierre NIO ya descarta la cola pendiente
+     */
+    @Override
+    public void cerrarAhora() {
+        cerrar();
+    }
+    
+    @Override
+    public boolean estaConectado() {
+        return conectado && canal.isOpen();
+    }
+    
+    @Override
+    public String getNombrePeer() {
+        return nombrePeer;
+    }
+    
+    @Override
+    public String getDireccion() {
+        return direccion;
+    }
+    
+    @Override
+    public TipoCodec getTipoCodec() {
+        return TipoCodec.BINARIO;
+    }
+    
+    @Override
+    public synchronized int getMensajesEnCola() {
+        return colaSalida.size();
+    }
+    
+    @Override
+    public EstadisticasRed getEstadisticas() {
+        return estadisticas;
+    }
+}
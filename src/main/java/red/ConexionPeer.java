@@ -2,42 +2,183 @@ package red;
 
 import java.io.*;
 import java.net.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Representa una conexin con otro jugador (peer)
+ * El formato de los mensajes lo decide un CodecMensajes:
+ * - La conexion entrante espera el primer byte del peer y usa el mismo codec
+ *   (0xAC = serializacion Java de versiones anteriores, 'P' = binario)
+ * - La conexion saliente envia de inmediato su codec preferido y mira el primer
+ *   byte de la respuesta: un anfitrion de version anterior contesta con la
+ *   cabecera de serializacion al aceptar y TransporteTCP reconecta con ella
+ * Los hilos lector y escritor los crea HilosRed (plataforma o virtual)
+ * enviarMensaje solo encola: el escritor vacia la cola de salida (acotada)
+ * con un solo flush por rafaga, asi un peer lento no frena a quien envia
  */
-public class ConexionPeer extends Thread {
+public class ConexionPeer implements Runnable, Conexion {
+    /** Tiempo que espera la conexion saliente la primera respuesta del anfitrion */
+    private static final int ESPERA_DETECCION_MS = 2000;
+    private static final int PRIMER_BYTE_SERIALIZACION = 0xAC;
+    /** Tiempo que cerrar() espera a que el escritor vacie la cola */
+    private static final long ESPERA_CIERRE_MS = 500;
+    
     private Socket socket;
-    private ObjectOutputStream salida;
-    private ObjectInputStream entrada;
+    private BufferedInputStream entrada;
+    private OutputStream salida;
+    private ContadorBytes.Entrada contadorEntrada;
+    private ContadorBytes.Salida contadorSalida;
+    private volatile CodecMensajes codec;
+    // Cola de salida: la llenan los que envian y la vacia el hilo escritor
+    private final ArrayDeque<MensajeJuego> colaSalida = new ArrayDeque<>();
+    private final ReentrantLock cerrojoEnvio = new ReentrantLock();
+    private final Condition hayMensajes = cerrojoEnvio.newCondition();
+    private final Condition colaVaciada = cerrojoEnvio.newCondition();
+    private boolean escribiendo;
+    private final int limiteCola;
+    private final PoliticaDesborde politica;
+    private EstadisticasRed estadisticas;
     private P2PNetworkManager gestor;
-    private boolean conectado;
+    private volatile boolean conectado;
     private String nombrePeer;
+    private boolean anfitrionAnterior;
     
+    /**
+     * Conexion saliente con el codec binario
+     */
     public ConexionPeer(Socket socket, P2PNetworkManager gestor) {
+        this(socket, gestor, TipoCodec.BINARIO, false);
+    }
+    
+    /**
+     * @param socket Socket ya conectado
+     * @param gestor Gestor que recibe los mensajes
+     * @param preferido Codec a usar si el peer lo admite
+     * @param entrante true si la conexion se acepto en el servidor
+     */
+    public ConexionPeer(Socket socket, P2PNetworkManager gestor, TipoCodec preferido, boolean entrante) {
         this.socket = socket;
         this.gestor = gestor;
         this.conectado = true;
         this.nombrePeer = "Desconocido";
+        this.estadisticas = new EstadisticasRed();
+        this.limiteCola = gestor.getLimiteCola();
+        this.politica = gestor.getPoliticaDesborde();
         
         try {
-            // Importante: crear ObjectOutputStream antes que ObjectInputStream
-            this.salida = new ObjectOutputStream(socket.getOutputStream());
-            this.salida.flush();
-            this.entrada = new ObjectInputStream(socket.getInputStream());
+            this.contadorEntrada = new ContadorBytes.Entrada(socket.getInputStream());
+            this.entrada = new BufferedInputStream(contadorEntrada);
+            this.contadorSalida = new ContadorBytes.Salida(socket.getOutputStream());
+            this.salida = new BufferedOutputStream(contadorSalida);
+            
+            if (!entrante) {
+                crearCodec(preferido);
+                anfitrionAnterior = preferido == TipoCodec.BINARIO && detectarAnfitrionAnterior();
+            }
         } catch (IOException e) {
             System.err.println("[RED] Error inicializando streams: " + e.getMessage());
             conectado = false;
         }
     }
     
+    /**
+     * Un anfitrion de version anterior envia la cabecera de serializacion nada mas aceptar;
+     * uno actual contesta al preambulo con el suyo, asi que la espera es de un viaje de ida y vuelta
+     * Si no llega nada en ESPERA_DETECCION_MS se sigue con el codec binario
+     */
+    private boolean detectarAnfitrionAnterior() throws IOException {
+        int tiempoAnterior = socket.getSoTimeout();
+        try {
+            socket.setSoTimeout(ESPERA_DETECCION_MS);
+            entrada.mark(1);
+            int primero = entrada.read();
+            entrada.reset();
+            return primero == PRIMER_BYTE_SERIALIZACION;
+        } catch (SocketTimeoutException e) {
+            return false;
+        } finally {
+            socket.setSoTimeout(tiempoAnterior);
+        }
+    }
+    
+    /**
+     * Lee el primer byte del peer sin consumirlo para elegir el codec
+     */
+    private TipoCodec detectarCodecEntrante() throws IOException {
+        entrada.mark(1);
+        int primero = entrada.read();
+        entrada.reset();
+        
+        if (primero < 0) {
+            throw new EOFException();
+        }
+        if (primero == PRIMER_BYTE_SERIALIZACION) {
+            return TipoCodec.SERIALIZACION;
+        }
+        if (primero == CodecBinario.PREAMBULO[0]) {
+            return TipoCodec.BINARIO;
+        }
+        throw new StreamCorruptedException("Protocolo desconocido (primer byte " + primero + ")");
+    }
+    
+    /**
+     * Crea el codec; lo que ya estaba en cola sale con el primer vaciado del escritor
+     */
+    private void crearCodec(TipoCodec tipo) throws IOException {
+        cerrojoEnvio.lock();
+        try {
+            codec = tipo == TipoCodec.BINARIO
+                ? new CodecBinario(entrada, salida)
+                : new CodecSerializacion(entrada, salida);
+            hayMensajes.signal();
+        } finally {
+            cerrojoEnvio.unlock();
+        }
+        System.out.println("[RED] Codec de la conexion: " + tipo);
+    }
+    
+    /**
+     * Inicia los hilos lector y escritor con el modo de HilosRed
+     */
+    public void start() {
+        HilosRed.iniciar("peer-" + getDireccion(), this);
+        HilosRed.iniciar("peer-escritor-" + getDireccion(), this::escribirCola);
+    }
+    
     @Override
     public void run() {
         System.out.println("[RED] Iniciando escucha de mensajes del peer...");
         
+        try {
+            if (codec == null && conectado) {
+                crearCodec(detectarCodecEntrante());
+            }
+        } catch (IOException e) {
+            if (conectado) {
+                System.err.println("[RED] Error negociando protocolo: " + e.getMessage());
+            }
+            conectado = false;
+        }
+        
         while (conectado) {
             try {
-                MensajeJuego mensaje = (MensajeJuego) entrada.readObject();
+                // Si el mensaje ya esta en el buffer, se mide desde ahora;
+                // si no, desde que llegue su primer byte
+                boolean enBuffer = entrada.available() > 0;
+                long inicio = System.nanoTime();
+                contadorEntrada.nuevoMensaje();
+                long bytesAntes = contadorEntrada.getBytes();
+                MensajeJuego mensaje = codec.leer();
+                if (!enBuffer) {
+                    inicio = contadorEntrada.getInicioMensaje();
+                }
+                estadisticas.registrarRecepcion(contadorEntrada.getBytes() - bytesAntes,
+                                                System.nanoTime() - inicio);
                 
                 // Si es saludo, guardar nombre del peer
                 if (mensaje.getTipo() == MensajeJuego.TipoMensaje.SALUDO) {
@@ -50,7 +191,7 @@ public class ConexionPeer extends Thread {
             } catch (EOFException e) {
                 System.out.println("[RED] Conexion cerrada por el peer");
                 break;
-            } catch (IOException | ClassNotFoundException e) {
+            } catch (IOException e) {
                 if (conectado) {
                     System.err.println("[RED] Error recibiendo mensaje: " + e.getMessage());
                 }
@@ -58,53 +199,206 @@ public class ConexionPeer extends Thread {
             }
         }
         
-        cerrar();
+        // El peer ya no lee: lo que quede en cola no tiene destino
+        cerrarAhora();
         gestor.alDesconectarPeer(this);
     }
     
     /**
      * Envía un mensaje a este peer
+     * Solo lo encola; si la cola esta llena se aplica la PoliticaDesborde del gestor
+     * @return false si la conexion esta cerrada o el mensaje se descarto
      */
-    public synchronized boolean enviarMensaje(MensajeJuego mensaje) {
+    @Override
+    public boolean enviarMensaje(MensajeJuego mensaje) {
         if (!conectado || salida == null) {
             return false;
         }
         
+        PoliticaDesborde.Admision admision;
+        int enCola;
+        cerrojoEnvio.lock();
         try {
-            salida.writeObject(mensaje);
-            salida.flush();
-            return true;
-        } catch (IOException e) {
-            System.err.println("[RED] Error enviando mensaje: " + e.getMessage());
-            conectado = false;
+            enCola = colaSalida.size();
+            admision = politica.admitir(mensaje.getTipo(), enCola, limiteCola);
+            if (admision == PoliticaDesborde.Admision.ENCOLAR) {
+                colaSalida.addLast(mensaje);
+                estadisticas.registrarProfundidad(enCola + 1);
+                hayMensajes.signal();
+                return true;
+            }
+        } finally {
+            cerrojoEnvio.unlock();
+        }
+        
+        if (admision == PoliticaDesborde.Admision.DESCARTAR) {
+            estadisticas.registrarDescarte();
             return false;
         }
+        System.err.println("[RED] " + nombrePeer + " no vacia su cola (" + enCola + " mensajes): se desconecta");
+        estadisticas.registrarDesborde();
+        cerrarAhora();
+        return false;
+    }
+    
+    /**
+     * Hilo escritor: toma todo lo pendiente, lo codifica y hace un solo flush
+     * Al cerrar termina de enviar lo que quedo en cola
+     */
+    private void escribirCola() {
+        List<MensajeJuego> lote = new ArrayList<>();
+        while (true) {
+            cerrojoEnvio.lock();
+            try {
+                while (conectado && (colaSalida.isEmpty() || codec == null)) {
+                    hayMensajes.await();
+                }
+                if (colaSalida.isEmpty() || codec == null) {
+                    break;
+                }
+                lote.addAll(colaSalida);
+                colaSalida.clear();
+                escribiendo = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                cerrojoEnvio.unlock();
+            }
+            
+            boolean error = false;
+            try {
+                long bytesAntes = contadorSalida.getBytes();
+                long inicio = System.nanoTime();
+                for (MensajeJuego mensaje : lote) {
+                    try {
+                        codec.agregar(mensaje);
+                    } catch (IllegalArgumentException e) {
+                        // Demasiado grande para una trama: se descarta sin cortar la conexion
+                        System.err.println("[RED] Mensaje descartado: " + e.getMessage());
+                        estadisticas.registrarDescarte();
+                    }
+                }
+                codec.vaciar();
+                estadisticas.registrarLote(lote.size(), contadorSalida.getBytes() - bytesAntes,
+                                           System.nanoTime() - inicio);
+            } catch (IOException e) {
+                if (conectado) {
+                    System.err.println("[RED] Error enviando mensaje: " + e.getMessage());
+                }
+                error = true;
+            }
+            lote.clear();
+            
+            cerrojoEnvio.lock();
+            try {
+                escribiendo = false;
+                if (error) {
+                    conectado = false;
+                    colaSalida.clear();
+                }
+                colaVaciada.signalAll();
+            } finally {
+                cerrojoEnvio.unlock();
+            }
+            if (error) {
+                break;
+            }
+        }
+        
+        cerrojoEnvio.lock();
+        try {
+            colaSalida.clear();
+            colaVaciada.signalAll();
+        } finally {
+            cerrojoEnvio.unlock();
+        }
     }
     
     /**
      * Cierra la conexión con este peer
      */
+    @Override
     public void cerrar() {
-        conectado = false;
+        // Se da un momento al escritor para enviar lo que ya estaba en cola
+        cerrojoEnvio.lock();
+        try {
+            conectado = false;
+            hayMensajes.signal();
+            long restante = TimeUnit.MILLISECONDS.toNanos(ESPERA_CIERRE_MS);
+            while ((escribiendo || (!colaSalida.isEmpty() && codec != null)) && restante > 0) {
+                restante = colaVaciada.awaitNanos(restante);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cerrojoEnvio.unlock();
+        }
+        cerrarAhora();
+    }
+    
+    /**
+     * Cierra el socket sin esperar la cola (peer rezagado, caido o error)
+     */
+    @Override
+    public void cerrarAhora() {
+        cerrojoEnvio.lock();
+        try {
+            conectado = false;
+            hayMensajes.signal();
+        } finally {
+            cerrojoEnvio.unlock();
+        }
         
+        // Solo el socket: cerrar los flujos con buffer chocaria con un escritor a medias
         try {
-            if (entrada != null) entrada.close();
-            if (salida != null) salida.close();
             if (socket != null && !socket.isClosed()) socket.close();
         } catch (IOException e) {
             System.err.println("[RED] Error cerrando conexion: " + e.getMessage());
         }
     }
     
+    @Override
     public boolean estaConectado() {
         return conectado && socket != null && !socket.isClosed();
     }
     
+    @Override
     public String getNombrePeer() {
         return nombrePeer;
     }
     
+    @Override
     public String getDireccion() {
         return socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
     }
-}
\ No newline at end of file
+    
+    /**
+     * true si la conexion saliente dio con un anfitrion de version anterior: ya recibio
+     * el preambulo binario y no lo entiende, hay que reconectar con serializacion
+     */
+    boolean esAnfitrionAnterior() {
+        return anfitrionAnterior;
+    }
+    
+    @Override
+    public TipoCodec getTipoCodec() {
+        CodecMensajes actual = codec;
+        return actual != null ? actual.getTipo() : null;
+    }
+    
+    @Override
+    public int getMensajesEnCola() {
+        cerrojoEnvio.lock();
+        try {
+            return colaSalida.size();
+        } finally {
+            cerrojoEnvio.unlock();
+        }
+    }
+    
+    @Override
+    public EstadisticasRed getEstadisticas() {
+        return estadisticas;
+    }
+}
@@ -0,0 +1,81 @@
+package red;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Flujos que cuentan los bytes que pasan por el socket
+ * La entrada ademas recuerda cuando llego el primer byte del mensaje en curso
+ */
+final class ContadorBytes {
+    
+    private ContadorBytes() {
+    }
+    
+    static final class Entrada extends FilterInputStream {
+        private long bytes;
+        private long inicioMensaje;
+        private boolean esperandoInicio = true;
+        
+        Entrada(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) contar(1);
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int desde, int largo) throws IOException {
+            int n = super.read(buffer, desde, largo);
+            if (n > 0) contar(n);
+            return n;
+        }
+        
+        private void contar(int n) {
+            if (esperandoInicio) {
+                inicioMensaje = System.nanoTime();
+                esperandoInicio = false;
+            }
+            bytes += n;
+        }
+        
+        /**
+         * Empieza a esperar el siguiente mensaje
+         */
+        void nuevoMensaje() {
+            esperandoInicio = true;
+        }
+        
+        long getBytes() { return bytes; }
+        long getInicioMensaje() { return inicioMensaje; }
+    }
+    
+    static final class Salida extends FilterOutputStream {
+        private long bytes;
+        
+        Salida(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+        
+        @Override
+        public void write(byte[] buffer, int desde, int largo) throws IOException {
+            out.write(buffer, desde, largo);
+            bytes += largo;
+        }
+        
+        long getBytes() { return bytes; }
+    }
+}
@@ -2,39 +2,80 @@ package red;
 
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 /**
  * Sistema de descubrimiento 
  * Funciona entre diferentes subredes en la misma PC
+ *
+ * Primero envia una sola consulta UDP (difusion de cada subred y grupo multicast)
+ * que contestan todos los jugadores en modo respuesta; en una LAN termina en
+ * VENTANA_DIFUSION_MS. Si nadie contesta (difusion bloqueada por el router o
+ * un peer antiguo), se recorre cada subred por TCP como antes
  */
 public class DescubrimientoRed {
+    // El mismo numero sirve para TCP y UDP
     private static final int PUERTO_DESCUBRIMIENTO = 9999;
     private static final String MENSAJE_PING = "PARCHIS_PING";
     private static final String MENSAJE_PONG = "PARCHIS_PONG";
+    private static final String MENSAJE_BUSCAR = "PARCHIS_BUSCAR";
+    /** Grupo multicast de ambito local (RFC 2365) para redes que filtran la difusion */
+    private static final String GRUPO_MULTICAST = "239.255.80.82";
+    /** Tiempo que se esperan respuestas a la consulta UDP */
+    private static final int VENTANA_DIFUSION_MS = 400;
+    /** Una busqueda conserva de antes solo a quien consulto en este plazo; lo anterior puede haberse ido */
+    private static final long VIGENCIA_ENCONTRADO_MS = 10_000;
     
     private String nombreJugador;
     private int puertoP2P;
     private long timestamp;
+    // Plazas que se anuncian: 1 mientras se busca oponente, 0 con la partida completa
+    private volatile int plazasLibres;
     private ServerSocket serverDescubrimiento;
-    private boolean escuchando;
+    private MulticastSocket socketDifusion;
+    private volatile boolean escuchando;
     private Thread hiloEscucha;
+    private Thread hiloDifusion;
     private List<JugadorEncontrado> jugadoresEncontrados;
     private ExecutorService executor;
     private Set<String> misIPs;
+    // Aviso de la busqueda en curso (null fuera de buscarJugadores)
+    private volatile Consumer<JugadorEncontrado> alEncontrar;
+    // Jugadores de busquedas anteriores (null = sin cache)
+    private volatile CacheDescubrimiento cache;
+    private boolean cacheCargada;
     
     public DescubrimientoRed(String nombreJugador, int puertoP2P) {
         this.nombreJugador = nombreJugador;
         this.puertoP2P = puertoP2P;
         this.timestamp = System.currentTimeMillis();
+        this.plazasLibres = 1;
         this.jugadoresEncontrados = new CopyOnWriteArrayList<>();
         this.escuchando = false;
         
-        // Reducir threads para evitar sobrecarga
+        // Atiende los PING TCP entrantes; el escaneo saliente no usa hilos (EscanerSubred)
+        // Con hilos de plataforma se limita el grupo; con hilos virtuales cada PING tiene el suyo
         int maxThreads = Math.min(Runtime.getRuntime().availableProcessors() * 2, 50);
-        this.executor = Executors.newFixedThreadPool(maxThreads);
+        this.executor = HilosRed.nuevoEjecutor("descubrimiento", maxThreads);
         this.misIPs = new HashSet<>();
+        this.cache = new CacheDescubrimiento(CacheDescubrimiento.rutaPorDefecto(),
+                                             CacheDescubrimiento.TTL_POR_DEFECTO_MS,
+                                             CacheDescubrimiento.CAPACIDAD_POR_DEFECTO);
+    }
+    
+    /**
+     * Cambia el archivo de la cache de jugadores recientes
+     * @param archivo Ruta del JSON o null para no usar cache
+     */
+    public void setCache(Path archivo) {
+        this.cache = archivo == null ? null : new CacheDescubrimiento(archivo,
+                                             CacheDescubrimiento.TTL_POR_DEFECTO_MS,
+                                             CacheDescubrimiento.CAPACIDAD_POR_DEFECTO);
+        this.cacheCargada = false;
     }
     
     /**
@@ -52,9 +93,8 @@ public class DescubrimientoRed {
                 // Solo interfaces activas y no loopback
                 if (!ni.isUp() || ni.isLoopback()) continue;
                 
-                Enumeration<InetAddress> addresses = ni.getInetAddresses();
-                while (addresses.hasMoreElements()) {
-                    InetAddress addr = addresses.nextElement();
+                for (InterfaceAddress direccion : ni.getInterfaceAddresses()) {
+                    InetAddress addr = direccion.getAddress();
                     
                     // Solo IPv4
                     if (!(addr instanceof Inet4Address)) continue;
@@ -62,21 +102,17 @@ public class DescubrimientoRed {
                     String ip = addr.getHostAddress();
                     misIPs.add(ip);
                     
-                    // Calcular subnet
-                    String[] octetos = ip.split("\\.");
-                    if (octetos.length == 4) {
-                        String baseIP = octetos[0] + "." + octetos[1] + "." + octetos[2] + ".";
-                        
-                        InterfazRed interfaz = new InterfazRed();
-                        interfaz.nombre = ni.getDisplayName();
-                        interfaz.ip = ip;
-                        interfaz.baseSubnet = baseIP;
-                        interfaces.add(interfaz);
-                        
-                        System.out.println("[DESCUBRIMIENTO] Interfaz detectada: " + interfaz.nombre);
-                        System.out.println("                 IP: " + ip);
-                        System.out.println("                 Subnet: " + baseIP + "0-255");
-                    }
+                    // Subnet con la longitud de prefijo real de la interfaz
+                    InterfazRed interfaz = new InterfazRed();
+                    interfaz.nombre = ni.getDisplayName();
+                    interfaz.direccion = (Inet4Address) addr;
+                    interfaz.prefijo = direccion.getNetworkPrefixLength();
+                    interfaz.difusion = direccion.getBroadcast();
+                    interfaces.add(interfaz);
+                    
+                    System.out.println("[DESCUBRIMIENTO] Interfaz detectada: " + interfaz.nombre);
+                    System.out.println("                 IP: " + ip);
+                    System.out.println("                 Subnet: " + ip + "/" + interfaz.prefijo);
                 }
             }
             
@@ -87,16 +123,15 @@ public class DescubrimientoRed {
         // Si no encontro nada, intentar metodo alternativo
         if (interfaces.isEmpty()) {
             try {
-                String ipLocal = InetAddress.getLocalHost().getHostAddress();
-                String[] octetos = ipLocal.split("\\.");
-                if (octetos.length == 4) {
-                    String baseIP = octetos[0] + "." + octetos[1] + "." + octetos[2] + ".";
+                InetAddress local = InetAddress.getLocalHost();
+                if (local instanceof Inet4Address ipLocal) {
+                    // Sin datos de la interfaz se supone una /24
                     InterfazRed interfaz = new InterfazRed();
                     interfaz.nombre = "Default";
-                    interfaz.ip = ipLocal;
-                    interfaz.baseSubnet = baseIP;
+                    interfaz.direccion = ipLocal;
+                    interfaz.prefijo = 24;
                     interfaces.add(interfaz);
-                    misIPs.add(ipLocal);
+                    misIPs.add(ipLocal.getHostAddress());
                 }
             } catch (Exception e) {
                 System.err.println("[DESCUBRIMIENTO] Error metodo alternativo: " + e.getMessage());
@@ -108,13 +143,15 @@ public class DescubrimientoRed {
     
     /**
      * Inicia modo de respuesta - servidor TCP que escucha conexiones
+     * y socket UDP que contesta las consultas por difusion o multicast
      */
     public void iniciarModoRespuesta() {
-        hiloEscucha = new Thread(() -> {
+        escuchando = true;
+        hiloDifusion = HilosRed.iniciar("descubrimiento-udp", this::escucharDifusion);
+        hiloEscucha = HilosRed.iniciar("descubrimiento-escucha", () -> {
             try {
                 serverDescubrimiento = new ServerSocket(PUERTO_DESCUBRIMIENTO);
                 serverDescubrimiento.setSoTimeout(1000);
-                escuchando = true;
                 
                 System.out.println("[DESCUBRIMIENTO] Servidor escuchando en puerto " + PUERTO_DESCUBRIMIENTO);
                 
@@ -134,7 +171,6 @@ public class DescubrimientoRed {
                 cerrarServidor();
             }
         });
-        hiloEscucha.start();
     }
     
     /**
@@ -160,9 +196,7 @@ public class DescubrimientoRed {
                                          " (desde " + cliente.getInetAddress().getHostAddress() + ")");
                         
                         // Responder inmediatamente
-                        String respuesta = MENSAJE_PONG + ":" + nombreJugador + ":" + 
-                                         puertoP2P + ":" + timestamp;
-                        salida.println(respuesta);
+                        salida.println(anuncio(MENSAJE_PONG));
                         salida.flush();
                         
                         System.out.println("[DESCUBRIMIENTO] >>> PONG enviado a " + nombreRemoto);
@@ -176,12 +210,107 @@ public class DescubrimientoRed {
         }
     }
     
+    /**
+     * Bucle del socket UDP del modo respuesta
+     * Varios jugadores en la misma PC comparten el puerto (SO_REUSEADDR de MulticastSocket)
+     * y todos reciben la difusion
+     */
+    private void escucharDifusion() {
+        try (MulticastSocket socket = new MulticastSocket(PUERTO_DESCUBRIMIENTO)) {
+            socketDifusion = socket;
+            socket.setSoTimeout(1000);
+            unirseAlGrupo(socket);
+            
+            System.out.println("[DESCUBRIMIENTO] Respondiendo consultas UDP en puerto " + PUERTO_DESCUBRIMIENTO);
+            
+            byte[] buffer = new byte[512];
+            while (escuchando && !Thread.currentThread().isInterrupted()) {
+                DatagramPacket paquete = new DatagramPacket(buffer, buffer.length);
+                try {
+                    socket.receive(paquete);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                String mensaje = new String(paquete.getData(), 0, paquete.getLength(), StandardCharsets.UTF_8);
+                if (!mensaje.startsWith(MENSAJE_BUSCAR + ":")) {
+                    continue;
+                }
+                String origen = paquete.getAddress().getHostAddress();
+                JugadorEncontrado remoto = leerAnuncio(mensaje, origen);
+                // No responderse a si mismo
+                if (remoto == null || remoto.nombre.equals(nombreJugador)) {
+                    continue;
+                }
+                
+                System.out.println("[DESCUBRIMIENTO] >>> Consulta UDP de: " + remoto.nombre + " (desde " + origen + ")");
+                byte[] respuesta = anuncio(MENSAJE_PONG).getBytes(StandardCharsets.UTF_8);
+                socket.send(new DatagramPacket(respuesta, respuesta.length, paquete.getSocketAddress()));
+                
+                // La consulta ya trae sus datos: si este lado tambien busca, lo encuentra
+                // aunque su propia consulta saliera antes de que el otro escuchara
+                registrar(remoto);
+            }
+        } catch (IOException e) {
+            if (escuchando) {
+                System.err.println("[DESCUBRIMIENTO] Error en socket UDP: " + e.getMessage());
+            }
+        } finally {
+            socketDifusion = null;
+        }
+    }
+    
+    /**
+     * Se une al grupo multicast en cada interfaz que lo admite
+     */
+    private void unirseAlGrupo(MulticastSocket socket) {
+        try {
+            InetSocketAddress grupo = new InetSocketAddress(InetAddress.getByName(GRUPO_MULTICAST), 0);
+            for (NetworkInterface ni : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!ni.isUp() || !ni.supportsMulticast()) continue;
+                try {
+                    socket.joinGroup(grupo, ni);
+                } catch (IOException e) {
+                    // Interfaz sin IPv4 o sin multicast real; basta con la difusion
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[DESCUBRIMIENTO] No se pudo unir al grupo multicast: " + e.getMessage());
+        }
+    }
+    
     /**
      * Busca jugadores en TODAS las subredes detectadas
+     * Primero sondea a los jugadores de la cache; si ninguno contesta, hace una
+     * consulta UDP y el escaneo TCP solo si tampoco contesta nadie
+     * La lista incluye tambien a quien consulto a este jugador mientras respondia
+     * (hasta VIGENCIA_ENCONTRADO_MS antes); lo de busquedas anteriores se descarta
+     * @param tiempoEspera Limite en segundos del escaneo TCP
      */
     public List<JugadorEncontrado> buscarJugadores(int tiempoEspera) {
-        jugadoresEncontrados.clear();
-        
+        return buscarJugadores(tiempoEspera, null);
+    }
+    
+    /**
+     * Igual que buscarJugadores(int), avisando de cada jugador en cuanto aparece
+     * @param alEncontrar Recibe cada jugador nuevo (hilo de la busqueda o del socket UDP); puede ser null
+     */
+    public List<JugadorEncontrado> buscarJugadores(int tiempoEspera, Consumer<JugadorEncontrado> alEncontrar) {
+        // Un jugador de una busqueda anterior haria saltar la cache y el escaneo sin que siga ahi
+        long limite = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(VIGENCIA_ENCONTRADO_MS);
+        synchronized (jugadoresEncontrados) {
+            jugadoresEncontrados.removeIf(j -> j.registradoNanos - limite < 0);
+        }
+        // Los que acaban de consultar a este jugador tambien se avisan
+        jugadoresEncontrados.forEach(j -> avisar(alEncontrar, j));
+        this.alEncontrar = alEncontrar;
+        try {
+            return buscar(tiempoEspera);
+        } finally {
+            this.alEncontrar = null;
+        }
+    }
+    
+    private List<JugadorEncontrado> buscar(int tiempoEspera) {
         List<InterfazRed> interfaces = obtenerTodasLasInterfaces();
         
         if (interfaces.isEmpty()) {
@@ -201,134 +330,250 @@ public class DescubrimientoRed {
         }
         System.out.println();
         
-        // Escanear todas las subredes en paralelo
-        CountDownLatch latch = new CountDownLatch(interfaces.size() * 255);
         long inicio = System.currentTimeMillis();
-        
-        for (InterfazRed interfaz : interfaces) {
-            String baseIP = interfaz.baseSubnet;
+        if (!buscarEnCache()) {
+            buscarPorDifusion(interfaces);
             
-            System.out.println("[DESCUBRIMIENTO] Escaneando subnet: " + baseIP + "0-255");
-            
-            for (int i = 1; i <= 255; i++) {
-                String ip = baseIP + i;
-                
-                // Saltar mis propias IPs
-                if (misIPs.contains(ip)) {
-                    latch.countDown();
-                    continue;
-                }
-                
-                final String ipFinal = ip;
-                executor.execute(() -> {
-                    try {
-                        intentarConectar(ipFinal);
-                    } finally {
-                        latch.countDown();
-                    }
-                });
+            if (jugadoresEncontrados.isEmpty()) {
+                System.out.println("[DESCUBRIMIENTO] Sin respuesta por UDP, escaneando por TCP...");
+                escanearTCP(interfaces, tiempoEspera);
             }
         }
-        
-        try {
-            boolean completado = latch.await(tiempoEspera, TimeUnit.SECONDS);
-            
-            if (!completado) {
-                System.out.println("[DESCUBRIMIENTO] Timeout de escaneo alcanzado");
-            }
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        if (cache != null) {
+            cache.guardar();
         }
         
-        long duracion = (System.currentTimeMillis() - inicio) / 1000;
+        long duracion = System.currentTimeMillis() - inicio;
         
         System.out.println("\n[DESCUBRIMIENTO] ==============================================");
-        System.out.println("[DESCUBRIMIENTO] Escaneo completado en " + duracion + " segundos");
+        System.out.println("[DESCUBRIMIENTO] Escaneo completado en " + duracion + " ms");
         System.out.println("[DESCUBRIMIENTO] Jugadores encontrados: " + jugadoresEncontrados.size());
         System.out.println("[DESCUBRIMIENTO] ==============================================\n");
         
         for (JugadorEncontrado j : jugadoresEncontrados) {
             System.out.println("  >>> " + j.nombre + " @ " + j.ip + ":" + j.puerto + 
-                             " (timestamp: " + j.timestamp + ")");
+                             " (timestamp: " + j.timestamp + ", plazas: " + j.plazasLibres + ")");
         }
         
         return new ArrayList<>(jugadoresEncontrados);
     }
     
     /**
-     * Intenta conectar a una IP especifica
+     * Sondea en paralelo las IPs de la cache y termina con la primera que responde
+     * @return true si se encontro algun jugador
      */
-    private void intentarConectar(String ip) {
-        Socket socket = null;
+    private boolean buscarEnCache() {
+        if (cache == null) {
+            return false;
+        }
+        if (!cacheCargada) {
+            cache.cargar();
+            cacheCargada = true;
+        }
+        
+        EscanerSubred escaner = new EscanerSubred(PUERTO_DESCUBRIMIENTO, anuncio(MENSAJE_PING), (ip, respuesta) -> {
+            if (respuesta.startsWith(MENSAJE_PONG)) {
+                procesarRespuesta(respuesta, ip);
+            }
+        });
+        int sondeados = 0;
+        for (CacheDescubrimiento.Entrada entrada : cache.vigentes()) {
+            if (misIPs.contains(entrada.ip)) continue;
+            try {
+                escaner.agregar(InetAddress.getByName(entrada.ip));
+                sondeados++;
+                System.out.println("[DESCUBRIMIENTO] En cache: " + entrada.nombre + " @ " + entrada.ip);
+            } catch (UnknownHostException e) {
+                // Entrada corrupta; caduca sola
+            }
+        }
+        if (sondeados == 0) {
+            return false;
+        }
+        
         try {
-            socket = new Socket();
-            socket.connect(new InetSocketAddress(ip, PUERTO_DESCUBRIMIENTO), 500);
-            
-            PrintWriter salida = new PrintWriter(socket.getOutputStream(), true);
-            BufferedReader entrada = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            
-            String mensaje = MENSAJE_PING + ":" + nombreJugador + ":" + puertoP2P + ":" + timestamp;
-            salida.println(mensaje);
-            salida.flush();
-            
-            socket.setSoTimeout(1000);
-            String respuesta = entrada.readLine();
+            escaner.escanear(EscanerSubred.PLAZO_CONEXION_MS + EscanerSubred.PLAZO_RESPUESTA_MS,
+                             () -> !jugadoresEncontrados.isEmpty());
+        } catch (IOException e) {
+            System.err.println("[DESCUBRIMIENTO] Error sondeando la cache: " + e.getMessage());
+        }
+        
+        if (jugadoresEncontrados.isEmpty()) {
+            System.out.println("[DESCUBRIMIENTO] Ningun jugador de la cache respondio");
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Envia una consulta a la difusion de cada subred y al grupo multicast
+     * y recoge las respuestas durante VENTANA_DIFUSION_MS
+     */
+    private void buscarPorDifusion(List<InterfazRed> interfaces) {
+        Set<InetAddress> destinos = new LinkedHashSet<>();
+        for (InterfazRed interfaz : interfaces) {
+            if (interfaz.difusion != null) {
+                destinos.add(interfaz.difusion);
+            }
+        }
+        
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setBroadcast(true);
+            if (destinos.isEmpty()) {
+                destinos.add(InetAddress.getByName("255.255.255.255"));
+            }
+            destinos.add(InetAddress.getByName(GRUPO_MULTICAST));
             
-            if (respuesta != null && respuesta.startsWith(MENSAJE_PONG)) {
-                procesarRespuesta(respuesta, ip);
+            byte[] consulta = anuncio(MENSAJE_BUSCAR).getBytes(StandardCharsets.UTF_8);
+            for (InetAddress destino : destinos) {
+                try {
+                    socket.send(new DatagramPacket(consulta, consulta.length, destino, PUERTO_DESCUBRIMIENTO));
+                    System.out.println("[DESCUBRIMIENTO] Consulta UDP enviada a " + destino.getHostAddress());
+                } catch (IOException e) {
+                    // Destino sin ruta (p. ej. multicast sin interfaz); se prueban los demas
+                }
             }
             
-        } catch (Exception e) {
-            // IP no responde, normal durante escaneo
-        } finally {
-            try {
-                if (socket != null && !socket.isClosed()) {
-                    socket.close();
+            byte[] buffer = new byte[512];
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(VENTANA_DIFUSION_MS);
+            long restante;
+            while ((restante = limite - System.nanoTime()) > 0) {
+                socket.setSoTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(restante)));
+                DatagramPacket paquete = new DatagramPacket(buffer, buffer.length);
+                try {
+                    socket.receive(paquete);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                String respuesta = new String(paquete.getData(), 0, paquete.getLength(), StandardCharsets.UTF_8);
+                if (respuesta.startsWith(MENSAJE_PONG + ":")) {
+                    procesarRespuesta(respuesta, paquete.getAddress().getHostAddress());
                 }
-            } catch (IOException e) {
-                // Ignorar
             }
+        } catch (IOException e) {
+            System.err.println("[DESCUBRIMIENTO] Error en consulta UDP: " + e.getMessage());
         }
     }
     
     /**
-     * Procesa respuesta PONG
+     * Escaneo de respaldo: una conexion TCP a cada direccion de cada subred,
+     * todas desde un Selector en este hilo (EscanerSubred)
      */
-    private void procesarRespuesta(String mensaje, String ip) {
+    private void escanearTCP(List<InterfazRed> interfaces, int tiempoEspera) {
+        EscanerSubred escaner = new EscanerSubred(PUERTO_DESCUBRIMIENTO, anuncio(MENSAJE_PING), (ip, respuesta) -> {
+            if (respuesta.startsWith(MENSAJE_PONG)) {
+                procesarRespuesta(respuesta, ip);
+            }
+        });
+        
+        int direcciones = 0;
+        for (InterfazRed interfaz : interfaces) {
+            int agregadas = escaner.agregarSubred(interfaz.direccion, interfaz.prefijo, misIPs);
+            direcciones += agregadas;
+            System.out.println("[DESCUBRIMIENTO] Escaneando subnet: " + interfaz.direccion.getHostAddress()
+                             + "/" + interfaz.prefijo + " (" + agregadas + " direcciones)");
+        }
+        
         try {
-            String[] partes = mensaje.split(":");
-            if (partes.length >= 4) {
-                String nombre = partes[1];
-                int puerto = Integer.parseInt(partes[2]);
-                long timestampRemoto = Long.parseLong(partes[3]);
-                
-                // No agregarse a si mismo
-                if (nombre.equals(nombreJugador)) {
+            escaner.escanear(TimeUnit.SECONDS.toMillis(tiempoEspera));
+        } catch (IOException e) {
+            System.err.println("[DESCUBRIMIENTO] Error en escaneo TCP: " + e.getMessage());
+        }
+        
+        int sinTerminar = direcciones - escaner.getRespondidas() - escaner.getAgotadas();
+        if (sinTerminar > 0) {
+            System.out.println("[DESCUBRIMIENTO] Timeout de escaneo alcanzado (" + sinTerminar + " sin sondear)");
+        }
+        System.out.println("[DESCUBRIMIENTO] Escaneo TCP: " + escaner.getRespondidas() + " respondieron, "
+                         + escaner.getAgotadas() + " sin respuesta, hasta "
+                         + escaner.getVentanaMaximaUsada() + " sondas en vuelo");
+    }
+    
+    /**
+     * Texto de un PING, PONG o consulta con los datos de este jugador
+     * nombre:puertoP2P:timestamp:plazasLibres
+     */
+    private String anuncio(String prefijo) {
+        return prefijo + ":" + nombreJugador + ":" + puertoP2P + ":" + timestamp + ":" + plazasLibres;
+    }
+    
+    /**
+     * Lee un anuncio; los peers anteriores no envian plazas y se supone una libre
+     * @return Jugador o null si el texto no es valido
+     */
+    private static JugadorEncontrado leerAnuncio(String mensaje, String ip) {
+        String[] partes = mensaje.split(":");
+        if (partes.length < 4) {
+            return null;
+        }
+        try {
+            int plazas = partes.length >= 5 ? Integer.parseInt(partes[4]) : 1;
+            return new JugadorEncontrado(partes[1], ip, Integer.parseInt(partes[2]),
+                                         Long.parseLong(partes[3]), plazas);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Procesa respuesta PONG (TCP o UDP)
+     */
+    private void procesarRespuesta(String mensaje, String ip) {
+        JugadorEncontrado jugador = leerAnuncio(mensaje, ip);
+        if (jugador == null) {
+            System.err.println("[DESCUBRIMIENTO] Respuesta invalida de " + ip);
+            return;
+        }
+        
+        // No agregarse a si mismo
+        if (jugador.nombre.equals(nombreJugador)) {
+            return;
+        }
+        registrar(jugador);
+    }
+    
+    /**
+     * Agrega un jugador si no estaba ya y tiene plazas libres
+     */
+    private void registrar(JugadorEncontrado jugador) {
+        if (jugador.plazasLibres <= 0) {
+            System.out.println("[DESCUBRIMIENTO] " + jugador.nombre + " no tiene plazas libres");
+            return;
+        }
+        
+        // Verificar duplicados
+        synchronized (jugadoresEncontrados) {
+            for (JugadorEncontrado j : jugadoresEncontrados) {
+                if (j.nombre.equals(jugador.nombre)) {
                     return;
                 }
-                
-                // Verificar duplicados
-                synchronized (jugadoresEncontrados) {
-                    for (JugadorEncontrado j : jugadoresEncontrados) {
-                        if (j.nombre.equals(nombre)) {
-                            return;
-                        }
-                    }
-                    
-                    JugadorEncontrado jugador = new JugadorEncontrado(nombre, ip, puerto, timestampRemoto);
-                    jugadoresEncontrados.add(jugador);
-                    
-                    System.out.println("\n[DESCUBRIMIENTO] *** JUGADOR ENCONTRADO ***");
-                    System.out.println("                 Nombre: " + nombre);
-                    System.out.println("                 IP: " + ip);
-                    System.out.println("                 Puerto P2P: " + puerto);
-                    System.out.println("                 Timestamp: " + timestampRemoto);
-                    System.out.println();
-                }
             }
-        } catch (Exception e) {
-            System.err.println("[DESCUBRIMIENTO] Error procesando respuesta: " + e.getMessage());
+            
+            jugador.registradoNanos = System.nanoTime();
+            jugadoresEncontrados.add(jugador);
+            if (cache != null) {
+                cache.recordar(jugador);
+            }
+            
+            System.out.println("\n[DESCUBRIMIENTO] *** JUGADOR ENCONTRADO ***");
+            System.out.println("                 Nombre: " + jugador.nombre);
+            System.out.println("                 IP: " + jugador.ip);
+            System.out.println("                 Puerto P2P: " + jugador.puerto);
+            System.out.println("                 Timestamp: " + jugador.timestamp);
+            System.out.println("                 Plazas libres: " + jugador.plazasLibres);
+            System.out.println();
+        }
+        // Fuera del cerrojo: el aviso puede tardar o volver a buscar
+        avisar(alEncontrar, jugador);
+    }
+    
+    private static void avisar(Consumer<JugadorEncontrado> alEncontrar, JugadorEncontrado jugador) {
+        if (alEncontrar != null) {
+            try {
+                alEncontrar.accept(jugador);
+            } catch (RuntimeException e) {
+                System.err.println("[DESCUBRIMIENTO] Error avisando jugador encontrado: " + e.getMessage());
+            }
         }
     }
     
@@ -337,13 +582,16 @@ public class DescubrimientoRed {
      */
     public void detenerModoRespuesta() {
         escuchando = false;
+        cerrarDifusion();
         
-        if (hiloEscucha != null) {
-            hiloEscucha.interrupt();
-            try {
-                hiloEscucha.join(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        for (Thread hilo : new Thread[]{hiloEscucha, hiloDifusion}) {
+            if (hilo != null) {
+                hilo.interrupt();
+                try {
+                    hilo.join(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
         }
         
@@ -366,6 +614,16 @@ public class DescubrimientoRed {
         }
     }
     
+    /**
+     * Cierra el socket UDP del modo respuesta (desbloquea su receive)
+     */
+    private void cerrarDifusion() {
+        MulticastSocket socket = socketDifusion;
+        if (socket != null) {
+            socket.close();
+        }
+    }
+    
     /**
      * Obtiene el timestamp de este jugador
      */
@@ -373,13 +631,25 @@ public class DescubrimientoRed {
         return timestamp;
     }
     
+    /**
+     * Plazas que se anuncian a quien busca (0 = no aparecer como oponente)
+     */
+    public void setPlazasLibres(int plazasLibres) {
+        this.plazasLibres = Math.max(0, plazasLibres);
+    }
+    
+    public int getPlazasLibres() {
+        return plazasLibres;
+    }
+    
     /**
      * Clase interna para representar una interfaz de red
      */
     private static class InterfazRed {
         String nombre;
-        String ip;
-        String baseSubnet;
+        Inet4Address direccion;
+        int prefijo;
+        InetAddress difusion;
     }
     
     /**
@@ -390,17 +660,25 @@ public class DescubrimientoRed {
         public String ip;
         public int puerto;
         public long timestamp;
+        public int plazasLibres;
+        // Cuando entro en la lista de encontrados (System.nanoTime)
+        long registradoNanos;
         
         public JugadorEncontrado(String nombre, String ip, int puerto, long timestamp) {
+            this(nombre, ip, puerto, timestamp, 1);
+        }
+        
+        public JugadorEncontrado(String nombre, String ip, int puerto, long timestamp, int plazasLibres) {
             this.nombre = nombre;
             this.ip = ip;
             this.puerto = puerto;
             this.timestamp = timestamp;
+            this.plazasLibres = plazasLibres;
         }
         
         @Override
         public String toString() {
-            return nombre + " @ " + ip + ":" + puerto + " (ts:" + timestamp + ")";
+            return nombre + " @ " + ip + ":" + puerto + " (ts:" + timestamp + ", plazas:" + plazasLibres + ")";
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package red;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado del enlace simulado de un peer: sorteos con semilla propia y,
+ * por sentido, el instante en que el enlace vuelve a estar libre
+ * (el ancho de banda y las congelaciones retrasan a los mensajes que vienen detras)
+ */
+final class EnlaceSimulado {
+    private static final double ALFA_PARETO = 2.0;
+    
+    private final PerfilEnlace perfil;
+    private final SplittableRandom aleatorio;
+    private long libreSubida;
+    private long libreBajada;
+    // Contador de la red: sigue sumando aunque el perfil del peer cambie
+    private final AtomicLong estancamientos;
+    
+    EnlaceSimulado(PerfilEnlace perfil, long semilla, AtomicLong estancamientos) {
+        this.perfil = perfil;
+        this.aleatorio = new SplittableRandom(semilla);
+        this.estancamientos = estancamientos;
+    }
+    
+    /**
+     * Instante (nanoTime) en que un mensaje que entra al enlace en desde sale por el otro lado
+     * @param subida true si lo envia este peer; false si lo recibe
+     */
+    synchronized long atravesar(int bytes, boolean subida, long desde) {
+        long inicio = Math.max(desde, subida ? libreSubida : libreBajada);
+        if (perfil.estancamiento() > 0 && aleatorio.nextDouble() < perfil.estancamiento()) {
+            inicio += TimeUnit.MILLISECONDS.toNanos(perfil.estancamientoMs());
+            estancamientos.incrementAndGet();
+        }
+        long fin = inicio;
+        if (perfil.bytesPorSegundo() > 0) {
+            fin += bytes * 1_000_000_000L / perfil.bytesPorSegundo();
+        }
+        if (subida) {
+            libreSubida = fin;
+        } else {
+            libreBajada = fin;
+        }
+        return fin + retardo();
+    }
+    
+    private long retardo() {
+        double ms = perfil.latenciaMs();
+        double jitter = perfil.jitterMs();
+        if (jitter > 0) {
+            switch (perfil.distribucion()) {
+                case UNIFORME -> ms += (aleatorio.nextDouble() * 2 - 1) * jitter;
+                case NORMAL -> ms += normal() * jitter;
+                // Media de la cola: escala / (alfa - 1) = jitter
+                case PARETO -> ms += jitter * (ALFA_PARETO - 1) * (Math.pow(1 - aleatorio.nextDouble(), -1 / ALFA_PARETO) - 1);
+                case FIJA -> { }
+            }
+        }
+        return (long) (Math.max(0, ms) * 1_000_000);
+    }
+    
+    /**
+     * Normal estandar por Box-Muller
+     */
+    private double normal() {
+        double u = 1 - aleatorio.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * aleatorio.nextDouble());
+    }
+    
+    synchronized boolean reordenar() {
+        return perfil.reordenar() > 0 && aleatorio.nextDouble() < perfil.reordenar();
+    }
+    
+    synchronized boolean reiniciar() {
+        return perfil.reinicio() > 0 && aleatorio.nextDouble() < perfil.reinicio();
+    }
+    
+    boolean limitaAnchoBanda() {
+        return perfil.bytesPorSegundo() > 0;
+    }
+    
+    PerfilEnlace getPerfil() {
+        return perfil;
+    }
+}
@@ -0,0 +1,372 @@
+package red;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Escaneo TCP no bloqueante de subredes para DescubrimientoRed
+ * Un solo Selector en el hilo que llama lleva cientos de conexiones a la vez:
+ * conecta, envia el PING y entrega cada linea de respuesta en cuanto llega
+ *
+ * Las sondas en vuelo se ajustan con AIMD por epocas de PLAZO_CONEXION_MS.
+ * Las direcciones vacias tambien agotan el plazo, asi que un plazo agotado por si
+ * solo no indica nada; la ventana se reduce a la mitad cuando la proporcion de
+ * plazos agotados entre las sondas lanzadas en una epoca supera en MARGEN_PERDIDA
+ * a su media reciente (la red o el router empiezan a descartar) o el sistema no
+ * deja abrir mas sockets, y en otro caso crece AUMENTO_POR_EPOCA
+ * Una epoca se evalua al final de la siguiente, cuando todas sus sondas ya
+ * conectaron, fueron rechazadas o agotaron el plazo
+ */
+final class EscanerSubred {
+    /** Plazo para que una direccion acepte o rechace la conexion */
+    static final int PLAZO_CONEXION_MS = 500;
+    /** Plazo para la respuesta una vez conectado */
+    static final int PLAZO_RESPUESTA_MS = 1000;
+    static final int VENTANA_INICIAL = 256;
+    static final int VENTANA_MINIMA = 16;
+    /** Por debajo del limite habitual de 1024 descriptores por proceso */
+    static final int VENTANA_MAXIMA = 768;
+    /** Subredes mayores se recortan a este prefijo alrededor de la IP propia (1022 direcciones) */
+    static final int MIN_PREFIJO = 22;
+    private static final int AUMENTO_POR_EPOCA = 64;
+    private static final double MARGEN_PERDIDA = 0.25;
+    /** Finalizadas minimas para que una epoca cuente */
+    private static final int MIN_MUESTRAS = 8;
+    private static final int MAX_LINEA = 256;
+    
+    private final int puerto;
+    private final byte[] ping;
+    private final BiConsumer<String, String> alResponder;
+    private final ArrayDeque<InetAddress> pendientes;
+    private int ventana;
+    private int enVuelo;
+    // Media movil de la proporcion de plazos agotados (-1 hasta la primera epoca)
+    private double perdidaMedia;
+    private int respondidas;
+    private int agotadas;
+    // Resultados por epoca de lanzamiento: la actual y la anterior (indice epoca & 1)
+    private final int[] respondidasEpoca;
+    private final int[] agotadasEpoca;
+    private int epoca;
+    private int ventanaMaximaUsada;
+    
+    /**
+     * @param ping Linea que se envia al conectar (sin salto de linea)
+     * @param alResponder Recibe la IP y la linea de respuesta, en el hilo que escanea
+     */
+    EscanerSubred(int puerto, String ping, BiConsumer<String, String> alResponder) {
+        this.puerto = puerto;
+        this.ping = (ping + "\n").getBytes(StandardCharsets.UTF_8);
+        this.alResponder = alResponder;
+        this.pendientes = new ArrayDeque<>();
+        this.ventana = VENTANA_INICIAL;
+        this.perdidaMedia = -1;
+        this.respondidasEpoca = new int[2];
+        this.agotadasEpoca = new int[2];
+    }
+    
+    /**
+     * Agrega los hosts de la subred de una direccion con su longitud de prefijo real
+     * @param excluidas IPs que no se sondean (las propias)
+     * @return Direcciones agregadas
+     */
+    int agregarSubred(Inet4Address direccion, int prefijo, Set<String> excluidas) {
+        int bits = Math.max(prefijo, MIN_PREFIJO);
+        if (bits >= 32) {
+            return 0;
+        }
+        int ip = aEntero(direccion);
+        int mascara = -1 << (32 - bits);
+        int red = ip & mascara;
+        int difusion = red | ~mascara;
+        // En /31 (enlaces punto a punto) las dos direcciones son hosts
+        int primera = bits == 31 ? red : red + 1;
+        int ultima = bits == 31 ? difusion : difusion - 1;
+        
+        int agregadas = 0;
+        for (int host = primera; Integer.compareUnsigned(host, ultima) <= 0; host++) {
+            InetAddress candidata = aDireccion(host);
+            if (!excluidas.contains(candidata.getHostAddress())) {
+                pendientes.add(candidata);
+                agregadas++;
+            }
+            if (host == ultima) break;
+        }
+        return agregadas;
+    }
+    
+    /**
+     * Agrega una sola direccion (p. ej. un jugador de CacheDescubrimiento)
+     */
+    void agregar(InetAddress direccion) {
+        pendientes.add(direccion);
+    }
+    
+    /**
+     * Sondea todas las direcciones agregadas
+     * @param plazoTotalMs Tiempo maximo del escaneo completo
+     */
+    void escanear(long plazoTotalMs) throws IOException {
+        escanear(plazoTotalMs, () -> false);
+    }
+    
+    /**
+     * Sondea las direcciones agregadas hasta terminarlas o hasta que se cumpla la condicion
+     * @param terminado Se consulta tras cada respuesta y en cada vuelta del bucle
+     */
+    void escanear(long plazoTotalMs, BooleanSupplier terminado) throws IOException {
+        try (Selector selector = Selector.open()) {
+            long fin = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(plazoTotalMs);
+            long finEpoca = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PLAZO_CONEXION_MS);
+            
+            while ((!pendientes.isEmpty() || enVuelo > 0) && !terminado.getAsBoolean() && System.nanoTime() < fin) {
+                lanzar(selector);
+                selector.select(50);
+                
+                Iterator<SelectionKey> listas = selector.selectedKeys().iterator();
+                while (listas.hasNext() && !terminado.getAsBoolean()) {
+                    SelectionKey clave = listas.next();
+                    listas.remove();
+                    atender(clave);
+                }
+                
+                long ahora = System.nanoTime();
+                expirar(selector, ahora);
+                if (ahora >= finEpoca) {
+                    ajustarVentana();
+                    finEpoca = ahora + TimeUnit.MILLISECONDS.toNanos(PLAZO_CONEXION_MS);
+                }
+            }
+            
+            for (SelectionKey clave : selector.keys()) {
+                cerrar(clave);
+            }
+        }
+    }
+    
+    /**
+     * Abre conexiones hasta llenar la ventana
+     */
+    private void lanzar(Selector selector) {
+        while (enVuelo < ventana && !pendientes.isEmpty()) {
+            InetAddress destino = pendientes.poll();
+            SocketChannel canal = null;
+            try {
+                canal = SocketChannel.open();
+                canal.configureBlocking(false);
+                Sondeo sondeo = new Sondeo(destino.getHostAddress(), ping, epoca);
+                sondeo.limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PLAZO_CONEXION_MS);
+                // Si conecta en el acto (misma maquina) se envia el PING con el primer OP_WRITE
+                if (canal.connect(new InetSocketAddress(destino, puerto))) {
+                    canal.register(selector, SelectionKey.OP_WRITE, sondeo);
+                    marcarConectada(sondeo);
+                } else {
+                    canal.register(selector, SelectionKey.OP_CONNECT, sondeo);
+                }
+                enVuelo++;
+            } catch (IOException e) {
+                cerrarCanal(canal);
+                if (esFaltaDeRecursos(e)) {
+                    // Sin descriptores o buffers: se reintenta con la mitad
+                    pendientes.addFirst(destino);
+                    ventana = Math.max(VENTANA_MINIMA, Math.min(ventana, enVuelo) / 2);
+                    return;
+                }
+                // Direccion sin ruta u otro rechazo inmediato: hay respuesta, no hay jugador
+                respondidas++;
+                respondidasEpoca[epoca & 1]++;
+            }
+        }
+        ventanaMaximaUsada = Math.max(ventanaMaximaUsada, enVuelo);
+    }
+    
+    private void atender(SelectionKey clave) {
+        if (!clave.isValid()) {
+            return;
+        }
+        Sondeo sondeo = (Sondeo) clave.attachment();
+        SocketChannel canal = (SocketChannel) clave.channel();
+        try {
+            if (clave.isConnectable()) {
+                canal.finishConnect();
+                alConectar(clave, sondeo);
+            } else if (clave.isWritable()) {
+                escribir(clave, sondeo);
+            } else if (clave.isReadable()) {
+                leer(clave, sondeo);
+            }
+        } catch (IOException e) {
+            // Rechazo, host inalcanzable o cierre: respuesta sin jugador
+            // (un finishConnect fallido ya cerro el canal y anulo la clave)
+            terminar(clave, true);
+        }
+    }
+    
+    private void alConectar(SelectionKey clave, Sondeo sondeo) throws IOException {
+        marcarConectada(sondeo);
+        escribir(clave, sondeo);
+    }
+    
+    /**
+     * Hay alguien en la direccion: cuenta como respondida y el plazo pasa a ser el de la respuesta
+     */
+    private void marcarConectada(Sondeo sondeo) {
+        sondeo.conectada = true;
+        sondeo.limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PLAZO_RESPUESTA_MS);
+        respondidas++;
+        respondidasEpoca[sondeo.epoca & 1]++;
+    }
+    
+    private void escribir(SelectionKey clave, Sondeo sondeo) throws IOException {
+        ((SocketChannel) clave.channel()).write(sondeo.salida);
+        clave.interestOps(sondeo.salida.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+    
+    private void leer(SelectionKey clave, Sondeo sondeo) throws IOException {
+        int leidos = ((SocketChannel) clave.channel()).read(sondeo.entrada);
+        ByteBuffer entrada = sondeo.entrada;
+        for (int i = 0; i < entrada.position(); i++) {
+            if (entrada.get(i) == '\n') {
+                String linea = new String(entrada.array(), 0, i, StandardCharsets.UTF_8).strip();
+                terminar(clave, true);
+                alResponder.accept(sondeo.ip, linea);
+                return;
+            }
+        }
+        if (leidos < 0 || !entrada.hasRemaining()) {
+            terminar(clave, true);
+        }
+    }
+    
+    /**
+     * Cierra las sondas cuyo plazo ya paso
+     */
+    private void expirar(Selector selector, long ahora) {
+        for (SelectionKey clave : selector.keys()) {
+            if (clave.isValid() && ahora - ((Sondeo) clave.attachment()).limite > 0) {
+                terminar(clave, false);
+            }
+        }
+    }
+    
+    /**
+     * Cierra una sonda; si aun no habia conectado se cuenta como respondida o agotada
+     */
+    private void terminar(SelectionKey clave, boolean respondio) {
+        Sondeo sondeo = (Sondeo) clave.attachment();
+        if (sondeo.terminada) {
+            return;
+        }
+        sondeo.terminada = true;
+        cerrar(clave);
+        enVuelo--;
+        if (sondeo.conectada) {
+            return;
+        }
+        if (respondio) {
+            respondidas++;
+            respondidasEpoca[sondeo.epoca & 1]++;
+        } else {
+            agotadas++;
+            agotadasEpoca[sondeo.epoca & 1]++;
+        }
+    }
+    
+    /**
+     * AIMD al final de cada epoca con los resultados de la anterior
+     */
+    private void ajustarVentana() {
+        int anterior = (epoca - 1) & 1;
+        int finalizadas = respondidasEpoca[anterior] + agotadasEpoca[anterior];
+        double perdida = finalizadas > 0 ? (double) agotadasEpoca[anterior] / finalizadas : 0;
+        // El hueco de la anterior pasa a ser el de la siguiente
+        respondidasEpoca[anterior] = 0;
+        agotadasEpoca[anterior] = 0;
+        epoca++;
+        if (finalizadas < MIN_MUESTRAS) {
+            return;
+        }
+        
+        if (perdidaMedia >= 0 && perdida > perdidaMedia + MARGEN_PERDIDA) {
+            ventana = Math.max(VENTANA_MINIMA, ventana / 2);
+        } else {
+            ventana = Math.min(VENTANA_MAXIMA, ventana + AUMENTO_POR_EPOCA);
+        }
+        // Misma ganancia de 1/4 que la variacion del RTT en LatidosPeer
+        perdidaMedia = perdidaMedia < 0 ? perdida : perdidaMedia + (perdida - perdidaMedia) / 4;
+    }
+    
+    private static boolean esFaltaDeRecursos(IOException e) {
+        String mensaje = String.valueOf(e.getMessage());
+        return mensaje.contains("Too many open files") || mensaje.contains("No buffer space");
+    }
+    
+    private static void cerrar(SelectionKey clave) {
+        clave.cancel();
+        cerrarCanal(clave.channel());
+    }
+    
+    private static void cerrarCanal(Channel canal) {
+        if (canal != null) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // Ignorar
+            }
+        }
+    }
+    
+    private static int aEntero(Inet4Address direccion) {
+        byte[] b = direccion.getAddress();
+        return (b[0] & 0xFF) << 24 | (b[1] & 0xFF) << 16 | (b[2] & 0xFF) << 8 | (b[3] & 0xFF);
+    }
+    
+    private static InetAddress aDireccion(int ip) {
+        try {
+            return InetAddress.getByAddress(new byte[]{(byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip});
+        } catch (UnknownHostException e) {
+            // Imposible con 4 bytes
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    int getRespondidas() { return respondidas; }
+    int getAgotadas() { return agotadas; }
+    int getVentana() { return ventana; }
+    int getVentanaMaximaUsada() { return ventanaMaximaUsada; }
+    
+    /**
+     * Estado de una conexion de sondeo
+     */
+    private static final class Sondeo {
+        final String ip;
+        final ByteBuffer salida;
+        final ByteBuffer entrada;
+        final int epoca;
+        long limite;
+        boolean conectada;
+        boolean terminada;
+        
+        Sondeo(String ip, byte[] ping, int epoca) {
+            this.ip = ip;
+            this.epoca = epoca;
+            this.salida = ByteBuffer.wrap(ping);
+            this.entrada = ByteBuffer.allocate(MAX_LINEA);
+        }
+    }
+}
@@ -8,10 +8,26 @@ public interface EscuchaRed {
     /**
      * Se llama cuando se recibe un mensaje de un peer
      */
-    void alRecibirMensaje(MensajeJuego mensaje, ConexionPeer desde);
+    void alRecibirMensaje(MensajeJuego mensaje, Conexion desde);
     
     /**
      * Se llama cuando un peer se desconecta
      */
-    void alDesconectarPeer(ConexionPeer peer);
+    void alDesconectarPeer(Conexion peer);
+    
+    /**
+     * Se llama cuando faltan mensajes de una sesion (el peer ya no los tenia para reenviar)
+     * El mensaje recibido se entrega igualmente despues de este aviso
+     * @param esperada Primer numero que no llego
+     * @param recibida Numero del mensaje que llego en su lugar
+     */
+    default void alDetectarHueco(Conexion desde, long esperada, long recibida) {
+    }
+    
+    /**
+     * Se llama cuando la reconexion llega tarde: el peer ya habia cerrado la sesion
+     * y abre una nueva, asi que lo enviado durante el corte se perdio en los dos sentidos
+     */
+    default void alReconectarSinSesion(Conexion peer) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package red;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de trafico y coste de codificacion de una o varias conexiones
+ * Seguros entre hilos; pensados para medir bytes por turno y latencia del codec
+ * y el comportamiento de las colas de salida (vaciados, descartes, profundidad)
+ */
+public class EstadisticasRed {
+    private final LongAdder mensajesEnviados = new LongAdder();
+    private final LongAdder bytesEnviados = new LongAdder();
+    private final LongAdder nanosCodificacion = new LongAdder();
+    private final LongAdder mensajesRecibidos = new LongAdder();
+    private final LongAdder bytesRecibidos = new LongAdder();
+    private final LongAdder nanosDecodificacion = new LongAdder();
+    private final LongAdder vaciados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder desbordes = new LongAdder();
+    private final LongAdder caidas = new LongAdder();
+    private final LongAccumulator profundidadMaxima = new LongAccumulator(Math::max, 0);
+    
+    void registrarEnvio(long bytes, long nanos) {
+        mensajesEnviados.increment();
+        bytesEnviados.add(bytes);
+        nanosCodificacion.add(nanos);
+    }
+    
+    /**
+     * Varios mensajes escritos con un solo vaciado del flujo
+     */
+    void registrarLote(int mensajes, long bytes, long nanos) {
+        mensajesEnviados.add(mensajes);
+        bytesEnviados.add(bytes);
+        nanosCodificacion.add(nanos);
+        vaciados.increment();
+    }
+    
+    /**
+     * Una escritura al socket (con uno o varios mensajes)
+     */
+    void registrarVaciado() {
+        vaciados.increment();
+    }
+    
+    void registrarDescarte() {
+        descartados.increment();
+    }
+    
+    /**
+     * El peer se desconecto por no vaciar su cola
+     */
+    void registrarDesborde() {
+        desbordes.increment();
+    }
+    
+    /**
+     * El peer se desconecto por dejar de responder a los latidos
+     */
+    void registrarCaida() {
+        caidas.increment();
+    }
+    
+    void registrarProfundidad(int enCola) {
+        profundidadMaxima.accumulate(enCola);
+    }
+    
+    void registrarRecepcion(long bytes, long nanos) {
+        mensajesRecibidos.increment();
+        bytesRecibidos.add(bytes);
+        nanosDecodificacion.add(nanos);
+    }
+    
+    /**
+     * Suma los contadores de otra estadistica (para totales del gestor)
+     */
+    public void acumular(EstadisticasRed otra) {
+        mensajesEnviados.add(otra.getMensajesEnviados());
+        bytesEnviados.add(otra.getBytesEnviados());
+        nanosCodificacion.add(otra.nanosCodificacion.sum());
+        mensajesRecibidos.add(otra.getMensajesRecibidos());
+        bytesRecibidos.add(otra.getBytesRecibidos());
+        nanosDecodificacion.add(otra.nanosDecodificacion.sum());
+        vaciados.add(otra.getVaciados());
+        descartados.add(otra.getDescartados());
+        desbordes.add(otra.getDesbordes());
+        caidas.add(otra.getCaidas());
+        profundidadMaxima.accumulate(otra.getProfundidadMaxima());
+    }
+    
+    public long getMensajesEnviados() { return mensajesEnviados.sum(); }
+    public long getBytesEnviados() { return bytesEnviados.sum(); }
+    public long getMensajesRecibidos() { return mensajesRecibidos.sum(); }
+    public long getBytesRecibidos() { return bytesRecibidos.sum(); }
+    public long getVaciados() { return vaciados.sum(); }
+    public long getDescartados() { return descartados.sum(); }
+    public long getDesbordes() { return desbordes.sum(); }
+    public long getCaidas() { return caidas.sum(); }
+    /** Mayor cantidad de mensajes que llego a esperar en una cola de salida */
+    public long getProfundidadMaxima() { return profundidadMaxima.get(); }
+    /** Mensajes que salen en cada vaciado; mayor que 1 si la cola agrupa envios */
+    public double getMensajesPorVaciado() { return promedio(mensajesEnviados.sum(), vaciados.sum()); }
+    
+    public double getBytesPorMensajeEnviado() { return promedio(bytesEnviados.sum(), mensajesEnviados.sum()); }
+    public double getBytesPorMensajeRecibido() { return promedio(bytesRecibidos.sum(), mensajesRecibidos.sum()); }
+    /** Microsegundos promedio para codificar y escribir un mensaje */
+    public double getMicrosCodificacion() { return promedio(nanosCodificacion.sum(), mensajesEnviados.sum()) / 1000.0; }
+    /** Microsegundos promedio para decodificar un mensaje desde que llega su primer byte */
+    public double getMicrosDecodificacion() { return promedio(nanosDecodificacion.sum(), mensajesRecibidos.sum()) / 1000.0; }
+    
+    private static double promedio(long total, long cantidad) {
+        return cantidad == 0 ? 0 : (double) total / cantidad;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("enviados=%d (%.1f B/msg, %.1f us, %.2f msg/vaciado) recibidos=%d (%.1f B/msg, %.1f us)"
+                           + " cola max=%d descartados=%d desbordes=%d caidas=%d",
+            getMensajesEnviados(), getBytesPorMensajeEnviado(), getMicrosCodificacion(), getMensajesPorVaciado(),
+            getMensajesRecibidos(), getBytesPorMensajeRecibido(), getMicrosDecodificacion(),
+            getProfundidadMaxima(), getDescartados(), getDesbordes(), getCaidas());
+    }
+}
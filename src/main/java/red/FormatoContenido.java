@@ -0,0 +1,97 @@
+package red;
+
+/**
+ * Conversion entre la carga tipada de un mensaje y su texto
+ * El texto solo se usa con el codec de serializacion (peers de versiones anteriores)
+ * y cuando alguien pide getContenido(); el codec binario envia la carga como varints
+ */
+final class FormatoContenido {
+    private static final String[] CLAVES_MOVIMIENTO = {"jugador", "ficha", "dado"};
+    
+    private FormatoContenido() {
+    }
+    
+    /**
+     * Carga del contenido de texto si el tipo la tiene
+     * @return Carga o null si el tipo no es tipado o el texto no es valido
+     */
+    static CargaMensaje leer(MensajeJuego.TipoMensaje tipo, String contenido) {
+        if (contenido == null) {
+            return null;
+        }
+        CargaMensaje carga;
+        try {
+            switch (tipo) {
+                case MOVIMIENTO:
+                    String[] partes = contenido.split(",", -1);
+                    if (partes.length != CLAVES_MOVIMIENTO.length) {
+                        return null;
+                    }
+                    int[] valores = new int[partes.length];
+                    for (int i = 0; i < partes.length; i++) {
+                        String prefijo = CLAVES_MOVIMIENTO[i] + ":";
+                        if (!partes[i].startsWith(prefijo)) {
+                            return null;
+                        }
+                        valores[i] = Integer.parseInt(partes[i].substring(prefijo.length()));
+                    }
+                    carga = new CargaMensaje.Movimiento(valores[0], valores[1], valores[2]);
+                    break;
+                case CAMBIO_TURNO:
+                    carga = new CargaMensaje.CambioTurno(Integer.parseInt(contenido));
+                    break;
+                case TIRADA_DADO:
+                    carga = new CargaMensaje.TiradaDado(Integer.parseInt(contenido));
+                    break;
+                case ESTADO_JUEGO:
+                    // Lista de enteros de SincronizacionEstado
+                    String[] campos = contenido.split(",", -1);
+                    int[] lista = new int[campos.length];
+                    for (int i = 0; i < campos.length; i++) {
+                        lista[i] = Integer.parseInt(campos[i]);
+                    }
+                    carga = new CargaMensaje.EstadoJuego(lista);
+                    break;
+                case LATIDO:
+                    boolean eco = contenido.startsWith("eco:");
+                    if (!eco && !contenido.startsWith("ping:")) {
+                        return null;
+                    }
+                    carga = new CargaMensaje.Latido(Integer.parseInt(contenido.substring(eco ? 4 : 5)), eco);
+                    break;
+                default:
+                    return null;
+            }
+        } catch (IllegalArgumentException e) {
+            // Incluye NumberFormatException y los campos fuera de rango
+            return null;
+        }
+        
+        // Solo si el texto se reconstruye exactamente (sin ceros a la izquierda, signos '+', etc.)
+        return contenido.equals(formatear(carga)) ? carga : null;
+    }
+    
+    /**
+     * Texto del contenido a partir de su carga
+     */
+    static String formatear(CargaMensaje carga) {
+        return switch (carga) {
+            case CargaMensaje.Movimiento m ->
+                CLAVES_MOVIMIENTO[0] + ":" + m.jugador() + ","
+                + CLAVES_MOVIMIENTO[1] + ":" + m.ficha() + ","
+                + CLAVES_MOVIMIENTO[2] + ":" + m.dado();
+            case CargaMensaje.CambioTurno c -> String.valueOf(c.jugador());
+            case CargaMensaje.TiradaDado t -> String.valueOf(t.valor());
+            case CargaMensaje.Latido l -> (l.eco() ? "eco:" : "ping:") + l.numero();
+            case CargaMensaje.EstadoJuego e -> {
+                StringBuilder texto = new StringBuilder();
+                int[] valores = e.valores();
+                for (int i = 0; i < valores.length; i++) {
+                    if (i > 0) texto.append(',');
+                    texto.append(valores[i]);
+                }
+                yield texto.toString();
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package red;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Origen de todos los hilos bloqueantes de la capa de red
+ * (lectores de ConexionPeer, aceptacion de TransporteTCP y DescubrimientoRed)
+ * Un solo interruptor elige hilos de plataforma o hilos virtuales de Java 21:
+ * setVirtuales(true) o -Dparchis.hilosVirtuales=true
+ * Solo afecta a los hilos creados despues del cambio
+ */
+public final class HilosRed {
+    public static final String PROPIEDAD = "parchis.hilosVirtuales";
+    
+    private static volatile boolean virtuales = Boolean.getBoolean(PROPIEDAD);
+    
+    private HilosRed() {
+    }
+    
+    public static void setVirtuales(boolean usarVirtuales) {
+        virtuales = usarVirtuales;
+    }
+    
+    public static boolean usaVirtuales() {
+        return virtuales;
+    }
+    
+    /**
+     * Crea e inicia un hilo con el modo actual
+     */
+    public static Thread iniciar(String nombre, Runnable tarea) {
+        return virtuales
+            ? Thread.ofVirtual().name(nombre).start(tarea)
+            : Thread.ofPlatform().name(nombre).start(tarea);
+    }
+    
+    /**
+     * Ejecutor para tareas que bloquean en sockets
+     * Con hilos virtuales crea uno por tarea; con hilos de plataforma usa un grupo
+     * @param prefijo Prefijo del nombre de los hilos
+     * @param maxPlataforma Tamano del grupo de plataforma (0 = sin limite)
+     */
+    public static ExecutorService nuevoEjecutor(String prefijo, int maxPlataforma) {
+        if (virtuales) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefijo + "-", 0).factory());
+        }
+        ThreadFactory fabrica = Thread.ofPlatform().name(prefijo + "-", 0).factory();
+        return maxPlataforma > 0
+            ? Executors.newFixedThreadPool(maxPlataforma, fabrica)
+            : Executors.newCachedThreadPool(fabrica);
+    }
+}
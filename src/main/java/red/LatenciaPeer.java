@@ -0,0 +1,18 @@
+package red;
+
+/**
+ * Latencia medida con los latidos de un peer
+ * @param peer Nombre del peer
+ * @param rttMs RTT suavizado (media movil exponencial, peso 1/8 por muestra)
+ * @param jitterMs Variacion media del RTT (peso 1/4 por muestra)
+ * @param muestras Ecos recibidos
+ * @param silencioMs Tiempo desde el ultimo mensaje recibido del peer
+ */
+public record LatenciaPeer(String peer, double rttMs, double jitterMs, long muestras, long silencioMs) {
+    
+    @Override
+    public String toString() {
+        return String.format("%s rtt=%.2f ms jitter=%.2f ms muestras=%d silencio=%d ms",
+            peer, rttMs, jitterMs, muestras, silencioMs);
+    }
+}
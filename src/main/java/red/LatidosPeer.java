@@ -0,0 +1,42 @@
+package red;
+
+/**
+ * Estado de latidos de una conexion: cuando se oyo al peer por ultima vez
+ * y su RTT suavizado con el mismo calculo que TCP (RFC 6298):
+ * variacion = 3/4 variacion + 1/4 |rtt - muestra|, rtt = 7/8 rtt + 1/8 muestra
+ */
+final class LatidosPeer {
+    // Cualquier mensaje recibido cuenta como senal de vida, no solo los ecos
+    private volatile long ultimaRecepcion;
+    private double rttNanos;
+    private double variacionNanos;
+    private long muestras;
+    
+    LatidosPeer(long ahora) {
+        this.ultimaRecepcion = ahora;
+    }
+    
+    void registrarRecepcion(long ahora) {
+        ultimaRecepcion = ahora;
+    }
+    
+    long getSilencioNanos(long ahora) {
+        return ahora - ultimaRecepcion;
+    }
+    
+    synchronized void registrarRtt(long muestra) {
+        if (muestras == 0) {
+            rttNanos = muestra;
+            variacionNanos = muestra / 2.0;
+        } else {
+            variacionNanos = 0.75 * variacionNanos + 0.25 * Math.abs(rttNanos - muestra);
+            rttNanos = 0.875 * rttNanos + 0.125 * muestra;
+        }
+        muestras++;
+    }
+    
+    synchronized LatenciaPeer medir(String peer, long ahora) {
+        return new LatenciaPeer(peer, rttNanos / 1e6, variacionNanos / 1e6, muestras,
+                                getSilencioNanos(ahora) / 1_000_000);
+    }
+}
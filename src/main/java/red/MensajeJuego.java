@@ -1,10 +1,15 @@
 package red;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
 /**
  * Mensaje que se intercambia entre jugadores (peers)
+ * Los mensajes de juego (movimiento, turno, dado, estado) llevan una CargaMensaje tipada;
+ * su texto solo se genera si alguien lo pide o hay que serializarlo
  */
 public class MensajeJuego implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -20,19 +25,58 @@ public class MensajeJuego implements Serializable {
         JUGADOR_SALE,     // Jugador se va
         ESTADO_JUEGO,     // Estado completo del juego
         INICIO_JUEGO,     // Inicio de partida
-        FIN_JUEGO         // Fin de partida
+        FIN_JUEGO,        // Fin de partida
+        REANUDAR_SESION,  // Token de sesion y ultimo numero recibido (reconexion)
+        LATIDO            // Latido de vida y su eco (RTT); no llega al escucha
     }
     
     private TipoMensaje tipo;
     private String emisor;
+    // Con carga, el texto se genera la primera vez que se pide
     private String contenido;
+    private transient CargaMensaje carga;
     private LocalDateTime marcaTiempo;
+    private long marcaNanos;
+    // 0 = fuera de sesion (peers sin reanudacion o de versiones anteriores)
+    private long secuencia;
     
+    /**
+     * Mensaje con contenido de texto
+     * Si el tipo tiene carga tipada y el texto es valido, la carga se obtiene de el
+     */
     public MensajeJuego(TipoMensaje tipo, String emisor, String contenido) {
+        this(tipo, emisor, contenido, FormatoContenido.leer(tipo, contenido), System.nanoTime(), 0);
+    }
+    
+    /**
+     * Mensaje de juego con carga tipada; el tipo lo da la carga
+     */
+    public MensajeJuego(String emisor, CargaMensaje carga) {
+        this(carga.tipo(), emisor, null, carga, System.nanoTime(), 0);
+    }
+    
+    /**
+     * Constructor usado al decodificar un mensaje binario
+     * La marca de tiempo legible es la de recepcion; marcaNanos es la del emisor
+     */
+    MensajeJuego(TipoMensaje tipo, String emisor, String contenido, CargaMensaje carga,
+                 long marcaNanos, long secuencia) {
         this.tipo = tipo;
         this.emisor = emisor;
         this.contenido = contenido;
+        this.carga = carga;
         this.marcaTiempo = LocalDateTime.now();
+        this.marcaNanos = marcaNanos;
+        this.secuencia = secuencia;
+    }
+    
+    /**
+     * Copia del mensaje numerada dentro de una sesion
+     */
+    MensajeJuego conSecuencia(long numero) {
+        MensajeJuego copia = new MensajeJuego(tipo, emisor, contenido, carga, marcaNanos, numero);
+        copia.marcaTiempo = marcaTiempo;
+        return copia;
     }
     
     public TipoMensaje getTipo() {
@@ -43,21 +87,61 @@ public class MensajeJuego implements Serializable {
         return emisor;
     }
     
+    /**
+     * Contenido como texto (con carga, se formatea la primera vez)
+     */
     public String getContenido() {
+        if (contenido == null && carga != null) {
+            contenido = FormatoContenido.formatear(carga);
+        }
         return contenido;
     }
     
+    /**
+     * Carga tipada, ya validada, o null si el tipo no la tiene o el texto recibido no era valido
+     */
+    public CargaMensaje getCarga() {
+        return carga;
+    }
+    
     public LocalDateTime getMarcaTiempo() {
         return marcaTiempo;
     }
     
+    /**
+     * Marca monotona (System.nanoTime) del emisor al crear el mensaje
+     * Solo es comparable con otras marcas del mismo emisor
+     */
+    public long getMarcaNanos() {
+        return marcaNanos;
+    }
+    
+    /**
+     * Numero del mensaje en la sesion del emisor (1, 2, ...) o 0 si no va numerado
+     */
+    public long getSecuencia() {
+        return secuencia;
+    }
+    
     @Override
     public String toString() {
         return String.format("[%s] %s (%s): %s", 
             marcaTiempo.toString(), 
             tipo, 
             emisor, 
-            contenido
+            getContenido()
         );
     }
+    
+    // Con serializacion viaja el texto: los peers de versiones anteriores no conocen la carga
+    
+    private void writeObject(ObjectOutputStream salida) throws IOException {
+        getContenido();
+        salida.defaultWriteObject();
+    }
+    
+    private void readObject(ObjectInputStream entrada) throws IOException, ClassNotFoundException {
+        entrada.defaultReadObject();
+        carga = FormatoContenido.leer(tipo, contenido);
+    }
 }
\ No newline at end of file
@@ -4,25 +4,63 @@ import java.io.*;
 import java.net.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Gestor de red P2P para el juego de Parchis
  */
 public class P2PNetworkManager {
+    /** Mensajes que puede acumular la cola de salida de cada peer */
+    public static final int LIMITE_COLA_POR_DEFECTO = 1024;
+    /** Caracteres de un mensaje de chat; en UTF-8 son como mucho 12 KB y caben en una trama */
+    public static final int MAX_TEXTO_CHAT = 4096;
+    private static final long ESPERA_RECONEXION_MIN_MS = 250;
+    private static final long ESPERA_RECONEXION_MAX_MS = 2000;
+    /** Latidos cuyo eco todavia sirve para medir el RTT */
+    private static final int LATIDOS_RECORDADOS = 8;
+    
     private String nombreJugador;
     private int puerto; 
-    private ServerSocket servidorSocket;
-    private List<ConexionPeer> peers;
-    private ExecutorService ejecutorServicio;
+    private Set<Conexion> peers;
     private boolean estaActivo;
     private EscuchaRed escucha;
+    private TipoCodec codec;
+    private EstadisticasRed estadisticasCerradas;
+    private int buclesNIO;
+    private RedMemoria redMemoria;
+    private Transporte transporte;
+    private int limiteCola;
+    private PoliticaDesborde politicaDesborde;
+    private long graciaReanudacionMs;
+    private volatile boolean cerrado;
+    // Sesiones reanudables por token y por conexion actual
+    private final Map<String, SesionPeer> sesiones;
+    private final Map<Conexion, SesionPeer> sesionPorConexion;
+    // Ordena difundir frente a la vinculacion de sesiones: un peer recibe cada mensaje una sola vez
+    private final Object cerrojoSesiones;
+    private ScheduledExecutorService temporizador;
+    private long intervaloLatidoMs;
+    private int latidosPerdidos;
+    private ScheduledFuture<?> tareaLatidos;
+    private final Map<Conexion, LatidosPeer> latidos;
+    // Marca de envio de los ultimos latidos, por numero % LATIDOS_RECORDADOS
+    private final AtomicLongArray marcasLatido;
+    private volatile int ultimoLatido;
     
     public P2PNetworkManager(String nombreJugador, int puerto) {
         this.nombreJugador = nombreJugador;
         this.puerto = puerto;
-        this.peers = new CopyOnWriteArrayList<>();
-        this.ejecutorServicio = Executors.newCachedThreadPool();
+        this.peers = ConcurrentHashMap.newKeySet();
         this.estaActivo = false;
+        this.codec = TipoCodec.BINARIO;
+        this.estadisticasCerradas = new EstadisticasRed();
+        this.limiteCola = LIMITE_COLA_POR_DEFECTO;
+        this.politicaDesborde = PoliticaDesborde.DESCARTAR_CHAT;
+        this.sesiones = new ConcurrentHashMap<>();
+        this.sesionPorConexion = new ConcurrentHashMap<>();
+        this.cerrojoSesiones = new Object();
+        this.latidos = new ConcurrentHashMap<>();
+        this.marcasLatido = new AtomicLongArray(LATIDOS_RECORDADOS);
     }
     
     /**
@@ -31,45 +69,19 @@ public class P2PNetworkManager {
     public void iniciarServidor() throws IOException {
         if (estaActivo) return;
         
-        servidorSocket = new ServerSocket();
-        servidorSocket.setReuseAddress(true);
-        servidorSocket.bind(new InetSocketAddress(puerto));
+        transporte().escuchar(puerto);
         estaActivo = true;
-        
-        ejecutorServicio.execute(() -> {
-            System.out.println("[RED] Servidor P2P iniciado en puerto " + puerto);
-            while (estaActivo) {
-                try {
-                    Socket socketCliente = servidorSocket.accept();
-                    System.out.println("[RED] Nueva conexion desde: " + socketCliente.getInetAddress());
-                    manejarNuevaConexion(socketCliente);
-                } catch (IOException e) {
-                    if (estaActivo) {
-                        System.err.println("[RED] Error aceptando conexion: " + e.getMessage());
-                    }
-                }
-            }
-        });
     }
     
     /**
      * Conecta con otro jugador (peer)
+     * Con la reanudacion activa abre ademas una sesion que sobrevive a cortes breves,
+     * salvo con un peer de version anterior: con el los mensajes van sin numerar
      */
     public boolean conectarAPeer(String host, int puerto) {
+        SesionPeer sesion = graciaReanudacionMs > 0 ? SesionPeer.saliente(host, puerto) : null;
         try {
-            Socket socket = new Socket(host, puerto);
-            ConexionPeer peer = new ConexionPeer(socket, this);
-            
-            // Enviar saludo con mi nombre
-            peer.enviarMensaje(new MensajeJuego(
-                MensajeJuego.TipoMensaje.SALUDO,
-                nombreJugador,
-                "Conexion establecida"
-            ));
-            
-            peers.add(peer);
-            peer.start();
-            
+            abrirConexion(host, puerto, sesion, false);
             System.out.println("[RED] Conectado exitosamente a " + host + ":" + puerto);
             return true;
         } catch (IOException e) {
@@ -79,11 +91,48 @@ public class P2PNetworkManager {
     }
     
     /**
-     * Maneja una nueva conexión entrante
+     * Abre la conexion con el transporte elegido, envia el saludo
+     * (y el token de sesion, si hay) y empieza a leer
+     * @param reconexion true si la sesion ya existia y se esta reanudando
      */
-    private void manejarNuevaConexion(Socket socket) {
-        ConexionPeer peer = new ConexionPeer(socket, this);
+    private Conexion abrirConexion(String host, int puerto, SesionPeer sesion, boolean reconexion) throws IOException {
+        Transporte elegido = transporte();
+        Conexion peer = elegido.conectar(host, puerto);
+        presentar(peer, sesion, reconexion);
+        elegido.iniciar(peer);
+        return peer;
+    }
+    
+    private void presentar(Conexion peer, SesionPeer sesion, boolean reconexion) {
+        // Enviar saludo con mi nombre
+        peer.enviarMensaje(new MensajeJuego(
+            MensajeJuego.TipoMensaje.SALUDO,
+            nombreJugador,
+            "Conexion establecida"
+        ));
         
+        // Un peer de version anterior (serializacion) no conoce REANUDAR_SESION ni la numeracion
+        if (sesion != null && peer.getTipoCodec() != TipoCodec.SERIALIZACION) {
+            // Lo que se envie por la sesion sale siempre detras del token
+            peer.enviarMensaje(new MensajeJuego(
+                MensajeJuego.TipoMensaje.REANUDAR_SESION,
+                nombreJugador,
+                "token:" + sesion.getToken() + ",ultima:" + sesion.getUltimaRecibida()
+            ));
+            synchronized (cerrojoSesiones) {
+                sesionPorConexion.put(peer, sesion);
+                sesion.vincular(peer, reconexion);
+                sesiones.put(sesion.getToken(), sesion);
+            }
+        }
+        peers.add(peer);
+    }
+    
+    /**
+     * Conexion entrante aceptada por el transporte
+     * (hilo de aceptacion, bucle de eventos NIO o el hilo que conecta en memoria)
+     */
+    void alAceptarConexion(Conexion peer) {
         // Enviar saludo inmediatamente
         peer.enviarMensaje(new MensajeJuego(
             MensajeJuego.TipoMensaje.SALUDO,
@@ -92,16 +141,36 @@ public class P2PNetworkManager {
         ));
         
         peers.add(peer);
-        peer.start();
+        transporte.iniciar(peer);
     }
     
     /**
      * Difunde un mensaje a todos los peers
+     * No bloquea: cada peer lo encola y su escritor lo envia
      */
     public void difundir(MensajeJuego mensaje) {
-        for (ConexionPeer peer : peers) {
-            if (peer.estaConectado()) {
-                peer.enviarMensaje(mensaje);
+        if (sesiones.isEmpty()) {
+            for (Conexion peer : peers) {
+                if (peer.estaConectado()) {
+                    peer.enviarMensaje(mensaje);
+                }
+            }
+            return;
+        }
+        
+        // Con sesiones, cada una numera el mensaje y lo guarda aunque este suspendida;
+        // los peers sin sesion (p. ej. de version anterior) lo reciben tal cual
+        boolean deSesion = SesionPeer.esDeSesion(mensaje);
+        synchronized (cerrojoSesiones) {
+            for (Conexion peer : peers) {
+                if (peer.estaConectado() && !(deSesion && sesionPorConexion.containsKey(peer))) {
+                    peer.enviarMensaje(mensaje);
+                }
+            }
+            if (deSesion) {
+                for (SesionPeer sesion : sesiones.values()) {
+                    sesion.enviar(mensaje);
+                }
             }
         }
     }
@@ -111,9 +180,8 @@ public class P2PNetworkManager {
      */
     public void enviarMovimiento(int jugadorId, int fichaId, int dado) {
         MensajeJuego mensaje = new MensajeJuego(
-            MensajeJuego.TipoMensaje.MOVIMIENTO,
             nombreJugador,
-            String.format("jugador:%d,ficha:%d,dado:%d", jugadorId, fichaId, dado)
+            new CargaMensaje.Movimiento(jugadorId, fichaId, dado)
         );
         difundir(mensaje);
     }
@@ -123,23 +191,34 @@ public class P2PNetworkManager {
      */
     public void enviarCambioTurno(int proximoJugadorId) {
         MensajeJuego mensaje = new MensajeJuego(
-            MensajeJuego.TipoMensaje.CAMBIO_TURNO,
             nombreJugador,
-            String.valueOf(proximoJugadorId)
+            new CargaMensaje.CambioTurno(proximoJugadorId)
         );
         difundir(mensaje);
     }
     
     /**
      * Envia mensaje de chat
+     * Un texto de mas de MAX_TEXTO_CHAT caracteres se recorta antes de enviarlo
+     * @return false si el texto se recorto
      */
-    public void enviarMensajeChat(String texto) {
+    public boolean enviarMensajeChat(String texto) {
+        boolean completo = texto == null || texto.length() <= MAX_TEXTO_CHAT;
+        if (!completo) {
+            int corte = MAX_TEXTO_CHAT;
+            // No partir un par sustituto
+            if (Character.isHighSurrogate(texto.charAt(corte - 1))) {
+                corte--;
+            }
+            texto = texto.substring(0, corte);
+        }
         MensajeJuego mensaje = new MensajeJuego(
             MensajeJuego.TipoMensaje.CHAT,
             nombreJugador,
             texto
         );
         difundir(mensaje);
+        return completo;
     }
     
     /**
@@ -147,9 +226,8 @@ public class P2PNetworkManager {
      */
     public void enviarTiradaDado(int valor) {
         MensajeJuego mensaje = new MensajeJuego(
-            MensajeJuego.TipoMensaje.TIRADA_DADO,
             nombreJugador,
-            String.valueOf(valor)
+            new CargaMensaje.TiradaDado(valor)
         );
         difundir(mensaje);
     }
@@ -169,27 +247,312 @@ public class P2PNetworkManager {
     /**
      * Procesa mensaje recibido de un peer
      */
-    void alRecibirMensaje(MensajeJuego mensaje, ConexionPeer desde) {
+    void alRecibirMensaje(MensajeJuego mensaje, Conexion desde) {
+        LatidosPeer estadoLatidos = latidos.get(desde);
+        if (estadoLatidos != null) {
+            estadoLatidos.registrarRecepcion(System.nanoTime());
+        }
+        if (mensaje.getTipo() == MensajeJuego.TipoMensaje.LATIDO) {
+            procesarLatido(mensaje, desde, estadoLatidos);
+            return;
+        }
+        
+        if (mensaje.getTipo() == MensajeJuego.TipoMensaje.REANUDAR_SESION && graciaReanudacionMs > 0) {
+            procesarReanudacion(mensaje, desde);
+            return;
+        }
+        
+        if (mensaje.getSecuencia() != 0) {
+            // Sin confirmar, el otro lado no habla de sesiones (p. ej. un servidor de salas que reenvia)
+            SesionPeer sesion = sesionPorConexion.get(desde);
+            if (sesion != null && sesion.estaConfirmada()) {
+                long esperada = sesion.recibir(mensaje.getSecuencia());
+                if (esperada < 0) {
+                    // Reenviado tras la reconexion pero ya entregado antes del corte
+                    return;
+                }
+                if (esperada > 0) {
+                    System.err.println("[RED] Hueco en la sesion con " + desde.getNombrePeer()
+                                     + ": se esperaba " + esperada + " y llego " + mensaje.getSecuencia());
+                    if (escucha != null) {
+                        escucha.alDetectarHueco(desde, esperada, mensaje.getSecuencia());
+                    }
+                }
+            }
+        }
+        
         if (escucha != null) {
             escucha.alRecibirMensaje(mensaje, desde);
         }
     }
     
+    /**
+     * Un latido se devuelve siempre como eco, aunque aqui no se envien latidos;
+     * un eco de un latido reciente es una muestra de RTT
+     */
+    private void procesarLatido(MensajeJuego mensaje, Conexion desde, LatidosPeer estado) {
+        if (!(mensaje.getCarga() instanceof CargaMensaje.Latido latido)) {
+            return;
+        }
+        if (!latido.eco()) {
+            desde.enviarMensaje(new MensajeJuego(nombreJugador, new CargaMensaje.Latido(latido.numero(), true)));
+            return;
+        }
+        int numero = latido.numero();
+        int ultimo = ultimoLatido;
+        if (estado != null && numero <= ultimo && ultimo - numero < LATIDOS_RECORDADOS) {
+            estado.registrarRtt(System.nanoTime() - marcasLatido.get(numero % LATIDOS_RECORDADOS));
+        }
+    }
+    
+    /**
+     * Tarea periodica: late a todos los peers y cierra los que llevan demasiado en silencio
+     * Un peer de version anterior (serializacion) no conoce LATIDO ni lo devuelve:
+     * no se le late y solo se da por caido cuando falla su conexion
+     */
+    private void latir() {
+        try {
+            long ahora = System.nanoTime();
+            long plazo = TimeUnit.MILLISECONDS.toNanos(intervaloLatidoMs * latidosPerdidos);
+            int numero = ultimoLatido + 1;
+            marcasLatido.set(numero % LATIDOS_RECORDADOS, ahora);
+            ultimoLatido = numero;
+            
+            MensajeJuego latido = new MensajeJuego(nombreJugador, new CargaMensaje.Latido(numero, false));
+            for (Conexion peer : peers) {
+                if (peer.getTipoCodec() == TipoCodec.SERIALIZACION) {
+                    continue;
+                }
+                LatidosPeer estado = latidos.computeIfAbsent(peer, p -> new LatidosPeer(ahora));
+                long silencio = estado.getSilencioNanos(ahora);
+                if (silencio > plazo) {
+                    System.out.println("[RED] " + peer.getNombrePeer() + " no responde desde hace "
+                                     + TimeUnit.NANOSECONDS.toMillis(silencio) + " ms: se da por caido");
+                    peer.getEstadisticas().registrarCaida();
+                    latidos.remove(peer);
+                    // Sin esperar la cola: el peer no la va a leer
+                    peer.cerrarAhora();
+                } else if (peer.estaConectado()) {
+                    peer.enviarMensaje(latido);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Una excepcion cancelaria la tarea periodica
+            System.err.println("[RED] Error enviando latidos: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * REANUDAR_SESION "token:T,ultima:N"
+     * En una conexion propia es la respuesta del otro lado; en una aceptada, la peticion
+     */
+    private void procesarReanudacion(MensajeJuego mensaje, Conexion desde) {
+        String token = null;
+        long ultima = 0;
+        boolean nueva = false;
+        try {
+            for (String parte : mensaje.getContenido().split(",")) {
+                if (parte.startsWith("token:")) {
+                    token = parte.substring(6);
+                } else if (parte.startsWith("ultima:")) {
+                    ultima = Long.parseLong(parte.substring(7));
+                } else if (parte.equals("nueva:1")) {
+                    nueva = true;
+                }
+            }
+        } catch (RuntimeException e) {
+            token = null;
+        }
+        if (token == null || token.isEmpty()) {
+            System.err.println("[RED] Reanudacion ilegible: " + mensaje.getContenido());
+            return;
+        }
+        
+        SesionPeer propia = sesionPorConexion.get(desde);
+        if (propia != null && propia.esSaliente()) {
+            boolean reconexion = propia.estaSuspendida();
+            if (reconexion && nueva) {
+                // El otro dejo expirar la sesion: se reconecta, pero lo del corte se perdio
+                propia.reiniciar();
+                propia.confirmar(0);
+                System.out.println("[RED] " + desde.getNombrePeer() + " ya habia cerrado la sesion: se abre una nueva");
+                if (escucha != null) {
+                    escucha.alReconectarSinSesion(desde);
+                }
+                return;
+            }
+            int reenviados = propia.confirmar(ultima);
+            if (reconexion) {
+                System.out.println("[RED] Sesion con " + desde.getNombrePeer() + " reanudada: "
+                                 + reenviados + " mensajes reenviados");
+            }
+            return;
+        }
+        
+        Conexion anterior;
+        boolean reanudada;
+        synchronized (cerrojoSesiones) {
+            SesionPeer sesion = sesiones.get(token);
+            reanudada = sesion != null;
+            if (sesion == null) {
+                sesion = SesionPeer.entrante(token);
+                sesiones.put(token, sesion);
+            }
+            sesionPorConexion.put(desde, sesion);
+            anterior = sesion.reanudar(desde, ultima, nombreJugador, !reanudada);
+        }
+        if (reanudada) {
+            System.out.println("[RED] " + desde.getNombrePeer() + " reanudo su sesion desde el mensaje " + (ultima + 1));
+        }
+        if (anterior != null) {
+            // La conexion vieja quedo medio abierta; su cierre ya no afecta a la sesion
+            anterior.cerrar();
+        }
+    }
+    
     /**
      * Notifica desconexión de un peer
+     * Si tenia sesion confirmada, la sesion queda suspendida durante el plazo
+     * de gracia y el escucha solo se entera si no se reanuda a tiempo
      */
-    void alDesconectarPeer(ConexionPeer peer) {
-        peers.remove(peer);
+    void alDesconectarPeer(Conexion peer) {
+        if (peers.remove(peer)) {
+            estadisticasCerradas.acumular(peer.getEstadisticas());
+        }
+        
+        latidos.remove(peer);
+        
+        SesionPeer sesion = sesionPorConexion.remove(peer);
+        if (sesion != null) {
+            if (!sesion.desvincular(peer)) {
+                // Ya la sustituyo una conexion nueva de la misma sesion
+                return;
+            }
+            if (sesion.estaSuspendida() && !cerrado) {
+                suspender(sesion);
+                return;
+            }
+            sesiones.remove(sesion.getToken(), sesion);
+        }
+        
         if (escucha != null) {
             escucha.alDesconectarPeer(peer);
         }
         System.out.println("[RED] Peer desconectado. Peers activos: " + peers.size());
     }
     
+    private void suspender(SesionPeer sesion) {
+        boolean primera = sesion.programarExpiracion(() -> temporizador().schedule(
+            () -> expirar(sesion), graciaReanudacionMs, TimeUnit.MILLISECONDS));
+        if (primera) {
+            System.out.println("[RED] Conexion perdida: se espera la reconexion durante "
+                             + graciaReanudacionMs + " ms");
+        }
+        if (sesion.esSaliente() && sesion.empezarReconexion()) {
+            HilosRed.iniciar("red-reconexion", () -> reconectar(sesion));
+        }
+    }
+    
+    /**
+     * Reintenta la conexion saliente con espera creciente hasta reanudar o expirar
+     */
+    private void reconectar(SesionPeer sesion) {
+        long espera = ESPERA_RECONEXION_MIN_MS;
+        // continuarReconexion libera la marca al salir; si se sale por otra causa se libera aqui
+        boolean liberada = false;
+        try {
+            while (!cerrado) {
+                if (!sesion.continuarReconexion()) {
+                    liberada = true;
+                    break;
+                }
+                if (!sesion.tieneConexion()) {
+                    try {
+                        abrirConexion(sesion.getHost(), sesion.getPuerto(), sesion, true);
+                        System.out.println("[RED] Reintentando la sesion con " + sesion.getHost() + ":" + sesion.getPuerto());
+                    } catch (IOException e) {
+                        // Sin red todavia: se vuelve a intentar
+                    }
+                }
+                Thread.sleep(espera);
+                espera = Math.min(espera * 2, ESPERA_RECONEXION_MAX_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!liberada) {
+                sesion.terminarReconexion();
+            }
+        }
+    }
+    
+    private void expirar(SesionPeer sesion) {
+        if (!sesion.expirar()) {
+            return;
+        }
+        sesiones.remove(sesion.getToken(), sesion);
+        Conexion ultima = sesion.getUltimaConexion();
+        System.out.println("[RED] " + ultima.getNombrePeer() + " no volvio a tiempo: sesion cerrada");
+        Conexion pendiente = sesion.getConexion();
+        if (pendiente != null) {
+            // Reconexion a medias sin respuesta
+            pendiente.cerrar();
+        }
+        if (escucha != null) {
+            escucha.alDesconectarPeer(ultima);
+        }
+    }
+    
+    private synchronized ScheduledExecutorService temporizador() {
+        if (temporizador == null) {
+            temporizador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "red-sesiones");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+        return temporizador;
+    }
+    
+    /**
+     * true si hay algun peer conectado o alguna sesion esperando reconexion
+     */
+    public boolean hayPeersActivos() {
+        if (!peers.isEmpty()) {
+            return true;
+        }
+        for (SesionPeer sesion : sesiones.values()) {
+            if (sesion.estaSuspendida()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Latencia de un peer o null si todavia no se le envio ningun latido
+     */
+    public LatenciaPeer getLatencia(Conexion peer) {
+        LatidosPeer estado = latidos.get(peer);
+        return estado == null ? null : estado.medir(peer.getNombrePeer(), System.nanoTime());
+    }
+    
+    /**
+     * Latencia de todos los peers con latidos
+     */
+    public List<LatenciaPeer> getLatencias() {
+        long ahora = System.nanoTime();
+        List<LatenciaPeer> medidas = new ArrayList<>();
+        for (Map.Entry<Conexion, LatidosPeer> entrada : latidos.entrySet()) {
+            medidas.add(entrada.getValue().medir(entrada.getKey().getNombrePeer(), ahora));
+        }
+        return medidas;
+    }
+    
     /**
      * Obtiene lista de peers conectados
      */
-    public List<ConexionPeer> getPeersConectados() {
+    public List<Conexion> getPeersConectados() {
         return new ArrayList<>(peers);
     }
     
@@ -200,28 +563,194 @@ public class P2PNetworkManager {
         this.escucha = escucha;
     }
     
+    /**
+     * Usa el transporte NIO: bucles de eventos en lugar de un hilo por peer
+     * Debe llamarse antes de iniciarServidor o conectarAPeer
+     * Con NIO solo se habla el codec binario (sin peers de versiones anteriores)
+     * y los escuchas se llaman desde el hilo del bucle, por lo que no deben bloquear
+     * @param bucles Hilos de eventos (1 o 2 bastan para miles de conexiones); 0 = un hilo por peer
+     */
+    public synchronized void usarNIO(int bucles) {
+        if (estaActivo || transporte != null) {
+            throw new IllegalStateException("El transporte se elige antes de abrir conexiones");
+        }
+        this.buclesNIO = Math.max(0, bucles);
+    }
+    
+    /**
+     * Usa una red simulada dentro de la JVM en lugar de sockets
+     * Los gestores de la misma RedMemoria se conectan por puerto (el host se ignora)
+     * y se pasan los mensajes sin codificarlos; sirve para pruebas y benchmarks
+     * con muchos peers en un solo proceso. Debe llamarse antes de iniciarServidor
+     * o conectarAPeer, y los escuchas se llaman desde los hilos de la red
+     */
+    public synchronized void usarMemoria(RedMemoria red) {
+        if (estaActivo || transporte != null) {
+            throw new IllegalStateException("El transporte se elige antes de abrir conexiones");
+        }
+        this.redMemoria = red;
+    }
+    
+    /**
+     * Activa las sesiones reanudables en las conexiones nuevas
+     * Los mensajes de juego se numeran y se guardan para reenviarlos; un peer que
+     * pierde la conexion tiene graciaMs para volver antes de darse por desconectado
+     * @param graciaMs Plazo de reconexion; 0 desactiva las sesiones (por defecto)
+     */
+    public void setReanudacion(long graciaMs) {
+        this.graciaReanudacionMs = Math.max(0, graciaMs);
+    }
+    
+    public long getGraciaReanudacion() {
+        return graciaReanudacionMs;
+    }
+    
+    /**
+     * Latidos periodicos a todos los peers para medir el RTT y detectar peers colgados
+     * sin esperar a que falle TCP. Cualquier mensaje recibido cuenta como senal de vida;
+     * un peer callado durante intervaloMs * perdidos se cierra (y, con sesiones
+     * reanudables, se intenta la reconexion). Se detecta como mucho un intervalo despues
+     * Los ecos se responden siempre, aunque aqui los latidos esten desactivados
+     * @param intervaloMs Periodo de los latidos; 0 los desactiva (por defecto)
+     * @param perdidos Latidos seguidos sin respuesta para dar al peer por caido
+     */
+    public synchronized void setLatidos(long intervaloMs, int perdidos) {
+        if (intervaloMs > 0 && perdidos < 1) {
+            throw new IllegalArgumentException("Latidos perdidos debe ser al menos 1: " + perdidos);
+        }
+        if (tareaLatidos != null) {
+            tareaLatidos.cancel(false);
+            tareaLatidos = null;
+        }
+        this.intervaloLatidoMs = Math.max(0, intervaloMs);
+        this.latidosPerdidos = perdidos;
+        if (intervaloLatidoMs > 0 && !cerrado) {
+            tareaLatidos = temporizador().scheduleAtFixedRate(this::latir,
+                intervaloLatidoMs, intervaloLatidoMs, TimeUnit.MILLISECONDS);
+        } else {
+            latidos.clear();
+        }
+    }
+    
+    public long getIntervaloLatido() {
+        return intervaloLatidoMs;
+    }
+    
+    /**
+     * Silencio tras el que un peer se da por caido (0 sin latidos)
+     */
+    public long getPlazoLatidos() {
+        return intervaloLatidoMs * latidosPerdidos;
+    }
+    
+    public boolean usaNIO() {
+        return buclesNIO > 0;
+    }
+    
+    public boolean usaMemoria() {
+        return redMemoria != null;
+    }
+    
+    /**
+     * Transporte elegido, creado con la primera conexion o el servidor
+     */
+    private synchronized Transporte transporte() throws IOException {
+        if (transporte == null) {
+            if (buclesNIO > 0) {
+                transporte = new TransporteNIO(this, buclesNIO);
+            } else if (redMemoria != null) {
+                transporte = new TransporteMemoria(this, redMemoria);
+            } else {
+                transporte = new TransporteTCP(this);
+            }
+        }
+        return transporte;
+    }
+    
+    /**
+     * Codec preferido para las conexiones nuevas (por defecto BINARIO)
+     * Con peers de versiones anteriores se usa serializacion de todas formas
+     */
+    public void setCodec(TipoCodec codec) {
+        this.codec = codec;
+    }
+    
+    public TipoCodec getCodec() {
+        return codec;
+    }
+    
+    /**
+     * Cola de salida de las conexiones nuevas
+     * @param limite Mensajes que puede acumular cada peer antes de aplicar la politica
+     * @param politica Que hacer con un peer que no vacia su cola
+     */
+    public void setColaSalida(int limite, PoliticaDesborde politica) {
+        if (limite < 2) {
+            throw new IllegalArgumentException("Limite de cola demasiado pequeno: " + limite);
+        }
+        this.limiteCola = limite;
+        this.politicaDesborde = politica;
+    }
+    
+    public int getLimiteCola() {
+        return limiteCola;
+    }
+    
+    public PoliticaDesborde getPoliticaDesborde() {
+        return politicaDesborde;
+    }
+    
+    /**
+     * Mensajes pendientes en las colas de salida de todos los peers
+     */
+    public int getMensajesEnCola() {
+        int total = 0;
+        for (Conexion peer : peers) {
+            total += peer.getMensajesEnCola();
+        }
+        return total;
+    }
+    
+    /**
+     * Estadisticas de todas las conexiones, incluidas las ya cerradas
+     */
+    public EstadisticasRed getEstadisticas() {
+        EstadisticasRed total = new EstadisticasRed();
+        total.acumular(estadisticasCerradas);
+        for (Conexion peer : peers) {
+            total.acumular(peer.getEstadisticas());
+        }
+        return total;
+    }
+    
     /**
      * Cierra todas las conexiones y detiene el servidor
      */
     public void cerrar() {
         estaActivo = false;
+        cerrado = true;
+        synchronized (this) {
+            if (temporizador != null) {
+                temporizador.shutdownNow();
+            }
+        }
         
         // Cerrar todas las conexiones con peers
-        for (ConexionPeer peer : peers) {
+        for (Conexion peer : peers) {
             peer.cerrar();
         }
         peers.clear();
+        sesiones.clear();
+        sesionPorConexion.clear();
+        latidos.clear();
         
         // Cerrar servidor
-        try {
-            if (servidorSocket != null && !servidorSocket.isClosed()) {
-                servidorSocket.close();
+        synchronized (this) {
+            if (transporte != null) {
+                transporte.cerrar();
             }
-        } catch (IOException e) {
-            System.err.println("[RED] Error cerrando servidor: " + e.getMessage());
         }
         
-        ejecutorServicio.shutdown();
         System.out.println("[RED] Red P2P cerrada");
     }
     
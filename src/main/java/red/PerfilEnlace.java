@@ -0,0 +1,83 @@
+package red;
+
+/**
+ * Calidad simulada del enlace de un peer en una RedMemoria (ver RedMemoria.setPerfil)
+ * Se aplica a todo lo que el peer envia y recibe; si los dos extremos tienen
+ * perfil, los retardos se suman como dos accesos a internet
+ * @param distribucion Forma del retardo variable
+ * @param latenciaMs Retardo de ida minimo (o medio, segun la distribucion)
+ * @param jitterMs Escala de la variacion del retardo
+ * @param reordenar Probabilidad por mensaje de llegar fuera de orden; como en TCP el receptor
+ *                  lo espera y retiene a los siguientes (bloqueo de cabeza de linea)
+ * @param estancamiento Probabilidad por mensaje de que el enlace se congele
+ *                      (una perdida que TCP recupera con una retransmision tardia)
+ * @param estancamientoMs Duracion de cada congelacion
+ * @param reinicio Probabilidad por mensaje de que la conexion se corte (el mensaje se pierde)
+ * @param bytesPorSegundo Ancho de banda en cada sentido, compartido por todas las conexiones del peer (0 = sin limite)
+ */
+public record PerfilEnlace(Distribucion distribucion, double latenciaMs, double jitterMs,
+                           double reordenar, double estancamiento, long estancamientoMs,
+                           double reinicio, long bytesPorSegundo) {
+    
+    /** Sin retardo ni perdidas */
+    public static final PerfilEnlace IDEAL = new PerfilEnlace(Distribucion.FIJA, 0, 0, 0, 0, 0, 0, 0);
+    
+    /**
+     * Forma del retardo de cada mensaje, a partir de latenciaMs y jitterMs
+     */
+    public enum Distribucion {
+        /** Siempre latenciaMs */
+        FIJA,
+        /** latenciaMs +- jitterMs, uniforme */
+        UNIFORME,
+        /** Normal de media latenciaMs y desviacion jitterMs (recortada en 0) */
+        NORMAL,
+        /** latenciaMs mas una cola de Pareto (alfa 2) de media jitterMs: casi todo rapido, algun pico largo */
+        PARETO
+    }
+    
+    public PerfilEnlace {
+        if (distribucion == null) {
+            throw new IllegalArgumentException("Falta la distribucion del retardo");
+        }
+        if (latenciaMs < 0 || jitterMs < 0 || estancamientoMs < 0 || bytesPorSegundo < 0) {
+            throw new IllegalArgumentException("Valores negativos en el perfil de enlace");
+        }
+        validarProbabilidad(reordenar);
+        validarProbabilidad(estancamiento);
+        validarProbabilidad(reinicio);
+    }
+    
+    private static void validarProbabilidad(double p) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException("Probabilidad fuera de rango: " + p);
+        }
+    }
+    
+    public PerfilEnlace conRetardo(Distribucion distribucion, double latenciaMs, double jitterMs) {
+        return new PerfilEnlace(distribucion, latenciaMs, jitterMs, reordenar, estancamiento, estancamientoMs, reinicio, bytesPorSegundo);
+    }
+    
+    public PerfilEnlace conReordenacion(double probabilidad) {
+        return new PerfilEnlace(distribucion, latenciaMs, jitterMs, probabilidad, estancamiento, estancamientoMs, reinicio, bytesPorSegundo);
+    }
+    
+    public PerfilEnlace conEstancamientos(double probabilidad, long duracionMs) {
+        return new PerfilEnlace(distribucion, latenciaMs, jitterMs, reordenar, probabilidad, duracionMs, reinicio, bytesPorSegundo);
+    }
+    
+    public PerfilEnlace conReinicios(double probabilidad) {
+        return new PerfilEnlace(distribucion, latenciaMs, jitterMs, reordenar, estancamiento, estancamientoMs, probabilidad, bytesPorSegundo);
+    }
+    
+    public PerfilEnlace conAnchoBanda(long bytesPorSegundo) {
+        return new PerfilEnlace(distribucion, latenciaMs, jitterMs, reordenar, estancamiento, estancamientoMs, reinicio, bytesPorSegundo);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s %.0f+-%.0f ms, reordenar=%.3f, estancar=%.3f x %d ms, reiniciar=%.4f, %s",
+            distribucion, latenciaMs, jitterMs, reordenar, estancamiento, estancamientoMs, reinicio,
+            bytesPorSegundo == 0 ? "sin limite" : bytesPorSegundo + " B/s");
+    }
+}
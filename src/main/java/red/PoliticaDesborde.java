@@ -0,0 +1,30 @@
+package red;
+
+/**
+ * Que hace una conexion cuando su cola de salida esta llena
+ * (el peer no lee tan rapido como se le envia)
+ */
+public enum PoliticaDesborde {
+    /** El CHAT se descarta desde la mitad de la cola; un mensaje de juego con la cola llena desconecta al peer */
+    DESCARTAR_CHAT,
+    /** Cualquier mensaje con la cola llena desconecta al peer */
+    DESCONECTAR;
+    
+    /**
+     * Resultado de intentar encolar un mensaje
+     */
+    enum Admision { ENCOLAR, DESCARTAR, DESCONECTAR }
+    
+    /**
+     * @param tipo Tipo del mensaje nuevo
+     * @param enCola Mensajes que esperan en la cola
+     * @param limite Capacidad de la cola
+     */
+    Admision admitir(MensajeJuego.TipoMensaje tipo, int enCola, int limite) {
+        if (this == DESCARTAR_CHAT && tipo == MensajeJuego.TipoMensaje.CHAT) {
+            // El chat deja sitio a los mensajes de juego
+            return enCola >= limite / 2 ? Admision.DESCARTAR : Admision.ENCOLAR;
+        }
+        return enCola >= limite ? Admision.DESCONECTAR : Admision.ENCOLAR;
+    }
+}
@@ -0,0 +1,191 @@
+package red;
+
+import java.net.BindException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Red simulada dentro de la JVM para pruebas y benchmarks
+ * Los gestores que la usan (P2PNetworkManager.usarMemoria) se conectan por numero
+ * de puerto, sin sockets: los mensajes pasan de cola en cola sin serializar
+ * Un grupo fijo de hilos entrega los mensajes; con un solo hilo el orden de
+ * entrega entre todos los peers es reproducible de una ejecucion a otra
+ *
+ * Cada peer puede tener un PerfilEnlace (latencia, jitter, reordenacion,
+ * congelaciones, cortes y ancho de banda) para ver como se comporta la partida
+ * en una red mala sin salir del proceso. Los sorteos usan la semilla de la red,
+ * asi un escenario repite los mismos incidentes en cada ejecucion
+ */
+public final class RedMemoria {
+    private final Map<Integer, TransporteMemoria> escuchas;
+    private final ExecutorService ejecutor;
+    private final int hilos;
+    private final AtomicInteger siguienteConexion;
+    private final long semilla;
+    // Enlaces simulados por puerto del peer
+    private final Map<Integer, EnlaceSimulado> enlaces;
+    private volatile boolean hayEnlaces;
+    private ScheduledExecutorService reloj;
+    private final AtomicLong reordenados;
+    private final AtomicLong reinicios;
+    private final AtomicLong estancamientos;
+    
+    /**
+     * Un hilo de entrega por procesador
+     */
+    public RedMemoria() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * @param hilos Hilos que entregan mensajes (1 = orden de entrega reproducible)
+     */
+    public RedMemoria(int hilos) {
+        this(hilos, System.nanoTime());
+    }
+    
+    /**
+     * @param hilos Hilos que entregan mensajes (1 = orden de entrega reproducible)
+     * @param semilla Semilla de los sorteos de los perfiles de enlace
+     */
+    public RedMemoria(int hilos, long semilla) {
+        if (hilos < 1) {
+            throw new IllegalArgumentException("La red en memoria necesita al menos un hilo: " + hilos);
+        }
+        this.escuchas = new ConcurrentHashMap<>();
+        this.hilos = hilos;
+        this.siguienteConexion = new AtomicInteger();
+        this.semilla = semilla;
+        this.enlaces = new ConcurrentHashMap<>();
+        this.reordenados = new AtomicLong();
+        this.reinicios = new AtomicLong();
+        this.estancamientos = new AtomicLong();
+        this.ejecutor = Executors.newFixedThreadPool(hilos, Thread.ofPlatform().name("red-memoria-", 0).daemon().factory());
+    }
+    
+    void registrar(int puerto, TransporteMemoria transporte) throws BindException {
+        if (escuchas.putIfAbsent(puerto, transporte) != null) {
+            throw new BindException("Puerto en memoria ocupado: " + puerto);
+        }
+    }
+    
+    void quitar(int puerto, TransporteMemoria transporte) {
+        escuchas.remove(puerto, transporte);
+    }
+    
+    TransporteMemoria buscar(int puerto) {
+        return escuchas.get(puerto);
+    }
+    
+    /**
+     * Degrada el enlace del peer que usa el puerto (el de su P2PNetworkManager)
+     * Vale para las conexiones ya abiertas a partir del siguiente mensaje
+     * @param perfil Calidad del enlace; null o PerfilEnlace.IDEAL lo deja limpio
+     */
+    public void setPerfil(int puerto, PerfilEnlace perfil) {
+        if (perfil == null || perfil.equals(PerfilEnlace.IDEAL)) {
+            enlaces.remove(puerto);
+        } else {
+            enlaces.put(puerto, new EnlaceSimulado(perfil, semilla * 31 + puerto, estancamientos));
+        }
+        hayEnlaces = !enlaces.isEmpty();
+    }
+    
+    public PerfilEnlace getPerfil(int puerto) {
+        EnlaceSimulado enlace = enlaces.get(puerto);
+        return enlace == null ? PerfilEnlace.IDEAL : enlace.getPerfil();
+    }
+    
+    /**
+     * Enlace simulado del peer o null si va limpio
+     */
+    EnlaceSimulado enlace(int puerto) {
+        return hayEnlaces ? enlaces.get(puerto) : null;
+    }
+    
+    void contarReordenado() {
+        reordenados.incrementAndGet();
+    }
+    
+    void contarReinicio() {
+        reinicios.incrementAndGet();
+    }
+    
+    int nuevaConexion() {
+        return siguienteConexion.incrementAndGet();
+    }
+    
+    /**
+     * Programa una entrega; falla con RejectedExecutionException si la red ya se cerro
+     */
+    void ejecutar(Runnable tarea) {
+        ejecutor.execute(tarea);
+    }
+    
+    /**
+     * Ejecuta una entrega cuando el enlace simulado la deja llegar
+     * Un solo hilo de reloj: dos entregas con el mismo instante salen en el orden programado
+     */
+    void ejecutarEn(long instanteNanos, Runnable tarea) {
+        reloj().schedule(tarea, instanteNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+    
+    private synchronized ScheduledExecutorService reloj() {
+        if (reloj == null) {
+            reloj = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("red-memoria-reloj").daemon().factory());
+        }
+        return reloj;
+    }
+    
+    public int getHilos() {
+        return hilos;
+    }
+    
+    /**
+     * Puertos con un gestor escuchando
+     */
+    public int getEscuchas() {
+        return escuchas.size();
+    }
+    
+    /**
+     * Mensajes que llegaron fuera de orden (y retuvieron a los siguientes)
+     */
+    public long getReordenados() {
+        return reordenados.get();
+    }
+    
+    /**
+     * Conexiones cortadas por los perfiles de enlace
+     */
+    public long getReinicios() {
+        return reinicios.get();
+    }
+    
+    /**
+     * Congelaciones de los enlaces simulados
+     */
+    public long getEstancamientos() {
+        return estancamientos.get();
+    }
+    
+    /**
+     * Detiene los hilos de entrega; los mensajes en cola se pierden
+     * Cerrar antes los gestores para que sus peers se enteren de la desconexion
+     */
+    public void cerrar() {
+        ejecutor.shutdownNow();
+        synchronized (this) {
+            if (reloj != null) {
+                reloj.shutdownNow();
+            }
+        }
+        escuchas.clear();
+    }
+}
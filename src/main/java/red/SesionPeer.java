@@ -0,0 +1,261 @@
+package red;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.HexFormat;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+/**
+ * Sesion con un peer que sobrevive a cortes breves de la conexion
+ * Cada mensaje de juego enviado lleva un numero de secuencia y se guarda
+ * en un anillo acotado; al reconectar, cada lado reenvia solo lo que el otro
+ * no recibio. Si el anillo ya olvido algun mensaje, el receptor ve un hueco
+ * y se recupera pidiendo el estado completo (SincronizacionEstado)
+ *
+ * La sesion la abre quien conecta (saliente) enviando REANUDAR_SESION
+ * "token:T,ultima:N" despues del SALUDO; quien acepta responde con su ultima
+ * recibida, y "nueva:1" si no conocia el token. Solo el lado saliente reintenta la conexion
+ */
+final class SesionPeer {
+    /** Mensajes enviados que se guardan para reenviar tras una reconexion */
+    static final int CAPACIDAD_REPETICION = 512;
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+    
+    private final String token;
+    private final String host;
+    private final int puerto;
+    private final ArrayDeque<MensajeJuego> repeticion;
+    private long ultimaEnviada;
+    private long ultimaRecibida;
+    // Conexion actual (null mientras la sesion esta suspendida sin reintento en curso)
+    private Conexion conexion;
+    // Ultima conexion que llego a hablar con el peer (la que ve el escucha)
+    private Conexion ultimaConexion;
+    private boolean confirmada;
+    // Reconexion saliente esperando la respuesta: lo nuevo solo va al anillo
+    private boolean reanudando;
+    private boolean suspendida;
+    private boolean reconectando;
+    private boolean terminada;
+    private ScheduledFuture<?> expiracion;
+    
+    private SesionPeer(String token, String host, int puerto) {
+        this.token = token;
+        this.host = host;
+        this.puerto = puerto;
+        this.repeticion = new ArrayDeque<>();
+    }
+    
+    /**
+     * Sesion del lado que conecta, con un token nuevo
+     */
+    static SesionPeer saliente(String host, int puerto) {
+        byte[] bytes = new byte[16];
+        ALEATORIO.nextBytes(bytes);
+        return new SesionPeer(HexFormat.of().formatHex(bytes), host, puerto);
+    }
+    
+    /**
+     * Sesion del lado que acepta, con el token que presento el peer
+     */
+    static SesionPeer entrante(String token) {
+        SesionPeer sesion = new SesionPeer(token, null, 0);
+        sesion.confirmada = true;
+        return sesion;
+    }
+    
+    /**
+     * true si el mensaje se numera y se guarda para reenviar
+     * (el SALUDO, la propia negociacion y los latidos van fuera de la sesion)
+     */
+    static boolean esDeSesion(MensajeJuego mensaje) {
+        return mensaje.getTipo() != MensajeJuego.TipoMensaje.SALUDO
+            && mensaje.getTipo() != MensajeJuego.TipoMensaje.REANUDAR_SESION
+            && mensaje.getTipo() != MensajeJuego.TipoMensaje.LATIDO;
+    }
+    
+    /**
+     * Numera el mensaje, lo guarda en el anillo y lo envia si hay conexion activa
+     * Con la sesion suspendida o reanudando solo queda en el anillo
+     */
+    synchronized void enviar(MensajeJuego mensaje) {
+        MensajeJuego numerado = mensaje.conSecuencia(++ultimaEnviada);
+        if (repeticion.size() == CAPACIDAD_REPETICION) {
+            repeticion.removeFirst();
+        }
+        repeticion.addLast(numerado);
+        if (conexion != null && !reanudando && !suspendida) {
+            conexion.enviarMensaje(numerado);
+        }
+    }
+    
+    /**
+     * Registra un mensaje numerado recibido
+     * @return -1 si es un duplicado (ya entregado antes del corte),
+     *         0 si es el siguiente esperado, o el numero esperado si hay hueco
+     */
+    synchronized long recibir(long secuencia) {
+        if (secuencia <= ultimaRecibida) {
+            return -1;
+        }
+        long esperada = ultimaRecibida + 1;
+        ultimaRecibida = secuencia;
+        return secuencia == esperada ? 0 : esperada;
+    }
+    
+    /**
+     * Asocia una conexion nueva (o la primera)
+     * @param reconexion true si el lado saliente reconecta y debe esperar la respuesta
+     */
+    synchronized void vincular(Conexion nueva, boolean reconexion) {
+        conexion = nueva;
+        reanudando = reconexion;
+        if (!reconexion) {
+            ultimaConexion = nueva;
+        }
+    }
+    
+    /**
+     * Lado que acepta: el peer presento el token con su ultima recibida
+     * Cambia a la conexion nueva, responde y reenvia lo que le falta en orden
+     * @return Conexion anterior si seguia abierta (medio cerrada), para cerrarla
+     */
+    synchronized Conexion reanudar(Conexion nueva, long ultimaDelPeer, String emisor, boolean creada) {
+        Conexion anterior = conexion != nueva ? conexion : null;
+        conexion = nueva;
+        ultimaConexion = nueva;
+        suspendida = false;
+        cancelarExpiracion();
+        nueva.enviarMensaje(new MensajeJuego(MensajeJuego.TipoMensaje.REANUDAR_SESION, emisor,
+                                             "token:" + token + ",ultima:" + ultimaRecibida
+                                             + (creada ? ",nueva:1" : "")));
+        reenviarDesde(ultimaDelPeer);
+        return anterior;
+    }
+    
+    /**
+     * Lado saliente: llego la respuesta con la ultima que recibio el otro
+     * @return Mensajes reenviados
+     */
+    synchronized int confirmar(long ultimaDelPeer) {
+        confirmada = true;
+        suspendida = false;
+        ultimaConexion = conexion;
+        cancelarExpiracion();
+        int reenviados = reanudando ? reenviarDesde(ultimaDelPeer) : 0;
+        reanudando = false;
+        return reenviados;
+    }
+    
+    private int reenviarDesde(long ultimaDelPeer) {
+        int reenviados = 0;
+        for (MensajeJuego mensaje : repeticion) {
+            if (mensaje.getSecuencia() > ultimaDelPeer) {
+                conexion.enviarMensaje(mensaje);
+                reenviados++;
+            }
+        }
+        return reenviados;
+    }
+    
+    /**
+     * La conexion se cerro
+     * @return true si era la conexion actual; false si ya se sustituyo por otra
+     */
+    synchronized boolean desvincular(Conexion cerrada) {
+        if (terminada || conexion != cerrada) {
+            return false;
+        }
+        conexion = null;
+        if (confirmada) {
+            suspendida = true;
+        }
+        return true;
+    }
+    
+    /**
+     * Lado saliente: el otro ya habia cerrado la sesion y la abrio de nuevo
+     * Se empieza a numerar desde cero en los dos sentidos; lo que quedaba en el anillo
+     * no se reenvia (el otro ya habia aplicado parte) y el estado se recupera aparte
+     */
+    synchronized void reiniciar() {
+        repeticion.clear();
+        ultimaEnviada = 0;
+        ultimaRecibida = 0;
+        reanudando = false;
+    }
+    
+    /**
+     * Programa el fin de la sesion si no hay uno ya pendiente
+     * (los reintentos fallidos no alargan el plazo)
+     */
+    synchronized boolean programarExpiracion(Supplier<ScheduledFuture<?>> programar) {
+        if (expiracion != null && !expiracion.isDone()) {
+            return false;
+        }
+        expiracion = programar.get();
+        return true;
+    }
+    
+    private void cancelarExpiracion() {
+        if (expiracion != null) {
+            expiracion.cancel(false);
+            expiracion = null;
+        }
+    }
+    
+    /**
+     * Marca el inicio del bucle de reconexion
+     * @return false si ya hay uno en curso
+     */
+    synchronized boolean empezarReconexion() {
+        if (reconectando) {
+            return false;
+        }
+        reconectando = true;
+        return true;
+    }
+    
+    /**
+     * El bucle de reconexion sigue mientras la sesion este suspendida
+     * Al terminar libera la marca en el mismo paso, para que un corte posterior inicie otro
+     */
+    synchronized boolean continuarReconexion() {
+        if (suspendida) {
+            return true;
+        }
+        reconectando = false;
+        return false;
+    }
+    
+    synchronized void terminarReconexion() {
+        reconectando = false;
+    }
+    
+    /**
+     * Fin del plazo de gracia
+     * @return false si la sesion se reanudo a tiempo
+     */
+    synchronized boolean expirar() {
+        if (!suspendida) {
+            return false;
+        }
+        suspendida = false;
+        terminada = true;
+        expiracion = null;
+        return true;
+    }
+    
+    String getToken() { return token; }
+    String getHost() { return host; }
+    int getPuerto() { return puerto; }
+    boolean esSaliente() { return host != null; }
+    synchronized boolean estaConfirmada() { return confirmada; }
+    synchronized boolean estaSuspendida() { return suspendida; }
+    synchronized boolean tieneConexion() { return conexion != null; }
+    synchronized Conexion getConexion() { return conexion; }
+    synchronized Conexion getUltimaConexion() { return ultimaConexion; }
+    synchronized long getUltimaEnviada() { return ultimaEnviada; }
+    synchronized long getUltimaRecibida() { return ultimaRecibida; }
+}
@@ -0,0 +1,246 @@
+package red;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import modelo.EstadoPartida;
+import modelo.Partida;
+import modelo.Tablero;
+
+/**
+ * Sincronizacion del estado completo con mensajes ESTADO_JUEGO
+ * Un peer desincronizado (recien unido, reconectado o que detecto un hueco)
+ * pide el estado indicando el numero de la ultima instantanea que tiene;
+ * quien responde envia solo las diferencias si aun recuerda esa base,
+ * o una instantanea completa si no
+ *
+ * Carga CargaMensaje.EstadoJuego (lista de enteros; el codec binario los envia como varints):
+ * - Peticion:    0,base
+ * - Instantanea: 1,numero,colores,turno,seis,premio,hashAlto,hashBajo,fichas...
+ * - Delta:       2,base,numero,turno,seis,premio,hashAlto,hashBajo,mascaraCambios,fichas cambiadas...
+ * Las fichas van con EstadoPartida.codigoFicha y solo las de colores con jugador
+ * El dado no viaja: cada peer tira el suyo y una semilla sola no dice por que tirada va
+ * Un estado con una ficha fuera del recorrido de su color se rechaza como ilegible
+ */
+public class SincronizacionEstado {
+    public static final int PETICION = 0;
+    public static final int INSTANTANEA = 1;
+    public static final int DELTA = 2;
+    /** Instantaneas que se recuerdan como base para deltas */
+    private static final int BASES_RECORDADAS = 8;
+    
+    // Lado que responde: ultimas instantaneas enviadas, por numero
+    private final Map<Integer, EstadoPartida> bases;
+    private int ultimoNumero;
+    
+    // Lado que pide: ultima instantanea aplicada
+    private int numeroLocal;
+    private EstadoPartida estadoLocal;
+    
+    public SincronizacionEstado() {
+        this.bases = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, EstadoPartida> mayor) {
+                return size() > BASES_RECORDADAS;
+            }
+        };
+    }
+    
+    /**
+     * Peticion de estado con la base que ya se tiene (0 = ninguna)
+     */
+    public synchronized MensajeJuego crearPeticion(String emisor) {
+        return new MensajeJuego(emisor, new CargaMensaje.EstadoJuego(new int[] {PETICION, numeroLocal}));
+    }
+    
+    /**
+     * Responde a una peticion con el estado actual de la partida
+     * @param peticion Mensaje ESTADO_JUEGO de tipo PETICION
+     * @return Delta si la base pedida se recuerda, instantanea completa si no
+     */
+    public synchronized MensajeJuego responder(MensajeJuego peticion, Partida partida, String emisor) {
+        int[] valores = leer(peticion);
+        int base = valores != null && valores.length == 2 && valores[0] == PETICION ? valores[1] : 0;
+        
+        EstadoPartida actual = EstadoPartida.desde(partida);
+        EstadoPartida anterior = bases.get(base);
+        int numero;
+        if (anterior != null && anterior.equals(actual)) {
+            // Nada cambio desde su base: un delta vacio confirma que esta al dia
+            numero = base;
+        } else {
+            numero = ++ultimoNumero;
+            bases.put(numero, actual);
+        }
+        
+        int[] respuesta = anterior != null
+            ? valoresDelta(base, numero, anterior, actual)
+            : valoresInstantanea(numero, actual);
+        return new MensajeJuego(emisor, new CargaMensaje.EstadoJuego(respuesta));
+    }
+    
+    /**
+     * Aplica una instantanea o un delta recibidos a la partida local
+     * @return false si el mensaje no se pudo aplicar (delta sobre otra base, hash que
+     *         no coincide, ficha fuera de su recorrido o contenido ilegible); conviene pedir de nuevo
+     */
+    public synchronized boolean aplicar(MensajeJuego mensaje, Partida partida) {
+        int[] v = leer(mensaje);
+        if (v == null || v.length < 1) {
+            return false;
+        }
+        
+        EstadoPartida estado;
+        int numero;
+        long hash;
+        try {
+            if (v[0] == INSTANTANEA) {
+                numero = v[1];
+                estado = EstadoPartida.inicial(v[2]);
+                control(estado, v[3], v[4], v[5]);
+                hash = unir(v[6], v[7]);
+                int i = 8;
+                for (int f = 0; f < EstadoPartida.TOTAL_FICHAS; f++) {
+                    if (estado.estaActiva(f)) {
+                        estado.restaurarFicha(f, v[i++]);
+                    }
+                }
+            } else if (v[0] == DELTA) {
+                if (estadoLocal == null || v[1] != numeroLocal) {
+                    System.out.println("[RED] Delta sobre la base " + v[1] + " pero la local es " + numeroLocal);
+                    return false;
+                }
+                numero = v[2];
+                estado = estadoLocal.copiar();
+                control(estado, v[3], v[4], v[5]);
+                hash = unir(v[6], v[7]);
+                int i = 9;
+                for (int cambios = v[8]; cambios != 0; cambios &= cambios - 1) {
+                    estado.restaurarFicha(Integer.numberOfTrailingZeros(cambios), v[i++]);
+                }
+            } else {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[RED] Estado ilegible: " + e.getMessage());
+            return false;
+        }
+        
+        int fuera = fichaFueraDeRecorrido(estado);
+        if (fuera >= 0) {
+            System.err.println("[RED] Estado " + numero + ": la ficha " + fuera + " esta en la casilla "
+                             + estado.getPosicion(fuera) + ", fuera del recorrido de su color");
+            return false;
+        }
+        if (estado.getHash() != hash) {
+            System.err.println("[RED] El hash del estado " + numero + " no coincide");
+            return false;
+        }
+        
+        partida.restaurar(estado);
+        numeroLocal = numero;
+        estadoLocal = estado;
+        System.out.println("[RED] Estado " + numero + " aplicado (" + (v[0] == DELTA ? "delta" : "instantanea") + ")");
+        return true;
+    }
+    
+    /**
+     * Olvida la base local: la siguiente peticion recibira una instantanea completa
+     */
+    public synchronized void reiniciar() {
+        numeroLocal = 0;
+        estadoLocal = null;
+    }
+    
+    public synchronized int getNumeroLocal() { return numeroLocal; }
+    
+    /**
+     * true si el mensaje es una peticion (y no una respuesta)
+     */
+    public static boolean esPeticion(MensajeJuego mensaje) {
+        return mensaje.getCarga() instanceof CargaMensaje.EstadoJuego estado
+            && estado.clase() == PETICION;
+    }
+    
+    /**
+     * Primera ficha en juego cuya casilla no esta en el recorrido de su color, o -1
+     * Partida.restaurar no podria colocarla: Tablero.progreso no tiene paso para ella
+     */
+    private static int fichaFueraDeRecorrido(EstadoPartida estado) {
+        for (int f = 0; f < EstadoPartida.TOTAL_FICHAS; f++) {
+            if (estado.estaActiva(f) && !estado.estaEnCasa(f) && !estado.estaEnMeta(f)
+                    && Tablero.progreso(f / EstadoPartida.FICHAS_POR_COLOR, estado.getPosicion(f)) < 0) {
+                return f;
+            }
+        }
+        return -1;
+    }
+    
+    private static int[] valoresInstantanea(int numero, EstadoPartida estado) {
+        int colores = 0;
+        int activas = 0;
+        for (int f = 0; f < EstadoPartida.TOTAL_FICHAS; f++) {
+            if (estado.estaActiva(f)) {
+                colores |= 1 << (f / EstadoPartida.FICHAS_POR_COLOR);
+                activas++;
+            }
+        }
+        int[] valores = new int[8 + activas];
+        valores[0] = INSTANTANEA;
+        valores[1] = numero;
+        valores[2] = colores;
+        agregarControl(valores, 3, estado);
+        int i = 8;
+        for (int f = 0; f < EstadoPartida.TOTAL_FICHAS; f++) {
+            if (estado.estaActiva(f)) {
+                valores[i++] = estado.codigoFicha(f);
+            }
+        }
+        return valores;
+    }
+    
+    private static int[] valoresDelta(int base, int numero, EstadoPartida anterior, EstadoPartida actual) {
+        int cambios = 0;
+        for (int f = 0; f < EstadoPartida.TOTAL_FICHAS; f++) {
+            if (actual.estaActiva(f) && actual.codigoFicha(f) != anterior.codigoFicha(f)) {
+                cambios |= 1 << f;
+            }
+        }
+        int[] valores = new int[9 + Integer.bitCount(cambios)];
+        valores[0] = DELTA;
+        valores[1] = base;
+        valores[2] = numero;
+        agregarControl(valores, 3, actual);
+        valores[8] = cambios;
+        int i = 9;
+        for (int m = cambios; m != 0; m &= m - 1) {
+            valores[i++] = actual.codigoFicha(Integer.numberOfTrailingZeros(m));
+        }
+        return valores;
+    }
+    
+    /**
+     * turno, seis, premio, hashAlto, hashBajo desde la posicion indicada
+     */
+    private static void agregarControl(int[] valores, int desde, EstadoPartida estado) {
+        long hash = estado.getHash();
+        valores[desde] = estado.getTurno();
+        valores[desde + 1] = estado.getContadorSeis();
+        valores[desde + 2] = estado.getCasillasPremio();
+        valores[desde + 3] = (int) (hash >>> 32);
+        valores[desde + 4] = (int) hash;
+    }
+    
+    private static void control(EstadoPartida estado, int turno, int seis, int premio) {
+        estado.setTurno(turno);
+        estado.setContadorSeis(seis);
+        estado.setCasillasPremio(premio);
+    }
+    
+    private static long unir(int alto, int bajo) {
+        return ((long) alto << 32) | (bajo & 0xFFFFFFFFL);
+    }
+    
+    private static int[] leer(MensajeJuego mensaje) {
+        return mensaje.getCarga() instanceof CargaMensaje.EstadoJuego estado ? estado.valores() : null;
+    }
+}
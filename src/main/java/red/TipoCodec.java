@@ -0,0 +1,9 @@
+package red;
+
+/**
+ * Formatos de mensaje que puede usar una conexion
+ */
+public enum TipoCodec {
+    BINARIO,          // Tramas binarias con prefijo de longitud (CodecBinario)
+    SERIALIZACION     // Serializacion Java, compatible con versiones anteriores
+}
@@ -0,0 +1,37 @@
+package red;
+
+import java.io.IOException;
+
+/**
+ * Transporte de P2PNetworkManager: como se aceptan y se abren conexiones
+ * - TransporteTCP: ServerSocket y un ConexionPeer (hilos lector y escritor) por peer
+ * - TransporteNIO: canales no bloqueantes en bucles de eventos
+ * - TransporteMemoria: colas dentro de la JVM (RedMemoria), sin puertos ni sockets
+ * Las conexiones aceptadas se entregan a P2PNetworkManager.alAceptarConexion y
+ * cada conexion avisa al gestor de lo que recibe y de su cierre
+ */
+interface Transporte {
+    
+    /**
+     * Empieza a aceptar conexiones en el puerto
+     */
+    void escuchar(int puerto) throws IOException;
+    
+    /**
+     * Abre una conexion con otro peer
+     * La conexion no entrega mensajes hasta iniciar(), asi el gestor puede
+     * encolar el saludo y registrar la sesion antes de que llegue la respuesta
+     */
+    Conexion conectar(String host, int puerto) throws IOException;
+    
+    /**
+     * Empieza a leer y escribir una conexion creada por este transporte
+     */
+    void iniciar(Conexion conexion);
+    
+    /**
+     * Deja de aceptar conexiones y libera los hilos del transporte
+     * (las conexiones abiertas las cierra el gestor)
+     */
+    void cerrar();
+}
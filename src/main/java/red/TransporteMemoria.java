@@ -0,0 +1,100 @@
+package red;
+
+import java.io.IOException;
+import java.net.ConnectException;
+
+/**
+ * Transporte sobre una RedMemoria: cada conexion es un par de ConexionMemoria
+ * cuyos buzones vacian los hilos de la red
+ * El host se ignora; solo cuenta el puerto con el que se registro cada gestor
+ */
+final class TransporteMemoria implements Transporte {
+    private final P2PNetworkManager gestor;
+    private final RedMemoria red;
+    private int puerto;
+    private boolean escuchando;
+    
+    TransporteMemoria(P2PNetworkManager gestor, RedMemoria red) {
+        this.gestor = gestor;
+        this.red = red;
+    }
+    
+    @Override
+    public synchronized void escuchar(int puerto) throws IOException {
+        red.registrar(puerto, this);
+        this.puerto = puerto;
+        this.escuchando = true;
+        System.out.println("[RED] Servidor en memoria iniciado en puerto " + puerto);
+    }
+    
+    /**
+     * Crea los dos extremos y entrega el remoto al gestor que escucha en el puerto
+     * Ese gestor lo inicia enseguida; este extremo espera a iniciar()
+     */
+    @Override
+    public Conexion conectar(String host, int puerto) throws IOException {
+        TransporteMemoria destino = red.buscar(puerto);
+        if (destino == null) {
+            throw new ConnectException("Nadie escucha en el puerto en memoria " + puerto);
+        }
+        String direccion = "memoria:" + puerto + "#" + red.nuevaConexion();
+        ConexionMemoria local = new ConexionMemoria(this, direccion);
+        ConexionMemoria remota = new ConexionMemoria(destino, direccion);
+        local.enlazar(remota);
+        remota.enlazar(local);
+        destino.gestor.alAceptarConexion(remota);
+        return local;
+    }
+    
+    @Override
+    public void iniciar(Conexion conexion) {
+        ((ConexionMemoria) conexion).iniciar();
+    }
+    
+    @Override
+    public synchronized void cerrar() {
+        if (escuchando) {
+            red.quitar(puerto, this);
+            escuchando = false;
+        }
+    }
+    
+    void ejecutar(Runnable tarea) {
+        red.ejecutar(tarea);
+    }
+    
+    void alRecibirMensaje(MensajeJuego mensaje, ConexionMemoria desde) {
+        gestor.alRecibirMensaje(mensaje, desde);
+    }
+    
+    void alDesconectar(ConexionMemoria conexion) {
+        gestor.alDesconectarPeer(conexion);
+    }
+    
+    /**
+     * Enlace simulado de este peer o null si va limpio
+     */
+    EnlaceSimulado getEnlace() {
+        return red.enlace(gestor.getPuerto());
+    }
+    
+    void ejecutarEn(long instanteNanos, Runnable tarea) {
+        red.ejecutarEn(instanteNanos, tarea);
+    }
+    
+    void contarReordenado() {
+        red.contarReordenado();
+    }
+    
+    void contarReinicio() {
+        red.contarReinicio();
+    }
+    
+    int getLimiteCola() {
+        return gestor.getLimiteCola();
+    }
+    
+    PoliticaDesborde getPoliticaDesborde() {
+        return gestor.getPoliticaDesborde();
+    }
+}
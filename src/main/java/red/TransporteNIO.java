@@ -0,0 +1,123 @@
+package red;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transporte no bloqueante para P2PNetworkManager
+ * Un grupo pequeno de BucleEventos atiende todas las conexiones:
+ * el primero acepta y cada conexion nueva se asigna en turno rotatorio
+ */
+final class TransporteNIO implements Transporte {
+    private static final int ESPERA_CONEXION_MS = 5000;
+    
+    private final P2PNetworkManager gestor;
+    private final BucleEventos[] bucles;
+    private final AtomicInteger siguiente;
+    private ServerSocketChannel servidor;
+    
+    TransporteNIO(P2PNetworkManager gestor, int cantidadBucles) throws IOException {
+        this.gestor = gestor;
+        this.bucles = new BucleEventos[Math.max(1, cantidadBucles)];
+        this.siguiente = new AtomicInteger();
+        for (int i = 0; i < bucles.length; i++) {
+            bucles[i] = new BucleEventos("red-nio-" + i);
+            bucles[i].iniciar();
+        }
+    }
+    
+    @Override
+    public void escuchar(int puerto) throws IOException {
+        servidor = ServerSocketChannel.open();
+        servidor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        servidor.bind(new InetSocketAddress(puerto));
+        servidor.configureBlocking(false);
+        bucles[0].registrar(servidor, SelectionKey.OP_ACCEPT, this);
+        System.out.println("[RED] Servidor NIO iniciado en puerto " + puerto
+                         + " con " + bucles.length + " bucles de eventos");
+    }
+    
+    /**
+     * Acepta todas las conexiones pendientes (hilo del primer bucle)
+     */
+    void aceptar() {
+        try {
+            SocketChannel canal;
+            while ((canal = servidor.accept()) != null) {
+                gestor.alAceptarConexion(crear(canal));
+            }
+        } catch (IOException e) {
+            System.err.println("[RED] Error aceptando conexion: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Conecta en modo bloqueante y prepara el canal para un bucle
+     * La conexion no lee ni escribe hasta llamar a ConexionNIO.iniciar()
+     */
+    @Override
+    public ConexionNIO conectar(String host, int puerto) throws IOException {
+        SocketChannel canal = SocketChannel.open();
+        try {
+            canal.socket().connect(new InetSocketAddress(host, puerto), ESPERA_CONEXION_MS);
+            return crear(canal);
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+    }
+    
+    @Override
+    public void iniciar(Conexion conexion) {
+        ((ConexionNIO) conexion).iniciar();
+    }
+    
+    private ConexionNIO crear(SocketChannel canal) throws IOException {
+        canal.configureBlocking(false);
+        canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        BucleEventos bucle = bucles[Math.floorMod(siguiente.getAndIncrement(), bucles.length)];
+        return new ConexionNIO(canal, bucle, this, gestor.getLimiteCola(), gestor.getPoliticaDesborde());
+    }
+    
+    void alRecibirMensaje(MensajeJuego mensaje, ConexionNIO desde) {
+        gestor.alRecibirMensaje(mensaje, desde);
+    }
+    
+    void alDesconectar(ConexionNIO conexion) {
+        gestor.alDesconectarPeer(conexion);
+    }
+    
+    int getCantidadBucles() {
+        return bucles.length;
+    }
+    
+    /**
+     * Cierra el servidor y detiene los bucles (que cierran sus conexiones)
+     */
+    @Override
+    public void cerrar() {
+        try {
+            if (servidor != null) {
+                servidor.close();
+            }
+        } catch (IOException e) {
+            System.err.println("[RED] Error cerrando servidor: " + e.getMessage());
+        }
+        for (BucleEventos bucle : bucles) {
+            bucle.detener();
+        }
+        for (BucleEventos bucle : bucles) {
+            try {
+                bucle.esperarFin(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package red;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Transporte clasico: ServerSocket con un hilo de aceptacion y un ConexionPeer
+ * (hilos lector y escritor de HilosRed) por peer
+ * Es el unico que habla con peers de versiones anteriores (serializacion Java)
+ */
+final class TransporteTCP implements Transporte {
+    private static final int ESPERA_CONEXION_MS = 5000;
+    
+    private final P2PNetworkManager gestor;
+    private ServerSocket servidor;
+    private volatile boolean activo;
+    
+    TransporteTCP(P2PNetworkManager gestor) {
+        this.gestor = gestor;
+    }
+    
+    @Override
+    public void escuchar(int puerto) throws IOException {
+        servidor = new ServerSocket();
+        servidor.setReuseAddress(true);
+        servidor.bind(new InetSocketAddress(puerto));
+        activo = true;
+        
+        HilosRed.iniciar("red-servidor", () -> {
+            System.out.println("[RED] Servidor P2P iniciado en puerto " + puerto);
+            while (activo) {
+                try {
+                    Socket socketCliente = servidor.accept();
+                    System.out.println("[RED] Nueva conexion desde: " + socketCliente.getInetAddress());
+                    gestor.alAceptarConexion(new ConexionPeer(socketCliente, gestor, gestor.getCodec(), true));
+                } catch (IOException e) {
+                    if (activo) {
+                        System.err.println("[RED] Error aceptando conexion: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+    
+    @Override
+    public Conexion conectar(String host, int puerto) throws IOException {
+        ConexionPeer conexion = new ConexionPeer(abrir(host, puerto), gestor, gestor.getCodec(), false);
+        if (!conexion.esAnfitrionAnterior()) {
+            return conexion;
+        }
+        // El anfitrion ya recibio el preambulo binario y no lo entiende: se repite con serializacion
+        conexion.cerrarAhora();
+        System.out.println("[RED] Anfitrion de una version anterior: se reconecta con serializacion");
+        return new ConexionPeer(abrir(host, puerto), gestor, TipoCodec.SERIALIZACION, false);
+    }
+    
+    private static Socket abrir(String host, int puerto) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, puerto), ESPERA_CONEXION_MS);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+    
+    @Override
+    public void iniciar(Conexion conexion) {
+        ((ConexionPeer) conexion).start();
+    }
+    
+    @Override
+    public void cerrar() {
+        activo = false;
+        try {
+            if (servidor != null && !servidor.isClosed()) {
+                servidor.close();
+            }
+        } catch (IOException e) {
+            System.err.println("[RED] Error cerrando servidor: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package servidor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import modelo.ColorFicha;
+import modelo.DadoAleatorio;
+import modelo.Ficha;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.ReglasJuego;
+import modelo.Tablero;
+import red.CargaMensaje;
+import red.Conexion;
+import red.MensajeJuego;
+import red.SincronizacionEstado;
+import utilidades.RegistroPartidaJSON;
+
+/**
+ * Sala del servidor: una Partida independiente con sus propios ids, reglas y registro
+ * Todo lo que toca la partida se ejecuta en orden desde el buzon de la sala,
+ * atendido por lotes en el grupo de trabajadores del servidor:
+ * una sala con mucho trafico cede el hilo a las demas despues de cada lote
+ *
+ * El dado lo tira el cliente: el servidor solo comprueba el rango del valor y que
+ * la tirada toque en ese momento (uno por turno, o otro tras un 6). Los turnos
+ * siguen las reglas de ControladorPartida: turno extra con 6, penalizacion por
+ * tres 6 seguidos y cambio al siguiente asiento
+ */
+final class Sala implements Runnable {
+    private static final int LOTE = 32;
+    
+    private final int idSala;
+    private final String nombre;
+    private final int capacidad;
+    private final ServidorSalas servidor;
+    private final Executor trabajadores;
+    private final Queue<Runnable> buzon;
+    private final AtomicBoolean programada;
+    
+    // Solo desde el buzon de la sala
+    private final SincronizacionEstado sincronizacion;
+    private final Conexion[] conexiones;
+    private final String[] nombres;
+    private Partida partida;
+    private int ultimaTirada;
+    // Ultimo dado del turno, aunque ya se haya usado (0 = aun no tiro)
+    private int dadoTurno;
+    private Ficha ultimaFichaMovida;
+    private boolean terminada;
+    
+    private volatile int cantidadJugadores;
+    private volatile boolean cerrada;
+    
+    Sala(int idSala, String nombre, int capacidad, ServidorSalas servidor, Executor trabajadores) {
+        this.idSala = idSala;
+        this.nombre = nombre;
+        this.capacidad = capacidad;
+        this.servidor = servidor;
+        this.trabajadores = trabajadores;
+        this.buzon = new ConcurrentLinkedQueue<>();
+        this.programada = new AtomicBoolean();
+        this.conexiones = new Conexion[capacidad + 1];
+        this.nombres = new String[capacidad + 1];
+        this.sincronizacion = new SincronizacionEstado();
+    }
+    
+    /**
+     * Encola una tarea de la sala (desde cualquier hilo)
+     */
+    void encolar(Runnable tarea) {
+        buzon.add(tarea);
+        if (programada.compareAndSet(false, true)) {
+            trabajadores.execute(this);
+        }
+    }
+    
+    @Override
+    public void run() {
+        for (int i = 0; i < LOTE; i++) {
+            Runnable tarea = buzon.poll();
+            if (tarea == null) {
+                break;
+            }
+            try {
+                tarea.run();
+            } catch (RuntimeException e) {
+                System.err.println("[SERVIDOR] Error en sala " + nombre + ": " + e.getMessage());
+            }
+        }
+        programada.set(false);
+        // Lo que llego durante el lote (o lo que no cupo) vuelve a la cola del grupo
+        if (!buzon.isEmpty() && programada.compareAndSet(false, true)) {
+            trabajadores.execute(this);
+        }
+    }
+    
+    /**
+     * Agrega un jugador en el primer puesto libre
+     * La respuesta lleva el tamano de la sala y el color de cada asiento, y cada SALUDO
+     * el asiento de su jugador ("jugador:<id>"): con eso el cliente arma la misma Partida
+     * Al completarse la sala se crea la partida y se envia INICIO_JUEGO
+     */
+    void entrar(Conexion conexion, String nombreJugador) {
+        if (cerrada) {
+            // La sala se vacio mientras el jugador esperaba: se busca o crea otra con el mismo nombre
+            servidor.entrar(conexion, nombre, nombreJugador);
+            return;
+        }
+        for (int id = 1; id <= capacidad; id++) {
+            if (conexiones[id] == conexion) {
+                servidor.rechazarEntrada(conexion, "ya en sala");
+                return;
+            }
+        }
+        if (partida != null || cantidadJugadores == capacidad) {
+            servidor.rechazarEntrada(conexion, "sala " + nombre + " llena o en juego");
+            return;
+        }
+        
+        int jugadorId = 1;
+        while (conexiones[jugadorId] != null) {
+            jugadorId++;
+        }
+        conexiones[jugadorId] = conexion;
+        nombres[jugadorId] = nombreJugador;
+        cantidadJugadores++;
+        servidor.asociar(conexion, this, jugadorId);
+        
+        StringBuilder respuesta = new StringBuilder("sala:").append(nombre)
+            .append(",jugador:").append(jugadorId)
+            .append(",jugadores:").append(capacidad)
+            .append(",colores:");
+        for (int id = 1; id <= capacidad; id++) {
+            respuesta.append(id > 1 ? ";" : "").append(colorAsiento(id).getNombre());
+        }
+        responder(conexion, respuesta.toString());
+        System.out.println("[SERVIDOR] " + nombreJugador + " entra a la sala " + nombre
+                         + " como jugador " + jugadorId + " (" + cantidadJugadores + "/" + capacidad + ")");
+        
+        // Cada jugador conoce a los demas por un SALUDO con su nombre
+        for (int otro = 1; otro <= capacidad; otro++) {
+            if (otro != jugadorId && conexiones[otro] != null) {
+                enviar(conexion, new MensajeJuego(MensajeJuego.TipoMensaje.SALUDO, nombres[otro], "jugador:" + otro));
+                enviar(conexiones[otro], new MensajeJuego(MensajeJuego.TipoMensaje.SALUDO, nombreJugador, "jugador:" + jugadorId));
+            }
+        }
+        
+        if (cantidadJugadores == capacidad) {
+            iniciarPartida();
+        }
+    }
+    
+    private void iniciarPartida() {
+        partida = new Partida(idSala, new DadoAleatorio(), new RegistroPartidaJSON("sala-" + idSala));
+        for (int id = 1; id <= capacidad; id++) {
+            partida.agregarJugador(new Jugador(id, nombres[id], colorAsiento(id)));
+        }
+        partida.iniciarPartida();
+        difundir(new MensajeJuego(MensajeJuego.TipoMensaje.INICIO_JUEGO, servidor.getNombre(), "Iniciando partida"), 0);
+        System.out.println("[SERVIDOR] Sala " + nombre + " en juego");
+    }
+    
+    /**
+     * Procesa un mensaje de un jugador de la sala
+     * Los mensajes de juego se validan contra la partida de la sala antes de reenviarse
+     */
+    void recibir(int jugadorId, MensajeJuego mensaje) {
+        if (conexiones[jugadorId] == null) {
+            return;
+        }
+        switch (mensaje.getTipo()) {
+            case SALUDO:
+            case JUGADOR_ENTRA:
+            case INICIO_JUEGO:
+                // Los decide el servidor
+                return;
+            case CHAT:
+                difundir(mensaje, jugadorId);
+                return;
+            case ESTADO_JUEGO:
+                // El servidor es la referencia: responde el mismo, sin molestar a los demas
+                if (partida != null && SincronizacionEstado.esPeticion(mensaje)) {
+                    enviar(conexiones[jugadorId], sincronizacion.responder(mensaje, partida, servidor.getNombre()));
+                }
+                return;
+            default:
+                break;
+        }
+        
+        if (partida == null || terminada) {
+            rechazar(jugadorId, mensaje, "la partida no esta en juego");
+            return;
+        }
+        if (partida.getTurnoActual().getIdJugador() != jugadorId) {
+            rechazar(jugadorId, mensaje, "no es su turno");
+            return;
+        }
+        
+        // La carga ya llega validada en rango; aqui se valida contra la partida
+        String error;
+        switch (mensaje.getTipo()) {
+            case TIRADA_DADO:
+                error = mensaje.getCarga() instanceof CargaMensaje.TiradaDado tirada
+                    ? aplicarTirada(jugadorId, tirada.valor()) : "tirada ilegible";
+                break;
+            case MOVIMIENTO:
+                error = mensaje.getCarga() instanceof CargaMensaje.Movimiento movimiento
+                    ? aplicarMovimiento(jugadorId, movimiento) : "movimiento ilegible";
+                break;
+            case CAMBIO_TURNO:
+                error = mensaje.getCarga() instanceof CargaMensaje.CambioTurno cambio
+                    ? aplicarCambioTurno(cambio.jugador()) : "turno ilegible";
+                break;
+            default:
+                error = null;
+                break;
+        }
+        
+        if (error != null) {
+            rechazar(jugadorId, mensaje, error);
+            return;
+        }
+        difundir(mensaje, jugadorId);
+        
+        Jugador ganador = partida.getGanador();
+        if (ganador != null) {
+            terminada = true;
+            partida.finalizarPartida();
+            difundir(new MensajeJuego(MensajeJuego.TipoMensaje.FIN_JUEGO, servidor.getNombre(),
+                                      ganador.getNombre() + " ha ganado"), 0);
+            System.out.println("[SERVIDOR] Sala " + nombre + ": gano " + ganador.getNombre());
+        }
+    }
+    
+    private String aplicarTirada(int jugadorId, int valor) {
+        if (dadoTurno != 0 && dadoTurno != 6) {
+            return "ya tiro en este turno";
+        }
+        if (partida.getReglas().verificarTresSeisSeguidos(partida.getContadorSeis())) {
+            return "tras tres 6 debe pasar el turno";
+        }
+        
+        // Tras tirar, el premio pendiente ya se uso o se perdio
+        partida.setCasillasPremio(0);
+        ultimaTirada = valor;
+        dadoTurno = valor;
+        RegistroPartidaJSON registro = partida.getRegistroJSON();
+        registro.registrarTiradaDado(nombres[jugadorId], valor);
+        if (partida.getReglas().verificarTurnoExtra(valor)) {
+            partida.incrementarContadorSeis();
+            registro.registrarTurnoExtra(nombres[jugadorId]);
+        }
+        return null;
+    }
+    
+    /**
+     * Aplica el movimiento igual que ControladorPartida.moverFicha
+     * El dado debe ser la ultima tirada o el premio pendiente
+     */
+    private String aplicarMovimiento(int jugadorId, CargaMensaje.Movimiento movimiento) {
+        if (movimiento.jugador() != jugadorId) {
+            return "movimiento de otro jugador";
+        }
+        
+        int pasos = movimiento.dado();
+        boolean esPremio = pasos > 6;
+        if (esPremio ? pasos != partida.getCasillasPremio() : pasos != ultimaTirada) {
+            return "el dado no coincide";
+        }
+        
+        Ficha ficha = partida.buscarFicha(movimiento.ficha());
+        if (ficha == null || ficha.getJugadorId() != jugadorId || ficha.isEnMeta()) {
+            return "ficha no valida";
+        }
+        
+        Jugador jugador = partida.getTurnoActual();
+        Tablero tablero = partida.getTablero();
+        RegistroPartidaJSON registro = partida.getRegistroJSON();
+        
+        if (ficha.isEnCasa()) {
+            if (esPremio || !partida.getReglas().verificarSacarFichaConCinco(pasos)) {
+                return "la ficha esta en casa";
+            }
+            if (tablero.recorridoBloqueado(ficha, pasos)) {
+                return "barrera en la salida";
+            }
+            tablero.sacarFicha(ficha);
+            ultimaFichaMovida = ficha;
+            registro.registrarSalidaCasa(jugador.getNombre(), ficha.getIdFicha());
+        } else {
+            if (tablero.recorridoBloqueado(ficha, pasos)) {
+                return "barrera en el recorrido";
+            }
+            int posicionInicial = ficha.getPosicion();
+            tablero.moverFicha(ficha, pasos);
+            ultimaFichaMovida = ficha;
+            registro.registrarMovimiento(jugador.getNombre(), ficha.getIdFicha(), posicionInicial, ficha.getPosicion());
+        }
+        
+        int premio = partida.getReglas().aplicar(jugador, ficha, tablero, partida, registro);
+        partida.setCasillasPremio(esPremio ? 0 : partida.getCasillasPremio() + premio);
+        ultimaTirada = 0;
+        return null;
+    }
+    
+    /**
+     * Pasa el turno como ControladorPartida.aplicarReglasDelTurno
+     * Solo tras tirar, nunca con un turno extra pendiente y siempre al siguiente asiento;
+     * tras tres 6 la ultima ficha movida vuelve a casa
+     */
+    private String aplicarCambioTurno(int siguiente) {
+        if (dadoTurno == 0) {
+            return "no ha tirado";
+        }
+        ReglasJuego reglas = partida.getReglas();
+        boolean tresSeis = reglas.verificarTresSeisSeguidos(partida.getContadorSeis());
+        if (reglas.verificarTurnoExtra(dadoTurno) && !tresSeis) {
+            return "tiene un turno extra";
+        }
+        Jugador jugador = partida.getTurnoActual();
+        if (siguiente != jugador.getIdJugador() % capacidad + 1) {
+            return "turno fuera de orden";
+        }
+        
+        RegistroPartidaJSON registro = partida.getRegistroJSON();
+        if (tresSeis) {
+            // Misma ficha que penaliza el cliente: la ultima que se movio
+            if (ultimaFichaMovida != null && !ultimaFichaMovida.isEnMeta()) {
+                registro.registrarPenalizacionTresSeis(jugador.getNombre(), ultimaFichaMovida.getIdFicha());
+                partida.getTablero().removerFicha(ultimaFichaMovida);
+                ultimaFichaMovida.regresarACasa();
+            }
+            partida.setCasillasPremio(0);
+        }
+        partida.setTurnoActual(siguiente);
+        partida.reiniciarContadorSeis();
+        registro.registrarCambioTurno(jugador.getNombre(), partida.getTurnoActual().getNombre());
+        ultimaTirada = 0;
+        dadoTurno = 0;
+        return null;
+    }
+    
+    /**
+     * Quita a un jugador desconectado
+     * Si la partida estaba en juego se da por terminada y se cierran las demas conexiones
+     */
+    void salir(int jugadorId) {
+        if (conexiones[jugadorId] == null) {
+            return;
+        }
+        String nombreJugador = nombres[jugadorId];
+        conexiones[jugadorId] = null;
+        nombres[jugadorId] = null;
+        cantidadJugadores--;
+        System.out.println("[SERVIDOR] " + nombreJugador + " sale de la sala " + nombre);
+        
+        difundir(new MensajeJuego(MensajeJuego.TipoMensaje.JUGADOR_SALE, nombreJugador, "Salio de la sala"), 0);
+        
+        if (partida != null && !terminada) {
+            terminada = true;
+            partida.finalizarPartida();
+            // Los clientes detectan el abandono al perder la conexion
+            for (int id = 1; id <= capacidad; id++) {
+                if (conexiones[id] != null) {
+                    conexiones[id].cerrar();
+                }
+            }
+        }
+        
+        if (cantidadJugadores == 0) {
+            cerrada = true;
+            servidor.eliminarSala(this);
+        }
+    }
+    
+    private static ColorFicha colorAsiento(int jugadorId) {
+        return ColorFicha.deIndice(jugadorId - 1);
+    }
+    
+    private void responder(Conexion conexion, String contenido) {
+        enviar(conexion, new MensajeJuego(MensajeJuego.TipoMensaje.JUGADOR_ENTRA, servidor.getNombre(), contenido));
+    }
+    
+    private void rechazar(int jugadorId, MensajeJuego mensaje, String motivo) {
+        servidor.contarRechazado();
+        System.out.println("[SERVIDOR] Sala " + nombre + ": " + mensaje.getTipo() + " de "
+                         + nombres[jugadorId] + " rechazado (" + motivo + ")");
+    }
+    
+    /**
+     * Envia a todos los jugadores de la sala menos a excepto (0 = a todos)
+     */
+    private void difundir(MensajeJuego mensaje, int excepto) {
+        for (int id = 1; id <= capacidad; id++) {
+            if (id != excepto && conexiones[id] != null) {
+                enviar(conexiones[id], mensaje);
+            }
+        }
+    }
+    
+    private void enviar(Conexion conexion, MensajeJuego mensaje) {
+        if (conexion.enviarMensaje(mensaje)) {
+            servidor.contarEnviado();
+        }
+    }
+    
+    int getIdSala() { return idSala; }
+    String getNombre() { return nombre; }
+    int getCantidadJugadores() { return cantidadJugadores; }
+    boolean estaEnJuego() { return partida != null && !terminada; }
+}
@@ -0,0 +1,255 @@
+package servidor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import modelo.Partida;
+import red.Conexion;
+import red.EscuchaRed;
+import red.MensajeJuego;
+import red.P2PNetworkManager;
+
+/**
+ * Servidor dedicado con muchas salas de juego a la vez
+ * Los clientes se conectan como a un peer y piden sala con JUGADOR_ENTRA "sala:<nombre>"
+ * El servidor responde "sala:<nombre>,jugador:<id>,jugadores:<n>,colores:<c1>;<c2>..."
+ * (o "error:...") y reenvia los mensajes entre los jugadores de la misma sala tras
+ * validarlos contra su Partida. Cada conexion ocupa como mucho un asiento
+ *
+ * Las conexiones las atiende el transporte NIO; los bucles de eventos solo
+ * encolan en el buzon de cada sala y un grupo fijo de trabajadores procesa las salas
+ */
+public final class ServidorSalas implements EscuchaRed {
+    public static final int PUERTO_POR_DEFECTO = 5000;
+    private static final String NOMBRE = "Servidor";
+    private static final int INTERVALO_METRICAS_S = 10;
+    /** Un cliente callado durante 3 latidos (unos 6 s) libera su asiento */
+    private static final long INTERVALO_LATIDO_MS = 2000;
+    private static final int LATIDOS_PERDIDOS = 3;
+    
+    private final P2PNetworkManager red;
+    private final int jugadoresPorSala;
+    private final ExecutorService trabajadores;
+    private final ScheduledExecutorService metricas;
+    private final Map<String, Sala> salas;
+    private final Map<Conexion, Sesion> sesiones;
+    // Conexiones con un JUGADOR_ENTRA en curso (aun sin sesion)
+    private final Set<Conexion> entrando;
+    private final AtomicInteger siguienteIdSala;
+    private final LongAdder recibidos;
+    private final LongAdder enviados;
+    private final LongAdder rechazados;
+    private long recibidosAnteriores;
+    
+    /**
+     * Datos de un jugador ya asignado a una sala
+     */
+    private record Sesion(Sala sala, int jugadorId) {
+    }
+    
+    public ServidorSalas(int puerto) {
+        this(puerto, 1, Runtime.getRuntime().availableProcessors(), 2);
+    }
+    
+    /**
+     * @param puerto Puerto TCP del servidor
+     * @param bucles Bucles de eventos NIO
+     * @param hilosTrabajo Trabajadores que procesan las salas
+     * @param jugadoresPorSala Jugadores con los que empieza cada partida (2-4)
+     */
+    public ServidorSalas(int puerto, int bucles, int hilosTrabajo, int jugadoresPorSala) {
+        if (jugadoresPorSala < 2 || jugadoresPorSala > Partida.MAX_JUGADORES) {
+            throw new IllegalArgumentException("Jugadores por sala fuera de rango: " + jugadoresPorSala);
+        }
+        this.jugadoresPorSala = jugadoresPorSala;
+        this.red = new P2PNetworkManager(NOMBRE, puerto);
+        this.red.usarNIO(bucles);
+        this.red.setEscuchaRed(this);
+        this.red.setLatidos(INTERVALO_LATIDO_MS, LATIDOS_PERDIDOS);
+        
+        AtomicInteger numeroHilo = new AtomicInteger();
+        this.trabajadores = Executors.newFixedThreadPool(Math.max(1, hilosTrabajo), tarea -> {
+            Thread hilo = new Thread(tarea, "sala-" + numeroHilo.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.metricas = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "sala-metricas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.salas = new ConcurrentHashMap<>();
+        this.sesiones = new ConcurrentHashMap<>();
+        this.entrando = ConcurrentHashMap.newKeySet();
+        this.siguienteIdSala = new AtomicInteger();
+        this.recibidos = new LongAdder();
+        this.enviados = new LongAdder();
+        this.rechazados = new LongAdder();
+    }
+    
+    /**
+     * Abre el puerto y empieza a publicar metricas
+     */
+    public void iniciar() throws IOException {
+        red.iniciarServidor();
+        metricas.scheduleAtFixedRate(this::imprimirMetricas,
+            INTERVALO_METRICAS_S, INTERVALO_METRICAS_S, TimeUnit.SECONDS);
+        System.out.println("[SERVIDOR] Servidor de salas en puerto " + red.getPuerto()
+                         + " (" + jugadoresPorSala + " jugadores por sala)");
+    }
+    
+    /**
+     * Llamado desde el bucle de eventos: solo se clasifica y encola, nunca se bloquea
+     */
+    @Override
+    public void alRecibirMensaje(MensajeJuego mensaje, Conexion desde) {
+        recibidos.increment();
+        Sesion sesion = sesiones.get(desde);
+        boolean pideSala = mensaje.getTipo() == MensajeJuego.TipoMensaje.JUGADOR_ENTRA;
+        
+        if (sesion != null && !pideSala) {
+            sesion.sala().encolar(() -> sesion.sala().recibir(sesion.jugadorId(), mensaje));
+            return;
+        }
+        if (pideSala) {
+            // Un segundo JUGADOR_ENTRA, este en una sala o aun entrando, no toma otro asiento
+            if (sesion != null || !entrando.add(desde)) {
+                responderError(desde, "ya en sala");
+                return;
+            }
+            String contenido = mensaje.getContenido();
+            if (contenido != null && contenido.startsWith("sala:") && contenido.length() > 5) {
+                entrar(desde, contenido.substring(5).trim(), mensaje.getEmisor());
+                return;
+            }
+            rechazarEntrada(desde, "falta el nombre de la sala");
+        }
+        // El SALUDO de conexion y lo que llegue antes de entrar a una sala se ignora
+    }
+    
+    @Override
+    public void alDesconectarPeer(Conexion peer) {
+        entrando.remove(peer);
+        Sesion sesion = sesiones.remove(peer);
+        if (sesion != null) {
+            sesion.sala().encolar(() -> sesion.sala().salir(sesion.jugadorId()));
+        }
+    }
+    
+    /**
+     * Busca o crea la sala y encola la entrada del jugador
+     */
+    void entrar(Conexion conexion, String nombreSala, String nombreJugador) {
+        Sala sala = salas.computeIfAbsent(nombreSala,
+            nombre -> new Sala(siguienteIdSala.incrementAndGet(), nombre, jugadoresPorSala, this, trabajadores));
+        sala.encolar(() -> sala.entrar(conexion, nombreJugador));
+    }
+    
+    /**
+     * Registra la sesion de un jugador admitido (hilo de la sala)
+     * Si la conexion cayo mientras entraba, la sala recibe la salida enseguida
+     */
+    void asociar(Conexion conexion, Sala sala, int jugadorId) {
+        sesiones.put(conexion, new Sesion(sala, jugadorId));
+        entrando.remove(conexion);
+        if (!conexion.estaConectado() && sesiones.remove(conexion) != null) {
+            sala.encolar(() -> sala.salir(jugadorId));
+        }
+    }
+    
+    /**
+     * No admite una entrada en curso: responde "error:motivo" y la conexion puede volver a pedir sala
+     */
+    void rechazarEntrada(Conexion conexion, String motivo) {
+        entrando.remove(conexion);
+        responderError(conexion, motivo);
+    }
+    
+    private void responderError(Conexion conexion, String motivo) {
+        if (conexion.enviarMensaje(new MensajeJuego(MensajeJuego.TipoMensaje.JUGADOR_ENTRA, NOMBRE, "error:" + motivo))) {
+            contarEnviado();
+        }
+        contarRechazado();
+    }
+    
+    void eliminarSala(Sala sala) {
+        salas.remove(sala.getNombre(), sala);
+        System.out.println("[SERVIDOR] Sala " + sala.getNombre() + " cerrada");
+    }
+    
+    void contarEnviado() {
+        enviados.increment();
+    }
+    
+    void contarRechazado() {
+        rechazados.increment();
+    }
+    
+    private void imprimirMetricas() {
+        long total = recibidos.sum();
+        long porSegundo = (total - recibidosAnteriores) / INTERVALO_METRICAS_S;
+        recibidosAnteriores = total;
+        System.out.println("[SERVIDOR] " + resumen() + " msg/s=" + porSegundo);
+    }
+    
+    /**
+     * Una linea con el estado del servidor
+     */
+    public String resumen() {
+        int enJuego = 0;
+        for (Sala sala : salas.values()) {
+            if (sala.estaEnJuego()) {
+                enJuego++;
+            }
+        }
+        return "salas=" + salas.size() + " en juego=" + enJuego + " jugadores=" + sesiones.size()
+             + " recibidos=" + recibidos.sum() + " enviados=" + enviados.sum()
+             + " rechazados=" + rechazados.sum() + " caidos=" + red.getEstadisticas().getCaidas();
+    }
+    
+    /**
+     * Cierra todas las conexiones y detiene los trabajadores
+     */
+    public void cerrar() {
+        metricas.shutdownNow();
+        red.cerrar();
+        trabajadores.shutdown();
+        try {
+            trabajadores.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("[SERVIDOR] " + resumen());
+    }
+    
+    public String getNombre() { return NOMBRE; }
+    public int getPuerto() { return red.getPuerto(); }
+    public int getJugadoresPorSala() { return jugadoresPorSala; }
+    public int getCantidadSalas() { return salas.size(); }
+    public int getCantidadJugadores() { return sesiones.size(); }
+    public long getRecibidos() { return recibidos.sum(); }
+    public long getEnviados() { return enviados.sum(); }
+    public long getRechazados() { return rechazados.sum(); }
+    
+    /**
+     * Uso: java servidor.ServidorSalas [puerto] [jugadoresPorSala]
+     */
+    public static void main(String[] args) throws IOException {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_POR_DEFECTO;
+        int jugadores = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        
+        ServidorSalas servidor = new ServidorSalas(puerto, 1, Runtime.getRuntime().availableProcessors(), jugadores);
+        servidor.iniciar();
+        System.out.println("Presione ENTER para detener el servidor");
+        new Scanner(System.in).nextLine();
+        servidor.cerrar();
+    }
+}
@@ -0,0 +1,48 @@
+package simulacion;
+
+import java.util.SplittableRandom;
+import modelo.EstadoPartida;
+import modelo.GeneradorMovimientos;
+
+/**
+ * Estrategia que decide que movimiento jugar en una simulacion
+ * Sustituye a la seleccion por teclado de ControladorPartida
+ */
+@FunctionalInterface
+public interface PoliticaJugador {
+    
+    /**
+     * Politica por defecto: elige un movimiento al azar
+     */
+    PoliticaJugador ALEATORIA = (estado, movimientos, cantidad, pasos, aleatorio) -> aleatorio.nextInt(cantidad);
+    
+    /**
+     * Prefiere llegar a meta, luego comer, luego sacar ficha de casa; si no, al azar
+     */
+    PoliticaJugador CODICIOSA = (estado, movimientos, cantidad, pasos, aleatorio) -> {
+        int mejor = -1;
+        int mejorPuntos = -1;
+        for (int i = 0; i < cantidad; i++) {
+            int m = movimientos[i];
+            int puntos = GeneradorMovimientos.llegaMeta(m) ? 3
+                       : GeneradorMovimientos.esCaptura(m) ? 2
+                       : GeneradorMovimientos.saleDeCasa(m) ? 1 : 0;
+            if (puntos > mejorPuntos) {
+                mejor = i;
+                mejorPuntos = puntos;
+            }
+        }
+        return mejorPuntos > 0 ? mejor : aleatorio.nextInt(cantidad);
+    };
+    
+    /**
+     * Elige el movimiento a jugar
+     * @param estado Estado actual de la partida (no debe modificarse)
+     * @param movimientos Movimientos codificados por GeneradorMovimientos
+     * @param cantidad Movimientos validos en el buffer (al menos 1)
+     * @param pasos Valor del dado, o casillas del premio si estado.getCasillasPremio() > 0
+     * @param aleatorio Generador propio de la partida simulada
+     * @return Indice del movimiento elegido dentro del buffer
+     */
+    int elegir(EstadoPartida estado, int[] movimientos, int cantidad, int pasos, SplittableRandom aleatorio);
+}
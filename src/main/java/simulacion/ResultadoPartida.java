@@ -0,0 +1,45 @@
+package simulacion;
+
+/**
+ * Resultado de una partida simulada sin interfaz
+ */
+public class ResultadoPartida {
+    private final long semilla;
+    private final int ganador;
+    private final int turnos;
+    private final int capturas;
+    private final int premiosUsados;
+    
+    /**
+     * @param semilla Semilla con la que se jugo la partida (permite repetirla)
+     * @param ganador Indice de color ganador (0-3) o -1 si se alcanzo el limite de turnos
+     * @param turnos Turnos jugados
+     * @param capturas Fichas comidas durante la partida
+     * @param premiosUsados Premios de casillas aplicados a una ficha
+     */
+    public ResultadoPartida(long semilla, int ganador, int turnos, int capturas, int premiosUsados) {
+        this.semilla = semilla;
+        this.ganador = ganador;
+        this.turnos = turnos;
+        this.capturas = capturas;
+        this.premiosUsados = premiosUsados;
+    }
+    
+    public long getSemilla() { return semilla; }
+    public int getGanador() { return ganador; }
+    public boolean hayGanador() { return ganador >= 0; }
+    public int getTurnos() { return turnos; }
+    public int getCapturas() { return capturas; }
+    public int getPremiosUsados() { return premiosUsados; }
+    
+    @Override
+    public String toString() {
+        return "ResultadoPartida{" +
+                "semilla=" + semilla +
+                ", ganador=" + ganador +
+                ", turnos=" + turnos +
+                ", capturas=" + capturas +
+                ", premiosUsados=" + premiosUsados +
+                '}';
+    }
+}
@@ -0,0 +1,143 @@
+package simulacion;
+
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import modelo.EstadoPartida;
+import modelo.GeneradorMovimientos;
+
+/**
+ * Simulador de partidas completas sin consola, sin vista y sin red
+ * Juega sobre EstadoPartida con las mismas reglas que ControladorPartida
+ * Las partidas se reparten en el ForkJoinPool comun usando todos los nucleos
+ */
+public class SimuladorPartidas {
+    public static final int MAX_TURNOS_DEFECTO = 10000;
+    /** Bit del resultado de jugarTurno que indica que se uso un premio */
+    public static final int USO_PREMIO = 1 << 16;
+
+    private final int colores;
+    private final long semillaBase;
+    private final int maxTurnos;
+    private final PoliticaJugador[] politicas;
+
+    /**
+     * Simulador de 2 jugadores (Amarillo y Azul) con politica aleatoria
+     * @param semillaBase Semilla de la que se derivan las semillas de cada partida
+     */
+    public SimuladorPartidas(long semillaBase) {
+        this(0b0011, semillaBase, MAX_TURNOS_DEFECTO, PoliticaJugador.ALEATORIA);
+    }
+
+    /**
+     * @param colores Mascara de colores con jugador (bit 0 = Amarillo ... bit 3 = Verde)
+     * @param semillaBase Semilla de la que se derivan las semillas de cada partida
+     * @param maxTurnos Limite de turnos por partida
+     * @param politica Politica usada por todos los colores
+     */
+    public SimuladorPartidas(int colores, long semillaBase, int maxTurnos, PoliticaJugador politica) {
+        this.colores = colores;
+        this.semillaBase = semillaBase;
+        this.maxTurnos = maxTurnos;
+        this.politicas = new PoliticaJugador[EstadoPartida.COLORES];
+        for (int c = 0; c < politicas.length; c++) {
+            politicas[c] = politica;
+        }
+    }
+
+    /**
+     * Asigna una politica distinta a un color (para comparar bots)
+     * Debe llamarse antes de simular
+     */
+    public void setPolitica(int color, PoliticaJugador politica) {
+        politicas[color] = politica;
+    }
+
+    /**
+     * Simula partidas en paralelo
+     * El stream es perezoso: las partidas se juegan al consumirlo y
+     * operaciones como limit, anyMatch o findAny detienen la simulacion
+     * @param cantidad Numero de partidas
+     * @return Stream paralelo de resultados
+     */
+    public Stream<ResultadoPartida> simular(long cantidad) {
+        return LongStream.range(0, cantidad).parallel().mapToObj(this::jugarPartida);
+    }
+
+    /**
+     * Semilla de la partida numero indice
+     * Con ella jugar(semilla) reproduce exactamente la misma partida
+     */
+    public long semillaDePartida(long indice) {
+        return semillaBase + indice * 0x9E3779B97F4A7C15L;
+    }
+
+    private ResultadoPartida jugarPartida(long indice) {
+        return jugar(semillaDePartida(indice));
+    }
+
+    /**
+     * Juega una partida completa
+     * @param semilla Semilla del dado y de las politicas
+     * @return Resultado de la partida
+     */
+    public ResultadoPartida jugar(long semilla) {
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        EstadoPartida estado = EstadoPartida.inicial(colores);
+        estado.setTurno(Integer.numberOfTrailingZeros(colores));
+
+        int turnos = 0;
+        int capturas = 0;
+        int premiosUsados = 0;
+        int ganador = -1;
+        int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+
+        while (turnos < maxTurnos && ganador < 0) {
+            turnos++;
+            int resultado = jugarTurno(estado, politicas[estado.getTurno()], movimientos, aleatorio);
+            capturas += resultado & ~USO_PREMIO;
+            if ((resultado & USO_PREMIO) != 0) {
+                premiosUsados++;
+            }
+            ganador = estado.ganador();
+        }
+
+        return new ResultadoPartida(semilla, ganador, turnos, capturas, premiosUsados);
+    }
+
+    /**
+     * Juega un turno del color en turno, igual que ControladorPartida.iniciarTurno
+     * Si hay premio pendiente lo usa (el jugador conserva el turno);
+     * si no, lanza el dado, mueve y aplica las reglas del turno
+     * @param estado Estado a modificar
+     * @param politica Politica del color en turno
+     * @param movimientos Buffer reutilizable de GeneradorMovimientos.MAX_MOVIMIENTOS
+     * @param aleatorio Generador del dado
+     * @return Fichas comidas, con USO_PREMIO activado si se uso un premio
+     */
+    public static int jugarTurno(EstadoPartida estado, PoliticaJugador politica,
+                                 int[] movimientos, SplittableRandom aleatorio) {
+        int color = estado.getTurno();
+        int premio = estado.getCasillasPremio();
+
+        if (premio > 0) {
+            int cantidad = GeneradorMovimientos.generarPremio(estado, color, premio, movimientos);
+            if (cantidad == 0) {
+                estado.setCasillasPremio(0);
+                return 0;
+            }
+            int elegido = politica.elegir(estado, movimientos, cantidad, premio, aleatorio);
+            return estado.usarPremio(movimientos[elegido]) | USO_PREMIO;
+        }
+
+        int dado = aleatorio.nextInt(6) + 1;
+        int capturas = 0;
+        int cantidad = GeneradorMovimientos.generar(estado, color, dado, movimientos);
+        if (cantidad > 0) {
+            int elegido = politica.elegir(estado, movimientos, cantidad, dado, aleatorio);
+            capturas = estado.jugarTirada(movimientos[elegido]);
+        }
+        estado.terminarTirada(dado);
+        return capturas;
+    }
+}
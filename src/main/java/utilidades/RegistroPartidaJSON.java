@@ -2,6 +2,8 @@ package utilidades;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -17,15 +19,27 @@ public class RegistroPartidaJSON {
     private List<EventoPartida> eventos;
     private String nombreArchivoSalida;
     private LocalDateTime inicioPartida;
+    private String tipoDado;
+    private Long semillaDado;
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     
     public RegistroPartidaJSON() {
+        this(null);
+    }
+    
+    /**
+     * Registro con una etiqueta en el nombre del archivo
+     * Evita que varias partidas iniciadas en el mismo segundo compartan archivo
+     * @param etiqueta Texto que se agrega al nombre (por ejemplo "sala-3") o null
+     */
+    public RegistroPartidaJSON(String etiqueta) {
         this.eventos = new ArrayList<>();
         this.inicioPartida = LocalDateTime.now();
         
         // Generar nombre de archivo con timestamp
         String timestamp = inicioPartida.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-        this.nombreArchivoSalida = "registro_partida_" + timestamp + ".json";
+        String sufijo = etiqueta != null ? "_" + etiqueta : "";
+        this.nombreArchivoSalida = "registro_partida_" + timestamp + sufijo + ".json";
     }
     
     /**
@@ -43,6 +57,21 @@ public class RegistroPartidaJSON {
         System.out.println("[JSON] Registro iniciado: " + nombreArchivoSalida);
     }
     
+    /**
+     * Registra el dado de la partida
+     * Con la semilla se puede reproducir la partida con el mismo dado
+     * @param tipo Clase del dado
+     * @param semilla Semilla del dado o null si no usa semilla
+     */
+    public void registrarDado(String tipo, Long semilla) {
+        this.tipoDado = tipo;
+        this.semillaDado = semilla;
+        
+        if (semilla != null) {
+            System.out.println("[JSON] Dado " + tipo + " con semilla " + semilla);
+        }
+    }
+    
     /**
      * Registra tirada de dado
      */
@@ -171,6 +200,8 @@ public class RegistroPartidaJSON {
             RegistroCompleto registro = new RegistroCompleto();
             registro.inicioPartida = inicioPartida.toString();
             registro.finPartida = LocalDateTime.now().toString();
+            registro.tipoDado = tipoDado;
+            registro.semillaDado = semillaDado;
             registro.totalEventos = eventos.size();
             registro.eventos = eventos;
             
@@ -194,6 +225,45 @@ public class RegistroPartidaJSON {
         }
     }
     
+    /**
+     * Lee las tiradas de un registro guardado, en orden
+     * Sirven para reproducir la partida con DadoSecuencia
+     * @param archivo Ruta del archivo JSON
+     * @return Valores del dado
+     * @throws IOException si no se puede leer el archivo
+     */
+    public static List<Integer> leerTiradas(String archivo) throws IOException {
+        List<Integer> tiradas = new ArrayList<>();
+        for (EventoPartida evento : leer(archivo).eventos) {
+            if ("TIRADA_DADO".equals(evento.tipo) && evento.valorDado != null) {
+                tiradas.add(evento.valorDado);
+            }
+        }
+        return tiradas;
+    }
+    
+    /**
+     * Lee la semilla del dado de un registro guardado
+     * @param archivo Ruta del archivo JSON
+     * @return Semilla o null si el dado no usaba semilla
+     * @throws IOException si no se puede leer el archivo
+     */
+    public static Long leerSemilla(String archivo) throws IOException {
+        return leer(archivo).semillaDado;
+    }
+    
+    private static RegistroCompleto leer(String archivo) throws IOException {
+        try (FileReader reader = new FileReader(archivo)) {
+            RegistroCompleto registro = gson.fromJson(reader, RegistroCompleto.class);
+            if (registro == null || registro.eventos == null) {
+                throw new IOException("Registro vacio: " + archivo);
+            }
+            return registro;
+        } catch (JsonParseException e) {
+            throw new IOException("Registro invalido: " + archivo, e);
+        }
+    }
+    
     /**
      * Muestra el contenido del registro en consola (opcional)
      */
@@ -229,6 +299,8 @@ public class RegistroPartidaJSON {
     private static class RegistroCompleto {
         String inicioPartida;
         String finPartida;
+        String tipoDado;
+        Long semillaDado;
         int totalEventos;
         List<EventoPartida> eventos;
     }
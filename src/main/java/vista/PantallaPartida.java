@@ -5,7 +5,6 @@
  */
 package vista;
 
-import java.util.List;
 import modelo.Ficha;
 import modelo.Jugador;
 import modelo.Partida;
@@ -44,26 +43,19 @@ public class PantallaPartida {
      * Muestra informacion de un jugador de forma compacta
      */
     private void mostrarJugadorCompacto(Jugador jugador) {
-        // Contar estados
-        int enCasa = 0, enJuego = 0, enMeta = 0;
-        
-        for (Ficha ficha : jugador.getFichas()) {
-            if (ficha.isEnCasa()) enCasa++;
-            else if (ficha.isEnMeta()) enMeta++;
-            else enJuego++;
-        }
+        int enJuego = jugador.mascaraEnJuego();
         
         // Mostrar resumen
         System.out.println("\n" + jugador.getNombre() + " (" + jugador.getColor() + ")");
-        System.out.println("  Casa: " + enCasa + "  |  Tablero: " + enJuego + "  |  Meta: " + enMeta);
+        System.out.println("  Casa: " + jugador.contarEnCasa() + "  |  Tablero: " + jugador.contarEnJuego() 
+                         + "  |  Meta: " + jugador.contarEnMeta());
         
         // Mostrar posiciones solo si hay fichas en juego
-        if (enJuego > 0) {
+        if (enJuego != 0) {
             System.out.print("  Posiciones: ");
-            for (Ficha ficha : jugador.getFichas()) {
-                if (!ficha.isEnCasa() && !ficha.isEnMeta()) {
-                    System.out.print("Ficha-" + ficha.getIdFicha() + " en [" + ficha.getPosicion() + "]  ");
-                }
+            for (int m = enJuego; m != 0; m &= m - 1) {
+                Ficha ficha = jugador.seleccionarFicha(Integer.numberOfTrailingZeros(m));
+                System.out.print("Ficha-" + ficha.getIdFicha() + " en [" + ficha.getPosicion() + "]  ");
             }
             System.out.println();
         }
@@ -90,16 +82,16 @@ public class PantallaPartida {
         System.out.println("  Color: " + jugador.getColor());
         System.out.println("==========================================");
         
-        List<Ficha> fichasCasa = jugador.getFichasEnCasa();
-        List<Ficha> fichasJuego = jugador.getFichasEnJuego();
+        int fichasJuego = jugador.mascaraEnJuego();
         
         System.out.println("\nEstado actual:");
-        System.out.println("  - Fichas en casa: " + fichasCasa.size());
-        System.out.println("  - Fichas jugando: " + fichasJuego.size());
+        System.out.println("  - Fichas en casa: " + jugador.contarEnCasa());
+        System.out.println("  - Fichas jugando: " + jugador.contarEnJuego());
         
-        if (!fichasJuego.isEmpty()) {
+        if (fichasJuego != 0) {
             System.out.println("\nTus fichas en el tablero:");
-            for (Ficha ficha : fichasJuego) {
+            for (int m = fichasJuego; m != 0; m &= m - 1) {
+                Ficha ficha = jugador.seleccionarFicha(Integer.numberOfTrailingZeros(m));
                 System.out.println("  * Ficha " + ficha.getIdFicha() + 
                                  " -> Casilla " + ficha.getPosicion());
             }
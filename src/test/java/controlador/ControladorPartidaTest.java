@@ -0,0 +1,97 @@
+/**
+ * Pruebas de la validacion de movimientos recibidos por red
+ */
+package controlador;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Scanner;
+
+import modelo.ColorFicha;
+import modelo.DadoSecuencia;
+import modelo.Ficha;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.Tablero;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vista.PantallaPartida;
+
+class ControladorPartidaTest {
+
+    /**
+     * ControladorRed sin envios que cuenta las peticiones de estado
+     */
+    private static final class RedFalsa extends ControladorRed {
+        int solicitudes;
+
+        RedFalsa(Tablero tablero) {
+            super("Ana", 0, tablero, 1);
+        }
+
+        @Override
+        public void solicitarEstado() {
+            solicitudes++;
+        }
+    }
+
+    private Partida partida;
+    private RedFalsa red;
+    private ControladorPartida controlador;
+
+    @BeforeEach
+    void crear() {
+        partida = new Partida(1, new DadoSecuencia(5));
+        partida.agregarJugador(new Jugador(1, "Ana", ColorFicha.AMARILLO));
+        partida.agregarJugador(new Jugador(2, "Luis", ColorFicha.AZUL));
+        partida.iniciarPartida();
+        red = new RedFalsa(partida.getTablero());
+        controlador = new ControladorPartida(partida, new PantallaPartida(), new Scanner(""), 1);
+        controlador.setControladorRed(red);
+    }
+
+    @AfterEach
+    void cerrar() {
+        red.cerrar();
+    }
+
+    @Test
+    void unPremioRemotoSeAplicaSinPedirElEstado() {
+        Ficha ficha = partida.buscarFicha(Jugador.idFicha(2, 0));
+        partida.getTablero().sacarFicha(ficha);
+        partida.setCasillasPremio(20);
+
+        controlador.aplicarMovimientoRemoto(2, ficha.getIdFicha(), 20);
+
+        assertEquals(0, red.solicitudes);
+        assertEquals(20, ficha.getProgreso());
+        assertEquals(0, partida.getCasillasPremio());
+    }
+
+    @Test
+    void unPremioQueNoSeTieneSeRechazaYSePideElEstado() {
+        Ficha ficha = partida.buscarFicha(Jugador.idFicha(2, 0));
+        partida.getTablero().sacarFicha(ficha);
+        partida.setCasillasPremio(10);
+
+        controlador.aplicarMovimientoRemoto(2, ficha.getIdFicha(), 20);
+        controlador.aplicarMovimientoRemoto(2, ficha.getIdFicha(), 7);
+
+        assertEquals(2, red.solicitudes);
+        assertEquals(0, ficha.getProgreso());
+        assertEquals(10, partida.getCasillasPremio());
+    }
+
+    @Test
+    void unDadoNormalSigueValidandoseDeUnoASeis() {
+        Ficha ficha = partida.buscarFicha(Jugador.idFicha(2, 0));
+        partida.getTablero().sacarFicha(ficha);
+
+        controlador.aplicarMovimientoRemoto(2, ficha.getIdFicha(), 0);
+        controlador.aplicarMovimientoRemoto(2, ficha.getIdFicha(), 4);
+
+        assertEquals(1, red.solicitudes);
+        assertEquals(4, ficha.getProgreso());
+    }
+}
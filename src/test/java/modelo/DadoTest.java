@@ -0,0 +1,66 @@
+/**
+ * Pruebas de las implementaciones de Dado
+ */
+package modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class DadoTest {
+    private static final int TIRADAS = 1000;
+
+    private static int[] lanzar(Dado dado, int veces) {
+        int[] valores = new int[veces];
+        for (int i = 0; i < veces; i++) {
+            valores[i] = dado.lanzar();
+        }
+        return valores;
+    }
+
+    @Test
+    void laMismaSemillaRepiteLasTiradas() {
+        assertArrayEquals(lanzar(new DadoAleatorio(7), TIRADAS), lanzar(new DadoAleatorio(7), TIRADAS));
+        assertArrayEquals(lanzar(new DadoBloque(7), TIRADAS), lanzar(new DadoBloque(7), TIRADAS));
+        assertEquals(7L, new DadoBloque(7).getSemilla().getAsLong());
+    }
+
+    @Test
+    void lasTiradasQuedanEntreUnoYSeis() {
+        for (Dado dado : new Dado[] {new DadoAleatorio(1), new DadoBloque(1)}) {
+            int[] vistos = new int[7];
+            for (int i = 0; i < TIRADAS; i++) {
+                int valor = dado.lanzar();
+                assertTrue(valor >= 1 && valor <= 6, "valor " + valor);
+                assertEquals(valor, dado.getValor());
+                vistos[valor]++;
+            }
+            for (int cara = 1; cara <= 6; cara++) {
+                assertTrue(vistos[cara] > 0, "la cara " + cara + " no salio");
+            }
+        }
+    }
+
+    @Test
+    void dividirDaUnDadoIndependienteYReproducible() {
+        DadoAleatorio a = new DadoAleatorio(3);
+        DadoAleatorio b = new DadoAleatorio(3);
+        DadoAleatorio hijoA = a.dividir();
+        DadoAleatorio hijoB = b.dividir();
+
+        assertArrayEquals(lanzar(hijoA, 50), lanzar(hijoB, 50));
+        // Lanzar con el hijo no altera la secuencia del padre
+        assertArrayEquals(lanzar(a, 50), lanzar(b, 50));
+    }
+
+    @Test
+    void laSecuenciaSeAgotaConUnError() {
+        DadoSecuencia dado = new DadoSecuencia(5, 6);
+
+        assertArrayEquals(new int[] {5, 6}, lanzar(dado, 2));
+        assertFalse(dado.quedanTiradas());
+        assertThrows(IllegalStateException.class, dado::lanzar);
+        assertThrows(IllegalArgumentException.class, () -> new DadoSecuencia(0));
+        assertFalse(dado.getSemilla().isPresent());
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Pruebas de la representacion compacta del estado
+ */
+package modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class EstadoPartidaTest {
+    private static final int AMARILLO_Y_AZUL = 0b0011;
+
+    @Test
+    void estadoInicialTieneLasFichasActivasEnCasa() {
+        EstadoPartida estado = EstadoPartida.inicial(AMARILLO_Y_AZUL);
+
+        assertEquals(0xFF, estado.getMascaraActivas());
+        assertEquals(0xFF, estado.getMascaraCasa());
+        assertEquals(0, estado.getMascaraMeta());
+        assertEquals(0, estado.getMascaraEnJuego());
+        assertFalse(estado.estaActiva(8));
+    }
+
+    @Test
+    void sacarYMoverSiguenElRecorridoDelTablero() {
+        EstadoPartida estado = EstadoPartida.inicial(AMARILLO_Y_AZUL);
+
+        assertEquals(Tablero.casillaSalida(0), estado.sacarDeCasa(0));
+        assertEquals(-1, estado.sacarDeCasa(0));
+        int destino = estado.moverFicha(0, 4);
+
+        assertEquals(Tablero.casillaDeProgreso(0, 4), destino);
+        assertEquals(1, estado.fichasEn(destino));
+        assertEquals(-1, estado.moverFicha(1, 4));
+    }
+
+    @Test
+    void dosFichasDelMismoColorFormanBarrera() {
+        EstadoPartida estado = EstadoPartida.inicial(AMARILLO_Y_AZUL);
+        int salida = estado.sacarDeCasa(0);
+        assertFalse(estado.verificarBarrera(salida));
+
+        estado.sacarDeCasa(1);
+
+        assertTrue(estado.verificarBarrera(salida));
+        assertEquals(1L << salida, estado.getBarrerasBajas());
+    }
+
+    @Test
+    void comerDevuelveLaVictimaACasaYDaPremio() {
+        EstadoPartida estado = EstadoPartida.inicial(AMARILLO_Y_AZUL);
+        int casilla = 10;
+        assertFalse(Tablero.esSegura(casilla));
+        estado.restaurarFicha(4, casilla);
+        estado.restaurarFicha(0, casilla);
+
+        assertEquals(ReglasJuego.PREMIO_COMER, estado.aplicar(0));
+        assertTrue(estado.estaEnCasa(4));
+        assertEquals(1, estado.fichasEn(casilla));
+    }
+
+    @Test
+    void elHashIncrementalCoincideConElRecalculado() {
+        EstadoPartida estado = EstadoPartida.inicial(AMARILLO_Y_AZUL);
+        estado.sacarDeCasa(0);
+        estado.moverFicha(0, 6);
+        estado.sacarDeCasa(5);
+        estado.setCasillasPremio(10);
+        estado.setContadorSeis(2);
+        estado.cambiarTurno();
+        estado.restaurarFicha(2, EstadoPartida.CODIGO_META);
+
+        assertEquals(estado.calcularHash(), estado.getHash());
+    }
+
+    @Test
+    void copiarEsIndependiente() {
+        EstadoPartida estado = EstadoPartida.inicial(AMARILLO_Y_AZUL);
+        estado.sacarDeCasa(0);
+        EstadoPartida copia = estado.copiar();
+        assertEquals(estado, copia);
+        assertEquals(estado.getHash(), copia.getHash());
+
+        copia.moverFicha(0, 3);
+
+        assertNotEquals(estado, copia);
+        assertEquals(Tablero.casillaSalida(0), estado.getPosicion(0));
+    }
+
+    @Test
+    void codigoFichaIdaYVuelta() {
+        EstadoPartida estado = EstadoPartida.inicial(AMARILLO_Y_AZUL);
+        estado.restaurarFicha(1, 40);
+        estado.restaurarFicha(2, EstadoPartida.CODIGO_META);
+
+        EstadoPartida otro = EstadoPartida.inicial(AMARILLO_Y_AZUL);
+        for (int f = 0; f < EstadoPartida.TOTAL_FICHAS; f++) {
+            if (estado.estaActiva(f)) {
+                otro.restaurarFicha(f, estado.codigoFicha(f));
+            }
+        }
+
+        assertEquals(estado, otro);
+        assertEquals(EstadoPartida.CODIGO_CASA, otro.codigoFicha(0));
+        assertThrows(IllegalArgumentException.class, () -> otro.restaurarFicha(0, Tablero.TOTAL_CASILLAS));
+    }
+
+    @Test
+    void desdeCopiaLasFichasYElTurnoDeLaPartida() {
+        Partida partida = new Partida(1, new DadoSecuencia(5));
+        partida.agregarJugador(new Jugador(1, "Ana", ColorFicha.AMARILLO));
+        partida.agregarJugador(new Jugador(2, "Luis", ColorFicha.AZUL));
+        partida.iniciarPartida();
+        partida.getTablero().sacarFicha(partida.buscarFicha(Jugador.idFicha(2, 1)));
+        partida.setTurnoActual(2);
+
+        EstadoPartida estado = EstadoPartida.desde(partida);
+
+        assertEquals(0xFF, estado.getMascaraActivas());
+        assertEquals(Tablero.casillaSalida(1), estado.getPosicion(5));
+        assertEquals(ColorFicha.AZUL.getIndice(), estado.getTurno());
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Pruebas de Jugador: color y contadores de fichas
+ */
+package modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class JugadorTest {
+
+    @Test
+    void elColorPorNombreNoDistingueMayusculas() {
+        Jugador jugador = new Jugador(3, "Eva", "rojo");
+
+        assertEquals(ColorFicha.ROJO, jugador.getColorFicha());
+        assertEquals(ColorFicha.ROJO, jugador.seleccionarFicha(0).getColorFicha());
+    }
+
+    @Test
+    void unColorDesconocidoEsUnError() {
+        assertThrows(IllegalArgumentException.class, () -> new Jugador(1, "Ana", "Morado"));
+        assertThrows(IllegalArgumentException.class, () -> new Jugador(1, "Ana", (String) null));
+        assertThrows(IllegalArgumentException.class, () -> new Ficha("Negro"));
+    }
+
+    @Test
+    void losContadoresSiguenALasFichas() {
+        Tablero tablero = new Tablero();
+        Jugador jugador = new Jugador(1, "Ana", ColorFicha.AMARILLO);
+        Ficha ficha = jugador.seleccionarFicha(2);
+
+        tablero.sacarFicha(ficha);
+        assertEquals(0b1011, jugador.mascaraEnCasa());
+        assertEquals(0b0100, jugador.mascaraEnJuego());
+
+        tablero.removerFicha(ficha);
+        ficha.llegarMeta();
+        assertEquals(1, jugador.contarEnMeta());
+        assertEquals(0, jugador.mascaraEnJuego());
+    }
+}
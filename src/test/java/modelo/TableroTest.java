@@ -0,0 +1,92 @@
+/**
+ * Pruebas de las tablas de recorridos y del indice de ocupacion de Tablero
+ */
+package modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TableroTest {
+
+    @Test
+    void progresoEsLaInversaDeCasillaDeProgreso() {
+        for (int color = 0; color < Tablero.COLORES; color++) {
+            for (int p = 0; p <= Tablero.PROGRESO_META; p++) {
+                assertEquals(p, Tablero.progreso(color, Tablero.casillaDeProgreso(color, p)));
+            }
+        }
+    }
+
+    @Test
+    void resolverRecortaLosPasosEnLaMeta() {
+        int entrada = Tablero.resolver(0, Tablero.PROGRESO_META - 2, 6);
+
+        assertTrue(Tablero.llegaMeta(entrada));
+        assertEquals(Tablero.PROGRESO_META, Tablero.progresoDestino(entrada));
+        assertEquals(Tablero.casillaDeProgreso(0, Tablero.PROGRESO_META), Tablero.destino(entrada));
+    }
+
+    @Test
+    void moverFichaSigueElRecorridoDeSuColor() {
+        Tablero tablero = new Tablero();
+        Ficha ficha = new Jugador(2, "Luis", ColorFicha.AZUL).seleccionarFicha(0);
+        tablero.sacarFicha(ficha);
+
+        tablero.moverFicha(ficha, 3);
+
+        assertEquals(3, ficha.getProgreso());
+        assertEquals(Tablero.casillaSalida(1) + 3, ficha.getPosicion());
+        assertEquals(1, tablero.fichasDeColor(ficha.getPosicion(), 1));
+    }
+
+    @Test
+    void moverFueraDelRecorridoEsUnErrorClaro() {
+        Tablero tablero = new Tablero();
+        Ficha ficha = new Jugador(1, "Ana", ColorFicha.AMARILLO).seleccionarFicha(0);
+        // Pasillo del Azul: no pertenece al recorrido del Amarillo
+        int ajena = Tablero.casillaDeProgreso(1, Tablero.PROGRESO_ENTRADA + 1);
+        ficha.setEnCasa(false);
+        ficha.setPosicion(ajena);
+        ficha.setProgreso(Tablero.progreso(0, ajena));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> tablero.moverFicha(ficha, 2));
+        assertTrue(error.getMessage().contains("Amarillo"));
+        assertTrue(error.getMessage().contains(String.valueOf(ajena)));
+        assertThrows(IllegalStateException.class, () -> ficha.mover(2));
+    }
+
+    @Test
+    void unaBarreraEnLaSalidaImpideSacarFicha() {
+        Tablero tablero = new Tablero();
+        Jugador amarillo = new Jugador(1, "Ana", ColorFicha.AMARILLO);
+        Jugador azul = new Jugador(2, "Luis", ColorFicha.AZUL);
+        int salidaAzul = Tablero.casillaSalida(1);
+        tablero.ponerFicha(amarillo.seleccionarFicha(0), salidaAzul);
+        tablero.ponerFicha(amarillo.seleccionarFicha(1), salidaAzul);
+        Ficha enCasa = azul.seleccionarFicha(0);
+
+        assertTrue(tablero.tieneBarrera(salidaAzul));
+        assertTrue(tablero.recorridoBloqueado(enCasa, 5));
+        assertEquals(0, tablero.quitarBloqueadas(azul, azul.mascaraDisponibles(5), 5));
+        assertThrows(IllegalStateException.class, () -> tablero.sacarFicha(enCasa));
+        assertEquals(2, tablero.fichasDeColor(salidaAzul, 0));
+        assertEquals(0, tablero.fichasDeColor(salidaAzul, 1));
+        assertTrue(enCasa.isEnCasa());
+    }
+
+    @Test
+    void elGeneradorNoSacaFichasSobreUnaBarrera() {
+        EstadoPartida estado = EstadoPartida.inicial(0b0011);
+        int salidaAzul = Tablero.casillaSalida(1);
+        estado.restaurarFicha(0, salidaAzul);
+        estado.restaurarFicha(1, salidaAzul);
+        int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+
+        assertEquals(0, GeneradorMovimientos.generar(estado, 1, 5, movimientos));
+        assertEquals(-1, estado.sacarDeCasa(4));
+        estado.regresarACasa(1);
+        assertEquals(1, GeneradorMovimientos.generar(estado, 1, 5, movimientos));
+        assertTrue(GeneradorMovimientos.saleDeCasa(movimientos[0]));
+    }
+}
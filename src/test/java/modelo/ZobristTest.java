@@ -0,0 +1,100 @@
+/**
+ * Pruebas del hash Zobrist: Partida y EstadoPartida deben coincidir en todo momento
+ */
+package modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ZobristTest {
+
+    private static Partida crearPartida(ColorFicha... colores) {
+        Partida partida = new Partida(1, new DadoSecuencia(5));
+        for (int i = 0; i < colores.length; i++) {
+            partida.agregarJugador(new Jugador(i + 1, "J" + (i + 1), colores[i]));
+        }
+        return partida;
+    }
+
+    private static void assertMismoHash(Partida partida) {
+        assertEquals(EstadoPartida.desde(partida).getHash(), partida.getHash());
+    }
+
+    @Test
+    void coincidenAntesDelPrimerTurno() {
+        assertMismoHash(new Partida(1, new DadoSecuencia(5)));
+        assertMismoHash(crearPartida(ColorFicha.AMARILLO, ColorFicha.AZUL));
+        assertMismoHash(crearPartida(ColorFicha.ROJO, ColorFicha.VERDE));
+    }
+
+    @Test
+    void coincidenAlEmpezarConUnColorDistintoDelPrimero() {
+        Partida partida = crearPartida(ColorFicha.VERDE, ColorFicha.ROJO);
+
+        partida.iniciarPartida();
+
+        assertMismoHash(partida);
+    }
+
+    @Test
+    void coincidenDuranteLaPartida() {
+        Partida partida = crearPartida(ColorFicha.AMARILLO, ColorFicha.AZUL, ColorFicha.ROJO);
+        partida.iniciarPartida();
+        Tablero tablero = partida.getTablero();
+        Ficha ficha = partida.buscarFicha(Jugador.idFicha(1, 0));
+
+        tablero.sacarFicha(ficha);
+        assertMismoHash(partida);
+        tablero.moverFicha(ficha, 6);
+        partida.incrementarContadorSeis();
+        assertMismoHash(partida);
+        partida.setCasillasPremio(20);
+        partida.cambiarTurno();
+        assertMismoHash(partida);
+    }
+
+    @Test
+    void moverYDeshacerDevuelveElMismoHash() {
+        Partida partida = crearPartida(ColorFicha.AMARILLO, ColorFicha.AZUL);
+        partida.iniciarPartida();
+        Ficha ficha = partida.buscarFicha(Jugador.idFicha(2, 3));
+        long inicial = partida.getHash();
+
+        partida.getTablero().sacarFicha(ficha);
+        partida.getTablero().moverFicha(ficha, 4);
+        assertNotEquals(inicial, partida.getHash());
+        partida.getTablero().removerFicha(ficha);
+        ficha.regresarACasa();
+
+        assertEquals(inicial, partida.getHash());
+    }
+
+    @Test
+    void jugarYDeshacerEnEstadoPartidaDevuelveElMismoHash() {
+        EstadoPartida estado = EstadoPartida.inicial(0b0011);
+        estado.sacarDeCasa(0);
+        EstadoPartida antes = estado.copiar();
+        int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        int n = GeneradorMovimientos.generar(estado, 0, 4, movimientos);
+        assertTrue(n > 0);
+
+        estado.jugarTirada(movimientos[0]);
+        estado.terminarTirada(4);
+        assertNotEquals(antes.getHash(), estado.getHash());
+        estado.copiarDe(antes);
+
+        assertEquals(antes.getHash(), estado.getHash());
+        assertEquals(estado.calcularHash(), estado.getHash());
+    }
+
+    @Test
+    void laTablaDeTransposicionEncuentraElEstadoInicialDeUnaPartida() {
+        TablaTransposicion tabla = new TablaTransposicion(64);
+        Partida partida = crearPartida(ColorFicha.AMARILLO, ColorFicha.AZUL);
+        tabla.guardar(EstadoPartida.desde(partida).getHash(), 42);
+
+        assertEquals(42, tabla.buscar(partida.getHash()));
+        assertEquals(TablaTransposicion.NO_ENCONTRADO, tabla.buscar(partida.getHash() ^ 1));
+    }
+}
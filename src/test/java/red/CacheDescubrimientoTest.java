@@ -0,0 +1,94 @@
+/**
+ * Pruebas de la cache de descubrimiento: archivo, caducidad y capacidad
+ */
+package red;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheDescubrimientoTest {
+    private static final long HORA_MS = 3_600_000;
+
+    @TempDir
+    Path carpeta;
+
+    private CacheDescubrimiento crear(int capacidad) {
+        return new CacheDescubrimiento(carpeta.resolve("descubrimiento.json"), HORA_MS, capacidad);
+    }
+
+    private static DescubrimientoRed.JugadorEncontrado jugador(String nombre, String ip) {
+        return new DescubrimientoRed.JugadorEncontrado(nombre, ip, 6000, 1);
+    }
+
+    @Test
+    void loGuardadoSeLeeEnOtraSesion() {
+        CacheDescubrimiento cache = crear(CacheDescubrimiento.CAPACIDAD_POR_DEFECTO);
+        cache.cargar();
+        cache.recordar(jugador("Ana", "10.0.0.2"));
+        cache.guardar();
+
+        CacheDescubrimiento otra = crear(CacheDescubrimiento.CAPACIDAD_POR_DEFECTO);
+        otra.cargar();
+        List<CacheDescubrimiento.Entrada> vigentes = otra.vigentes();
+
+        assertEquals(1, vigentes.size());
+        assertEquals("Ana", vigentes.get(0).nombre);
+        assertEquals("10.0.0.2", vigentes.get(0).ip);
+        assertEquals(6000, vigentes.get(0).puerto);
+    }
+
+    @Test
+    void pasadaLaCapacidadSeOlvidaLaUsadaHaceMasTiempo() {
+        CacheDescubrimiento cache = crear(2);
+        cache.recordar(jugador("Ana", "10.0.0.2"));
+        cache.recordar(jugador("Luis", "10.0.0.3"));
+        // Ana vuelve a responder: pasa a ser la mas reciente
+        cache.recordar(jugador("Ana", "10.0.0.2"));
+        cache.recordar(jugador("Eva", "10.0.0.4"));
+
+        List<CacheDescubrimiento.Entrada> vigentes = cache.vigentes();
+
+        assertEquals(2, vigentes.size());
+        assertEquals("Eva", vigentes.get(0).nombre);
+        assertEquals("Ana", vigentes.get(1).nombre);
+    }
+
+    @Test
+    void lasEntradasCaducadasNoSeCargan() throws IOException {
+        long reciente = System.currentTimeMillis();
+        Files.writeString(carpeta.resolve("descubrimiento.json"),
+            "{\"version\":1,\"jugadores\":["
+            + "{\"nombre\":\"Ana\",\"ip\":\"10.0.0.2\",\"puerto\":6000,\"ultimaVez\":1},"
+            + "{\"nombre\":\"Luis\",\"ip\":\"10.0.0.3\",\"puerto\":6001,\"ultimaVez\":" + reciente + "}]}");
+        CacheDescubrimiento cache = crear(CacheDescubrimiento.CAPACIDAD_POR_DEFECTO);
+
+        cache.cargar();
+        List<CacheDescubrimiento.Entrada> vigentes = cache.vigentes();
+
+        assertEquals(1, vigentes.size());
+        assertEquals("Luis", vigentes.get(0).nombre);
+    }
+
+    @Test
+    void unArchivoIlegibleSeIgnoraYSeSobrescribe() throws IOException {
+        Path archivo = carpeta.resolve("descubrimiento.json");
+        Files.writeString(archivo, "esto no es json {");
+        CacheDescubrimiento cache = crear(CacheDescubrimiento.CAPACIDAD_POR_DEFECTO);
+
+        assertDoesNotThrow(cache::cargar);
+        assertTrue(cache.vigentes().isEmpty());
+        cache.recordar(jugador("Ana", "10.0.0.2"));
+        cache.guardar();
+
+        CacheDescubrimiento otra = crear(CacheDescubrimiento.CAPACIDAD_POR_DEFECTO);
+        otra.cargar();
+        assertEquals(1, otra.vigentes().size());
+    }
+}
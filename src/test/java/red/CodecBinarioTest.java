@@ -0,0 +1,140 @@
+/**
+ * Pruebas del codec binario: ida y vuelta de las tramas y limites de tamano
+ */
+package red;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class CodecBinarioTest {
+    // Cuerpo de un CHAT sin emisor con marca 1: tipo, marca, emisor nulo y 3 bytes de longitud del texto
+    private static final int CABECERA_CHAT = 6;
+
+    private final ByteArrayOutputStream enviado = new ByteArrayOutputStream();
+
+    private CodecBinario escritor() throws IOException {
+        return new CodecBinario(new ByteArrayInputStream(new byte[0]), enviado);
+    }
+
+    private CodecBinario lector() throws IOException {
+        return new CodecBinario(new ByteArrayInputStream(enviado.toByteArray()), new ByteArrayOutputStream());
+    }
+
+    private static CodecBinario lector(byte[] datos) throws IOException {
+        return new CodecBinario(new ByteArrayInputStream(datos), new ByteArrayOutputStream());
+    }
+
+    private static MensajeJuego chat(String emisor, int caracteres) {
+        return new MensajeJuego(MensajeJuego.TipoMensaje.CHAT, emisor, "x".repeat(caracteres), null, 1, 0);
+    }
+
+    @Test
+    void idaYVueltaDeTextoCargaYSecuencia() throws IOException {
+        CodecBinario codec = escritor();
+        codec.agregar(new MensajeJuego(MensajeJuego.TipoMensaje.CHAT, "Ana", "hola \u00f1and\u00fa"));
+        codec.agregar(new MensajeJuego("Ana", new CargaMensaje.Movimiento(1, 103, 5)).conSecuencia(7));
+        codec.agregar(new MensajeJuego("Luis", new CargaMensaje.EstadoJuego(new int[] {1, -2, 300, Integer.MIN_VALUE})));
+        codec.agregar(new MensajeJuego(MensajeJuego.TipoMensaje.SALUDO, null, null));
+        codec.vaciar();
+
+        CodecBinario lector = lector();
+        MensajeJuego chat = lector.leer();
+        assertEquals(MensajeJuego.TipoMensaje.CHAT, chat.getTipo());
+        assertEquals("Ana", chat.getEmisor());
+        assertEquals("hola \u00f1and\u00fa", chat.getContenido());
+        assertEquals(0L, chat.getSecuencia());
+
+        MensajeJuego movimiento = lector.leer();
+        assertEquals("Ana", movimiento.getEmisor());
+        assertEquals(new CargaMensaje.Movimiento(1, 103, 5), movimiento.getCarga());
+        assertEquals(7L, movimiento.getSecuencia());
+
+        MensajeJuego estado = lector.leer();
+        assertEquals("Luis", estado.getEmisor());
+        assertArrayEquals(new int[] {1, -2, 300, Integer.MIN_VALUE},
+                          ((CargaMensaje.EstadoJuego) estado.getCarga()).valores());
+
+        MensajeJuego saludo = lector.leer();
+        assertNull(saludo.getEmisor());
+        assertNull(saludo.getContenido());
+    }
+
+    @Test
+    void codificarTramaYDecodificarTramaSonSimetricos() throws IOException {
+        CodecBinario codec = new CodecBinario();
+        ByteBuffer trama = codec.codificarTrama(new MensajeJuego("Eva", new CargaMensaje.Latido(12, true)));
+        // Prefijo de un byte: el cuerpo es corto
+        int largo = trama.get(0);
+        assertEquals(trama.remaining() - 1, largo);
+
+        MensajeJuego mensaje = new CodecBinario().decodificarTrama(trama.array(), 1, largo);
+
+        assertEquals("Eva", mensaje.getEmisor());
+        assertEquals(new CargaMensaje.Latido(12, true), mensaje.getCarga());
+    }
+
+    @Test
+    void unaTramaDelTamanoMaximoPasa() throws IOException {
+        CodecBinario codec = escritor();
+        codec.agregar(chat(null, CodecBinario.MAX_TRAMA - CABECERA_CHAT));
+        codec.vaciar();
+
+        MensajeJuego recibido = lector().leer();
+
+        assertEquals(CodecBinario.MAX_TRAMA - CABECERA_CHAT, recibido.getContenido().length());
+    }
+
+    @Test
+    void unaTramaDemasiadoGrandeSeRechazaAlCodificar() throws IOException {
+        CodecBinario codec = escritor();
+        codec.agregar(chat("Luis", 1));
+        int antes = enviado.size();
+
+        assertThrows(IllegalArgumentException.class, () -> codec.agregar(chat("Ana", CodecBinario.MAX_TRAMA)));
+        assertThrows(IllegalArgumentException.class,
+                     () -> codec.codificarTrama(chat(null, CodecBinario.MAX_TRAMA - CABECERA_CHAT + 1)));
+        assertEquals(antes, enviado.size());
+
+        // El emisor rechazado no cuenta como ultimo enviado
+        codec.agregar(chat("Ana", 1));
+        codec.vaciar();
+        CodecBinario lector = lector();
+        assertEquals("Luis", lector.leer().getEmisor());
+        assertEquals("Ana", lector.leer().getEmisor());
+    }
+
+    @Test
+    void lasTramasMalFormadasSonErroresDelFlujo() throws IOException {
+        byte[] preambulo = CodecBinario.PREAMBULO;
+
+        assertThrows(StreamCorruptedException.class, () -> lector(new byte[] {'X', 'R', 'S', 1, 1, 0}).leer());
+        assertThrows(StreamCorruptedException.class,
+                     () -> lector(new byte[] {'P', 'R', 'S', CodecBinario.VERSION + 1}).leer());
+        // Longitud MAX_TRAMA + 1 en varint
+        assertThrows(StreamCorruptedException.class,
+                     () -> lector(concatenar(preambulo, new byte[] {(byte) 0x81, (byte) 0x80, 0x04})).leer());
+        // Tipo desconocido
+        assertThrows(StreamCorruptedException.class,
+                     () -> lector(concatenar(preambulo, new byte[] {3, 0x1F, 1, 0})).leer());
+        // Bytes sobrantes tras el contenido
+        assertThrows(StreamCorruptedException.class,
+                     () -> lector(concatenar(preambulo, new byte[] {5, 5, 1, 0, 0, 9})).leer());
+        // Movimiento con dos valores
+        assertThrows(StreamCorruptedException.class,
+                     () -> lector(concatenar(preambulo, new byte[] {6, (byte) 0x81, 1, 0, 2, 2, 2})).leer());
+    }
+
+    private static byte[] concatenar(byte[] a, byte[] b) {
+        byte[] r = new byte[a.length + b.length];
+        System.arraycopy(a, 0, r, 0, a.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Pruebas del codec heredado con peers de versiones anteriores
+ */
+package red;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class CodecSerializacionTest {
+
+    @Test
+    void losTiposNuevosNoSeEnvianAUnPeerAnterior() throws IOException {
+        ByteArrayOutputStream enviado = new ByteArrayOutputStream();
+        CodecSerializacion codec = new CodecSerializacion(new ByteArrayInputStream(new byte[0]), enviado);
+        codec.agregar(new MensajeJuego(MensajeJuego.TipoMensaje.REANUDAR_SESION, "Ana", "token:abc,ultima:0"));
+        codec.agregar(new MensajeJuego("Ana", new CargaMensaje.Latido(1, false)));
+        codec.agregar(new MensajeJuego(MensajeJuego.TipoMensaje.CHAT, "Ana", "hola"));
+        codec.agregar(new MensajeJuego(MensajeJuego.TipoMensaje.FIN_JUEGO, "Ana", "fin"));
+        codec.vaciar();
+
+        CodecSerializacion lector = new CodecSerializacion(
+            new ByteArrayInputStream(enviado.toByteArray()), new ByteArrayOutputStream());
+
+        MensajeJuego chat = lector.leer();
+        assertEquals(MensajeJuego.TipoMensaje.CHAT, chat.getTipo());
+        assertEquals("hola", chat.getContenido());
+        assertEquals(MensajeJuego.TipoMensaje.FIN_JUEGO, lector.leer().getTipo());
+        assertThrows(EOFException.class, lector::leer);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Pruebas del escaneo no bloqueante de subredes
+ */
+package red;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class EscanerSubredTest {
+
+    @Test
+    void unaSubredAgregaSoloSusHostsSinLosExcluidos() throws IOException {
+        EscanerSubred escaner = new EscanerSubred(6000, "PING", (ip, linea) -> { });
+        Inet4Address propia = (Inet4Address) InetAddress.getByName("192.168.1.10");
+
+        // /24 tiene 254 hosts; la propia no se sondea
+        assertEquals(253, escaner.agregarSubred(propia, 24, Set.of("192.168.1.10")));
+    }
+
+    @Test
+    void lasSubredesGrandesSeRecortanAlPrefijoMinimo() throws IOException {
+        EscanerSubred escaner = new EscanerSubred(6000, "PING", (ip, linea) -> { });
+        Inet4Address propia = (Inet4Address) InetAddress.getByName("10.20.30.40");
+
+        assertEquals((1 << (32 - EscanerSubred.MIN_PREFIJO)) - 2, escaner.agregarSubred(propia, 8, Set.of()));
+        assertEquals(0, escaner.agregarSubred(propia, 32, Set.of()));
+        // En /31 las dos direcciones son hosts
+        assertEquals(2, escaner.agregarSubred(propia, 31, Set.of()));
+    }
+
+    @Test
+    void entregaLaRespuestaDeUnPeerQueEscucha() throws Exception {
+        try (ServerSocket servidor = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread peer = new Thread(() -> {
+                try (Socket s = servidor.accept();
+                     BufferedReader entrada = new BufferedReader(
+                         new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                     PrintWriter salida = new PrintWriter(s.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                    if ("PING".equals(entrada.readLine())) {
+                        salida.println("PONG Ana");
+                    }
+                } catch (IOException e) {
+                    // El escaneo fallara y la prueba lo indicara
+                }
+            });
+            peer.start();
+            List<String> respuestas = new ArrayList<>();
+            EscanerSubred escaner = new EscanerSubred(servidor.getLocalPort(), "PING",
+                                                      (ip, linea) -> respuestas.add(ip + " " + linea));
+            escaner.agregar(InetAddress.getLoopbackAddress());
+
+            escaner.escanear(5000, () -> !respuestas.isEmpty());
+            peer.join(5000);
+
+            assertEquals(List.of("127.0.0.1 PONG Ana"), respuestas);
+            assertEquals(1, escaner.getRespondidas());
+            assertEquals(0, escaner.getAgotadas());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Pruebas de la numeracion y el reenvio de SesionPeer
+ */
+package red;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SesionPeerTest {
+
+    /**
+     * Conexion que solo guarda lo que se le envia
+     */
+    private static final class ConexionFalsa implements Conexion {
+        final List<MensajeJuego> enviados = new ArrayList<>();
+
+        @Override public boolean enviarMensaje(MensajeJuego mensaje) { return enviados.add(mensaje); }
+        @Override public void cerrar() { }
+        @Override public void cerrarAhora() { }
+        @Override public boolean estaConectado() { return true; }
+        @Override public String getNombrePeer() { return "falsa"; }
+        @Override public String getDireccion() { return "memoria"; }
+        @Override public TipoCodec getTipoCodec() { return TipoCodec.BINARIO; }
+        @Override public int getMensajesEnCola() { return 0; }
+        @Override public EstadisticasRed getEstadisticas() { return new EstadisticasRed(); }
+
+        long[] secuencias() {
+            return enviados.stream().mapToLong(MensajeJuego::getSecuencia).toArray();
+        }
+    }
+
+    private static MensajeJuego tirada(int valor) {
+        return new MensajeJuego("Ana", new CargaMensaje.TiradaDado(valor));
+    }
+
+    @Test
+    void losMensajesSeNumeranEnOrden() {
+        SesionPeer sesion = SesionPeer.saliente("localhost", 5000);
+        ConexionFalsa conexion = new ConexionFalsa();
+        sesion.vincular(conexion, false);
+
+        for (int i = 1; i <= 3; i++) {
+            sesion.enviar(tirada(i));
+        }
+
+        assertArrayEquals(new long[] {1, 2, 3}, conexion.secuencias());
+        assertEquals(3L, sesion.getUltimaEnviada());
+    }
+
+    @Test
+    void recibirDetectaHuecosYDuplicados() {
+        SesionPeer sesion = SesionPeer.entrante("abc");
+
+        assertEquals(0L, sesion.recibir(1));
+        assertEquals(0L, sesion.recibir(2));
+        assertEquals(-1L, sesion.recibir(2));
+        // Faltan el 3 y el 4
+        assertEquals(3L, sesion.recibir(5));
+        assertEquals(-1L, sesion.recibir(4));
+        assertEquals(0L, sesion.recibir(6));
+        assertEquals(6L, sesion.getUltimaRecibida());
+    }
+
+    @Test
+    void alReconectarSeReenviaSoloLoQueFalta() {
+        SesionPeer sesion = SesionPeer.saliente("localhost", 5000);
+        ConexionFalsa primera = new ConexionFalsa();
+        sesion.vincular(primera, false);
+        sesion.confirmar(0);
+        sesion.enviar(tirada(1));
+        sesion.enviar(tirada(2));
+        sesion.enviar(tirada(3));
+
+        assertTrue(sesion.desvincular(primera));
+        assertTrue(sesion.estaSuspendida());
+        sesion.enviar(tirada(4));
+        ConexionFalsa segunda = new ConexionFalsa();
+        sesion.vincular(segunda, true);
+        // Esperando la respuesta: lo nuevo solo va al anillo
+        sesion.enviar(tirada(5));
+        assertEquals(0, segunda.enviados.size());
+
+        assertEquals(3, sesion.confirmar(2));
+
+        assertArrayEquals(new long[] {1, 2, 3}, primera.secuencias());
+        assertArrayEquals(new long[] {3, 4, 5}, segunda.secuencias());
+        assertFalse(sesion.estaSuspendida());
+    }
+
+    @Test
+    void quienAceptaRespondeConSuUltimaYReenvia() {
+        SesionPeer sesion = SesionPeer.entrante("abc");
+        ConexionFalsa primera = new ConexionFalsa();
+        sesion.reanudar(primera, 0, "Luis", true);
+        sesion.recibir(1);
+        sesion.enviar(tirada(1));
+        sesion.enviar(tirada(2));
+        sesion.desvincular(primera);
+
+        ConexionFalsa segunda = new ConexionFalsa();
+        assertNull(sesion.reanudar(segunda, 1, "Luis", false));
+
+        assertEquals("token:abc,ultima:0,nueva:1", primera.enviados.get(0).getContenido());
+        MensajeJuego respuesta = segunda.enviados.get(0);
+        assertEquals(MensajeJuego.TipoMensaje.REANUDAR_SESION, respuesta.getTipo());
+        assertEquals("token:abc,ultima:1", respuesta.getContenido());
+        assertEquals(2, segunda.enviados.size());
+        assertEquals(2L, segunda.enviados.get(1).getSecuencia());
+    }
+
+    @Test
+    void elAnilloOlvidaLoMasViejo() {
+        SesionPeer sesion = SesionPeer.saliente("localhost", 5000);
+        sesion.vincular(new ConexionFalsa(), false);
+        sesion.confirmar(0);
+        int total = SesionPeer.CAPACIDAD_REPETICION + 10;
+        for (int i = 0; i < total; i++) {
+            sesion.enviar(tirada(1 + i % 6));
+        }
+        sesion.desvincular(sesion.getConexion());
+
+        ConexionFalsa nueva = new ConexionFalsa();
+        sesion.vincular(nueva, true);
+
+        assertEquals(SesionPeer.CAPACIDAD_REPETICION, sesion.confirmar(0));
+        // El peer vera un hueco del 1 al 10 y pedira el estado
+        assertEquals(11L, nueva.enviados.get(0).getSecuencia());
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Pruebas de las instantaneas y deltas de ESTADO_JUEGO
+ */
+package red;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import modelo.ColorFicha;
+import modelo.DadoSecuencia;
+import modelo.EstadoPartida;
+import modelo.Ficha;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.Tablero;
+import org.junit.jupiter.api.Test;
+
+class SincronizacionEstadoTest {
+
+    private static Partida crearPartida() {
+        Partida partida = new Partida(1, new DadoSecuencia(5));
+        partida.agregarJugador(new Jugador(1, "Ana", ColorFicha.AMARILLO));
+        partida.agregarJugador(new Jugador(2, "Luis", ColorFicha.AZUL));
+        partida.iniciarPartida();
+        return partida;
+    }
+
+    private static MensajeJuego estado(int... valores) {
+        return new MensajeJuego("Ana", new CargaMensaje.EstadoJuego(valores));
+    }
+
+    @Test
+    void laInstantaneaDejaLaPartidaIgual() {
+        Partida origen = crearPartida();
+        Ficha ficha = origen.buscarFicha(Jugador.idFicha(2, 1));
+        origen.getTablero().sacarFicha(ficha);
+        origen.getTablero().moverFicha(ficha, 4);
+        origen.cambiarTurno();
+        Partida destino = crearPartida();
+        SincronizacionEstado pide = new SincronizacionEstado();
+
+        MensajeJuego respuesta = new SincronizacionEstado().responder(pide.crearPeticion("Luis"), origen, "Ana");
+
+        assertTrue(pide.aplicar(respuesta, destino));
+        assertEquals(origen.getHash(), destino.getHash());
+        assertEquals(Tablero.casillaSalida(1) + 4, destino.buscarFicha(Jugador.idFicha(2, 1)).getPosicion());
+        assertEquals(2, destino.getTurnoActual().getIdJugador());
+    }
+
+    @Test
+    void conLaBaseRecordadaSeEnviaUnDelta() {
+        Partida origen = crearPartida();
+        Partida destino = crearPartida();
+        SincronizacionEstado responde = new SincronizacionEstado();
+        SincronizacionEstado pide = new SincronizacionEstado();
+        assertTrue(pide.aplicar(responde.responder(pide.crearPeticion("Luis"), origen, "Ana"), destino));
+
+        origen.getTablero().sacarFicha(origen.buscarFicha(Jugador.idFicha(1, 2)));
+        MensajeJuego delta = responde.responder(pide.crearPeticion("Luis"), origen, "Ana");
+
+        assertEquals(SincronizacionEstado.DELTA, ((CargaMensaje.EstadoJuego) delta.getCarga()).clase());
+        assertTrue(pide.aplicar(delta, destino));
+        assertEquals(origen.getHash(), destino.getHash());
+        assertEquals(2, pide.getNumeroLocal());
+    }
+
+    @Test
+    void unDeltaSobreOtraBaseSeRechaza() {
+        Partida partida = crearPartida();
+        long antes = partida.getHash();
+        SincronizacionEstado pide = new SincronizacionEstado();
+
+        assertFalse(pide.aplicar(estado(SincronizacionEstado.DELTA, 3, 4, 0, 0, 0, 0, 0, 0), partida));
+        assertEquals(antes, partida.getHash());
+    }
+
+    @Test
+    void unaInstantaneaMalFormadaSeRechaza() {
+        Partida partida = crearPartida();
+        long antes = partida.getHash();
+        SincronizacionEstado pide = new SincronizacionEstado();
+
+        // Truncada: faltan las fichas
+        assertFalse(pide.aplicar(estado(SincronizacionEstado.INSTANTANEA, 1, 0b0011, 0, 0, 0, 0, 0), partida));
+        // Clase desconocida
+        assertFalse(pide.aplicar(estado(7, 1), partida));
+        // Hash que no coincide
+        int[] valores = instantanea(EstadoPartida.desde(partida));
+        valores[7] ^= 1;
+        assertFalse(pide.aplicar(estado(valores), partida));
+
+        assertEquals(antes, partida.getHash());
+        assertEquals(0, pide.getNumeroLocal());
+    }
+
+    @Test
+    void unaFichaFueraDeSuRecorridoSeRechaza() {
+        Partida partida = crearPartida();
+        long antes = partida.getHash();
+        EstadoPartida malo = EstadoPartida.desde(partida);
+        // Pasillo del Azul con una ficha del Amarillo: el hash es coherente, la casilla no
+        malo.restaurarFicha(0, Tablero.casillaDeProgreso(1, Tablero.PROGRESO_ENTRADA + 1));
+        SincronizacionEstado pide = new SincronizacionEstado();
+
+        assertFalse(pide.aplicar(estado(instantanea(malo)), partida));
+        assertEquals(antes, partida.getHash());
+        assertTrue(partida.buscarFicha(Jugador.idFicha(1, 0)).isEnCasa());
+        assertThrows(IllegalArgumentException.class,
+                     () -> partida.getTablero().ponerFicha(partida.buscarFicha(Jugador.idFicha(1, 0)),
+                                                            Tablero.casillaDeProgreso(1, Tablero.PROGRESO_ENTRADA + 1)));
+    }
+
+    /**
+     * Instantanea numero 1 de una partida Amarillo-Azul con el formato de SincronizacionEstado
+     */
+    private static int[] instantanea(EstadoPartida estado) {
+        int activas = Integer.bitCount(estado.getMascaraActivas());
+        int[] valores = new int[8 + activas];
+        valores[0] = SincronizacionEstado.INSTANTANEA;
+        valores[1] = 1;
+        valores[2] = 0b0011;
+        valores[3] = estado.getTurno();
+        valores[4] = estado.getContadorSeis();
+        valores[5] = estado.getCasillasPremio();
+        valores[6] = (int) (estado.getHash() >>> 32);
+        valores[7] = (int) estado.getHash();
+        int i = 8;
+        for (int f = 0; f < EstadoPartida.TOTAL_FICHAS; f++) {
+            if (estado.estaActiva(f)) {
+                valores[i++] = estado.codigoFicha(f);
+            }
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Pruebas de la negociacion del codec al conectar por TCP
+ */
+package red;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TransporteTCPTest {
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    @Test
+    void entrePeersActualesConectarNoEsperaLaDeteccion() throws IOException {
+        int puerto = puertoLibre();
+        P2PNetworkManager anfitrion = new P2PNetworkManager("Ana", puerto);
+        P2PNetworkManager invitado = new P2PNetworkManager("Luis", puertoLibre());
+        try {
+            anfitrion.iniciarServidor();
+
+            long inicio = System.nanoTime();
+            assertTrue(invitado.conectarAPeer("127.0.0.1", puerto));
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+            // Antes se esperaban siempre los 300 ms de deteccion
+            assertTrue(ms < 250, "conectar tardo " + ms + " ms");
+            assertEquals(TipoCodec.BINARIO, invitado.getPeersConectados().get(0).getTipoCodec());
+        } finally {
+            invitado.cerrar();
+            anfitrion.cerrar();
+        }
+    }
+
+    @Test
+    void conUnAnfitrionAnteriorSeReconectaConSerializacion() throws Exception {
+        AtomicInteger aceptadas = new AtomicInteger();
+        try (ServerSocket anterior = new ServerSocket(0, 2, InetAddress.getLoopbackAddress())) {
+            // Como las versiones anteriores: cabecera de serializacion nada mas aceptar
+            Thread hilo = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 2; i++) {
+                        Socket socket = anterior.accept();
+                        aceptadas.incrementAndGet();
+                        new ObjectOutputStream(socket.getOutputStream()).flush();
+                    }
+                } catch (IOException e) {
+                    // El servidor se cerro
+                }
+            });
+            hilo.setDaemon(true);
+            hilo.start();
+            P2PNetworkManager gestor = new P2PNetworkManager("Luis", puertoLibre());
+            TransporteTCP transporte = new TransporteTCP(gestor);
+
+            Conexion conexion = transporte.conectar("127.0.0.1", anterior.getLocalPort());
+            hilo.join(5000);
+
+            assertEquals(TipoCodec.SERIALIZACION, conexion.getTipoCodec());
+            assertEquals(2, aceptadas.get());
+            conexion.cerrarAhora();
+        }
+    }
+}